@@ -2,7 +2,6 @@ package com.sx4.api;
 
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.time.Clock;
 import java.time.Duration;
 import java.time.ZoneOffset;
 import java.time.ZonedDateTime;
@@ -10,8 +9,6 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.GET;
@@ -33,7 +30,6 @@ import com.jockie.bot.core.category.impl.CategoryImpl;
 import com.jockie.bot.core.option.IOption;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.Updates;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
@@ -229,14 +225,7 @@ public class Endpoints {
 			YouTubeManager manager = Sx4Bot.getYouTubeManager();
 			String channelId = topic.substring(topic.lastIndexOf('=') + 1);
 			
-			Database.get().updateResubscriptionById(channelId, Updates.set("resubscribeAt", Clock.systemUTC().instant().getEpochSecond() + seconds), (result, exception) -> {
-				if (exception != null) {
-					exception.printStackTrace();
-				} else {
-					ScheduledFuture<?> resubscription = Sx4Bot.scheduledExectuor.schedule(() -> manager.resubscribe(channelId), seconds, TimeUnit.SECONDS);
-					manager.putResubscription(channelId, resubscription);
-				}
-			});
+			manager.scheduleResubscription(channelId, seconds);
 			
 			return Response.ok(challenge).build();
 		} else {
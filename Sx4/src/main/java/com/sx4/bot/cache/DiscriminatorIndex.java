@@ -0,0 +1,179 @@
+package com.sx4.bot.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import gnu.trove.impl.Constants;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+
+/**
+ * The ids of the users in each discriminator, every discriminator has its own sorted array of ids so a discriminator
+ * is listed by copying its array and adding or removing a user only locks and shifts the array of its discriminator.
+ *
+ * The discriminator each id was put in is kept as well so an id is always moved or removed from the discriminator it
+ * is in rather than the one its user has now, the ids are split over stripes which each have their own lock.
+ */
+public class DiscriminatorIndex {
+
+	public static final int DISCRIMINATORS = 10000;
+
+	private static final long[] EMPTY = new long[0];
+
+	private static final int STRIPES = 64;
+
+	private static final int NO_DISCRIMINATOR = -1;
+
+	private static class Bucket {
+
+		private long[] ids = DiscriminatorIndex.EMPTY;
+		private int size = 0;
+
+	}
+
+	public static int getDiscriminator(String discriminator) {
+		int value = Integer.parseInt(discriminator);
+		if (value < 0 || value >= DiscriminatorIndex.DISCRIMINATORS) {
+			throw new IllegalArgumentException("Discriminators are between 0000 and 9999");
+		}
+
+		return value;
+	}
+
+	private final Bucket[] buckets = new Bucket[DiscriminatorIndex.DISCRIMINATORS];
+
+	/* The lock of a stripe is always taken before the lock of a bucket */
+	private final TLongIntMap[] discriminators = new TLongIntMap[DiscriminatorIndex.STRIPES];
+
+	private final AtomicInteger size = new AtomicInteger(0);
+
+	public DiscriminatorIndex() {
+		for (int i = 0; i < this.buckets.length; i++) {
+			this.buckets[i] = new Bucket();
+		}
+
+		for (int i = 0; i < this.discriminators.length; i++) {
+			this.discriminators[i] = new TLongIntHashMap(Constants.DEFAULT_CAPACITY, Constants.DEFAULT_LOAD_FACTOR, 0L, DiscriminatorIndex.NO_DISCRIMINATOR);
+		}
+	}
+
+	private TLongIntMap getStripe(long id) {
+		return this.discriminators[(int) ((id ^ (id >>> 32)) & (DiscriminatorIndex.STRIPES - 1))];
+	}
+
+	private void add(int discriminator, long id) {
+		Bucket bucket = this.buckets[discriminator];
+		synchronized (bucket) {
+			int index = Arrays.binarySearch(bucket.ids, 0, bucket.size, id);
+			if (index >= 0) {
+				return;
+			}
+
+			index = -index - 1;
+			if (bucket.size == bucket.ids.length) {
+				bucket.ids = Arrays.copyOf(bucket.ids, Math.max(4, bucket.size * 2));
+			}
+
+			System.arraycopy(bucket.ids, index, bucket.ids, index + 1, bucket.size - index);
+			bucket.ids[index] = id;
+			bucket.size++;
+		}
+	}
+
+	private void delete(int discriminator, long id) {
+		Bucket bucket = this.buckets[discriminator];
+		synchronized (bucket) {
+			int index = Arrays.binarySearch(bucket.ids, 0, bucket.size, id);
+			if (index < 0) {
+				return;
+			}
+
+			System.arraycopy(bucket.ids, index + 1, bucket.ids, index, bucket.size - index - 1);
+			bucket.size--;
+
+			/* Shrunk once it is mostly empty so a discriminator which was once popular does not keep its memory */
+			if (bucket.size < bucket.ids.length / 4) {
+				bucket.ids = bucket.size == 0 ? DiscriminatorIndex.EMPTY : Arrays.copyOf(bucket.ids, bucket.size * 2);
+			}
+		}
+	}
+
+	/**
+	 * Adds the id or moves it to the discriminator if it is already in another one
+	 */
+	public void put(long id, int discriminator) {
+		if (discriminator < 0 || discriminator >= DiscriminatorIndex.DISCRIMINATORS) {
+			throw new IllegalArgumentException("Discriminators are between 0000 and 9999");
+		}
+
+		TLongIntMap stripe = this.getStripe(id);
+		synchronized (stripe) {
+			int oldDiscriminator = stripe.put(id, discriminator);
+			if (oldDiscriminator == discriminator) {
+				return;
+			}
+
+			if (oldDiscriminator == DiscriminatorIndex.NO_DISCRIMINATOR) {
+				this.size.incrementAndGet();
+			} else {
+				this.delete(oldDiscriminator, id);
+			}
+
+			this.add(discriminator, id);
+		}
+	}
+
+	/**
+	 * Removes the id from the discriminator it was put in
+	 */
+	public void remove(long id) {
+		TLongIntMap stripe = this.getStripe(id);
+		synchronized (stripe) {
+			int oldDiscriminator = stripe.remove(id);
+			if (oldDiscriminator != DiscriminatorIndex.NO_DISCRIMINATOR) {
+				this.delete(oldDiscriminator, id);
+
+				this.size.decrementAndGet();
+			}
+		}
+	}
+
+	/**
+	 * @return the discriminator the id was put in, -1 if it is not in the index
+	 */
+	public int getDiscriminator(long id) {
+		TLongIntMap stripe = this.getStripe(id);
+		synchronized (stripe) {
+			return stripe.get(id);
+		}
+	}
+
+	public boolean contains(int discriminator, long id) {
+		Bucket bucket = this.buckets[discriminator];
+		synchronized (bucket) {
+			return Arrays.binarySearch(bucket.ids, 0, bucket.size, id) >= 0;
+		}
+	}
+
+	/**
+	 * @return the ids in the discriminator in ascending order
+	 */
+	public long[] get(int discriminator) {
+		Bucket bucket = this.buckets[discriminator];
+		synchronized (bucket) {
+			return Arrays.copyOf(bucket.ids, bucket.size);
+		}
+	}
+
+	public int size(int discriminator) {
+		Bucket bucket = this.buckets[discriminator];
+		synchronized (bucket) {
+			return bucket.size;
+		}
+	}
+
+	public int size() {
+		return this.size.get();
+	}
+
+}
@@ -0,0 +1,302 @@
+package com.sx4.bot.cache;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.sx4.bot.core.Sx4Bot;
+
+import net.dv8tion.jda.api.entities.Emote;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.entities.User;
+import net.dv8tion.jda.api.events.emote.EmoteAddedEvent;
+import net.dv8tion.jda.api.events.emote.EmoteRemovedEvent;
+import net.dv8tion.jda.api.events.emote.update.EmoteUpdateNameEvent;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.guild.member.update.GuildMemberUpdateNicknameEvent;
+import net.dv8tion.jda.api.events.guild.update.GuildUpdateNameEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateDiscriminatorEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateNameEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+import net.dv8tion.jda.api.sharding.ShardManager;
+
+/**
+ * Name indexes of the users, guilds and emotes of every shard and of the members of each guild so arguments can be
+ * resolved by name without scanning the caches, they are kept up to date from the events which change a name. The
+ * discriminators of the users are indexed alongside their names.
+ *
+ * Name events of a user and member events of its guilds are handled on different lanes so the current name is always
+ * read from the entity rather than the event, whichever event is handled last puts the name it ended up with.
+ */
+public class EntityNameCache extends ListenerAdapter {
+
+	public static final EntityNameCache INSTANCE = new EntityNameCache();
+
+	private static final String STATISTICS_MESSAGE = "Name index: %,d users, %,d guilds, %,d emotes, %,d members in %,d guilds, %,d user trigrams, %,d users in discriminators";
+
+	private final NameIndex users = new NameIndex();
+	private final NameIndex guilds = new NameIndex();
+	private final NameIndex emotes = new NameIndex();
+
+	private final DiscriminatorIndex discriminators = new DiscriminatorIndex();
+
+	private final Map<Long, NameIndex> members = new ConcurrentHashMap<>();
+
+	private EntityNameCache() {}
+
+	private NameIndex getMemberIndex(long guildId) {
+		return this.members.computeIfAbsent(guildId, key -> new NameIndex());
+	}
+
+	private void putGuild(Guild guild) {
+		this.guilds.put(guild.getIdLong(), guild.getName());
+
+		/* Replaced rather than updated so members who left while the guild was unavailable are not kept */
+		NameIndex members = new NameIndex();
+		for (Member member : guild.getMemberCache()) {
+			members.put(member.getIdLong(), member.getEffectiveName());
+
+			this.putUser(member.getUser());
+		}
+
+		this.members.put(guild.getIdLong(), members);
+
+		for (Emote emote : guild.getEmoteCache()) {
+			this.emotes.put(emote.getIdLong(), emote.getName());
+		}
+	}
+
+	private void putUser(User user) {
+		this.users.put(user.getIdLong(), user.getName());
+		this.discriminators.put(user.getIdLong(), DiscriminatorIndex.getDiscriminator(user.getDiscriminator()));
+	}
+
+	private void removeUserIfUncached(User user) {
+		/* JDA removes a user from its cache once it shares no guilds with any shard */
+		if (Sx4Bot.getShardManager().getUserById(user.getIdLong()) == null) {
+			this.users.remove(user.getIdLong());
+			/* The user may have changed discriminator since it was indexed */
+			this.discriminators.remove(user.getIdLong());
+		}
+	}
+
+	public void onGuildReady(GuildReadyEvent event) {
+		this.putGuild(event.getGuild());
+	}
+
+	public void onGuildJoin(GuildJoinEvent event) {
+		this.putGuild(event.getGuild());
+	}
+
+	public void onGuildLeave(GuildLeaveEvent event) {
+		Guild guild = event.getGuild();
+
+		this.guilds.remove(guild.getIdLong());
+
+		for (Emote emote : guild.getEmoteCache()) {
+			this.emotes.remove(emote.getIdLong());
+		}
+
+		this.members.remove(guild.getIdLong());
+
+		/* JDA keeps the members of the guild for the leave event */
+		for (Member member : guild.getMemberCache()) {
+			this.removeUserIfUncached(member.getUser());
+		}
+	}
+
+	public void onGuildUpdateName(GuildUpdateNameEvent event) {
+		this.guilds.put(event.getGuild().getIdLong(), event.getGuild().getName());
+	}
+
+	public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+		Member member = event.getMember();
+
+		this.getMemberIndex(event.getGuild().getIdLong()).put(member.getIdLong(), member.getEffectiveName());
+		this.putUser(member.getUser());
+	}
+
+	public void onGuildMemberRemove(GuildMemberRemoveEvent event) {
+		NameIndex members = this.members.get(event.getGuild().getIdLong());
+		if (members != null) {
+			members.remove(event.getUser().getIdLong());
+		}
+
+		this.removeUserIfUncached(event.getUser());
+	}
+
+	public void onGuildMemberUpdateNickname(GuildMemberUpdateNicknameEvent event) {
+		Member member = event.getMember();
+
+		this.getMemberIndex(event.getGuild().getIdLong()).put(member.getIdLong(), member.getEffectiveName());
+	}
+
+	public void onUserUpdateName(UserUpdateNameEvent event) {
+		User user = event.getUser();
+
+		this.users.put(user.getIdLong(), user.getName());
+
+		/* The effective name of a member without a nickname is the name of the user */
+		for (Guild guild : Sx4Bot.getShardManager().getMutualGuilds(user)) {
+			Member member = guild.getMember(user);
+			if (member != null && member.getNickname() == null) {
+				this.getMemberIndex(guild.getIdLong()).put(member.getIdLong(), member.getEffectiveName());
+			}
+		}
+	}
+
+	public void onUserUpdateDiscriminator(UserUpdateDiscriminatorEvent event) {
+		User user = event.getUser();
+
+		this.discriminators.put(user.getIdLong(), DiscriminatorIndex.getDiscriminator(user.getDiscriminator()));
+	}
+
+	public void onEmoteAdded(EmoteAddedEvent event) {
+		this.emotes.put(event.getEmote().getIdLong(), event.getEmote().getName());
+	}
+
+	public void onEmoteRemoved(EmoteRemovedEvent event) {
+		this.emotes.remove(event.getEmote().getIdLong());
+	}
+
+	public void onEmoteUpdateName(EmoteUpdateNameEvent event) {
+		this.emotes.put(event.getEmote().getIdLong(), event.getEmote().getName());
+	}
+
+	/**
+	 * @return the users matching the name ranked the same way as {@link NameIndex#search(String, int)}
+	 */
+	public List<User> getUsers(String name, int limit) {
+		ShardManager shardManager = Sx4Bot.getShardManager();
+
+		List<User> users = new ArrayList<>();
+		for (long userId : this.users.search(name, limit)) {
+			User user = shardManager.getUserById(userId);
+			if (user != null) {
+				users.add(user);
+			}
+		}
+
+		return users;
+	}
+
+	/**
+	 * @return the users whose name is exactly this name ignoring case
+	 */
+	public List<User> getUsersByName(String name) {
+		ShardManager shardManager = Sx4Bot.getShardManager();
+
+		List<User> users = new ArrayList<>();
+		for (long userId : this.users.get(name)) {
+			User user = shardManager.getUserById(userId);
+			if (user != null) {
+				users.add(user);
+			}
+		}
+
+		return users;
+	}
+
+	/**
+	 * @param guild the guild the users have to be in, null for every user
+	 * @return the users in the discriminator in the order of their ids, users are checked against their current
+	 * discriminator as a discriminator event may not have been handled yet
+	 */
+	public List<User> getUsersByDiscriminator(String discriminator, Guild guild) {
+		int value = DiscriminatorIndex.getDiscriminator(discriminator);
+
+		List<User> users = new ArrayList<>();
+		if (guild == null) {
+			ShardManager shardManager = Sx4Bot.getShardManager();
+			for (long userId : this.discriminators.get(value)) {
+				User user = shardManager.getUserById(userId);
+				if (user != null && user.getDiscriminator().equals(discriminator)) {
+					users.add(user);
+				}
+			}
+		} else if (guild.getMemberCache().size() < this.discriminators.size(value)) {
+			/* Whichever of the guild and the discriminator is smaller is the one which is walked */
+			for (Member member : guild.getMemberCache()) {
+				if (member.getUser().getDiscriminator().equals(discriminator)) {
+					users.add(member.getUser());
+				}
+			}
+		} else {
+			for (long userId : this.discriminators.get(value)) {
+				Member member = guild.getMemberById(userId);
+				if (member != null && member.getUser().getDiscriminator().equals(discriminator)) {
+					users.add(member.getUser());
+				}
+			}
+		}
+
+		return users;
+	}
+
+	public List<Guild> getGuilds(String name, int limit) {
+		ShardManager shardManager = Sx4Bot.getShardManager();
+
+		List<Guild> guilds = new ArrayList<>();
+		for (long guildId : this.guilds.search(name, limit)) {
+			Guild guild = shardManager.getGuildById(guildId);
+			if (guild != null) {
+				guilds.add(guild);
+			}
+		}
+
+		return guilds;
+	}
+
+	/**
+	 * @return the emotes of every shard whose name is exactly this name ignoring case
+	 */
+	public List<Emote> getEmotesByName(String name) {
+		ShardManager shardManager = Sx4Bot.getShardManager();
+
+		List<Emote> emotes = new ArrayList<>();
+		for (long emoteId : this.emotes.get(name)) {
+			Emote emote = shardManager.getEmoteById(emoteId);
+			if (emote != null) {
+				emotes.add(emote);
+			}
+		}
+
+		return emotes;
+	}
+
+	/**
+	 * @return the members of the guild whose effective name matches the name ranked the same way as {@link NameIndex#search(String, int)}
+	 */
+	public List<Member> getMembers(Guild guild, String name, int limit) {
+		NameIndex index = this.members.get(guild.getIdLong());
+		if (index == null) {
+			return new ArrayList<>();
+		}
+
+		List<Member> members = new ArrayList<>();
+		for (long userId : index.search(name, limit)) {
+			Member member = guild.getMemberById(userId);
+			if (member != null) {
+				members.add(member);
+			}
+		}
+
+		return members;
+	}
+
+	public String getStatistics() {
+		int members = 0;
+		for (NameIndex index : this.members.values()) {
+			members += index.size();
+		}
+
+		return String.format(STATISTICS_MESSAGE, this.users.size(), this.guilds.size(), this.emotes.size(), members, this.members.size(), this.users.getTrigramCount(), this.discriminators.size());
+	}
+
+}
@@ -0,0 +1,224 @@
+package com.sx4.bot.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+import java.util.function.Predicate;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Projections;
+import com.sx4.bot.database.Database;
+
+/**
+ * A bitmap of the features each guild has enabled so listeners can skip guilds which have a feature disabled
+ * without any database queries, a guild is loaded with one query the first time any of its features are checked.
+ *
+ * Commands which enable or disable a feature update the bitmap once their write has completed, writes which may or
+ * may not leave a feature enabled invalidate the guild instead so it is loaded again.
+ *
+ * Every guild has its own version which is incremented on each change so a load which read the guild before a change
+ * does not overwrite it, a change only affects loads of its own guild.
+ */
+public class GuildFeatureCache {
+
+	public static final GuildFeatureCache INSTANCE = new GuildFeatureCache(guildId -> Database.get().getGuildById(guildId, null, GuildFeatureCache.PROJECTION));
+
+	private static final String STATISTICS_MESSAGE = "%,d guilds cached, %,d loaded";
+
+	public enum Feature {
+		ANTI_INVITE("Anti-Invite", data -> data.getEmbedded(List.of("antiinvite", "enabled"), false), "antiinvite.enabled"),
+		ANTI_LINK("Anti-Link", data -> data.getEmbedded(List.of("antilink", "enabled"), false), "antilink.enabled"),
+		IMAGE_MODE("Image Mode", data -> !data.getEmbedded(List.of("imageMode", "channels"), Collections.emptyList()).isEmpty(), "imageMode.channels"),
+		TRIGGER("Triggers", data -> {
+			Document trigger = data.get("trigger", Database.EMPTY_DOCUMENT);
+
+			return trigger.getBoolean("enabled", true) && !trigger.getList("triggers", Document.class, Collections.emptyList()).isEmpty();
+		}, "trigger.enabled", "trigger.triggers"),
+		STARBOARD("Starboard", data -> data.getEmbedded(List.of("starboard", "enabled"), false), "starboard.enabled"),
+		/* Only reaction roles are handled by a listener, the self roles list is only cleaned up when a role is deleted */
+		SELFROLES("Reaction Roles", data -> !data.getEmbedded(List.of("reactionRole", "reactionRoles"), Collections.emptyList()).isEmpty(), "reactionRole.reactionRoles"),
+		LOGGER("Logs", data -> data.getEmbedded(List.of("logger", "enabled"), false), "logger.enabled");
+
+		private static final String STATISTICS_MESSAGE = "%s: %,d skipped, %,d passed";
+
+		private final String name;
+		private final Predicate<Document> enabled;
+		private final String[] fields;
+
+		private final AtomicLong skipped = new AtomicLong();
+		private final AtomicLong passed = new AtomicLong();
+
+		private Feature(String name, Predicate<Document> enabled, String... fields) {
+			this.name = name;
+			this.enabled = enabled;
+			this.fields = fields;
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getRaw() {
+			return 1 << this.ordinal();
+		}
+
+		public boolean isEnabled(Document data) {
+			return this.enabled.test(data);
+		}
+
+		public long getSkipped() {
+			return this.skipped.get();
+		}
+
+		public long getPassed() {
+			return this.passed.get();
+		}
+
+		public String getStatistics() {
+			return String.format(Feature.STATISTICS_MESSAGE, this.name, this.skipped.get(), this.passed.get());
+		}
+
+	}
+
+	private static final Bson PROJECTION;
+
+	static {
+		List<String> fields = new ArrayList<>();
+		for (Feature feature : Feature.values()) {
+			Collections.addAll(fields, feature.fields);
+		}
+
+		PROJECTION = Projections.include(fields);
+	}
+
+	/* -1 can never be a bitmap as there are less than 32 features */
+	private static final int NOT_LOADED = -1;
+
+	private static class Entry {
+
+		/* NOT_LOADED once the guild has been invalidated until it is loaded again */
+		private final int features;
+		private final long version;
+
+		private Entry(int features, long version) {
+			this.features = features;
+			this.version = version;
+		}
+
+	}
+
+	/* Entries are kept after an invalidation so the version of the guild is not lost */
+	private final Map<Long, Entry> features = new ConcurrentHashMap<>();
+
+	private final LongFunction<Document> loader;
+
+	private final AtomicLong loaded = new AtomicLong();
+
+	/**
+	 * @param loader reads the fields of the guild every feature is checked with
+	 */
+	GuildFeatureCache(LongFunction<Document> loader) {
+		this.loader = loader;
+	}
+
+	public static int getFeatures(Document data) {
+		int features = 0;
+		for (Feature feature : Feature.values()) {
+			if (feature.isEnabled(data)) {
+				features |= feature.getRaw();
+			}
+		}
+
+		return features;
+	}
+
+	private int getFeatures(long guildId) {
+		Entry entry = this.features.get(guildId);
+		if (entry != null && entry.features != NOT_LOADED) {
+			return entry.features;
+		}
+
+		long version = entry == null ? 0 : entry.version;
+
+		int features = GuildFeatureCache.getFeatures(this.loader.apply(guildId));
+
+		this.features.compute(guildId, (key, current) -> {
+			long currentVersion = current == null ? 0 : current.version;
+
+			return currentVersion == version ? new Entry(features, version) : current;
+		});
+
+		this.loaded.incrementAndGet();
+
+		return features;
+	}
+
+	/**
+	 * @return false if the guild definitely has the feature disabled, listeners should return before any other work when it is
+	 */
+	public boolean isEnabled(long guildId, Feature feature) {
+		boolean enabled = (this.getFeatures(guildId) & feature.getRaw()) != 0;
+		if (enabled) {
+			feature.passed.incrementAndGet();
+		} else {
+			feature.skipped.incrementAndGet();
+		}
+
+		return enabled;
+	}
+
+	/**
+	 * @return true if the guild has been loaded and has the feature disabled, unlike {@link #isEnabled(long, Feature)} this never loads the guild
+	 */
+	public boolean isKnownDisabled(long guildId, Feature feature) {
+		Entry entry = this.features.get(guildId);
+
+		return entry != null && entry.features != NOT_LOADED && (entry.features & feature.getRaw()) == 0;
+	}
+
+	/**
+	 * Should be called after the write which enabled or disabled the feature has completed
+	 */
+	public void setEnabled(long guildId, Feature feature, boolean enabled) {
+		this.features.compute(guildId, (key, entry) -> {
+			if (entry == null) {
+				return new Entry(NOT_LOADED, 1);
+			}
+
+			int features = entry.features;
+			if (features != NOT_LOADED) {
+				features = enabled ? features | feature.getRaw() : features & ~feature.getRaw();
+			}
+
+			return new Entry(features, entry.version + 1);
+		});
+	}
+
+	public void invalidate(long guildId) {
+		this.features.compute(guildId, (key, entry) -> new Entry(NOT_LOADED, entry == null ? 1 : entry.version + 1));
+	}
+
+	public String getStatistics() {
+		int cached = 0;
+		for (Entry entry : this.features.values()) {
+			if (entry.features != NOT_LOADED) {
+				cached++;
+			}
+		}
+
+		StringBuilder statistics = new StringBuilder(String.format(STATISTICS_MESSAGE, cached, this.loaded.get()));
+
+		for (Feature feature : Feature.values()) {
+			statistics.append("\n" + feature.getStatistics());
+		}
+
+		return statistics.toString();
+	}
+
+}
@@ -0,0 +1,201 @@
+package com.sx4.bot.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.google.common.cache.CacheBuilder;
+import com.mongodb.client.model.Projections;
+import com.sx4.bot.database.Database;
+
+import net.dv8tion.jda.api.entities.Message;
+
+/**
+ * Everything the listeners and command checks of a guild message read, shared between all of them so the guild and
+ * author documents are read once per message with the union of the fields every listener has declared.
+ *
+ * Listeners declare the fields they read when they are created, a field which is read without being declared is
+ * loaded on its own and declared for every message after it.
+ */
+public class GuildMessageContext {
+
+	/* Contexts are kept by message identity, the message is referenced by the event for as long as any listener needs it */
+	private static final ConcurrentMap<Message, GuildMessageContext> CONTEXTS = CacheBuilder.newBuilder()
+		.weakKeys()
+		.expireAfterAccess(1, TimeUnit.MINUTES)
+		.<Message, GuildMessageContext>build()
+		.asMap();
+
+	private static final Fields GUILD_FIELDS = new Fields();
+	private static final Fields USER_FIELDS = new Fields();
+
+	private static class Fields {
+
+		private final Set<String> fields = new TreeSet<>();
+
+		private volatile List<String> snapshot = Collections.emptyList();
+
+		private synchronized void declare(String... fields) {
+			if (Collections.addAll(this.fields, fields)) {
+				/* Projecting a field and a field inside of it is a path collision so only the outermost one is kept */
+				List<String> snapshot = new ArrayList<>();
+				for (String field : this.fields) {
+					if (!Fields.isCovered(snapshot, field)) {
+						snapshot.add(field);
+					}
+				}
+
+				this.snapshot = Collections.unmodifiableList(snapshot);
+			}
+		}
+
+		private List<String> get() {
+			return this.snapshot;
+		}
+
+		private static boolean isCovered(List<String> fields, String field) {
+			for (String included : fields) {
+				if (field.equals(included) || field.startsWith(included + ".")) {
+					return true;
+				}
+			}
+
+			return false;
+		}
+
+	}
+
+	private static class Data {
+
+		private final Fields declared;
+		private final Loader loader;
+
+		private List<String> fields = null;
+		private Document data = null;
+
+		private Data(Fields declared, Loader loader) {
+			this.declared = declared;
+			this.loader = loader;
+		}
+
+		private synchronized Document get(String... fields) {
+			if (this.data == null) {
+				this.declared.declare(fields);
+
+				this.fields = new ArrayList<>(this.declared.get());
+				this.data = this.loader.load(Projections.include(this.fields));
+
+				return this.data;
+			}
+
+			List<String> missing = new ArrayList<>();
+			for (String field : fields) {
+				if (!Fields.isCovered(this.fields, field)) {
+					missing.add(field);
+				}
+			}
+
+			if (!missing.isEmpty()) {
+				this.declared.declare(fields);
+
+				Document data = new Document(this.data);
+				Data.merge(data, this.loader.load(Projections.include(missing)));
+
+				this.fields.addAll(missing);
+				this.data = data;
+			}
+
+			return this.data;
+		}
+
+		/**
+		 * Merges the embedded documents of both projections rather than replacing one with the other
+		 */
+		private static void merge(Document target, Document source) {
+			for (String key : source.keySet()) {
+				Object targetValue = target.get(key), sourceValue = source.get(key);
+				if (targetValue instanceof Document && sourceValue instanceof Document) {
+					Document merged = new Document((Document) targetValue);
+					Data.merge(merged, (Document) sourceValue);
+
+					target.put(key, merged);
+				} else {
+					target.put(key, sourceValue);
+				}
+			}
+		}
+
+	}
+
+	private interface Loader {
+
+		public Document load(Bson projection);
+
+	}
+
+	public static void declareGuildFields(String... fields) {
+		GuildMessageContext.GUILD_FIELDS.declare(fields);
+	}
+
+	public static void declareUserFields(String... fields) {
+		GuildMessageContext.USER_FIELDS.declare(fields);
+	}
+
+	public static GuildMessageContext get(Message message) {
+		return GuildMessageContext.CONTEXTS.computeIfAbsent(message, GuildMessageContext::new);
+	}
+
+	private final Message message;
+
+	private final Data guildData;
+	private final Data userData;
+
+	private String lowerCaseContent = null;
+
+	private GuildMessageContext(Message message) {
+		this.message = message;
+
+		this.guildData = new Data(GUILD_FIELDS, projection -> Database.get().getGuildById(message.getGuild().getIdLong(), null, projection));
+		this.userData = new Data(USER_FIELDS, projection -> Database.get().getUserById(message.getAuthor().getIdLong(), null, projection));
+	}
+
+	public Message getMessage() {
+		return this.message;
+	}
+
+	/**
+	 * @param fields the fields which are going to be read, these should already have been declared
+	 * @return the guild document with every declared field, this is shared so it must not be modified
+	 */
+	public Document getGuildData(String... fields) {
+		return this.guildData.get(fields);
+	}
+
+	/**
+	 * @param fields the fields which are going to be read, these should already have been declared
+	 * @return the author document with every declared field, this is shared so it must not be modified
+	 */
+	public Document getUserData(String... fields) {
+		return this.userData.get(fields);
+	}
+
+	public String getContent() {
+		return this.message.getContentRaw();
+	}
+
+	public String getLowerCaseContent() {
+		if (this.lowerCaseContent == null) {
+			this.lowerCaseContent = this.message.getContentRaw().toLowerCase();
+		}
+
+		return this.lowerCaseContent;
+	}
+
+}
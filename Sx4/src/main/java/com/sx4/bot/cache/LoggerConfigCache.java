@@ -0,0 +1,175 @@
+package com.sx4.bot.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Projections;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.database.Database;
+import com.sx4.bot.logger.LoggerConfig;
+
+/**
+ * The compiled logger config of every guild which has the logger enabled, a guild is compiled once the first time one of
+ * its events is logged and again after its settings change instead of on every event.
+ *
+ * Commands which change the logger settings invalidate the guild once their write has completed, the webhook the logger
+ * creates for itself is swapped into the cached config as it is written. A guild is removed when the bot leaves it.
+ *
+ * Lookups of a guild which is not cached share one load, which is only cached if the guild was not changed while it was
+ * in flight, a change removes the load from the guild so the next lookup starts another. A cached config is read
+ * without taking a lock and a change only affects loads of its guild.
+ */
+public class LoggerConfigCache {
+
+	public static final LoggerConfigCache INSTANCE = new LoggerConfigCache(guildId -> Database.get().query(() -> Database.get().getGuildById(guildId, null, LoggerConfigCache.PROJECTION).get("logger", Database.EMPTY_DOCUMENT)));
+
+	private static final String STATISTICS_MESSAGE = "Logger configs: %,d guilds cached, %,d compiled";
+
+	private static final Bson PROJECTION = Projections.include("logger");
+
+	private static class Entry {
+
+		/* Null until the load has completed */
+		private final LoggerConfig config;
+		private final CompletableFuture<LoggerConfig> loading;
+
+		private Entry(LoggerConfig config, CompletableFuture<LoggerConfig> loading) {
+			this.config = config;
+			this.loading = loading;
+		}
+
+	}
+
+	private final Map<Long, Entry> configs = new ConcurrentHashMap<>();
+
+	private final LongFunction<CompletableFuture<Document>> loader;
+
+	private final AtomicLong compiled = new AtomicLong();
+
+	/**
+	 * @param loader reads the logger settings of the guild without blocking the caller
+	 */
+	LoggerConfigCache(LongFunction<CompletableFuture<Document>> loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Blocks until the guild is loaded if it is not cached so it should only be used where {@link #getAsync(long)} can not be
+	 *
+	 * @return the logger config of the guild, guilds which have the logger disabled get {@link LoggerConfig#EMPTY} without a database query
+	 */
+	public LoggerConfig get(long guildId) {
+		if (!GuildFeatureCache.INSTANCE.isEnabled(guildId, Feature.LOGGER)) {
+			return LoggerConfig.EMPTY;
+		}
+
+		try {
+			return this.load(guildId).join();
+		} catch (CompletionException e) {
+			throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : e;
+		}
+	}
+
+	/**
+	 * @return a future of the logger config of the guild, it is completed straight away if the guild is cached or is known
+	 * to have the logger disabled
+	 */
+	public CompletableFuture<LoggerConfig> getAsync(long guildId) {
+		if (GuildFeatureCache.INSTANCE.isKnownDisabled(guildId, Feature.LOGGER)) {
+			return CompletableFuture.completedFuture(LoggerConfig.EMPTY);
+		}
+
+		return this.load(guildId);
+	}
+
+	private CompletableFuture<LoggerConfig> load(long guildId) {
+		Entry entry = this.configs.get(guildId);
+		if (entry != null && entry.config != null) {
+			return CompletableFuture.completedFuture(entry.config);
+		}
+
+		CompletableFuture<LoggerConfig> future = new CompletableFuture<>();
+
+		Entry current = this.configs.compute(guildId, (key, value) -> value == null ? new Entry(null, future) : value);
+		if (current.config != null) {
+			return CompletableFuture.completedFuture(current.config);
+		}
+
+		if (current.loading != future) {
+			return current.loading;
+		}
+
+		this.loader.apply(guildId).whenComplete((data, exception) -> {
+			if (exception != null) {
+				this.configs.remove(guildId, current);
+
+				future.completeExceptionally(exception);
+
+				return;
+			}
+
+			LoggerConfig config = new LoggerConfig(data);
+
+			/* The entry is only still there if nothing changed since the load started */
+			this.configs.replace(guildId, current, new Entry(config, null));
+
+			this.compiled.incrementAndGet();
+
+			future.complete(config);
+		});
+
+		return future;
+	}
+
+	/**
+	 * Swaps the webhook of the cached config as soon as it is known so queued logs use it straight away, a load in
+	 * flight is dropped as it may have read the guild before the webhook was written
+	 */
+	public void setWebhook(long guildId, Long webhookId, String webhookToken) {
+		this.configs.computeIfPresent(guildId, (key, entry) -> entry.config == null ? null : new Entry(entry.config.withWebhook(webhookId, webhookToken), null));
+	}
+
+	/**
+	 * Removes the webhook from the cached config of the guild unless it has already been replaced by another one
+	 */
+	public void removeWebhook(long guildId, long webhookId) {
+		this.configs.computeIfPresent(guildId, (key, entry) -> {
+			LoggerConfig config = entry.config;
+			if (config == null) {
+				return null;
+			}
+
+			if (config.getWebhookId() != null && config.getWebhookId() == webhookId) {
+				return new Entry(config.withWebhook(null, null), null);
+			}
+
+			return entry;
+		});
+	}
+
+	/**
+	 * Should be called after any other write to the logger settings has completed and once the bot has left the guild
+	 */
+	public void invalidate(long guildId) {
+		this.configs.remove(guildId);
+	}
+
+	public String getStatistics() {
+		int cached = 0;
+		for (Entry entry : this.configs.values()) {
+			if (entry.config != null) {
+				cached++;
+			}
+		}
+
+		return String.format(STATISTICS_MESSAGE, cached, this.compiled.get());
+	}
+
+}
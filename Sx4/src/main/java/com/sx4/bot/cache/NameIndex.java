@@ -0,0 +1,301 @@
+package com.sx4.bot.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import gnu.trove.iterator.TLongIterator;
+import gnu.trove.iterator.TLongObjectIterator;
+import gnu.trove.list.array.TLongArrayList;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * A mutable index of names by id which answers the exact, starts with and contains lookups arguments are resolved with
+ * without lower casing every name on every lookup.
+ *
+ * Names are lower cased once when they are put, exact and starts with lookups walk a sorted map of the names and
+ * contains lookups intersect the ids of every trigram of the query before checking the few names which are left.
+ */
+public class NameIndex {
+
+	private static final long[] EMPTY = new long[0];
+
+	/* Names are case folded the same way the lookups which used to scan them did */
+	public static String fold(String name) {
+		return name.toLowerCase();
+	}
+
+	private static long getTrigram(String name, int index) {
+		return ((long) name.charAt(index) << 32) | ((long) name.charAt(index + 1) << 16) | name.charAt(index + 2);
+	}
+
+	private static long[] getTrigrams(String name) {
+		TLongSet trigrams = new TLongHashSet(Math.max(1, name.length() - 2));
+		for (int i = 0; i < name.length() - 2; i++) {
+			trigrams.add(NameIndex.getTrigram(name, i));
+		}
+
+		return trigrams.toArray();
+	}
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private final TLongObjectMap<String> names = new TLongObjectHashMap<>();
+
+	/* Most names belong to one id so the ids of a name are kept in an array rather than a set */
+	private final TreeMap<String, long[]> ids = new TreeMap<>();
+
+	private final TLongObjectMap<TLongSet> trigrams = new TLongObjectHashMap<>();
+
+	private void add(long id, String name) {
+		long[] ids = this.ids.get(name);
+		if (ids == null) {
+			this.ids.put(name, new long[] {id});
+		} else {
+			long[] newIds = Arrays.copyOf(ids, ids.length + 1);
+			newIds[ids.length] = id;
+
+			this.ids.put(name, newIds);
+		}
+
+		for (long trigram : NameIndex.getTrigrams(name)) {
+			TLongSet trigramIds = this.trigrams.get(trigram);
+			if (trigramIds == null) {
+				trigramIds = new TLongHashSet();
+				this.trigrams.put(trigram, trigramIds);
+			}
+
+			trigramIds.add(id);
+		}
+	}
+
+	private void delete(long id, String name) {
+		long[] ids = this.ids.get(name);
+		if (ids != null) {
+			if (ids.length == 1) {
+				this.ids.remove(name);
+			} else {
+				long[] newIds = new long[ids.length - 1];
+
+				int index = 0;
+				for (long nameId : ids) {
+					if (nameId != id && index < newIds.length) {
+						newIds[index++] = nameId;
+					}
+				}
+
+				this.ids.put(name, newIds);
+			}
+		}
+
+		for (long trigram : NameIndex.getTrigrams(name)) {
+			TLongSet trigramIds = this.trigrams.get(trigram);
+			if (trigramIds != null) {
+				trigramIds.remove(id);
+				if (trigramIds.isEmpty()) {
+					this.trigrams.remove(trigram);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Adds the id or changes its name if it is already in the index
+	 */
+	public void put(long id, String name) {
+		String folded = NameIndex.fold(name);
+
+		this.lock.writeLock().lock();
+		try {
+			String oldName = this.names.put(id, folded);
+			if (oldName != null) {
+				if (oldName.equals(folded)) {
+					return;
+				}
+
+				this.delete(id, oldName);
+			}
+
+			this.add(id, folded);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public void remove(long id) {
+		this.lock.writeLock().lock();
+		try {
+			String oldName = this.names.remove(id);
+			if (oldName != null) {
+				this.delete(id, oldName);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public void clear() {
+		this.lock.writeLock().lock();
+		try {
+			this.names.clear();
+			this.ids.clear();
+			this.trigrams.clear();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public int size() {
+		this.lock.readLock().lock();
+		try {
+			return this.names.size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	public int getTrigramCount() {
+		this.lock.readLock().lock();
+		try {
+			return this.trigrams.size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return the ids which have exactly this name ignoring case
+	 */
+	public long[] get(String name) {
+		this.lock.readLock().lock();
+		try {
+			long[] ids = this.ids.get(NameIndex.fold(name));
+
+			return ids == null ? NameIndex.EMPTY : ids.clone();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * @return at most limit ids which match the query ignoring case, ids whose name is the query come first then the
+	 * ids whose name starts with the query in alphabetical order and then the ids whose name contains the query with
+	 * the earliest and shortest matches first
+	 */
+	public long[] search(String query, int limit) {
+		String folded = NameIndex.fold(query);
+
+		TLongArrayList result = new TLongArrayList(Math.min(limit, 16));
+
+		this.lock.readLock().lock();
+		try {
+			/* The name which is the query is the first key of its own tail so exact matches come before the other prefixes */
+			for (Map.Entry<String, long[]> entry : this.ids.tailMap(folded, true).entrySet()) {
+				if (!entry.getKey().startsWith(folded)) {
+					break;
+				}
+
+				for (long id : entry.getValue()) {
+					result.add(id);
+					if (result.size() == limit) {
+						return result.toArray();
+					}
+				}
+			}
+
+			if (folded.isEmpty()) {
+				return result.toArray();
+			}
+
+			List<Match> matches = new ArrayList<>();
+			if (folded.length() < 3) {
+				/* There are no trigrams to narrow a short query down with, the names are already folded so this is still cheaper than scanning the entities */
+				for (TLongObjectIterator<String> iterator = this.names.iterator(); iterator.hasNext();) {
+					iterator.advance();
+
+					int index = iterator.value().indexOf(folded);
+					if (index > 0) {
+						matches.add(new Match(iterator.key(), index, iterator.value().length()));
+					}
+				}
+			} else {
+				TLongSet candidates = this.getCandidates(folded);
+				for (TLongIterator iterator = candidates.iterator(); iterator.hasNext();) {
+					long id = iterator.next();
+					String name = this.names.get(id);
+
+					/* Trigrams can all be in a name without being next to each other */
+					int index = name.indexOf(folded);
+					if (index > 0) {
+						matches.add(new Match(id, index, name.length()));
+					}
+				}
+			}
+
+			matches.sort(null);
+
+			for (Match match : matches) {
+				result.add(match.id);
+				if (result.size() == limit) {
+					break;
+				}
+			}
+
+			return result.toArray();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private TLongSet getCandidates(String folded) {
+		long[] trigrams = NameIndex.getTrigrams(folded);
+
+		TLongSet[] sets = new TLongSet[trigrams.length];
+		for (int i = 0; i < trigrams.length; i++) {
+			TLongSet ids = this.trigrams.get(trigrams[i]);
+			if (ids == null) {
+				return new TLongHashSet(0);
+			}
+
+			sets[i] = ids;
+		}
+
+		/* Starting from the rarest trigram keeps the intersection small */
+		Arrays.sort(sets, (set, set2) -> Integer.compare(set.size(), set2.size()));
+
+		TLongSet candidates = new TLongHashSet(sets[0]);
+		for (int i = 1; i < sets.length && !candidates.isEmpty(); i++) {
+			candidates.retainAll(sets[i]);
+		}
+
+		return candidates;
+	}
+
+	private static class Match implements Comparable<Match> {
+
+		private final long id;
+		private final int index;
+		private final int length;
+
+		private Match(long id, int index, int length) {
+			this.id = id;
+			this.index = index;
+			this.length = length;
+		}
+
+		public int compareTo(Match match) {
+			int compare = Integer.compare(this.index, match.index);
+
+			return compare == 0 ? Integer.compare(this.length, match.length) : compare;
+		}
+
+	}
+
+}
@@ -0,0 +1,380 @@
+package com.sx4.bot.cache;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import com.sx4.bot.core.Sx4Bot;
+
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.OnlineStatus;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Member;
+import net.dv8tion.jda.api.events.guild.GuildJoinEvent;
+import net.dv8tion.jda.api.events.guild.GuildLeaveEvent;
+import net.dv8tion.jda.api.events.guild.GuildReadyEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
+import net.dv8tion.jda.api.events.guild.member.GuildMemberRemoveEvent;
+import net.dv8tion.jda.api.events.user.update.UserUpdateOnlineStatusEvent;
+import net.dv8tion.jda.api.hooks.ListenerAdapter;
+
+/**
+ * Counts the unique users of every shard and how many of them have each status from the member and presence events so
+ * stats do not have to flatten the members of every guild, each user has a count of the guilds they are in and is only
+ * removed once they have left all of them. The users of each shard are counted the same way in a map per shard.
+ *
+ * The counts are split into stripes by user id and each stripe has its own lock, presence updates are handled on many
+ * event threads and only wait on each other when their users share a stripe.
+ *
+ * The counts are reconciled with the cache periodically in case an event was missed while a shard was reconnecting.
+ */
+public class PopulationCache extends ListenerAdapter {
+
+	public static final PopulationCache INSTANCE = new PopulationCache();
+
+	private static final String RECONCILE_MESSAGE = "Population counts drifted from the cache and were corrected: %,d users counted, %,d cached, statuses counted %s, cached %s";
+
+	public static final long RECONCILE_INTERVAL = 30;
+
+	public enum Status {
+		ONLINE,
+		IDLE,
+		DO_NOT_DISTURB,
+		OFFLINE;
+
+		public static Status get(OnlineStatus status) {
+			switch (status) {
+				case ONLINE:
+					return Status.ONLINE;
+				case IDLE:
+					return Status.IDLE;
+				case DO_NOT_DISTURB:
+					return Status.DO_NOT_DISTURB;
+				default:
+					return Status.OFFLINE;
+			}
+		}
+	}
+
+	private static final Status[] STATUSES = Status.values();
+
+	/* The status is kept in the low 2 bits and the amount of guilds above them so each user is one map entry, users which are not counted read as 0 */
+	private static int getValue(int guilds, Status status) {
+		return guilds << 2 | status.ordinal();
+	}
+
+	private static int getGuilds(int value) {
+		return value >>> 2;
+	}
+
+	private static Status getStatus(int value) {
+		return PopulationCache.STATUSES[value & 3];
+	}
+
+	/* A power of two so the stripe of a user is a few bits of its hash */
+	public static final int STRIPES = 64;
+
+	/**
+	 * The counts of the users whose ids hash to the stripe, each stripe is its own lock so presence updates of
+	 * different users do not wait on each other
+	 */
+	private static class Stripe {
+
+		private TLongIntMap users = new TLongIntHashMap();
+		private long[] statuses = new long[Status.values().length];
+
+		/* The amount of guilds of the shard each user is in by shard id */
+		private TIntObjectMap<TLongIntMap> shardUsers = new TIntObjectHashMap<>();
+
+		private void addMember(int shardId, long userId, Status status) {
+			TLongIntMap users = this.shardUsers.get(shardId);
+			if (users == null) {
+				users = new TLongIntHashMap();
+				this.shardUsers.put(shardId, users);
+			}
+
+			users.adjustOrPutValue(userId, 1, 1);
+
+			int value = this.users.get(userId);
+			if (value == 0) {
+				this.users.put(userId, PopulationCache.getValue(1, status));
+				this.statuses[status.ordinal()]++;
+			} else {
+				this.users.put(userId, PopulationCache.getValue(PopulationCache.getGuilds(value) + 1, PopulationCache.getStatus(value)));
+			}
+		}
+
+		private void removeMember(int shardId, long userId) {
+			int value = this.users.get(userId);
+			if (value == 0) {
+				return;
+			}
+
+			TLongIntMap users = this.shardUsers.get(shardId);
+			if (users != null) {
+				int shardGuilds = users.get(userId);
+				if (shardGuilds <= 1) {
+					users.remove(userId);
+				} else {
+					users.put(userId, shardGuilds - 1);
+				}
+			}
+
+			int guilds = PopulationCache.getGuilds(value);
+			if (guilds == 1) {
+				this.users.remove(userId);
+				this.statuses[PopulationCache.getStatus(value).ordinal()]--;
+			} else {
+				this.users.put(userId, PopulationCache.getValue(guilds - 1, PopulationCache.getStatus(value)));
+			}
+		}
+
+		private void updateStatus(long userId, Status newStatus) {
+			int value = this.users.get(userId);
+			if (value == 0) {
+				return;
+			}
+
+			Status oldStatus = PopulationCache.getStatus(value);
+			if (oldStatus == newStatus) {
+				return;
+			}
+
+			this.users.put(userId, PopulationCache.getValue(PopulationCache.getGuilds(value), newStatus));
+			this.statuses[oldStatus.ordinal()]--;
+			this.statuses[newStatus.ordinal()]++;
+		}
+
+		private int getUsers(int shardId) {
+			TLongIntMap users = this.shardUsers.get(shardId);
+
+			return users == null ? 0 : users.size();
+		}
+
+	}
+
+	private static Stripe[] createStripes() {
+		Stripe[] stripes = new Stripe[PopulationCache.STRIPES];
+		for (int i = 0; i < stripes.length; i++) {
+			stripes[i] = new Stripe();
+		}
+
+		return stripes;
+	}
+
+	/* Snowflakes of users created around the same time only differ in their low bits so the id is mixed first */
+	private static int getStripe(long userId) {
+		return (int) ((userId * 0x9E3779B97F4A7C15L) >>> 32) & (PopulationCache.STRIPES - 1);
+	}
+
+	private final Stripe[] stripes = PopulationCache.createStripes();
+
+	/* Guilds can be ready again after a shard reconnects, their members are only counted once, guarded by itself */
+	private final TLongSet guilds = new TLongHashSet();
+
+	PopulationCache() {}
+
+	void addMember(int shardId, long userId, Status status) {
+		Stripe stripe = this.stripes[PopulationCache.getStripe(userId)];
+		synchronized (stripe) {
+			stripe.addMember(shardId, userId, status);
+		}
+	}
+
+	void removeMember(int shardId, long userId) {
+		Stripe stripe = this.stripes[PopulationCache.getStripe(userId)];
+		synchronized (stripe) {
+			stripe.removeMember(shardId, userId);
+		}
+	}
+
+	void updateStatus(long userId, Status status) {
+		Stripe stripe = this.stripes[PopulationCache.getStripe(userId)];
+		synchronized (stripe) {
+			stripe.updateStatus(userId, status);
+		}
+	}
+
+	private void addGuild(Guild guild) {
+		synchronized (this.guilds) {
+			if (!this.guilds.add(guild.getIdLong())) {
+				return;
+			}
+		}
+
+		int shardId = guild.getJDA().getShardInfo().getShardId();
+		for (Member member : guild.getMemberCache()) {
+			this.addMember(shardId, member.getIdLong(), Status.get(member.getOnlineStatus()));
+		}
+	}
+
+	public void onGuildReady(GuildReadyEvent event) {
+		this.addGuild(event.getGuild());
+	}
+
+	public void onGuildJoin(GuildJoinEvent event) {
+		this.addGuild(event.getGuild());
+	}
+
+	public void onGuildLeave(GuildLeaveEvent event) {
+		synchronized (this.guilds) {
+			if (!this.guilds.remove(event.getGuild().getIdLong())) {
+				return;
+			}
+		}
+
+		int shardId = event.getJDA().getShardInfo().getShardId();
+
+		/* JDA keeps the members of the guild for the leave event */
+		for (Member member : event.getGuild().getMemberCache()) {
+			this.removeMember(shardId, member.getIdLong());
+		}
+	}
+
+	public void onGuildMemberJoin(GuildMemberJoinEvent event) {
+		this.addMember(event.getJDA().getShardInfo().getShardId(), event.getMember().getIdLong(), Status.get(event.getMember().getOnlineStatus()));
+	}
+
+	public void onGuildMemberRemove(GuildMemberRemoveEvent event) {
+		this.removeMember(event.getJDA().getShardInfo().getShardId(), event.getUser().getIdLong());
+	}
+
+	/* Presences are sent for every guild a user is in, only the first one for a status changes the counts */
+	public void onUserUpdateOnlineStatus(UserUpdateOnlineStatusEvent event) {
+		this.updateStatus(event.getMember().getIdLong(), Status.get(event.getNewOnlineStatus()));
+	}
+
+	public int getUsers() {
+		int users = 0;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				users += stripe.users.size();
+			}
+		}
+
+		return users;
+	}
+
+	/**
+	 * @return the amount of users which share a guild with the shard
+	 */
+	public int getUsers(JDA shard) {
+		return this.getUsers(shard.getShardInfo().getShardId());
+	}
+
+	int getUsers(int shardId) {
+		int users = 0;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				users += stripe.getUsers(shardId);
+			}
+		}
+
+		return users;
+	}
+
+	public long getUsers(Status status) {
+		long users = 0;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				users += stripe.statuses[status.ordinal()];
+			}
+		}
+
+		return users;
+	}
+
+	/**
+	 * @return the amount of users which are not offline
+	 */
+	public long getOnlineUsers() {
+		long users = 0;
+		for (Stripe stripe : this.stripes) {
+			synchronized (stripe) {
+				users += stripe.users.size() - stripe.statuses[Status.OFFLINE.ordinal()];
+			}
+		}
+
+		return users;
+	}
+
+	/**
+	 * Counts the users from the cache and replaces the counts if they are different, the cache is walked without
+	 * holding any lock so events which are handled during the walk may be lost but they are corrected by the next pass
+	 */
+	public void reconcile() {
+		Stripe[] cached = PopulationCache.createStripes();
+		TLongSet guilds = new TLongHashSet();
+
+		for (Guild guild : Sx4Bot.getShardManager().getGuildCache()) {
+			guilds.add(guild.getIdLong());
+
+			int shardId = guild.getJDA().getShardInfo().getShardId();
+			for (Member member : guild.getMemberCache()) {
+				cached[PopulationCache.getStripe(member.getIdLong())].addMember(shardId, member.getIdLong(), Status.get(member.getOnlineStatus()));
+			}
+		}
+
+		this.replace(cached, guilds);
+	}
+
+	/**
+	 * Replaces the stripes which differ from the cached ones, only one stripe is locked at a time so events of users
+	 * in other stripes are not held up by the comparison
+	 */
+	private void replace(Stripe[] cached, TLongSet guilds) {
+		int users = 0, cachedUsers = 0;
+		long[] statuses = new long[Status.values().length], cachedStatuses = new long[Status.values().length];
+
+		boolean drifted = false;
+		for (int i = 0; i < this.stripes.length; i++) {
+			Stripe stripe = this.stripes[i], cachedStripe = cached[i];
+
+			synchronized (stripe) {
+				users += stripe.users.size();
+				cachedUsers += cachedStripe.users.size();
+
+				for (int status = 0; status < statuses.length; status++) {
+					statuses[status] += stripe.statuses[status];
+					cachedStatuses[status] += cachedStripe.statuses[status];
+				}
+
+				if (stripe.users.equals(cachedStripe.users) && stripe.shardUsers.equals(cachedStripe.shardUsers)) {
+					continue;
+				}
+
+				drifted = true;
+
+				stripe.users = cachedStripe.users;
+				stripe.statuses = cachedStripe.statuses;
+				stripe.shardUsers = cachedStripe.shardUsers;
+			}
+		}
+
+		synchronized (this.guilds) {
+			this.guilds.clear();
+			this.guilds.addAll(guilds);
+		}
+
+		if (drifted) {
+			System.err.println(String.format(RECONCILE_MESSAGE, users, cachedUsers, Arrays.toString(statuses), Arrays.toString(cachedStatuses)));
+		}
+	}
+
+	public void initialize() {
+		Sx4Bot.scheduledExectuor.scheduleAtFixedRate(() -> {
+			try {
+				this.reconcile();
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+		}, PopulationCache.RECONCILE_INTERVAL, PopulationCache.RECONCILE_INTERVAL, TimeUnit.MINUTES);
+	}
+
+}
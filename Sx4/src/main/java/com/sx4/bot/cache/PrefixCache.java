@@ -0,0 +1,216 @@
+package com.sx4.bot.cache;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+
+import org.bson.Document;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.sx4.bot.core.Sx4Bot;
+import com.sx4.bot.database.Database;
+
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.User;
+
+/**
+ * Holds the compiled prefixes of users and guilds for both this bot and the other (main or canary) bot,
+ * so resolving the prefix of a message does not need any database queries once the author and guild are cached
+ */
+public class PrefixCache {
+
+	public static final PrefixCache INSTANCE = new PrefixCache();
+
+	public static final int MAX_CACHED_PREFIXES = 100000;
+
+	/* The other bot writes its prefixes to its own database so we can only trust them for a short while */
+	public static final long OTHER_PREFIXES_EXPIRY = TimeUnit.MINUTES.toNanos(1);
+
+	private static class Entry {
+
+		private final PrefixTrie prefixes;
+		private final long cachedAt;
+
+		private Entry(PrefixTrie prefixes) {
+			this.prefixes = prefixes;
+			this.cachedAt = System.nanoTime();
+		}
+
+	}
+
+	static class Store {
+
+		private static final int _MAX_CACHED_PREFIXES = MAX_CACHED_PREFIXES/2;
+
+		private final long expireAfterNanos;
+
+		private final LongFunction<Document> loader;
+
+		private TLongObjectMap<Entry> cache = new TLongObjectHashMap<>();
+		private TLongObjectMap<Entry> overloadCache = new TLongObjectHashMap<>();
+
+		/* The loads in flight for each id and the generation the id was last invalidated at while it had any */
+		private final TLongIntMap loading = new TLongIntHashMap();
+		private final TLongLongMap invalidatedAt = new TLongLongHashMap();
+
+		private long generation = 0;
+
+		Store(long expireAfterNanos, LongFunction<Document> loader) {
+			this.expireAfterNanos = expireAfterNanos;
+			this.loader = loader;
+		}
+
+		private synchronized Entry getCached(long id) {
+			Entry entry = this.cache.get(id);
+			if (entry == null) {
+				entry = this.overloadCache.remove(id);
+				if (entry != null) {
+					this.put(id, entry);
+				}
+			}
+
+			if (entry != null && this.expireAfterNanos != 0 && System.nanoTime() - entry.cachedAt > this.expireAfterNanos) {
+				this.cache.remove(id);
+
+				return null;
+			}
+
+			return entry;
+		}
+
+		private synchronized void put(long id, Entry entry) {
+			if (!this.cache.containsKey(id) && this.cache.size() + 1 > _MAX_CACHED_PREFIXES) {
+				TLongObjectMap<Entry> temp = this.overloadCache;
+
+				this.overloadCache = this.cache;
+				this.cache = temp;
+
+				this.cache.clear();
+			}
+
+			this.overloadCache.remove(id);
+			this.cache.put(id, entry);
+		}
+
+		public PrefixTrie get(long id) {
+			long generation;
+			synchronized (this) {
+				Entry entry = this.getCached(id);
+				if (entry != null) {
+					return entry.prefixes;
+				}
+
+				generation = this.generation;
+				this.loading.adjustOrPutValue(id, 1, 1);
+			}
+
+			Entry entry;
+			try {
+				Document data = this.loader.apply(id);
+
+				List<String> prefixes = data == null ? Collections.emptyList() : data.getList("prefixes", String.class, Collections.emptyList());
+
+				entry = new Entry(prefixes.isEmpty() ? PrefixTrie.EMPTY : new PrefixTrie(prefixes));
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					this.endLoad(id);
+				}
+
+				throw e;
+			}
+
+			synchronized (this) {
+				/* An invalidation after the load started means it may have read the prefixes from before the change */
+				if (!this.invalidatedAt.containsKey(id) || this.invalidatedAt.get(id) <= generation) {
+					this.put(id, entry);
+				}
+
+				this.endLoad(id);
+			}
+
+			return entry.prefixes;
+		}
+
+		private void endLoad(long id) {
+			if (this.loading.adjustOrPutValue(id, -1, 0) <= 0) {
+				this.loading.remove(id);
+				this.invalidatedAt.remove(id);
+			}
+		}
+
+		public synchronized void invalidate(long id) {
+			this.cache.remove(id);
+			this.overloadCache.remove(id);
+
+			if (this.loading.containsKey(id)) {
+				this.invalidatedAt.put(id, ++this.generation);
+			}
+		}
+
+	}
+
+	private final Store users = new Store(0, userId -> Database.get().getUserById(userId, null, Projections.include("prefixes")));
+	private final Store guilds = new Store(0, guildId -> Database.get().getGuildById(guildId, null, Projections.include("prefixes")));
+
+	private final Store otherUsers = new Store(OTHER_PREFIXES_EXPIRY, userId -> Database.get().getOtherUsers().findOne(Filters.eq("_id", userId), Projections.include("prefixes"), null));
+	private final Store otherGuilds = new Store(OTHER_PREFIXES_EXPIRY, guildId -> Database.get().getOtherGuilds().findOne(Filters.eq("_id", guildId), Projections.include("prefixes"), null));
+
+	private volatile PrefixTrie defaultPrefixes = PrefixTrie.EMPTY;
+
+	private PrefixCache() {}
+
+	private PrefixTrie getDefaultPrefixes() {
+		PrefixTrie defaultPrefixes = this.defaultPrefixes;
+
+		List<String> prefixes = Sx4Bot.getCommandListener().getDefaultPrefixes();
+		if (!defaultPrefixes.getPrefixes().equals(prefixes)) {
+			this.defaultPrefixes = defaultPrefixes = new PrefixTrie(prefixes);
+		}
+
+		return defaultPrefixes;
+	}
+
+	/**
+	 * @param current whether to get the prefixes of this bot or the other (main or canary) bot
+	 * @return the effective prefixes, personal prefixes take priority over server prefixes which take priority over the default prefixes
+	 */
+	public PrefixTrie getPrefixes(Guild guild, User user, boolean current) {
+		PrefixTrie userPrefixes = (current ? this.users : this.otherUsers).get(user.getIdLong());
+		if (!userPrefixes.isEmpty()) {
+			return userPrefixes;
+		}
+
+		if (guild != null) {
+			PrefixTrie guildPrefixes = (current ? this.guilds : this.otherGuilds).get(guild.getIdLong());
+			if (!guildPrefixes.isEmpty()) {
+				return guildPrefixes;
+			}
+		}
+
+		return this.getDefaultPrefixes();
+	}
+
+	/**
+	 * @return the prefix the content starts with or null if it does not start with any of the authors effective prefixes
+	 */
+	public String getPrefix(String content, Guild guild, User user) {
+		return this.getPrefixes(guild, user, true).match(content);
+	}
+
+	public void invalidateUser(long userId) {
+		this.users.invalidate(userId);
+	}
+
+	public void invalidateGuild(long guildId) {
+		this.guilds.invalidate(guildId);
+	}
+
+}
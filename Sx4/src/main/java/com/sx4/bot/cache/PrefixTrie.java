@@ -0,0 +1,134 @@
+package com.sx4.bot.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeMap;
+
+/**
+ * An immutable trie of prefixes, matching walks the content once instead of calling startsWith for every prefix
+ */
+public class PrefixTrie {
+
+	public static final PrefixTrie EMPTY = new PrefixTrie(Collections.emptyList());
+
+	private static class Node {
+
+		private final TreeMap<Character, Node> children = new TreeMap<>();
+
+		private int prefix = -1;
+
+	}
+
+	private final List<String> prefixes;
+
+	/* Flattened nodes, the children of node n are keys[n] which map to the node indexes in children[n] */
+	private final char[][] keys;
+	private final int[][] children;
+	private final int[] terminals;
+
+	public PrefixTrie(List<String> prefixes) {
+		this.prefixes = Collections.unmodifiableList(new ArrayList<>(prefixes));
+
+		Node root = new Node();
+
+		int nodeCount = 1;
+		for (int i = 0; i < this.prefixes.size(); i++) {
+			String prefix = this.prefixes.get(i);
+
+			Node node = root;
+			for (int j = 0; j < prefix.length(); j++) {
+				Node child = node.children.get(prefix.charAt(j));
+				if (child == null) {
+					child = new Node();
+					node.children.put(prefix.charAt(j), child);
+
+					nodeCount++;
+				}
+
+				node = child;
+			}
+
+			if (node.prefix == -1) {
+				node.prefix = i;
+			}
+		}
+
+		this.keys = new char[nodeCount][];
+		this.children = new int[nodeCount][];
+		this.terminals = new int[nodeCount];
+
+		List<Node> nodes = new ArrayList<>(nodeCount);
+		nodes.add(root);
+
+		for (int i = 0; i < nodes.size(); i++) {
+			Node node = nodes.get(i);
+
+			char[] keys = new char[node.children.size()];
+			int[] children = new int[node.children.size()];
+
+			int index = 0;
+			for (Character key : node.children.keySet()) {
+				keys[index] = key;
+				children[index] = nodes.size();
+
+				nodes.add(node.children.get(key));
+
+				index++;
+			}
+
+			this.keys[i] = keys;
+			this.children[i] = children;
+			this.terminals[i] = node.prefix;
+		}
+	}
+
+	public List<String> getPrefixes() {
+		return this.prefixes;
+	}
+
+	public boolean isEmpty() {
+		return this.prefixes.isEmpty();
+	}
+
+	public boolean contains(String prefix) {
+		int node = 0;
+		for (int i = 0; i < prefix.length(); i++) {
+			int index = Arrays.binarySearch(this.keys[node], prefix.charAt(i));
+			if (index < 0) {
+				return false;
+			}
+
+			node = this.children[node][index];
+		}
+
+		return this.terminals[node] != -1;
+	}
+
+	/**
+	 * @return the longest prefix which the content starts with or null if it starts with none of them
+	 */
+	public String match(CharSequence content) {
+		int matched = this.terminals[0], node = 0;
+		for (int i = 0; i < content.length(); i++) {
+			char[] keys = this.keys[node];
+			if (keys.length == 0) {
+				break;
+			}
+
+			int index = Arrays.binarySearch(keys, content.charAt(i));
+			if (index < 0) {
+				break;
+			}
+
+			node = this.children[node][index];
+			if (this.terminals[node] != -1) {
+				matched = this.terminals[node];
+			}
+		}
+
+		return matched == -1 ? null : this.prefixes.get(matched);
+	}
+
+}
@@ -0,0 +1,536 @@
+package com.sx4.bot.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.jockie.bot.core.command.ICommand;
+import com.jockie.bot.core.command.impl.CommandEvent;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.api.entities.Message;
+
+/**
+ * Runs commands on a fixed number of workers, cheap commands and heavy commands (async or {@link com.sx4.bot.interfaces.Heavy})
+ * have their own lanes so a wave of image or leaderboard commands can not hold up every other command.
+ *
+ * Each lane queues commands per guild and per author, guilds with queued commands are served round-robin and so are the
+ * authors within a guild. Direct messages are queued per channel as they have no guild. A command over any of the queue
+ * limits is rejected with a reply rather than queued.
+ *
+ * Commands are handed over with their event by {@link Sx4Command}, anything submitted through the {@link java.util.concurrent.Executor}
+ * methods has no guild or author so it runs on a lane of its own which only limits the total queued.
+ */
+public class CommandScheduler extends AbstractExecutorService {
+
+	private static final String STATISTICS_MESSAGE = "Command scheduler: %,d rejected\n%s\n%s\n%s";
+
+	private static final String LANE_MESSAGE = "%s lane: %,d workers, %,d/%,d queued, %,d guilds waiting, %,d executed, %,d rejected";
+
+	private static final String WAIT_MESSAGE = "%s: %,d executed, %.2fms average wait, %,dms max wait";
+
+	public static final String REJECTED_MESSAGE = "I am too busy to run that command right now, try again in a few seconds :no_entry:";
+
+	public static final int MAX_QUEUED_PER_USER = 3;
+	public static final int MAX_QUEUED_PER_GUILD = 25;
+
+	static class Task {
+
+		private final Runnable runnable;
+		private final String command;
+		private final long guildId;
+		private final long userId;
+		private final long queuedAt = System.nanoTime();
+
+		/**
+		 * @param guildId the guild the command is limited by, the channel for direct messages
+		 */
+		Task(Runnable runnable, String command, long guildId, long userId) {
+			this.runnable = runnable;
+			this.command = command;
+			this.guildId = guildId;
+			this.userId = userId;
+		}
+
+		long getGuildId() {
+			return this.guildId;
+		}
+
+		long getUserId() {
+			return this.userId;
+		}
+
+	}
+
+	private static class UserQueue {
+
+		private final long userId;
+		private final Deque<Task> tasks = new ArrayDeque<>();
+
+		private UserQueue(long userId) {
+			this.userId = userId;
+		}
+
+	}
+
+	private static class GuildQueue {
+
+		private final long guildId;
+
+		private final TLongObjectMap<UserQueue> users = new TLongObjectHashMap<>();
+		private final Deque<UserQueue> ready = new ArrayDeque<>();
+
+		private int queued = 0;
+
+		private GuildQueue(long guildId) {
+			this.guildId = guildId;
+		}
+
+	}
+
+	public static class CommandWait {
+
+		private final String command;
+
+		private final AtomicLong executed = new AtomicLong();
+		private final AtomicLong totalWaitNanos = new AtomicLong();
+		private final AtomicLong maxWaitNanos = new AtomicLong();
+
+		private CommandWait(String command) {
+			this.command = command;
+		}
+
+		private void record(long waitNanos) {
+			this.executed.incrementAndGet();
+			this.totalWaitNanos.addAndGet(waitNanos);
+			this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+		}
+
+		public String getCommand() {
+			return this.command;
+		}
+
+		public long getExecuted() {
+			return this.executed.get();
+		}
+
+		public long getTotalWaitNanos() {
+			return this.totalWaitNanos.get();
+		}
+
+		public double getAverageWait() {
+			long executed = this.executed.get();
+
+			return executed == 0 ? 0D : (double) this.totalWaitNanos.get() / executed / 1_000_000D;
+		}
+
+		public long getMaxWait() {
+			return TimeUnit.NANOSECONDS.toMillis(this.maxWaitNanos.get());
+		}
+
+		public String toString() {
+			return String.format(WAIT_MESSAGE, this.command, this.executed.get(), this.getAverageWait(), this.getMaxWait());
+		}
+
+	}
+
+	public class Lane implements Runnable {
+
+		private final String name;
+		private final int maxQueued;
+
+		/* Whether tasks are limited per guild and author, tasks without an event all share one key */
+		private final boolean keyed;
+
+		private final List<Thread> workers = new ArrayList<>();
+
+		private final ReentrantLock lock = new ReentrantLock();
+		private final Condition notEmpty = this.lock.newCondition();
+
+		/* Guarded by the lock */
+		private final TLongObjectMap<GuildQueue> guilds = new TLongObjectHashMap<>();
+		private final Deque<GuildQueue> ready = new ArrayDeque<>();
+		private int queued = 0;
+
+		private final AtomicLong executed = new AtomicLong();
+		private final AtomicLong rejected = new AtomicLong();
+
+		private Lane(String name, int workers, int maxQueued, boolean keyed) {
+			this.name = name;
+			this.maxQueued = maxQueued;
+			this.keyed = keyed;
+
+			for (int i = 0; i < workers; i++) {
+				Thread worker = new Thread(this, "command-scheduler-" + name.toLowerCase() + "-" + i);
+				worker.setDaemon(true);
+
+				this.workers.add(worker);
+			}
+		}
+
+		private void start() {
+			for (Thread worker : this.workers) {
+				worker.start();
+			}
+		}
+
+		boolean offer(Task task) {
+			this.lock.lock();
+			try {
+				if (CommandScheduler.this.shutdown) {
+					throw new RejectedExecutionException("The command scheduler has been shut down");
+				}
+
+				if (this.queued >= this.maxQueued) {
+					return false;
+				}
+
+				GuildQueue guild = this.guilds.get(task.guildId);
+				if (this.keyed && guild != null && guild.queued >= MAX_QUEUED_PER_GUILD) {
+					return false;
+				}
+
+				UserQueue user = guild == null ? null : guild.users.get(task.userId);
+				if (this.keyed && user != null && user.tasks.size() >= MAX_QUEUED_PER_USER) {
+					return false;
+				}
+
+				if (guild == null) {
+					guild = new GuildQueue(task.guildId);
+
+					this.guilds.put(task.guildId, guild);
+					this.ready.offer(guild);
+				}
+
+				if (user == null) {
+					user = new UserQueue(task.userId);
+
+					guild.users.put(task.userId, user);
+					guild.ready.offer(user);
+				}
+
+				user.tasks.offer(task);
+				guild.queued++;
+				this.queued++;
+
+				this.notEmpty.signal();
+
+				return true;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		/**
+		 * @return the first command of the next author of the next guild, null once the scheduler has been shut down and the lane is empty
+		 */
+		Task take() throws InterruptedException {
+			this.lock.lock();
+			try {
+				while (this.ready.isEmpty()) {
+					if (CommandScheduler.this.shutdown) {
+						return null;
+					}
+
+					this.notEmpty.await();
+				}
+
+				GuildQueue guild = this.ready.poll();
+				UserQueue user = guild.ready.poll();
+
+				Task task = user.tasks.poll();
+				guild.queued--;
+				this.queued--;
+
+				if (user.tasks.isEmpty()) {
+					guild.users.remove(user.userId);
+				} else {
+					guild.ready.offer(user);
+				}
+
+				if (guild.ready.isEmpty()) {
+					this.guilds.remove(guild.guildId);
+				} else {
+					this.ready.offer(guild);
+				}
+
+				return task;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		private List<Runnable> drain() {
+			List<Runnable> runnables = new ArrayList<>();
+
+			this.lock.lock();
+			try {
+				for (GuildQueue guild : this.ready) {
+					for (UserQueue user : guild.ready) {
+						for (Task task : user.tasks) {
+							runnables.add(task.runnable);
+						}
+					}
+				}
+
+				this.guilds.clear();
+				this.ready.clear();
+				this.queued = 0;
+			} finally {
+				this.lock.unlock();
+			}
+
+			return runnables;
+		}
+
+		private void signalShutdown() {
+			this.lock.lock();
+			try {
+				this.notEmpty.signalAll();
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		public void run() {
+			while (true) {
+				Task task;
+				try {
+					task = this.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				if (task == null) {
+					return;
+				}
+
+				CommandScheduler.this.getCommandWait(task.command).record(System.nanoTime() - task.queuedAt);
+
+				try {
+					task.runnable.run();
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+
+				this.executed.incrementAndGet();
+			}
+		}
+
+		public String getName() {
+			return this.name;
+		}
+
+		public int getQueued() {
+			this.lock.lock();
+			try {
+				return this.queued;
+			} finally {
+				this.lock.unlock();
+			}
+		}
+
+		public long getExecuted() {
+			return this.executed.get();
+		}
+
+		public long getRejected() {
+			return this.rejected.get();
+		}
+
+		public String toString() {
+			int queued, guilds;
+
+			this.lock.lock();
+			try {
+				queued = this.queued;
+				guilds = this.guilds.size();
+			} finally {
+				this.lock.unlock();
+			}
+
+			return String.format(LANE_MESSAGE, this.name, this.workers.size(), queued, this.maxQueued, guilds, this.executed.get(), this.rejected.get());
+		}
+
+	}
+
+	private final Lane cheap;
+	private final Lane heavy;
+	private final Lane other;
+
+	private final List<Lane> lanes;
+
+	private final Map<String, CommandWait> waits = new ConcurrentHashMap<>();
+
+	private final AtomicLong rejected = new AtomicLong();
+
+	private volatile boolean shutdown = false;
+
+	/**
+	 * @param maxQueued the most commands a lane can have queued across every guild before it rejects commands
+	 */
+	public CommandScheduler(int cheapWorkers, int heavyWorkers, int otherWorkers, int maxQueued) {
+		this.cheap = new Lane("Cheap", cheapWorkers, maxQueued, true);
+		this.heavy = new Lane("Heavy", heavyWorkers, maxQueued, true);
+		this.other = new Lane("Other", otherWorkers, maxQueued, false);
+
+		this.lanes = List.of(this.cheap, this.heavy, this.other);
+		for (Lane lane : this.lanes) {
+			lane.start();
+		}
+	}
+
+	private CommandWait getCommandWait(String command) {
+		return this.waits.computeIfAbsent(command, CommandWait::new);
+	}
+
+	Lane getLane(ICommand command) {
+		return command instanceof Sx4Command && ((Sx4Command) command).isHeavyCommand() ? this.heavy : this.cheap;
+	}
+
+	/**
+	 * @return the id commands of the message are limited per guild by, direct messages use their channel so they do not all share one limit
+	 */
+	static long getGuildKey(Message message) {
+		return message.isFromGuild() ? message.getGuild().getIdLong() : message.getChannel().getIdLong();
+	}
+
+	/**
+	 * Queues the command of the event on the cheap or heavy lane, a command over any of the queue limits is not run
+	 * and the author is told instead
+	 *
+	 * @return whether the command was queued
+	 */
+	public boolean execute(CommandEvent event, Runnable runnable) {
+		ICommand command = event.getCommand();
+
+		Lane lane = this.getLane(command);
+
+		Message message = event.getMessage();
+
+		Task task = new Task(runnable, command.getCommandTrigger(), CommandScheduler.getGuildKey(message), message.getAuthor().getIdLong());
+		if (!lane.offer(task)) {
+			lane.rejected.incrementAndGet();
+			this.rejected.incrementAndGet();
+
+			event.reply(REJECTED_MESSAGE).queue();
+
+			return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Queues a task which does not belong to a command on the other lane
+	 *
+	 * @throws RejectedExecutionException if the other lane is full
+	 */
+	public void execute(Runnable runnable) {
+		if (!this.other.offer(new Task(runnable, "unknown", 0L, 0L))) {
+			this.other.rejected.incrementAndGet();
+			this.rejected.incrementAndGet();
+
+			throw new RejectedExecutionException("The other lane of the command scheduler is full");
+		}
+	}
+
+	public Lane getCheapLane() {
+		return this.cheap;
+	}
+
+	public Lane getHeavyLane() {
+		return this.heavy;
+	}
+
+	public Lane getOtherLane() {
+		return this.other;
+	}
+
+	/**
+	 * @return the commands which have spent the most time queued in total
+	 */
+	public List<CommandWait> getLongestWaits(int limit) {
+		List<CommandWait> waits = new ArrayList<>(this.waits.values());
+		waits.sort(Comparator.comparingLong(CommandWait::getTotalWaitNanos).reversed());
+
+		return waits.subList(0, Math.min(limit, waits.size()));
+	}
+
+	public void shutdown() {
+		this.shutdown = true;
+
+		for (Lane lane : this.lanes) {
+			lane.signalShutdown();
+		}
+	}
+
+	public List<Runnable> shutdownNow() {
+		this.shutdown();
+
+		List<Runnable> runnables = new ArrayList<>();
+		for (Lane lane : this.lanes) {
+			runnables.addAll(lane.drain());
+		}
+
+		for (Lane lane : this.lanes) {
+			for (Thread worker : lane.workers) {
+				worker.interrupt();
+			}
+		}
+
+		return runnables;
+	}
+
+	public boolean isShutdown() {
+		return this.shutdown;
+	}
+
+	public boolean isTerminated() {
+		if (!this.shutdown) {
+			return false;
+		}
+
+		for (Lane lane : this.lanes) {
+			for (Thread worker : lane.workers) {
+				if (worker.isAlive()) {
+					return false;
+				}
+			}
+		}
+
+		return true;
+	}
+
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Lane lane : this.lanes) {
+			for (Thread worker : lane.workers) {
+				long remaining = deadline - System.nanoTime();
+				if (remaining <= 0) {
+					return this.isTerminated();
+				}
+
+				TimeUnit.NANOSECONDS.timedJoin(worker, remaining);
+			}
+		}
+
+		return this.isTerminated();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.rejected.get(), this.cheap, this.heavy, this.other);
+	}
+
+}
@@ -0,0 +1,219 @@
+package com.sx4.bot.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sx4.bot.database.Database;
+import com.sx4.bot.logger.util.Utils;
+
+import club.minnced.discord.webhook.WebhookClient;
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+
+/**
+ * Command threads only offer to a lock-free queue, a single worker drains it and writes the command logs
+ * in batches and sends the command feed to the webhook at a fixed rate
+ */
+public class CommandTelemetry {
+
+	private static final String STATISTICS_MESSAGE = "Command telemetry: %,d/%,d queued, %,d recorded, %,d dropped, %,d inserted, %,d failed inserts, %,d webhook backlog, %,d embeds sent, %,d embeds dropped";
+
+	/* Commands recorded while this many are waiting are dropped instead of queued */
+	public static final int MAX_QUEUED = 10000;
+
+	public static final int MAX_BATCH_SIZE = 500;
+	public static final long FLUSH_INTERVAL = 1;
+
+	/* One webhook message of up to 10 embeds is sent every interval, older embeds are dropped past the backlog limit */
+	public static final long WEBHOOK_INTERVAL = 2;
+	public static final int MAX_WEBHOOK_BACKLOG = 200;
+	public static final int MAX_WEBHOOK_EMBEDS = 10;
+
+	private static class Entry {
+
+		private final Document data;
+		private final WebhookEmbed embed;
+
+		private Entry(Document data, WebhookEmbed embed) {
+			this.data = data;
+			this.embed = embed;
+		}
+
+	}
+
+	private final WebhookClient webhook;
+
+	private final Queue<Entry> queue = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger queued = new AtomicInteger();
+
+	/* Only accessed by the worker */
+	private final Deque<WebhookEmbed> webhookBacklog = new ArrayDeque<>();
+
+	private final ScheduledExecutorService worker = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+		.setNameFormat("command-telemetry-%d")
+		.setDaemon(true)
+		.build());
+
+	private final AtomicLong recorded = new AtomicLong();
+	private final AtomicLong dropped = new AtomicLong();
+	private final AtomicLong inserted = new AtomicLong();
+	private final AtomicLong failedInserts = new AtomicLong();
+	private final AtomicLong embedsSent = new AtomicLong();
+	private final AtomicLong embedsDropped = new AtomicLong();
+
+	private volatile int webhookBacklogSize = 0;
+
+	public CommandTelemetry(WebhookClient webhook) {
+		this.webhook = webhook;
+
+		this.worker.scheduleWithFixedDelay(this::drain, FLUSH_INTERVAL, FLUSH_INTERVAL, TimeUnit.SECONDS);
+		this.worker.scheduleAtFixedRate(this::sendWebhook, WEBHOOK_INTERVAL, WEBHOOK_INTERVAL, TimeUnit.SECONDS);
+
+		Runtime.getRuntime().addShutdownHook(new Thread(this::shutdown, "command-telemetry-shutdown"));
+	}
+
+	/**
+	 * @return false if the queue is full and the command was dropped
+	 */
+	public boolean record(Document data, WebhookEmbed embed) {
+		if (this.queued.incrementAndGet() > MAX_QUEUED) {
+			this.queued.decrementAndGet();
+			this.dropped.incrementAndGet();
+
+			return false;
+		}
+
+		this.queue.offer(new Entry(data, embed));
+		this.recorded.incrementAndGet();
+
+		if (this.queued.get() == MAX_BATCH_SIZE) {
+			this.worker.execute(this::drain);
+		}
+
+		return true;
+	}
+
+	private void drain() {
+		try {
+			List<Document> batch = new ArrayList<>(MAX_BATCH_SIZE);
+
+			Entry entry;
+			while ((entry = this.queue.poll()) != null) {
+				this.queued.decrementAndGet();
+
+				batch.add(entry.data);
+
+				this.webhookBacklog.addLast(entry.embed);
+				if (this.webhookBacklog.size() > MAX_WEBHOOK_BACKLOG) {
+					this.webhookBacklog.removeFirst();
+					this.embedsDropped.incrementAndGet();
+				}
+
+				if (batch.size() == MAX_BATCH_SIZE) {
+					this.insert(batch);
+					batch = new ArrayList<>(MAX_BATCH_SIZE);
+				}
+			}
+
+			if (!batch.isEmpty()) {
+				this.insert(batch);
+			}
+
+			this.webhookBacklogSize = this.webhookBacklog.size();
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void insert(List<Document> batch) {
+		try {
+			Database.get().insertManyCommandData(batch);
+
+			this.inserted.addAndGet(batch.size());
+		} catch (Throwable e) {
+			this.failedInserts.addAndGet(batch.size());
+
+			e.printStackTrace();
+		}
+	}
+
+	private void sendWebhook() {
+		try {
+			List<WebhookEmbed> embeds = new ArrayList<>(MAX_WEBHOOK_EMBEDS);
+
+			int length = 0;
+			while (!this.webhookBacklog.isEmpty() && embeds.size() < MAX_WEBHOOK_EMBEDS) {
+				int embedLength = Utils.getLength(this.webhookBacklog.peekFirst());
+				if (embedLength > MessageEmbed.EMBED_MAX_LENGTH_BOT) {
+					this.webhookBacklog.removeFirst();
+					this.embedsDropped.incrementAndGet();
+
+					continue;
+				}
+
+				if (length + embedLength > MessageEmbed.EMBED_MAX_LENGTH_BOT) {
+					break;
+				}
+
+				length += embedLength;
+				embeds.add(this.webhookBacklog.removeFirst());
+			}
+
+			this.webhookBacklogSize = this.webhookBacklog.size();
+
+			if (!embeds.isEmpty()) {
+				this.webhook.send(embeds).whenComplete((message, exception) -> {
+					if (exception != null) {
+						this.embedsDropped.addAndGet(embeds.size());
+
+						exception.printStackTrace();
+					} else {
+						this.embedsSent.addAndGet(embeds.size());
+					}
+				});
+			}
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+	}
+
+	public int getQueued() {
+		return this.queued.get();
+	}
+
+	public long getDropped() {
+		return this.dropped.get();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.queued.get(), MAX_QUEUED, this.recorded.get(), this.dropped.get(), this.inserted.get(), this.failedInserts.get(), this.webhookBacklogSize, this.embedsSent.get(), this.embedsDropped.get());
+	}
+
+	/**
+	 * Stops the worker and inserts everything which is still queued, the webhook backlog is not sent
+	 */
+	public void shutdown() {
+		this.worker.shutdown();
+
+		try {
+			this.worker.awaitTermination(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+
+		this.drain();
+	}
+
+}
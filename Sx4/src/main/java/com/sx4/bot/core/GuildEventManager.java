@@ -0,0 +1,235 @@
+package com.sx4.bot.core;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.channel.category.GenericCategoryEvent;
+import net.dv8tion.jda.api.events.channel.store.GenericStoreChannelEvent;
+import net.dv8tion.jda.api.events.channel.text.GenericTextChannelEvent;
+import net.dv8tion.jda.api.events.channel.voice.GenericVoiceChannelEvent;
+import net.dv8tion.jda.api.events.emote.GenericEmoteEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.events.message.GenericMessageEvent;
+import net.dv8tion.jda.api.events.role.GenericRoleEvent;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+
+/**
+ * Hands every event to one of a fixed set of lanes picked by the guild of the event, each lane is a single thread so
+ * the events of a guild are handled in the order they were received while different guilds are handled in parallel.
+ *
+ * Events which do not belong to a guild are kept in order per shard instead, they are not ordered against guild events.
+ * Listeners are called by an {@link InterfacedEventManager} on the lane thread so they behave the same as before.
+ */
+public class GuildEventManager implements IEventManager {
+
+	private static final String STATISTICS_MESSAGE = "Event lanes: %,d lanes, %,d queued, %,d handled, %,d blocked offers, %.2fms average lag, %,dms max lag";
+
+	private static final String LANE_MESSAGE = "Lane %d: %,d queued, %,d handled, %.2fms average lag, %,dms current lag, %,dms max lag";
+
+	private static class Task {
+
+		private final GenericEvent event;
+		private final long queuedAt = System.nanoTime();
+
+		private Task(GenericEvent event) {
+			this.event = event;
+		}
+
+	}
+
+	public class Lane implements Runnable {
+
+		private final int id;
+
+		private final BlockingQueue<Task> queue;
+
+		private final AtomicLong handled = new AtomicLong();
+		private final AtomicLong totalLagNanos = new AtomicLong();
+		private final AtomicLong maxLagNanos = new AtomicLong();
+
+		private Lane(int id, int capacity) {
+			this.id = id;
+			this.queue = new ArrayBlockingQueue<>(capacity);
+		}
+
+		private void offer(Task task) {
+			if (this.queue.offer(task)) {
+				return;
+			}
+
+			/* A full lane blocks the shard which is what happened before with one event thread per shard */
+			GuildEventManager.this.blockedOffers.incrementAndGet();
+
+			try {
+				this.queue.put(task);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		public void run() {
+			while (!Thread.currentThread().isInterrupted()) {
+				Task task;
+				try {
+					task = this.queue.take();
+				} catch (InterruptedException e) {
+					return;
+				}
+
+				long lag = System.nanoTime() - task.queuedAt;
+				this.totalLagNanos.addAndGet(lag);
+				this.maxLagNanos.accumulateAndGet(lag, Math::max);
+
+				try {
+					GuildEventManager.this.dispatcher.handle(task.event);
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+
+				this.handled.incrementAndGet();
+			}
+		}
+
+		public int getId() {
+			return this.id;
+		}
+
+		public int getQueued() {
+			return this.queue.size();
+		}
+
+		public long getHandled() {
+			return this.handled.get();
+		}
+
+		public double getAverageLagMillis() {
+			long handled = this.handled.get();
+
+			return handled == 0 ? 0 : this.totalLagNanos.get() / (double) handled / 1_000_000D;
+		}
+
+		public long getMaxLagMillis() {
+			return TimeUnit.NANOSECONDS.toMillis(this.maxLagNanos.get());
+		}
+
+		/**
+		 * @return how long the oldest queued event has been waiting
+		 */
+		public long getCurrentLagMillis() {
+			Task task = this.queue.peek();
+
+			return task == null ? 0 : TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - task.queuedAt);
+		}
+
+		public String toString() {
+			return String.format(LANE_MESSAGE, this.id, this.getQueued(), this.getHandled(), this.getAverageLagMillis(), this.getCurrentLagMillis(), this.getMaxLagMillis());
+		}
+
+	}
+
+	private final InterfacedEventManager dispatcher = new InterfacedEventManager();
+
+	private final Lane[] lanes;
+
+	private final AtomicLong blockedOffers = new AtomicLong();
+
+	/**
+	 * @param lanes the amount of threads events are handled on
+	 * @param capacity the amount of events each lane can queue before the shard which is sending events is blocked
+	 */
+	public GuildEventManager(int lanes, int capacity) {
+		this.lanes = new Lane[lanes];
+		for (int i = 0; i < lanes; i++) {
+			Lane lane = new Lane(i, capacity);
+
+			Thread thread = new Thread(lane, "event-lane-" + i);
+			thread.setDaemon(true);
+			thread.start();
+
+			this.lanes[i] = lane;
+		}
+	}
+
+	public void register(Object listener) {
+		this.dispatcher.register(listener);
+	}
+
+	public void unregister(Object listener) {
+		this.dispatcher.unregister(listener);
+	}
+
+	public List<Object> getRegisteredListeners() {
+		return this.dispatcher.getRegisteredListeners();
+	}
+
+	public void handle(GenericEvent event) {
+		this.getLane(event).offer(new Task(event));
+	}
+
+	public static Guild getGuild(GenericEvent event) {
+		if (event instanceof GenericGuildEvent) {
+			return ((GenericGuildEvent) event).getGuild();
+		} else if (event instanceof GenericMessageEvent) {
+			GenericMessageEvent messageEvent = (GenericMessageEvent) event;
+
+			return messageEvent.isFromGuild() ? messageEvent.getGuild() : null;
+		} else if (event instanceof GenericRoleEvent) {
+			return ((GenericRoleEvent) event).getGuild();
+		} else if (event instanceof GenericTextChannelEvent) {
+			return ((GenericTextChannelEvent) event).getGuild();
+		} else if (event instanceof GenericVoiceChannelEvent) {
+			return ((GenericVoiceChannelEvent) event).getGuild();
+		} else if (event instanceof GenericCategoryEvent) {
+			return ((GenericCategoryEvent) event).getGuild();
+		} else if (event instanceof GenericStoreChannelEvent) {
+			return ((GenericStoreChannelEvent) event).getGuild();
+		} else if (event instanceof GenericEmoteEvent) {
+			return ((GenericEmoteEvent) event).getGuild();
+		}
+
+		return null;
+	}
+
+	private Lane getLane(GenericEvent event) {
+		Guild guild = GuildEventManager.getGuild(event);
+
+		long key = guild == null ? event.getJDA().getShardInfo().getShardId() : guild.getIdLong();
+
+		/* Snowflakes share their low bits with the worker and process id so the whole id is mixed before picking a lane */
+		return this.lanes[Math.floorMod(Long.hashCode(key * 0x9E3779B97F4A7C15L), this.lanes.length)];
+	}
+
+	public List<Lane> getLanes() {
+		return List.of(this.lanes);
+	}
+
+	/**
+	 * @return the lanes with the most queued events first
+	 */
+	public List<Lane> getBusiestLanes(int limit) {
+		List<Lane> lanes = new ArrayList<>(List.of(this.lanes));
+		lanes.sort((lane, lane2) -> -Integer.compare(lane.getQueued(), lane2.getQueued()));
+
+		return lanes.subList(0, Math.min(limit, lanes.size()));
+	}
+
+	public String getStatistics() {
+		long queued = 0, handled = 0, totalLag = 0, maxLag = 0;
+		for (Lane lane : this.lanes) {
+			queued += lane.getQueued();
+			handled += lane.handled.get();
+			totalLag += lane.totalLagNanos.get();
+			maxLag = Math.max(maxLag, lane.maxLagNanos.get());
+		}
+
+		return String.format(STATISTICS_MESSAGE, this.lanes.length, queued, handled, this.blockedOffers.get(), handled == 0 ? 0 : totalLag / (double) handled / 1_000_000D, TimeUnit.NANOSECONDS.toMillis(maxLag));
+	}
+
+}
@@ -0,0 +1,440 @@
+package com.sx4.bot.core;
+
+import java.net.InetAddress;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
+import com.sx4.bot.database.StorageCollection;
+
+/**
+ * Everything which has to happen at a certain time (unmutes, reminders, giveaways and YouTube resubscriptions) is
+ * stored as a job in the jobs collection, only jobs due within {@link #HORIZON} seconds are loaded and put on the
+ * {@link TimerWheel} so startup does not depend on how many jobs are pending.
+ *
+ * A process leases the jobs it loads by writing itself as their owner, other processes sharing the database skip
+ * leased jobs until the lease runs out so a job is only run twice if the process which leased it died before
+ * deleting it. Each process needs its own owner name which is set with -Dsx4.jobs.owner and defaults to the host name,
+ * a process which restarts with the same name takes its leases back straight away.
+ *
+ * When a job is due its lease is claimed again in a single write and the handler is only run if this process still
+ * holds it. A job whose handler throws is kept and given up to be run again after a delay which doubles with every attempt.
+ */
+public class JobScheduler {
+
+	private static final String STATISTICS_MESSAGE = "Jobs (%s): %,d loaded, %,d leased, %,d executed, %,d failed, %,d lost leases, %,d cancelled, %,d polls";
+
+	/* Jobs due within this many seconds are leased and loaded, this has to be longer than the poll interval */
+	public static final long HORIZON = 300;
+	public static final long POLL_INTERVAL = 60;
+
+	/* A lease lasts until this many seconds after the job is due */
+	public static final long LEASE_DURATION = 600;
+
+	public static final int MAX_JOBS_PER_POLL = 10000;
+
+	/* Seconds before a job whose handler threw is run again, doubled for every failed attempt up to the max */
+	public static final long RETRY_DELAY = 60;
+	public static final long MAX_RETRY_DELAY = 3600;
+
+	public static final JobScheduler INSTANCE = new JobScheduler(System.getProperty("sx4.jobs.owner", JobScheduler.getHostName()), () -> Database.get().getJobs());
+
+	private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+	private static final UpdateOptions NO_UPSERT = new UpdateOptions();
+	private static final FindOneAndUpdateOptions RETURN_AFTER = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER);
+
+	public interface Handler {
+
+		/**
+		 * The job is deleted once this returns so it should not be cancelled from here, a cancel would delete a job
+		 * scheduled with the same id since
+		 *
+		 * @param data the data the job was scheduled with
+		 */
+		public void handle(Document data);
+
+	}
+
+	/* A loaded job, replaced in the loaded map when the job is scheduled again */
+	private class Job implements Runnable {
+
+		private final String id;
+		private final String type;
+		private final long dueAt;
+		private final Document data;
+
+		private volatile TimerWheel.Timeout timeout;
+
+		private Job(String id, String type, long dueAt, Document data) {
+			this.id = id;
+			this.type = type;
+			this.dueAt = dueAt;
+			this.data = data;
+		}
+
+		private void cancel() {
+			TimerWheel.Timeout timeout = this.timeout;
+			if (timeout != null) {
+				timeout.cancel();
+			}
+		}
+
+		public void run() {
+			if (JobScheduler.this.loaded.remove(this.id, this)) {
+				JobScheduler.this.execute(this);
+			}
+		}
+
+	}
+
+	private static String getHostName() {
+		try {
+			return InetAddress.getLocalHost().getHostName();
+		} catch (Exception e) {
+			return "sx4";
+		}
+	}
+
+	public static long getTimestamp() {
+		return Clock.systemUTC().instant().getEpochSecond();
+	}
+
+	/**
+	 * @return the id of the job of the given type for the ids of what it belongs to
+	 */
+	public static String getId(String type, Object... ids) {
+		return type + ":" + Arrays.stream(ids).map(String::valueOf).collect(Collectors.joining(":"));
+	}
+
+	private final String owner;
+
+	private final Supplier<StorageCollection> collection;
+
+	private final Map<String, Handler> handlers = new ConcurrentHashMap<>();
+
+	private final Map<String, Job> loaded = new ConcurrentHashMap<>();
+
+	/* The last write of each job which has not completed, writes to the same job are chained so they can not be reordered */
+	private final Map<String, CompletableFuture<Void>> writes = new ConcurrentHashMap<>();
+
+	private volatile boolean started = false;
+
+	private final AtomicLong leased = new AtomicLong();
+	private final AtomicLong executed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong lostLeases = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+	private final AtomicLong polls = new AtomicLong();
+
+	/**
+	 * @param collection supplies the jobs collection, it is only called once the database is needed
+	 */
+	JobScheduler(String owner, Supplier<StorageCollection> collection) {
+		this.owner = owner;
+		this.collection = collection;
+	}
+
+	public String getOwner() {
+		return this.owner;
+	}
+
+	private StorageCollection getCollection() {
+		return this.collection.get();
+	}
+
+	public JobScheduler registerHandler(String type, Handler handler) {
+		this.handlers.put(type, handler);
+
+		return this;
+	}
+
+	/**
+	 * Starts polling for jobs which are due soon, handlers should be registered before this is called
+	 */
+	public synchronized void start() {
+		if (this.started) {
+			return;
+		}
+
+		this.started = true;
+
+		/* The first poll also takes back the jobs this process had leased before it was restarted */
+		Sx4Bot.scheduledExectuor.execute(() -> this.poll(true));
+		Sx4Bot.scheduledExectuor.scheduleAtFixedRate(() -> this.poll(false), JobScheduler.POLL_INTERVAL, JobScheduler.POLL_INTERVAL, TimeUnit.SECONDS);
+	}
+
+	/**
+	 * @param owner the owner whose leases are taken back as well as unleased and expired jobs, null for none
+	 */
+	public static Bson getLeaseFilter(long timestamp, String owner) {
+		return Filters.or(Filters.in("owner", Arrays.asList(null, owner)), Filters.lt("leaseUntil", timestamp));
+	}
+
+	void poll(boolean reclaim) {
+		try {
+			long timestamp = JobScheduler.getTimestamp();
+
+			List<Document> jobs = new ArrayList<>();
+			for (Document job : QueryShapes.JOBS_DUE.find(this.getCollection(), timestamp + JobScheduler.HORIZON, timestamp, reclaim ? this.owner : null)) {
+				jobs.add(job);
+
+				if (jobs.size() == JobScheduler.MAX_JOBS_PER_POLL) {
+					break;
+				}
+			}
+
+			for (Document job : jobs) {
+				String id = job.getString("_id");
+				long dueAt = job.getLong("dueAt");
+
+				Bson filter = Filters.and(Filters.eq("_id", id), Filters.eq("dueAt", dueAt), JobScheduler.getLeaseFilter(timestamp, reclaim ? this.owner : null));
+				Bson update = Updates.combine(Updates.set("owner", this.owner), Updates.set("leaseUntil", Math.max(dueAt, timestamp) + JobScheduler.LEASE_DURATION));
+
+				/* Another process may have leased or rescheduled it since it was read */
+				Document leasedJob = this.getCollection().findOneAndUpdate(filter, update, JobScheduler.RETURN_AFTER);
+				if (leasedJob != null) {
+					this.leased.incrementAndGet();
+
+					this.load(id, leasedJob.getString("type"), dueAt, leasedJob.get("data", Document.class));
+				}
+			}
+
+			this.polls.incrementAndGet();
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void load(String id, String type, long dueAt, Document data) {
+		Job job = new Job(id, type, dueAt, data);
+
+		Job previous = this.loaded.put(id, job);
+		if (previous != null) {
+			previous.cancel();
+		}
+
+		job.timeout = TimerWheel.INSTANCE.schedule(job, Math.max(0, dueAt - JobScheduler.getTimestamp()), TimeUnit.SECONDS);
+	}
+
+	/**
+	 * Runs a loaded job straight away rather than when it is due
+	 *
+	 * @return a future which completes once the job has been deleted or given up to be run again
+	 */
+	CompletableFuture<Void> runNow(String id) {
+		Job job = this.loaded.remove(id);
+		if (job == null) {
+			return CompletableFuture.completedFuture(null);
+		}
+
+		job.cancel();
+
+		return this.execute(job);
+	}
+
+	/**
+	 * The claim is written without waiting on it, the handler is run on the timer's dispatch pool once the claim has
+	 * completed so neither the dispatch pool nor the database threads are blocked
+	 */
+	private CompletableFuture<Void> execute(Job job) {
+		Handler handler = this.handlers.get(job.type);
+		if (handler == null) {
+			System.err.println("There is no handler for the job " + job.id + ", it will be run once one is registered");
+
+			return CompletableFuture.completedFuture(null);
+		}
+
+		/* A handler which schedules its job again changes the due time so the new job is never matched */
+		Bson filter = Filters.and(Filters.eq("_id", job.id), Filters.eq("dueAt", job.dueAt), Filters.eq("owner", this.owner));
+
+		/* The lease is extended so no other process takes the job while the handler is running */
+		Bson claim = Updates.set("leaseUntil", JobScheduler.getTimestamp() + JobScheduler.LEASE_DURATION);
+
+		/* If the claim fails the job keeps its lease so it is run once the lease runs out */
+		return this.write(job.id, () -> this.getCollection().findOneAndUpdate(filter, claim, JobScheduler.RETURN_AFTER)).thenComposeAsync(claimed -> {
+			if (claimed == null) {
+				this.lostLeases.incrementAndGet();
+
+				return CompletableFuture.completedFuture(null);
+			}
+
+			try {
+				handler.handle(job.data);
+			} catch (Throwable e) {
+				this.failed.incrementAndGet();
+
+				e.printStackTrace();
+
+				return this.retry(job, filter, claimed.getInteger("attempts", 0) + 1).thenApply(result -> null);
+			}
+
+			this.executed.incrementAndGet();
+
+			return this.write(job.id, () -> this.getCollection().deleteOne(filter)).thenApply(result -> null);
+		}, TimerWheel.INSTANCE.getDispatcher());
+	}
+
+	/**
+	 * Gives up the lease of the job and makes it due again after a delay, whichever process polls it next runs it
+	 */
+	private CompletableFuture<UpdateResult> retry(Job job, Bson filter, int attempts) {
+		long delay = Math.min(JobScheduler.MAX_RETRY_DELAY, JobScheduler.RETRY_DELAY << Math.min(attempts - 1, 16));
+
+		Bson update = Updates.combine(Updates.set("dueAt", JobScheduler.getTimestamp() + delay), Updates.set("attempts", attempts), Updates.set("owner", null), Updates.set("leaseUntil", 0L));
+
+		return this.write(job.id, () -> this.getCollection().updateOne(filter, update, JobScheduler.NO_UPSERT));
+	}
+
+	/**
+	 * @return a future which completes with the result of the query once every earlier write to the job has completed
+	 */
+	private <Type> CompletableFuture<Type> write(String id, Supplier<Type> query) {
+		CompletableFuture<Type> result = new CompletableFuture<>();
+
+		CompletableFuture<Void> future = this.writes.compute(id, (key, previous) -> {
+			CompletableFuture<Void> after = previous == null ? CompletableFuture.completedFuture(null) : previous;
+
+			return after.thenCompose(value -> Database.get().write(query)).handle((value, exception) -> {
+				if (exception != null) {
+					exception.printStackTrace();
+
+					result.completeExceptionally(exception);
+				} else {
+					result.complete(value);
+				}
+
+				return null;
+			});
+		});
+
+		future.whenComplete((value, exception) -> this.writes.remove(id, future));
+
+		return result;
+	}
+
+	/**
+	 * @return the job as an upsert, when insertOnly is true an existing job with the same id is left as it is
+	 */
+	public static UpdateOneModel<Document> getJobModel(String id, String type, long dueAt, Document data, boolean insertOnly) {
+		List<Bson> updates = new ArrayList<>();
+		updates.add(insertOnly ? Updates.setOnInsert("type", type) : Updates.set("type", type));
+		updates.add(insertOnly ? Updates.setOnInsert("dueAt", dueAt) : Updates.set("dueAt", dueAt));
+		updates.add(insertOnly ? Updates.setOnInsert("data", data) : Updates.set("data", data));
+		updates.add(insertOnly ? Updates.setOnInsert("owner", null) : Updates.set("owner", null));
+		updates.add(insertOnly ? Updates.setOnInsert("leaseUntil", 0L) : Updates.set("leaseUntil", 0L));
+		updates.add(insertOnly ? Updates.setOnInsert("attempts", 0) : Updates.set("attempts", 0));
+
+		return new UpdateOneModel<>(Filters.eq("_id", id), Updates.combine(updates), JobScheduler.UPSERT);
+	}
+
+	/**
+	 * Stores the job replacing any job with the same id, it is leased and loaded straight away if it is due soon
+	 *
+	 * @param seconds the number of seconds from now the job is due in
+	 */
+	public void schedule(String id, String type, long seconds, Document data) {
+		long timestamp = JobScheduler.getTimestamp(), dueAt = timestamp + Math.max(0, seconds);
+
+		Bson update;
+		if (dueAt <= timestamp + JobScheduler.HORIZON) {
+			update = Updates.combine(Updates.set("type", type), Updates.set("dueAt", dueAt), Updates.set("data", data), Updates.set("owner", this.owner), Updates.set("leaseUntil", dueAt + JobScheduler.LEASE_DURATION), Updates.set("attempts", 0));
+
+			this.leased.incrementAndGet();
+			this.load(id, type, dueAt, data);
+		} else {
+			update = JobScheduler.getJobModel(id, type, dueAt, data, false).getUpdate();
+
+			/* It may have been loaded when it was due sooner */
+			Job previous = this.loaded.remove(id);
+			if (previous != null) {
+				previous.cancel();
+			}
+		}
+
+		this.write(id, () -> this.getCollection().updateOne(Filters.eq("_id", id), update, JobScheduler.UPSERT));
+	}
+
+	/**
+	 * Deletes the job and stops it if it is loaded
+	 *
+	 * @return false if the job was not loaded in this process, it may still have been stored
+	 */
+	public boolean cancel(String id) {
+		Job job = this.loaded.remove(id);
+		if (job != null) {
+			job.cancel();
+
+			this.cancelled.incrementAndGet();
+		}
+
+		this.write(id, () -> this.getCollection().deleteOne(Filters.eq("_id", id)));
+
+		return job != null;
+	}
+
+	/**
+	 * Reads the jobs collection so it should not be called from an event thread
+	 */
+	public boolean isScheduled(String id) {
+		return this.loaded.containsKey(id) || this.getCollection().countDocuments(Filters.eq("_id", id)) != 0;
+	}
+
+	/**
+	 * Stores the jobs of a type which were kept somewhere else before the jobs collection existed, this only
+	 * happens once for each type and jobs which already exist are not overwritten
+	 *
+	 * @param migration builds the jobs, this is only called if the type has not been migrated yet
+	 * @return the amount of jobs which were migrated, 0 if the type had already been migrated
+	 */
+	public int migrate(String type, Supplier<List<WriteModel<Document>>> migration) {
+		String markerId = "migration:" + type;
+		if (this.getCollection().countDocuments(Filters.eq("_id", markerId)) != 0) {
+			return 0;
+		}
+
+		List<WriteModel<Document>> bulkData = migration.get();
+		if (!bulkData.isEmpty()) {
+			this.getCollection().bulkWrite(bulkData, null);
+		}
+
+		/* The marker has no due time so it is never polled */
+		this.getCollection().updateOne(Filters.eq("_id", markerId), Updates.set("timestamp", JobScheduler.getTimestamp()), JobScheduler.UPSERT);
+
+		/* Jobs which were already due should not wait for the next poll */
+		if (this.started) {
+			Sx4Bot.scheduledExectuor.execute(() -> this.poll(false));
+		}
+
+		return bulkData.size();
+	}
+
+	public int getLoaded() {
+		return this.loaded.size();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.owner, this.loaded.size(), this.leased.get(), this.executed.get(), this.failed.get(), this.lostLeases.get(), this.cancelled.get(), this.polls.get());
+	}
+
+}
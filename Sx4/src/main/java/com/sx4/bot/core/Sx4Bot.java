@@ -1,12 +1,14 @@
 package com.sx4.bot.core;
 
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.jockie.bot.core.command.factory.impl.MethodCommandFactory;
 import com.jockie.bot.core.command.impl.CommandListener;
 import com.jockie.bot.core.command.impl.CommandStore;
 import com.jockie.bot.core.command.manager.impl.ContextManagerFactory;
 import com.sx4.bot.cache.ChangesMessageCache;
+import com.sx4.bot.cache.EntityNameCache;
 import com.sx4.bot.cache.GuildMessageCache;
+import com.sx4.bot.cache.PopulationCache;
+import com.sx4.bot.cache.PrefixCache;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.events.*;
 import com.sx4.bot.logger.handler.EventHandler;
@@ -14,7 +16,6 @@ import com.sx4.bot.logger.handler.ExceptionHandler;
 import com.sx4.bot.settings.Settings;
 import com.sx4.bot.utils.CheckUtils;
 import com.sx4.bot.utils.HelpUtils;
-import com.sx4.bot.utils.ModUtils;
 import com.sx4.bot.utils.TimeUtils;
 import com.sx4.bot.youtube.YouTubeManager;
 import net.dv8tion.jda.api.Permission;
@@ -22,7 +23,6 @@ import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message.MentionType;
 import net.dv8tion.jda.api.entities.Role;
-import net.dv8tion.jda.api.hooks.InterfacedEventManager;
 import net.dv8tion.jda.api.requests.GatewayIntent;
 import net.dv8tion.jda.api.requests.restaction.MessageAction;
 import net.dv8tion.jda.api.sharding.DefaultShardManagerBuilder;
@@ -50,10 +50,27 @@ public class Sx4Bot {
 	
 	private static final Database DATABASE = Database.get();
 	
+	/* Events of the same guild are handled in order on one of these lanes, different guilds are handled in parallel */
+	public static final int EVENT_LANES = 16;
+	public static final int MAX_QUEUED_EVENTS = 5000;
+	
+	private static GuildEventManager eventManager;
+	
+	/* Commands are run by a bounded number of workers, heavy commands have their own workers so they can not starve cheap ones */
+	public static final int COMMAND_WORKERS = 16;
+	public static final int HEAVY_COMMAND_WORKERS = 4;
+	/* Anything submitted to the command executor without a command event */
+	public static final int OTHER_TASK_WORKERS = 2;
+	public static final int MAX_QUEUED_COMMANDS = 500;
+	
+	private static CommandScheduler commandScheduler;
+	
 	private static ShardManager bot;
 	
 	private static CommandListener listener;
 	
+	private static Sx4CommandEventListener commandEventListener;
+	
 	private static EventHandler eventHandler;
 	
 	private static YouTubeManager youtubeManager;
@@ -65,6 +82,12 @@ public class Sx4Bot {
 		
 		youtubeManager = new YouTubeManager().addListener(NotificationEvents.get());
 		
+		JobScheduler.INSTANCE
+			.registerHandler(MuteEvents.JOB_TYPE, MuteEvents::executeJob)
+			.registerHandler(ReminderEvents.JOB_TYPE, ReminderEvents::executeJob)
+			.registerHandler(GiveawayEvents.JOB_TYPE, GiveawayEvents::executeJob)
+			.registerHandler(YouTubeManager.JOB_TYPE, youtubeManager::executeJob);
+		
 		MessageAction.setDefaultMentions(EnumSet.noneOf(MentionType.class));
 		
 		ContextManagerFactory.getDefault()
@@ -159,19 +182,25 @@ public class Sx4Bot {
 					return CheckUtils.checkPermissions(event, permissions.isEmpty() ? EnumSet.noneOf(Permission.class) : EnumSet.copyOf(permissions), true);
 				});
 		
-		listener.setPrefixesFunction(event -> ModUtils.getPrefixes(event.isFromGuild() ? event.getGuild() : null, event.getAuthor()));
-		listener.addCommandEventListener(new Sx4CommandEventListener());
-		listener.setCommandExecutor(Executors.newCachedThreadPool(new ThreadFactoryBuilder()
-		    .setNameFormat("jockie-utils-async-executor-%d")
-		    .build()));
+		listener.setPrefixesFunction(message -> {
+			String prefix = PrefixCache.INSTANCE.getPrefix(message.getContentRaw(), message.isFromGuild() ? message.getGuild() : null, message.getAuthor());
+			
+			return prefix == null ? new ArrayList<>() : new ArrayList<>(List.of(prefix));
+		});
+		commandEventListener = new Sx4CommandEventListener();
+		listener.addCommandEventListener(Sx4Bot.commandEventListener);
+		commandScheduler = new CommandScheduler(Sx4Bot.COMMAND_WORKERS, Sx4Bot.HEAVY_COMMAND_WORKERS, Sx4Bot.OTHER_TASK_WORKERS, Sx4Bot.MAX_QUEUED_COMMANDS);
+		listener.setCommandExecutor(Sx4Bot.commandScheduler);
 		
-		InterfacedEventManager eventManager = new InterfacedEventManager();
+		eventManager = new GuildEventManager(Sx4Bot.EVENT_LANES, Sx4Bot.MAX_QUEUED_EVENTS);
 		
 		eventManager.register(Sx4Bot.listener);
 		eventManager.register(Sx4Bot.waiter);
 		eventManager.register(Sx4Bot.eventHandler);
 
 		eventManager.register(new ChangesMessageCache());
+		eventManager.register(EntityNameCache.INSTANCE);
+		eventManager.register(PopulationCache.INSTANCE);
 
 		eventManager.register(new StarboardEvents());
 		eventManager.register(new SelfroleEvents());
@@ -223,10 +252,22 @@ public class Sx4Bot {
 		return Sx4Bot.listener;
 	}
 	
+	public static Sx4CommandEventListener getCommandEventListener() {
+		return Sx4Bot.commandEventListener;
+	}
+	
 	public static EventHandler getEventHandler() {
 		return Sx4Bot.eventHandler;
 	}
 	
+	public static GuildEventManager getEventManager() {
+		return Sx4Bot.eventManager;
+	}
+	
+	public static CommandScheduler getCommandScheduler() {
+		return Sx4Bot.commandScheduler;
+	}
+	
 	public static DateTimeFormatter getTimeFormatter() {
 		return Sx4Bot.TIME_FORMATTER;
 	}
@@ -5,10 +5,13 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 
+import com.jockie.bot.core.command.Command.Async;
+import com.jockie.bot.core.command.impl.CommandEvent;
 import com.jockie.bot.core.command.impl.CommandImpl;
 import com.sx4.bot.interfaces.Canary;
 import com.sx4.bot.interfaces.Donator;
 import com.sx4.bot.interfaces.Examples;
+import com.sx4.bot.interfaces.Heavy;
 import com.sx4.bot.translations.CommandTranslation;
 import com.sx4.bot.translations.TranslationType;
 
@@ -25,6 +28,8 @@ public class Sx4Command extends CommandImpl {
 	
 	protected boolean canaryCommand = false;
 	
+	protected boolean heavy = false;
+	
 	public Sx4Command(String name) {
 		super(name, true);
 		
@@ -45,6 +50,32 @@ public class Sx4Command extends CommandImpl {
 		}
 	}
 	
+	/**
+	 * The command listener always runs the command straight away, {@link #execute(CommandEvent, Object...)} is what
+	 * hands it to the command scheduler
+	 */
+	public boolean isExecuteAsync() {
+		return false;
+	}
+	
+	/**
+	 * Hands the command and its event to the command scheduler rather than running it on the event lane, the command
+	 * event listener is told once the command has run
+	 */
+	public void execute(CommandEvent event, Object... arguments) {
+		Sx4Bot.getCommandScheduler().execute(event, () -> {
+			try {
+				super.execute(event, arguments);
+			} catch (Throwable e) {
+				Sx4Bot.getCommandEventListener().onCommandExecutionException(this, event, e);
+				
+				return;
+			}
+			
+			Sx4Bot.getCommandEventListener().onCommandCompleted(this, event);
+		});
+	}
+	
 	public Sx4Command setCanaryCommand(boolean canaryCommand) {
 		this.canaryCommand = canaryCommand;
 		
@@ -175,6 +206,16 @@ public class Sx4Command extends CommandImpl {
 		return this;
 	}
 	
+	public boolean isHeavyCommand() {
+		return this.heavy;
+	}
+	
+	public Sx4Command setHeavyCommand(boolean heavy) {
+		this.heavy = heavy;
+		
+		return this;
+	}
+	
 	public boolean isDonatorCommand() {
 		return this.donator;
 	}
@@ -186,6 +227,17 @@ public class Sx4Command extends CommandImpl {
 	}
 	
 	private void doAnnotations() {
+		/* Annotating a module or a command class marks all of its commands as heavy */
+		if (this.method != null && this.method.isAnnotationPresent(Heavy.class)) {
+			this.heavy = this.method.getAnnotation(Heavy.class).value();
+		} else if (this.method != null && this.method.getDeclaringClass().isAnnotationPresent(Heavy.class)) {
+			this.heavy = this.method.getDeclaringClass().getAnnotation(Heavy.class).value();
+		} else if (this.getClass().isAnnotationPresent(Heavy.class)) {
+			this.heavy = this.getClass().getAnnotation(Heavy.class).value();
+		} else if (this.method != null) {
+			this.heavy = this.method.isAnnotationPresent(Async.class);
+		}
+		
 		if (this.method != null) {
 			if (this.method.isAnnotationPresent(Donator.class)) {
 				this.donator = this.method.getAnnotation(Donator.class).value();
@@ -15,12 +15,10 @@ import org.bson.types.ObjectId;
 import com.jockie.bot.core.command.ICommand;
 import com.jockie.bot.core.command.impl.CommandEvent;
 import com.jockie.bot.core.command.impl.CommandEventListener;
-import com.sx4.bot.database.Database;
+import com.sx4.bot.logger.util.Utils;
 import com.sx4.bot.settings.Settings;
 
-import club.minnced.discord.webhook.WebhookClient;
 import club.minnced.discord.webhook.WebhookClientBuilder;
-import club.minnced.discord.webhook.send.WebhookEmbed;
 import club.minnced.discord.webhook.send.WebhookEmbed.EmbedField;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -31,8 +29,7 @@ import net.dv8tion.jda.internal.utils.tuple.Pair;
 
 public class Sx4CommandEventListener extends CommandEventListener {
 	
-	private WebhookClient commandWebhook = new WebhookClientBuilder(Long.valueOf(Settings.COMMANDS_WEBHOOK_ID), Settings.COMMANDS_WEBHOOK_TOKEN).build();
-	private List<WebhookEmbed> commandStore = new ArrayList<>();
+	private static final CommandTelemetry telemetry = new CommandTelemetry(new WebhookClientBuilder(Long.valueOf(Settings.COMMANDS_WEBHOOK_ID), Settings.COMMANDS_WEBHOOK_TOKEN).build());
 	
 	private long lastCommandExecuted = -1;
 	
@@ -42,6 +39,10 @@ public class Sx4CommandEventListener extends CommandEventListener {
 		return averageExecutionTime.getRight() == 0 ? 0 : averageExecutionTime.getLeft() / averageExecutionTime.getRight();
 	}
 	
+	public static CommandTelemetry getTelemetry() {
+		return telemetry;
+	}
+	
 	public static MessageEmbed getUserErrorMessage(Throwable throwable) {
 		EmbedBuilder embed = new EmbedBuilder();
 		embed.setTitle("Error");
@@ -101,11 +102,19 @@ public class Sx4CommandEventListener extends CommandEventListener {
 		}
 	}
 
+	/**
+	 * Called by the command listener once the command has been handed to the command scheduler
+	 */
 	public void onCommandExecuted(ICommand command, CommandEvent event) {
 		if (event.isAuthorDeveloper()) {
 			event.removeCooldown();
 		}
-		
+	}
+	
+	/**
+	 * Called by the command scheduler once the command has run without throwing
+	 */
+	public void onCommandCompleted(ICommand command, CommandEvent event) {
 		if (this.lastCommandExecuted == event.getMessage().getIdLong()) {
 			return;
 		} else {
@@ -116,25 +125,18 @@ public class Sx4CommandEventListener extends CommandEventListener {
 		
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
 		embed.setTimestamp(Instant.now());
-		embed.addField(new EmbedField(false, "Message", String.format("Content: %s\nID: %s", event.getMessage().getContentRaw(), event.getMessage().getId())));
+		embed.addField(new EmbedField(false, "Message", Utils.limitField(String.format("Content: %s\nID: %s", event.getMessage().getContentRaw(), event.getMessage().getId()))));
 		embed.addField(new EmbedField(false, "Channel", String.format("Name: %s\nID: %s", event.getChannel().getName(), event.getChannel().getId())));
 		embed.addField(new EmbedField(false, "Guild", String.format("Name: %s\nID: %s\nShard: %d\nMember Count: %,d", event.getGuild().getName(), event.getGuild().getId(), event.getJDA().getShardInfo().getShardId(), event.getGuild().getMembers().size())));
 		embed.addField(new EmbedField(false, "Author", String.format("Tag: %s\nID: %s", event.getAuthor().getAsTag(), event.getAuthor().getId())));
-		embed.addField(new EmbedField(false, "Command", String.format("Prefix: %s\nCommand: %s\nUnparsed Argument: %s", event.getPrefix(), command.getCommandTrigger(), event.getMessage().getContentRaw().substring(event.getPrefix().length() + event.getCommandTrigger().length()))));
+		embed.addField(new EmbedField(false, "Command", Utils.limitField(String.format("Prefix: %s\nCommand: %s\nUnparsed Argument: %s", event.getPrefix(), command.getCommandTrigger(), event.getMessage().getContentRaw().substring(event.getPrefix().length() + event.getCommandTrigger().length())))));
 
 		List<String> attachments = new ArrayList<>();
 		for (Attachment attachment : event.getMessage().getAttachments()) {
 			attachments.add(attachment.getUrl());
 		}
 		
-		embed.addField(new EmbedField(false, "Attachments", attachments.isEmpty() ? "None" : String.join("\n", attachments)));
-		
-		if (this.commandStore.size() == 10) {
-			this.commandWebhook.send(this.commandStore);
-			this.commandStore.clear();
-		} else {
-			this.commandStore.add(embed.build());
-		}
+		embed.addField(new EmbedField(false, "Attachments", attachments.isEmpty() ? "None" : Utils.limitField(String.join("\n", attachments))));
 		
 		Document commandData = new Document("_id", ObjectId.get())
 				.append("messageId", event.getMessage().getIdLong())
@@ -153,11 +155,7 @@ public class Sx4CommandEventListener extends CommandEventListener {
 				.append("executionDuration", event.getTimeSinceStarted())
 				.append("timestamp", Clock.systemUTC().instant().getEpochSecond());
 		
-		Database.get().insertCommandData(commandData, (result, exception) -> {
-			if (exception != null) {
-				exception.printStackTrace();
-			}
-		});
+		telemetry.record(commandData, embed.build());
 	}
 	
 	public void onCommandExecutionException(ICommand command, CommandEvent event, Throwable throwable) {
@@ -0,0 +1,331 @@
+package com.sx4.bot.core;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A hashed timing wheel shared by everything which schedules one task per item (mutes, reminders, giveaways, YouTube
+ * resubscriptions and event waiters), scheduling and cancelling are both O(1) no matter how many timers are pending.
+ *
+ * Timers are only moved into the wheel and expired by the tick thread, the tasks of expired timers are run on a
+ * separate dispatch pool so a slow task can not delay the tick.
+ */
+public class TimerWheel {
+
+	private static final String STATISTICS_MESSAGE = "%s: %,d pending, %,d scheduled, %,d expired, %,d cancelled, %,dms max dispatch lag";
+
+	public static final long TICK_DURATION = 100;
+	public static final int WHEEL_SIZE = 1024;
+	public static final int DISPATCH_THREADS = 4;
+
+	/* Bounds how long a tick can spend moving newly scheduled timers into the wheel */
+	public static final int MAX_TRANSFERS_PER_TICK = 100000;
+
+	public static final TimerWheel INSTANCE = new TimerWheel("Timer wheel", TICK_DURATION, TimeUnit.MILLISECONDS, WHEEL_SIZE, DISPATCH_THREADS);
+
+	public class Timeout {
+
+		private static final int PENDING = 0;
+		private static final int CANCELLED = 1;
+		private static final int EXPIRED = 2;
+
+		private final Runnable task;
+
+		/* Nanoseconds since the wheel was started */
+		private final long deadline;
+
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+
+		/* Only accessed by the tick thread */
+		private long remainingRounds;
+		private Bucket bucket;
+		private Timeout previous;
+		private Timeout next;
+
+		private Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(this.deadline - (System.nanoTime() - TimerWheel.this.startTime), TimeUnit.NANOSECONDS);
+		}
+
+		public boolean isCancelled() {
+			return this.state.get() == CANCELLED;
+		}
+
+		public boolean isExpired() {
+			return this.state.get() == EXPIRED;
+		}
+
+		/**
+		 * @return false if the timer had already expired or been cancelled
+		 */
+		public boolean cancel() {
+			if (!this.state.compareAndSet(PENDING, CANCELLED)) {
+				return false;
+			}
+
+			TimerWheel.this.pending.decrementAndGet();
+			TimerWheel.this.cancelled.incrementAndGet();
+
+			/* The tick thread unlinks it from its bucket */
+			TimerWheel.this.cancelledQueue.offer(this);
+
+			return true;
+		}
+
+		private void expire(long now) {
+			if (!this.state.compareAndSet(PENDING, EXPIRED)) {
+				return;
+			}
+
+			TimerWheel.this.pending.decrementAndGet();
+			TimerWheel.this.expired.incrementAndGet();
+			TimerWheel.this.maxDispatchLagNanos.accumulateAndGet(now - this.deadline, Math::max);
+
+			TimerWheel.this.dispatcher.execute(() -> {
+				try {
+					this.task.run();
+				} catch (Throwable e) {
+					e.printStackTrace();
+				}
+			});
+		}
+
+	}
+
+	/* A doubly linked list so a cancelled timer can be unlinked in constant time */
+	private static class Bucket {
+
+		private Timeout head;
+		private Timeout tail;
+
+		private void add(Timeout timeout) {
+			timeout.bucket = this;
+
+			if (this.head == null) {
+				this.head = this.tail = timeout;
+			} else {
+				this.tail.next = timeout;
+				timeout.previous = this.tail;
+				this.tail = timeout;
+			}
+		}
+
+		private Timeout remove(Timeout timeout) {
+			Timeout next = timeout.next;
+			if (timeout.previous != null) {
+				timeout.previous.next = next;
+			}
+
+			if (timeout.next != null) {
+				timeout.next.previous = timeout.previous;
+			}
+
+			if (timeout == this.head) {
+				this.head = next;
+			}
+
+			if (timeout == this.tail) {
+				this.tail = timeout.previous;
+			}
+
+			timeout.previous = null;
+			timeout.next = null;
+			timeout.bucket = null;
+
+			return next;
+		}
+
+		private void expire(long now) {
+			Timeout timeout = this.head;
+			while (timeout != null) {
+				if (timeout.remainingRounds <= 0) {
+					Timeout next = this.remove(timeout);
+					timeout.expire(now);
+
+					timeout = next;
+				} else {
+					timeout.remainingRounds--;
+					timeout = timeout.next;
+				}
+			}
+		}
+
+	}
+
+	private final String name;
+
+	private final long tickNanos;
+	private final Bucket[] wheel;
+	private final int mask;
+
+	private final long startTime = System.nanoTime();
+
+	/* Only accessed by the tick thread */
+	private long tick = 0;
+
+	private final Queue<Timeout> scheduledQueue = new ConcurrentLinkedQueue<>();
+	private final Queue<Timeout> cancelledQueue = new ConcurrentLinkedQueue<>();
+
+	private final Thread ticker;
+	private final ExecutorService dispatcher;
+
+	private volatile boolean shutdown = false;
+
+	private final AtomicInteger pending = new AtomicInteger();
+	private final AtomicLong scheduled = new AtomicLong();
+	private final AtomicLong expired = new AtomicLong();
+	private final AtomicLong cancelled = new AtomicLong();
+	private final AtomicLong maxDispatchLagNanos = new AtomicLong();
+
+	/**
+	 * @param wheelSize the number of buckets, rounded up to a power of two
+	 */
+	public TimerWheel(String name, long tickDuration, TimeUnit unit, int wheelSize, int dispatchThreads) {
+		this.name = name;
+		this.tickNanos = unit.toNanos(tickDuration);
+
+		int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+
+		this.wheel = new Bucket[size];
+		for (int i = 0; i < size; i++) {
+			this.wheel[i] = new Bucket();
+		}
+
+		this.mask = size - 1;
+
+		String threadName = name.toLowerCase().replace(' ', '-');
+
+		this.dispatcher = Executors.newFixedThreadPool(dispatchThreads, new ThreadFactoryBuilder()
+			.setNameFormat(threadName + "-dispatch-%d")
+			.setDaemon(true)
+			.build());
+
+		this.ticker = new Thread(this::run, threadName + "-tick");
+		this.ticker.setDaemon(true);
+		this.ticker.start();
+	}
+
+	public Timeout schedule(Runnable task, long delay, TimeUnit unit) {
+		if (this.shutdown) {
+			throw new IllegalStateException("The timer has been shut down");
+		}
+
+		long now = System.nanoTime() - this.startTime;
+
+		/* Guards against overflow for delays which are effectively forever */
+		long deadline = now + Math.min(unit.toNanos(Math.max(0, delay)), Long.MAX_VALUE / 2 - now);
+
+		Timeout timeout = new Timeout(task, deadline);
+
+		this.pending.incrementAndGet();
+		this.scheduled.incrementAndGet();
+
+		this.scheduledQueue.offer(timeout);
+
+		return timeout;
+	}
+
+	/**
+	 * @return the pool tasks of expired timers are run on, work which continues a task after it has waited on
+	 * something else should be run on it as well
+	 */
+	public Executor getDispatcher() {
+		return this.dispatcher;
+	}
+
+	public int getPending() {
+		return this.pending.get();
+	}
+
+	private void run() {
+		while (!this.shutdown) {
+			long now = this.waitForNextTick();
+			if (now < 0) {
+				return;
+			}
+
+			this.removeCancelled();
+			this.transferScheduled();
+
+			this.wheel[(int) (this.tick & this.mask)].expire(now);
+
+			this.tick++;
+		}
+	}
+
+	/**
+	 * @return the time the tick started at relative to the start of the wheel, -1 if the wheel was shut down while waiting
+	 */
+	private long waitForNextTick() {
+		long deadline = this.tickNanos * (this.tick + 1);
+		while (true) {
+			long now = System.nanoTime() - this.startTime;
+			if (now >= deadline) {
+				return now;
+			}
+
+			LockSupport.parkNanos(this, deadline - now);
+
+			if (this.shutdown) {
+				return -1;
+			}
+		}
+	}
+
+	private void removeCancelled() {
+		Timeout timeout;
+		while ((timeout = this.cancelledQueue.poll()) != null) {
+			/* Timers which were cancelled before they were transferred are not in a bucket */
+			if (timeout.bucket != null) {
+				timeout.bucket.remove(timeout);
+			}
+		}
+	}
+
+	private void transferScheduled() {
+		for (int i = 0; i < MAX_TRANSFERS_PER_TICK; i++) {
+			Timeout timeout = this.scheduledQueue.poll();
+			if (timeout == null) {
+				return;
+			}
+
+			if (timeout.isCancelled()) {
+				continue;
+			}
+
+			long ticks = timeout.deadline / this.tickNanos;
+			timeout.remainingRounds = (ticks - this.tick) / this.wheel.length;
+
+			/* Timers which are already due go in the bucket of the current tick */
+			this.wheel[(int) (Math.max(ticks, this.tick) & this.mask)].add(timeout);
+		}
+	}
+
+	/**
+	 * Stops the tick thread, pending timers are never run
+	 */
+	public void shutdown() {
+		this.shutdown = true;
+
+		LockSupport.unpark(this.ticker);
+		this.dispatcher.shutdown();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.name, this.pending.get(), this.scheduled.get(), this.expired.get(), this.cancelled.get(), TimeUnit.NANOSECONDS.toMillis(this.maxDispatchLagNanos.get()));
+	}
+
+}
@@ -0,0 +1,205 @@
+package com.sx4.bot.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * The tasks which are run once on startup, every task declares the tasks it depends on and is run on a bounded pool as
+ * soon as they have completed so tasks which do not depend on each other run in parallel.
+ *
+ * A task which fails is logged and the tasks which depend on it are skipped, the others are still run.
+ */
+public class WarmUp {
+
+	private static final String TASK_MESSAGE = "Warm-up (%s): %s took %,dms";
+	private static final String RESULT_MESSAGE = "Warm-up (%s): %s took %,dms, %s";
+	private static final String FAILED_MESSAGE = "Warm-up (%s): %s failed after %,dms";
+	private static final String SKIPPED_MESSAGE = "Warm-up (%s): %s was skipped as %s did not complete";
+	private static final String COMPLETE_MESSAGE = "Warm-up (%s): %,d tasks in %,dms, %,d failed, %,d skipped";
+
+	public static final int THREADS = 4;
+
+	/* Threads are only kept while there is something to warm up */
+	private static final ExecutorService EXECUTOR;
+
+	static {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(WarmUp.THREADS, WarmUp.THREADS, 30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), new ThreadFactoryBuilder()
+			.setNameFormat("warm-up-%d")
+			.setDaemon(true)
+			.build());
+
+		executor.allowCoreThreadTimeOut(true);
+
+		EXECUTOR = executor;
+	}
+
+	private static class Task {
+
+		private final String name;
+		private final Supplier<String> task;
+		private final CompletionStage<?> stage;
+		private final String[] dependencies;
+
+		private Task(String name, Supplier<String> task, CompletionStage<?> stage, String[] dependencies) {
+			this.name = name;
+			this.task = task;
+			this.stage = stage;
+			this.dependencies = dependencies;
+		}
+
+	}
+
+	private final String name;
+
+	private final Map<String, Task> tasks = new LinkedHashMap<>();
+	private final Map<String, CompletableFuture<Void>> futures = new LinkedHashMap<>();
+
+	public WarmUp(String name) {
+		this.name = name;
+	}
+
+	private WarmUp add(Task task) {
+		if (this.tasks.containsKey(task.name)) {
+			throw new IllegalArgumentException("There is already a task called " + task.name);
+		}
+
+		/* Dependencies have to be added first so the graph can not have a cycle */
+		for (String dependency : task.dependencies) {
+			if (!this.tasks.containsKey(dependency)) {
+				throw new IllegalArgumentException(task.name + " depends on " + dependency + " which has not been added");
+			}
+		}
+
+		this.tasks.put(task.name, task);
+
+		return this;
+	}
+
+	/**
+	 * @param dependencies the names of the tasks which have to complete before this one is run
+	 */
+	public WarmUp addTask(String name, Runnable task, String... dependencies) {
+		return this.add(new Task(name, () -> {
+			task.run();
+
+			return null;
+		}, null, dependencies));
+	}
+
+	/**
+	 * Adds a task which describes what it did, the description is logged along with the time it took
+	 *
+	 * @param dependencies the names of the tasks which have to complete before this one is run
+	 */
+	public WarmUp addResultTask(String name, Supplier<String> task, String... dependencies) {
+		return this.add(new Task(name, task, null, dependencies));
+	}
+
+	/**
+	 * Adds something which is already running as a task so other tasks can depend on it
+	 */
+	public WarmUp addStage(String name, CompletionStage<?> stage) {
+		return this.add(new Task(name, null, stage, new String[0]));
+	}
+
+	/**
+	 * @return a future which is completed once the task has completed, completed exceptionally if it failed or was skipped
+	 */
+	public CompletableFuture<Void> getTask(String name) {
+		CompletableFuture<Void> future = this.futures.get(name);
+		if (future == null) {
+			throw new IllegalStateException(name + " is not running");
+		}
+
+		return future;
+	}
+
+	/**
+	 * @return a future which is completed once every task has either completed, failed or been skipped
+	 */
+	public CompletableFuture<Void> run() {
+		if (!this.futures.isEmpty()) {
+			throw new IllegalStateException("The warm-up is already running");
+		}
+
+		long start = System.nanoTime();
+
+		AtomicInteger failed = new AtomicInteger(), skipped = new AtomicInteger();
+
+		Map<String, CompletableFuture<Void>> futures = this.futures;
+		for (Task task : this.tasks.values()) {
+			if (task.stage != null) {
+				futures.put(task.name, task.stage.toCompletableFuture().thenApply(result -> null));
+
+				continue;
+			}
+
+			List<CompletableFuture<Void>> dependencies = new ArrayList<>();
+			for (String dependency : task.dependencies) {
+				dependencies.add(futures.get(dependency));
+			}
+
+			CompletableFuture<Void> future = CompletableFuture.allOf(dependencies.toArray(CompletableFuture[]::new)).handleAsync((result, exception) -> {
+				if (exception != null) {
+					skipped.incrementAndGet();
+
+					List<String> incomplete = new ArrayList<>();
+					for (int i = 0; i < dependencies.size(); i++) {
+						if (dependencies.get(i).isCompletedExceptionally()) {
+							incomplete.add(task.dependencies[i]);
+						}
+					}
+
+					System.err.println(String.format(SKIPPED_MESSAGE, this.name, task.name, String.join(", ", incomplete)));
+
+					throw new IllegalStateException(task.name + " was skipped");
+				}
+
+				long taskStart = System.nanoTime();
+
+				String taskResult;
+				try {
+					taskResult = task.task.get();
+				} catch (Throwable e) {
+					failed.incrementAndGet();
+
+					System.err.println(String.format(FAILED_MESSAGE, this.name, task.name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - taskStart)));
+					e.printStackTrace();
+
+					throw e;
+				}
+
+				long taskMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - taskStart);
+				if (taskResult == null) {
+					System.out.println(String.format(TASK_MESSAGE, this.name, task.name, taskMillis));
+				} else {
+					System.out.println(String.format(RESULT_MESSAGE, this.name, task.name, taskMillis, taskResult));
+				}
+
+				return null;
+			}, WarmUp.EXECUTOR);
+
+			futures.put(task.name, future);
+		}
+
+		/* Failures have already been logged so the returned future always completes normally */
+		return CompletableFuture.allOf(futures.values().toArray(CompletableFuture[]::new)).handle((result, exception) -> {
+			System.out.println(String.format(COMPLETE_MESSAGE, this.name, futures.size(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), failed.get(), skipped.get()));
+
+			return null;
+		});
+	}
+
+}
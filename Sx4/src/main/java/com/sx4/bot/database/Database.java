@@ -1,175 +1,561 @@
 package com.sx4.bot.database;
 
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
 import org.bson.Document;
 import org.bson.conversions.Bson;
 import org.bson.types.ObjectId;
 
+import com.mongodb.MongoClientSettings;
 import com.mongodb.bulk.BulkWriteResult;
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoClients;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
 import com.mongodb.client.model.Indexes;
-import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Sorts;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
 import com.mongodb.client.result.DeleteResult;
 import com.mongodb.client.result.UpdateResult;
 import com.sx4.bot.settings.Settings;
 
 public class Database {
 
+	public static final Document EMPTY_DOCUMENT = new Document();
+	
+	/* Run with -Dsx4.storage=memory to keep everything in memory, used for load testing without a running mongod */
+	public static final Storage.Type STORAGE = Storage.Type.valueOf(System.getProperty("sx4.storage", "mongo").toUpperCase());
+	
 	public static final Database INSTANCE = new Database();
 	
-	public static final Document EMPTY_DOCUMENT = new Document();
+	public static final int MAX_CACHED_GUILDS = 50000;
+	
+	public static final int MAX_CACHED_USERS = 100000;
+	public static final long USER_CACHE_EXPIRY = 10;
+	
+	/* Change streams require mongod to be running as a replica set */
+	public static final boolean WATCH_GUILDS = false;
+	
+	public static final int QUERY_THREADS = 16;
+	public static final int MAX_QUEUED_QUERIES = 5000;
+	
+	/* Queries which have not completed within this time are failed with a TimeoutException */
+	public static final long DEFAULT_QUERY_TIMEOUT = 30;
+	
+	/* Buffered guild and user updates are written at most this many milliseconds after they are made */
+	public static final long WRITE_BUFFER_INTERVAL = 500;
+	public static final int MAX_PENDING_WRITES = 10000;
+	
+	/* Explains every query shape once the indexes are created and prints the ones which scan a whole collection */
+	public static final boolean ADVISE_INDEXES = true;
+	
+	private static final IndexOptions BACKGROUND = new IndexOptions().background(true);
+	
+	/**
+	 * The indexes every collection needs, these are created in the background on startup so the
+	 * bot does not wait on index builds, see {@link QueryShapes} for the queries they are for
+	 */
+	public static final Map<String, List<IndexModel>> INDEXES = Map.ofEntries(
+		Map.entry("guilds", List.of(
+			new IndexModel(Indexes.descending("youtubeNotifications.uploaderId"), BACKGROUND),
+			new IndexModel(Indexes.descending("youtubeNotifications.channelId"), BACKGROUND)
+		)),
+		Map.entry("users", List.of(
+			new IndexModel(Indexes.descending("economy.balance"), BACKGROUND),
+			new IndexModel(Indexes.descending("economy.winnings"), BACKGROUND),
+			new IndexModel(Indexes.descending("economy.streak"), BACKGROUND),
+			new IndexModel(Indexes.descending("reputation.amount"), BACKGROUND),
+			new IndexModel(Indexes.ascending("profile.birthday"), BACKGROUND)
+		)),
+		Map.entry("notifications", List.of(
+			new IndexModel(Indexes.descending("videoId"), BACKGROUND),
+			new IndexModel(Indexes.descending("uploaderId"), BACKGROUND),
+			new IndexModel(Indexes.descending("timestamp"), BACKGROUND)
+		)),
+		Map.entry("auction", List.of(
+			new IndexModel(Indexes.descending("ownerId"), BACKGROUND),
+			new IndexModel(Indexes.ascending("item.name"), BACKGROUND)
+		)),
+		Map.entry("modLogs", List.of(
+			new IndexModel(Indexes.compoundIndex(Indexes.ascending("guildId"), Indexes.descending("id")), BACKGROUND)
+		)),
+		Map.entry("commandLogs", List.of(
+			new IndexModel(Indexes.descending("messageId"), BACKGROUND),
+			new IndexModel(Indexes.descending("guildId"), BACKGROUND),
+			new IndexModel(Indexes.descending("authorId"), BACKGROUND),
+			new IndexModel(Indexes.descending("command"), BACKGROUND),
+			new IndexModel(Indexes.descending("module"), BACKGROUND),
+			new IndexModel(Indexes.descending("channelId"), BACKGROUND),
+			new IndexModel(Indexes.descending("shard"), BACKGROUND),
+			new IndexModel(Indexes.descending("timestamp"), BACKGROUND)
+		)),
+		Map.entry("guildLogs", List.of(
+			new IndexModel(Indexes.descending("guildId"), BACKGROUND),
+			new IndexModel(Indexes.descending("timestamp"), BACKGROUND)
+		)),
+		Map.entry("starboardMessages", List.of(
+			GuildEntityCollection.getKeyIndex(),
+			new IndexModel(Indexes.compoundIndex(Indexes.ascending("guildId"), Indexes.ascending("starboardId")), BACKGROUND)
+		)),
+		Map.entry("warnings", List.of(
+			GuildEntityCollection.getKeyIndex()
+		)),
+		Map.entry("mutes", List.of(
+			GuildEntityCollection.getKeyIndex()
+		)),
+		Map.entry("jobs", List.of(
+			new IndexModel(Indexes.ascending("dueAt"), BACKGROUND)
+		))
+	);
 	
 	public static Database get() {
 		return Database.INSTANCE;
 	}
 	
-	private ExecutorService queryExecutor = Executors.newCachedThreadPool();
+	private final QueryExecutor queryExecutor = new QueryExecutor(QUERY_THREADS, MAX_QUEUED_QUERIES);
+	
+	private final QueryMetrics queryMetrics = new QueryMetrics();
 	
 	private MongoClient client;
 	
-	private MongoDatabase otherDatabase;
+	private Storage otherStorage;
+	
+	private StorageCollection otherGuilds;
+	private StorageCollection otherUsers;
+	
+	private Storage storage;
+	
+	private StorageCollection guilds;
+	private StorageCollection users;
+	private StorageCollection auction;
+	private StorageCollection resubscriptions;
+	private StorageCollection notifications;
+	
+	private StorageCollection commandLogs;
+	private StorageCollection guildLogs;
+	private StorageCollection modLogs;
+	
+	private GuildEntityCollection starboardMessages;
+	private GuildEntityCollection warnings;
+	private GuildEntityCollection mutes;
 	
-	private MongoCollection<Document> otherGuilds;
-	private MongoCollection<Document> otherUsers;
+	private StorageCollection jobs;
 	
-	private MongoDatabase database;
+	private final CompletableFuture<Void> migration = new CompletableFuture<>();
 	
-	private MongoCollection<Document> guilds;
-	private MongoCollection<Document> users;
-	private MongoCollection<Document> auction;
-	private MongoCollection<Document> resubscriptions;
-	private MongoCollection<Document> notifications;
+	private final DocumentCache guildCache;
+	private final DocumentCache userCache;
 	
-	private MongoCollection<Document> commandLogs;
-	private MongoCollection<Document> guildLogs;
-	private MongoCollection<Document> modLogs;
+	private WriteBuffer guildWriteBuffer;
+	private WriteBuffer userWriteBuffer;
 	
 	private final UpdateOptions defaultUpdateOptions = new UpdateOptions().upsert(true);
 	private final FindOneAndUpdateOptions defaultFindOneAndUpdateOptions = new FindOneAndUpdateOptions().returnDocument(ReturnDocument.AFTER).upsert(true);
 	
 	private Database() {
-		this.client = MongoClients.create();
+		String otherDatabaseName = Settings.CANARY ? Settings.MAIN_DATABASE_NAME : Settings.CANARY_DATABASE_NAME;
+		if (Database.STORAGE == Storage.Type.MEMORY) {
+			this.otherStorage = new MemoryStorage(otherDatabaseName);
+			this.storage = new MemoryStorage(Settings.DATABASE_NAME);
+		} else {
+			this.client = MongoClients.create(MongoClientSettings.builder().addCommandListener(this.queryMetrics).build());
+			
+			this.otherStorage = new MongoStorage(this.client.getDatabase(otherDatabaseName));
+			this.storage = new MongoStorage(this.client.getDatabase(Settings.DATABASE_NAME));
+		}
+		
+		this.otherGuilds = this.otherStorage.getCollection("guilds");
+		this.otherUsers = this.otherStorage.getCollection("users");
 		
-		this.otherDatabase = this.client.getDatabase(Settings.CANARY ? Settings.MAIN_DATABASE_NAME : Settings.CANARY_DATABASE_NAME);
+		this.guilds = this.storage.getCollection("guilds");
+		
+		this.guildCache = new DocumentCache("Guild", Database.MAX_CACHED_GUILDS, guildId -> {
+			this.guildWriteBuffer.flush(guildId);
+			
+			return this.guilds.findOne(Filters.eq("_id", guildId), null, null);
+		});
+		
+		this.guildWriteBuffer = new WriteBuffer("Guild", this.guilds, this.guildCache, Database.WRITE_BUFFER_INTERVAL, TimeUnit.MILLISECONDS, Database.MAX_PENDING_WRITES);
+		
+		this.users = this.storage.getCollection("users");
+		
+		this.userCache = new DocumentCache("User", Database.MAX_CACHED_USERS, Database.USER_CACHE_EXPIRY, TimeUnit.MINUTES, userId -> {
+			this.userWriteBuffer.flush(userId);
+			
+			return this.users.findOne(Filters.eq("_id", userId), null, null);
+		});
 		
-		this.otherGuilds = this.otherDatabase.getCollection("guilds");
-		this.otherUsers = this.otherDatabase.getCollection("users");
+		this.userWriteBuffer = new WriteBuffer("User", this.users, this.userCache, Database.WRITE_BUFFER_INTERVAL, TimeUnit.MILLISECONDS, Database.MAX_PENDING_WRITES);
 		
-		this.database = this.client.getDatabase(Settings.DATABASE_NAME);
+		this.notifications = this.storage.getCollection("notifications");
 		
-		this.guilds = this.database.getCollection("guilds");
-		this.guilds.createIndex(Indexes.descending("youtubeNotifications.uploaderId"));
-		this.guilds.createIndex(Indexes.descending("youtubeNotifications.channelId"));
+		this.resubscriptions = this.storage.getCollection("resubscriptions");
 		
-		this.users = this.database.getCollection("users");
+		this.auction = this.storage.getCollection("auction");
 		
-		this.notifications = this.database.getCollection("notifications");
-		this.notifications.createIndex(Indexes.descending("videoId"));
-		this.notifications.createIndex(Indexes.descending("uploaderId"));
-		this.notifications.createIndex(Indexes.descending("timestamp"));
+		this.modLogs = this.storage.getCollection("modLogs");
 		
-		this.resubscriptions = this.database.getCollection("resubscriptions");
+		this.commandLogs = this.storage.getCollection("commandLogs");
 		
-		this.auction = this.database.getCollection("auction");
-		this.auction.createIndex(Indexes.descending("ownerId"));
-		this.auction.createIndex(Indexes.descending("item"));
+		this.guildLogs = this.storage.getCollection("guildLogs");
 		
-		this.modLogs = this.database.getCollection("modLogs");
-		this.modLogs.createIndex(Indexes.descending("guildId"));
-		this.modLogs.createIndex(Indexes.descending("id"));
+		this.starboardMessages = new GuildEntityCollection("Starboard message", this, this.storage.getCollection("starboardMessages"), "starboard.messages");
+		
+		this.warnings = new GuildEntityCollection("Warning", this, this.storage.getCollection("warnings"), "warn.users");
+		
+		this.mutes = new GuildEntityCollection("Mute", this, this.storage.getCollection("mutes"), "mute.users");
+		
+		this.jobs = this.storage.getCollection("jobs");
+		
+		if (this.client != null) {
+			System.out.println("Connecting to MongoDB...");
+			
+			try {
+				this.client.listDatabaseNames().first();		
+				System.out.println("Connected to MongoDB");
+			} catch(Exception e) {
+				throw new RuntimeException("MongoDB failed to connect");
+			}
+			
+			if (Database.WATCH_GUILDS) {
+				this.watchGuilds();
+			}
+		} else {
+			System.out.println("Using in memory storage, nothing will be persisted");
+		}
+		
+		/* The unique indexes of the entity collections have to exist before the arrays are back-filled into them */
+		Thread indexThread = new Thread(() -> {
+			this.createIndexes();
+			
+			try {
+				this.migrateGuildEntities();
+			} finally {
+				this.migration.complete(null);
+			}
+			
+			if (Database.ADVISE_INDEXES && this.client != null) {
+				System.out.println("Query shapes:" + IndexAdvisor.getReport(this.adviseIndexes(), true));
+			}
+		}, "database-indexes");
+		
+		indexThread.setDaemon(true);
+		indexThread.start();
+		
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			this.guildWriteBuffer.shutdown();
+			this.userWriteBuffer.shutdown();
+		}, "database-shutdown"));
+	}
+	
+	public void createIndexes() {
+		for (Map.Entry<String, List<IndexModel>> entry : Database.INDEXES.entrySet()) {
+			try {
+				this.storage.getCollection(entry.getKey()).createIndexes(entry.getValue());
+			} catch (Exception e) {
+				System.err.println("Failed to create the indexes for " + entry.getKey());
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	public void migrateGuildEntities() {
+		for (GuildEntityCollection collection : this.getGuildEntityCollections()) {
+			try {
+				collection.migrateAll();
+			} catch (Exception e) {
+				System.err.println("Failed to migrate " + collection.getLegacyField());
+				e.printStackTrace();
+			}
+		}
+	}
+	
+	/**
+	 * @return a future which is completed once every guild has been checked for arrays which need migrating,
+	 * guilds which failed to migrate are still migrated when they are next accessed
+	 */
+	public CompletableFuture<Void> getMigration() {
+		return this.migration;
+	}
+	
+	public List<IndexAdvisor.Result> adviseIndexes() {
+		return IndexAdvisor.explain(this.getDatabase(), QueryShapes.ALL);
+	}
+	
+	private void watchGuilds() {
+		Thread thread = new Thread(() -> {
+			try {
+				for (ChangeStreamDocument<Document> change : this.getGuilds().watch()) {
+					BsonDocument key = change.getDocumentKey();
+					if (key != null && key.isInt64("_id")) {
+						this.guildCache.invalidate(key.getInt64("_id").getValue());
+					} else {
+						this.guildCache.invalidateAll();
+					}
+				}
+			} catch (Throwable e) {
+				System.err.println("[Database] The guilds change stream has stopped, cached guilds will only be invalidated by writes from this process");
+				e.printStackTrace();
+			}
+		}, "guilds-change-stream");
 		
-		this.commandLogs = this.database.getCollection("commandLogs");
-		this.commandLogs.createIndex(Indexes.descending("messageId"));
-		this.commandLogs.createIndex(Indexes.descending("guildId"));
-		this.commandLogs.createIndex(Indexes.descending("authorId"));
-		this.commandLogs.createIndex(Indexes.descending("command"));
-		this.commandLogs.createIndex(Indexes.descending("module"));
-		this.commandLogs.createIndex(Indexes.descending("channelId"));
-		this.commandLogs.createIndex(Indexes.descending("shard"));
-		this.commandLogs.createIndex(Indexes.descending("timestamp"));
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	private Long getId(Bson filter) {
+		if (filter == null) {
+			return null;
+		}
 		
-		this.guildLogs = this.database.getCollection("guildLogs");
-		this.guildLogs.createIndex(Indexes.descending("guildId"));
-		this.guildLogs.createIndex(Indexes.descending("timestamp"));
+		return this.getId(filter.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry()));
+	}
+	
+	private Long getId(BsonDocument filter) {
+		BsonValue id = filter.get("_id");
+		if (id != null && id.isInt64()) {
+			return id.asInt64().getValue();
+		}
 		
-		System.out.println("Connecting to MongoDB...");
+		BsonValue and = filter.get("$and");
+		if (and != null && and.isArray()) {
+			for (BsonValue value : and.asArray()) {
+				if (value.isDocument()) {
+					Long andId = this.getId(value.asDocument());
+					if (andId != null) {
+						return andId;
+					}
+				}
+			}
+		}
 		
+		return null;
+	}
+	
+	private void invalidate(DocumentCache cache, Bson filter) {
+		Long id = this.getId(filter);
+		if (id == null) {
+			cache.invalidateAll();
+		} else {
+			cache.invalidate(id);
+		}
+	}
+	
+	private void invalidate(DocumentCache cache, List<WriteModel<Document>> bulkData) {
+		for (WriteModel<Document> model : bulkData) {
+			if (model instanceof UpdateOneModel) {
+				this.invalidate(cache, ((UpdateOneModel<Document>) model).getFilter());
+			} else {
+				cache.invalidateAll();
+				break;
+			}
+		}
+	}
+	
+	private UpdateResult updateOne(StorageCollection collection, DocumentCache cache, WriteBuffer writeBuffer, Bson filter, Bson update, UpdateOptions updateOptions) {
+		Long id = this.getId(filter);
+		if (id == null) {
+			writeBuffer.flush();
+			
+			try {
+				return collection.updateOne(filter, update, updateOptions);
+			} finally {
+				cache.invalidateAll();
+			}
+		}
+		
+		writeBuffer.flush(id);
+		
+		cache.beginWrite(id);
+		
+		UpdateResult result;
 		try {
-			this.client.listDatabaseNames().first();		
-			System.out.println("Connected to MongoDB");
-		} catch(Exception e) {
-			throw new RuntimeException("MongoDB failed to connect");
+			result = collection.updateOne(filter, update, updateOptions);
+		} catch (RuntimeException e) {
+			cache.endWrite(id, null, null);
+			
+			throw e;
+		}
+		
+		if (result.getUpsertedId() != null) {
+			cache.endWrite(id, null, null);
+		} else if (result.getMatchedCount() == 0) {
+			cache.endWrite(id, Database.EMPTY_DOCUMENT, null);
+		} else {
+			cache.endWrite(id, update, updateOptions.getArrayFilters());
 		}
+		
+		return result;
 	}
 	
-	public MongoClient getClient() {
-		return this.client;
+	/**
+	 * Runs the read on the query executor, the returned future fails with a RejectedExecutionException if the queue is full
+	 * or a TimeoutException if the read has not completed within the timeout
+	 */
+	public <Type> CompletableFuture<Type> query(Supplier<Type> query, long timeout, TimeUnit unit) {
+		return this.queryExecutor.submit(query, timeout, unit);
 	}
 	
-	public MongoDatabase getOtherDatabase() {
-		return this.otherDatabase;
+	public <Type> CompletableFuture<Type> query(Supplier<Type> query) {
+		return this.query(query, DEFAULT_QUERY_TIMEOUT, TimeUnit.SECONDS);
+	}
+	
+	/**
+	 * Runs the write on the query executor, the returned future fails with a RejectedExecutionException if the queue is full
+	 * or a TimeoutException if the write has not started within the timeout, once it has started it is never failed before
+	 * the database has answered as it could still be committed
+	 */
+	public <Type> CompletableFuture<Type> write(Supplier<Type> query, long timeout, TimeUnit unit) {
+		return this.queryExecutor.submitWrite(query, timeout, unit);
+	}
+	
+	public <Type> CompletableFuture<Type> write(Supplier<Type> query) {
+		return this.write(query, DEFAULT_QUERY_TIMEOUT, TimeUnit.SECONDS);
+	}
+	
+	/* Every callback variant is a write */
+	<Type> void submit(Supplier<Type> query, DatabaseCallback<Type> callback) {
+		this.write(query).whenComplete((result, exception) -> {
+			try {
+				callback.onResult(result, exception);
+			} catch (Throwable e) {
+				e.printStackTrace();
+			}
+		});
+	}
+	
+	public QueryExecutor getQueryExecutor() {
+		return this.queryExecutor;
+	}
+	
+	public QueryMetrics getQueryMetrics() {
+		return this.queryMetrics;
+	}
+	
+	public WriteBuffer getGuildWriteBuffer() {
+		return this.guildWriteBuffer;
+	}
+	
+	public WriteBuffer getUserWriteBuffer() {
+		return this.userWriteBuffer;
+	}
+	
+	public DocumentCache getGuildCache() {
+		return this.guildCache;
+	}
+	
+	public DocumentCache getUserCache() {
+		return this.userCache;
+	}
+	
+	public Storage getStorage() {
+		return this.storage;
+	}
+	
+	public Storage getOtherStorage() {
+		return this.otherStorage;
 	}
 	
-	public MongoCollection<Document> getOtherGuilds() {
+	public StorageCollection getOtherGuilds() {
 		return this.otherGuilds;
 	}
 	
-	public MongoCollection<Document> getOtherUsers() {
+	public StorageCollection getOtherUsers() {
 		return this.otherUsers;
 	}
 	
+	private static MongoStorage getMongoStorage(Storage storage) {
+		if (storage instanceof MongoStorage) {
+			return (MongoStorage) storage;
+		}
+		
+		throw new IllegalStateException("This query can only be run with MongoDB storage, the storage is " + storage.getType());
+	}
+	
+	/* The methods below give direct access to MongoDB for leaderboards and aggregations, they throw an IllegalStateException with any other storage */
+	
+	public MongoClient getClient() {
+		Database.getMongoStorage(this.storage);
+		
+		return this.client;
+	}
+	
+	public MongoDatabase getOtherDatabase() {
+		return Database.getMongoStorage(this.otherStorage).getDatabase();
+	}
+	
 	public MongoDatabase getDatabase() {
-		return this.database;
+		return Database.getMongoStorage(this.storage).getDatabase();
 	}
 	
 	public MongoCollection<Document> getGuilds() {
-		return this.guilds;
+		return this.getDatabase().getCollection("guilds");
 	}
 	
 	public MongoCollection<Document> getUsers() {
-		return this.users;
+		return this.getDatabase().getCollection("users");
 	}
 	
 	public MongoCollection<Document> getResubscriptions() {
-		return this.resubscriptions;
+		return this.getDatabase().getCollection("resubscriptions");
 	}
 	
 	public MongoCollection<Document> getNotifications() {
-		return this.notifications;
+		return this.getDatabase().getCollection("notifications");
 	}
 	
 	public MongoCollection<Document> getAuction() {
-		return this.auction;
+		return this.getDatabase().getCollection("auction");
 	}
 	
 	public MongoCollection<Document> getCommandLogs() {
-		return this.commandLogs;
+		return this.getDatabase().getCollection("commandLogs");
 	}
 	
 	public MongoCollection<Document> getModLogs() {
-		return this.modLogs;
+		return this.getDatabase().getCollection("modLogs");
 	}
 	
 	public MongoCollection<Document> getGuildLogs() {
-		return this.guildLogs;
+		return this.getDatabase().getCollection("guildLogs");
+	}
+	
+	public GuildEntityCollection getStarboardMessages() {
+		return this.starboardMessages;
+	}
+	
+	public GuildEntityCollection getWarnings() {
+		return this.warnings;
+	}
+	
+	public GuildEntityCollection getMutes() {
+		return this.mutes;
+	}
+	
+	public StorageCollection getJobs() {
+		return this.jobs;
+	}
+	
+	public List<GuildEntityCollection> getGuildEntityCollections() {
+		return List.of(this.starboardMessages, this.warnings, this.mutes);
 	}
 	
-	public int getGuildsGained(Bson filter) {
-		FindIterable<Document> guildLogs = this.guildLogs.find(filter).projection(Projections.include("joined"));
+	public int getGuildsGained(long since) {
+		Iterable<Document> guildLogs = QueryShapes.GUILDS_GAINED.find(this.guildLogs, since);
 		
 		int guildsGained = 0;
 		for (Document guildLog : guildLogs) {
@@ -184,8 +570,12 @@ public class Database {
 		return guildsGained;
 	}
 	
+	public Iterable<Document> getResubscriptions(Bson filter) {
+		return this.resubscriptions.find(filter, null, null);
+	}
+	
 	public Document getResubscriptionById(String id) {
-		Document data = this.resubscriptions.find(Filters.eq("_id", id)).first();
+		Document data = this.resubscriptions.findOne(Filters.eq("_id", id), null, null);
 		
 		return data == null ? Database.EMPTY_DOCUMENT : data; 
 	}
@@ -195,13 +585,7 @@ public class Database {
 	}
 	
 	public void updateResubscriptionById(String id, Bson update, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateResubscriptionById(id, update), null);
-			} catch (Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateResubscriptionById(id, update), callback);
 	}
 	
 	public DeleteResult deleteResubscription(Bson filter) {
@@ -209,13 +593,7 @@ public class Database {
 	}
 	
 	public void deleteResubscription(Bson filter, DatabaseCallback<DeleteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.deleteResubscription(filter), null);
-			} catch (Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.deleteResubscription(filter), callback);
 	}
 	
 	public DeleteResult deleteResubscriptionById(String id) {
@@ -223,35 +601,27 @@ public class Database {
 	}
 	
 	public void deleteResubscriptionById(String id, DatabaseCallback<DeleteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.deleteResubscriptionById(id), null);
-			} catch (Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.deleteResubscriptionById(id), callback);
 	}
 	
 	public BulkWriteResult bulkWriteResubscriptions(List<WriteModel<Document>> bulkData) {
-		return this.resubscriptions.bulkWrite(bulkData);
+		return this.resubscriptions.bulkWrite(bulkData, null);
 	}
 	
 	public void bulkWriteResubscriptions(List<WriteModel<Document>> bulkData, DatabaseCallback<BulkWriteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.bulkWriteResubscriptions(bulkData), null);
-			} catch (Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.bulkWriteResubscriptions(bulkData), callback);
 	}
 	
-	public FindIterable<Document> getNotifications(Bson filter, Bson projection) {
-		return this.notifications.find(filter).projection(projection).sort(Sorts.descending("timestamp"));
+	public CompletableFuture<BulkWriteResult> bulkWriteResubscriptionsAsync(List<WriteModel<Document>> bulkData) {
+		return this.write(() -> this.bulkWriteResubscriptions(bulkData));
+	}
+	
+	public Iterable<Document> getNotifications(Bson filter, Bson projection) {
+		return this.notifications.find(filter, projection, Sorts.descending("timestamp"));
 	}
 	
 	public Document getNotification(Bson filter, Bson projection) {
-		Document data = this.getNotifications(filter, projection).first();
+		Document data = this.notifications.findOne(filter, projection, Sorts.descending("timestamp"));
 		
 		return data == null ? Database.EMPTY_DOCUMENT : data;
 	}
@@ -261,15 +631,11 @@ public class Database {
 	}
 	
 	public void insertNotification(Document data, DatabaseCallback<Void> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				this.insertNotification(data);
-				
-				callback.onResult(null, null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> {
+			this.insertNotification(data);
+			
+			return null;
+		}, callback);
 	}
 	
 	public DeleteResult deleteManyNotifications(String videoId) {
@@ -277,105 +643,73 @@ public class Database {
 	}
 	
 	public void deleteManyNotifications(String videoId, DatabaseCallback<DeleteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.deleteManyNotifications(videoId), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.deleteManyNotifications(videoId), callback);
 	}
 	
 	public void insertAuction(long ownerId, long price, Document rawItem, DatabaseCallback<Void> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				Document auctionItem = new Document("item", rawItem)
-						.append("price", price)
-						.append("ownerId", ownerId);
-				
-				this.auction.insertOne(auctionItem);
-				
-				callback.onResult(null, null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> {
+			Document auctionItem = new Document("item", rawItem)
+					.append("price", price)
+					.append("ownerId", ownerId);
+			
+			this.auction.insertOne(auctionItem);
+			
+			return null;
+		}, callback);
 	}
 	
 	public void deleteAuction(ObjectId id, DatabaseCallback<Void> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				this.auction.deleteOne(Filters.eq("_id", id));
-				
-				callback.onResult(null, null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> {
+			this.auction.deleteOne(Filters.eq("_id", id));
+			
+			return null;
+		}, callback);
 	}
 	
 	public void insertGuildLog(Document document, DatabaseCallback<Void> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				this.guildLogs.insertOne(document);
-				
-				callback.onResult(null, null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> {
+			this.guildLogs.insertOne(document);
+			
+			return null;
+		}, callback);
 	}
 	
 	public void insertModLogCase(Document document, DatabaseCallback<Void> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				this.modLogs.insertOne(document);
-				
-				callback.onResult(null, null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> {
+			this.modLogs.insertOne(document);
+			
+			return null;
+		}, callback);
 	}
 	
 	public void updateModLogCases(List<WriteModel<Document>> bulkData, DatabaseCallback<BulkWriteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.modLogs.bulkWrite(bulkData), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.modLogs.bulkWrite(bulkData, null), callback);
 	}
 	
 	public void deleteModLogCases(Bson filter, DatabaseCallback<DeleteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.modLogs.deleteMany(filter), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.modLogs.deleteMany(filter), callback);
 	}
 	
-	public void insertCommandData(Document document, DatabaseCallback<Void> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				this.commandLogs.insertOne(document);
-				
-				callback.onResult(null, null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+	public void insertManyCommandData(List<Document> documents) {
+		this.commandLogs.insertMany(documents, false);
 	}
 	
 	public Document getGuildById(long guildId, Bson filters, Bson projection) {
+		if (filters == null) {
+			Document document = this.guildCache.get(guildId, projection);
+			if (document != null) {
+				return document;
+			}
+		}
+		
+		/* Both reads go to the collection so anything still buffered for the guild has to be written first */
+		this.guildWriteBuffer.flush(guildId);
+		
 		Document document;
 		if (filters != null) {
-			document = this.guilds.find(Filters.and(Filters.eq("_id", guildId), filters)).projection(projection).first();
+			document = this.guilds.findOne(Filters.and(Filters.eq("_id", guildId), filters), projection, null);
 		} else {
-			document = this.guilds.find(Filters.eq("_id", guildId)).projection(projection).first();
+			document = this.guilds.findOne(Filters.eq("_id", guildId), projection, null);
 		}
 		
 		return document == null ? Database.EMPTY_DOCUMENT : document;
@@ -385,8 +719,12 @@ public class Database {
 		return this.getGuildById(guildId, null, null);
 	}
 	
+	public CompletableFuture<Document> getGuildByIdAsync(long guildId, Bson filters, Bson projection) {
+		return this.query(() -> this.getGuildById(guildId, filters, projection));
+	}
+	
 	public UpdateResult updateGuildById(Bson filters, Bson update, UpdateOptions updateOptions) {
-		return this.guilds.updateOne(filters, update, updateOptions == null ? this.defaultUpdateOptions : updateOptions);
+		return this.updateOne(this.guilds, this.guildCache, this.guildWriteBuffer, filters, update, updateOptions == null ? this.defaultUpdateOptions : updateOptions);
 	}
 	
 	public UpdateResult updateGuildById(long guildId, Bson filters, Bson update, UpdateOptions updateOptions) {
@@ -409,23 +747,11 @@ public class Database {
 	}
 	
 	public void updateGuildById(Bson filters, Bson update, UpdateOptions updateOptions, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateGuildById(filters, update, updateOptions), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateGuildById(filters, update, updateOptions), callback);
 	}
 	
 	public void updateGuildById(long guildId, Bson filters, Bson update, UpdateOptions updateOptions, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateGuildById(guildId, filters, update, updateOptions), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateGuildById(guildId, filters, update, updateOptions), callback);
 	}
 	
 	public void updateGuildById(UpdateOneModel<Document> updateModel, DatabaseCallback<UpdateResult> callback) {
@@ -436,8 +762,39 @@ public class Database {
 		this.updateGuildById(guildId, null, update, null, callback);
 	}
 	
-	public FindIterable<Document> getGuilds(Bson filter, Bson projection) {
-		return this.guilds.find(filter).projection(projection);
+	public CompletableFuture<UpdateResult> updateGuildByIdAsync(Bson filters, Bson update, UpdateOptions updateOptions) {
+		return this.write(() -> this.updateGuildById(filters, update, updateOptions));
+	}
+	
+	public CompletableFuture<UpdateResult> updateGuildByIdAsync(long guildId, Bson filters, Bson update, UpdateOptions updateOptions) {
+		return this.write(() -> this.updateGuildById(guildId, filters, update, updateOptions));
+	}
+	
+	public CompletableFuture<UpdateResult> updateGuildByIdAsync(UpdateOneModel<Document> updateModel) {
+		return this.write(() -> this.updateGuildById(updateModel));
+	}
+	
+	public CompletableFuture<UpdateResult> updateGuildByIdAsync(long guildId, Bson update) {
+		return this.write(() -> this.updateGuildById(guildId, update));
+	}
+	
+	/**
+	 * Buffers the update with the guild write buffer, only $inc, $set, $push and $addToSet updates can be buffered
+	 */
+	public CompletableFuture<Void> bufferGuildUpdate(long guildId, Bson update, UpdateOptions updateOptions, WriteDurability durability) {
+		return this.guildWriteBuffer.update(guildId, update, updateOptions, durability);
+	}
+	
+	public CompletableFuture<Void> bufferGuildUpdate(long guildId, Bson update, UpdateOptions updateOptions) {
+		return this.bufferGuildUpdate(guildId, update, updateOptions, WriteDurability.BUFFERED);
+	}
+	
+	public CompletableFuture<Void> bufferGuildUpdate(long guildId, Bson update) {
+		return this.bufferGuildUpdate(guildId, update, this.defaultUpdateOptions, WriteDurability.BUFFERED);
+	}
+	
+	public Iterable<Document> getGuilds(Bson filter, Bson projection) {
+		return this.guilds.find(filter, projection, null);
 	}
 	
 	public Document getGuildByIdAndUpdate(long guildId, Bson filters, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions) {
@@ -448,7 +805,13 @@ public class Database {
 			filter = Filters.eq("_id", guildId);
 		}
 		
-		return this.guilds.findOneAndUpdate(filter, update, findOneAndUpdateOptions == null ? this.defaultFindOneAndUpdateOptions : findOneAndUpdateOptions);
+		this.guildWriteBuffer.flush(guildId);
+		
+		try {
+			return this.guilds.findOneAndUpdate(filter, update, findOneAndUpdateOptions == null ? this.defaultFindOneAndUpdateOptions : findOneAndUpdateOptions);
+		} finally {
+			this.guildCache.invalidate(guildId);
+		}
 	}
 	
 	public Document getGuildByIdAndUpdate(long guildId, Bson update, Bson projection) {
@@ -456,21 +819,29 @@ public class Database {
 	}
 	
 	public void getGuildByIdAndUpdate(long guildId, Bson filters, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions, DatabaseCallback<Document> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.getGuildByIdAndUpdate(guildId, filters, update, findOneAndUpdateOptions), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.getGuildByIdAndUpdate(guildId, filters, update, findOneAndUpdateOptions), callback);
 	}
 	
 	public void getGuildByIdAndUpdate(long guildId, Bson update, Bson projection, DatabaseCallback<Document> callback) {
 		this.getGuildByIdAndUpdate(guildId, null, update, this.defaultFindOneAndUpdateOptions.projection(projection), callback);
 	}
+	
+	public CompletableFuture<Document> getGuildByIdAndUpdateAsync(long guildId, Bson filters, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions) {
+		return this.write(() -> this.getGuildByIdAndUpdate(guildId, filters, update, findOneAndUpdateOptions));
+	}
+	
+	public CompletableFuture<Document> getGuildByIdAndUpdateAsync(long guildId, Bson update, Bson projection) {
+		return this.write(() -> this.getGuildByIdAndUpdate(guildId, update, projection));
+	}
 
 	public UpdateResult updateManyGuilds(Bson filter, Bson update) {
-		return this.guilds.updateMany(filter, update);
+		this.guildWriteBuffer.flush();
+		
+		try {
+			return this.guilds.updateMany(filter, update);
+		} finally {
+			this.guildCache.invalidateAll();
+		}
 	}
 	
 	public UpdateResult updateManyGuilds(Bson update) {
@@ -478,45 +849,55 @@ public class Database {
 	}
 	
 	public void updateManyGuilds(Bson filter, Bson update, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateManyGuilds(filter, update), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateManyGuilds(filter, update), callback);
 	}
 	
 	public void updateManyGuilds(Bson update, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateManyGuilds(update), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateManyGuilds(update), callback);
+	}
+	
+	public CompletableFuture<UpdateResult> updateManyGuildsAsync(Bson filter, Bson update) {
+		return this.write(() -> this.updateManyGuilds(filter, update));
 	}
 	
 	public BulkWriteResult bulkWriteGuilds(List<WriteModel<Document>> bulkData) {
-		return this.guilds.bulkWrite(bulkData);
+		this.guildWriteBuffer.flush();
+		
+		try {
+			return this.guilds.bulkWrite(bulkData, null);
+		} finally {
+			this.invalidate(this.guildCache, bulkData);
+		}
 	}
 	
 	public void bulkWriteGuilds(List<WriteModel<Document>> bulkData, DatabaseCallback<BulkWriteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.bulkWriteGuilds(bulkData), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.bulkWriteGuilds(bulkData), callback);
+	}
+	
+	public CompletableFuture<BulkWriteResult> bulkWriteGuildsAsync(List<WriteModel<Document>> bulkData) {
+		return this.write(() -> this.bulkWriteGuilds(bulkData));
+	}
+	
+	public Iterable<Document> getUsers(Bson filter, Bson projection) {
+		return this.users.find(filter, projection, null);
 	}
 	
 	public Document getUserById(long userId, Bson filters, Bson projection) {
+		if (filters == null) {
+			Document document = this.userCache.get(userId, projection);
+			if (document != null) {
+				return document;
+			}
+		}
+		
+		/* Both reads go to the collection so anything still buffered for the user has to be written first */
+		this.userWriteBuffer.flush(userId);
+		
 		Document document;
 		if (filters != null) {
-			document = this.users.find(Filters.and(Filters.eq("_id", userId), filters)).projection(projection).first();
+			document = this.users.findOne(Filters.and(Filters.eq("_id", userId), filters), projection, null);
 		} else {
-			document = this.users.find(Filters.eq("_id", userId)).projection(projection).first();
+			document = this.users.findOne(Filters.eq("_id", userId), projection, null);
 		}
 
 		return document == null ? Database.EMPTY_DOCUMENT : document;
@@ -526,8 +907,12 @@ public class Database {
 		return this.getUserById(userId, null, null);
 	}
 	
+	public CompletableFuture<Document> getUserByIdAsync(long userId, Bson filters, Bson projection) {
+		return this.query(() -> this.getUserById(userId, filters, projection));
+	}
+	
 	public UpdateResult updateUserById(Bson filters, Bson update, UpdateOptions updateOptions) {
-		return this.users.updateOne(filters, update, updateOptions == null ? this.defaultUpdateOptions : updateOptions);
+		return this.updateOne(this.users, this.userCache, this.userWriteBuffer, filters, update, updateOptions == null ? this.defaultUpdateOptions : updateOptions);
 	}
 	
 	public UpdateResult updateUserById(long userId, Bson filters, Bson update, UpdateOptions updateOptions) {
@@ -542,7 +927,7 @@ public class Database {
 	}
 	
 	public UpdateResult updateUserById(UpdateOneModel<Document> updateModel) {
-		return this.updateGuildById(updateModel.getFilter(), updateModel.getUpdate(), updateModel.getOptions());
+		return this.updateUserById(updateModel.getFilter(), updateModel.getUpdate(), updateModel.getOptions());
 	}
 	
 	public UpdateResult updateUserById(long userId, Bson update) {
@@ -550,23 +935,11 @@ public class Database {
 	}
 	
 	public void updateUserById(Bson filters, Bson update, UpdateOptions updateOptions, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateUserById(filters, update, updateOptions), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateUserById(filters, update, updateOptions), callback);
 	}
 	
 	public void updateUserById(long userId, Bson filters, Bson update, UpdateOptions updateOptions, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateUserById(userId, filters, update, updateOptions), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateUserById(userId, filters, update, updateOptions), callback);
 	}
 	
 	public void updateUserById(UpdateOneModel<Document> updateModel, DatabaseCallback<UpdateResult> callback) {
@@ -577,6 +950,37 @@ public class Database {
 		this.updateUserById(userId, null, update, null, callback);
 	}
 	
+	public CompletableFuture<UpdateResult> updateUserByIdAsync(Bson filters, Bson update, UpdateOptions updateOptions) {
+		return this.write(() -> this.updateUserById(filters, update, updateOptions));
+	}
+	
+	public CompletableFuture<UpdateResult> updateUserByIdAsync(long userId, Bson filters, Bson update, UpdateOptions updateOptions) {
+		return this.write(() -> this.updateUserById(userId, filters, update, updateOptions));
+	}
+	
+	public CompletableFuture<UpdateResult> updateUserByIdAsync(UpdateOneModel<Document> updateModel) {
+		return this.write(() -> this.updateUserById(updateModel));
+	}
+	
+	public CompletableFuture<UpdateResult> updateUserByIdAsync(long userId, Bson update) {
+		return this.write(() -> this.updateUserById(userId, update));
+	}
+	
+	/**
+	 * Buffers the update with the user write buffer, only $inc, $set, $push and $addToSet updates can be buffered
+	 */
+	public CompletableFuture<Void> bufferUserUpdate(long userId, Bson update, UpdateOptions updateOptions, WriteDurability durability) {
+		return this.userWriteBuffer.update(userId, update, updateOptions, durability);
+	}
+	
+	public CompletableFuture<Void> bufferUserUpdate(long userId, Bson update, UpdateOptions updateOptions) {
+		return this.bufferUserUpdate(userId, update, updateOptions, WriteDurability.BUFFERED);
+	}
+	
+	public CompletableFuture<Void> bufferUserUpdate(long userId, Bson update) {
+		return this.bufferUserUpdate(userId, update, this.defaultUpdateOptions, WriteDurability.BUFFERED);
+	}
+	
 	public Document getUserByIdAndUpdate(long userId, Bson filters, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions) {
 		Bson filter;
 		if (filters != null) {
@@ -585,7 +989,13 @@ public class Database {
 			filter = Filters.eq("_id", userId);
 		}
 		
-		return this.users.findOneAndUpdate(filter, update, findOneAndUpdateOptions == null ? this.defaultFindOneAndUpdateOptions : findOneAndUpdateOptions);
+		this.userWriteBuffer.flush(userId);
+		
+		try {
+			return this.users.findOneAndUpdate(filter, update, findOneAndUpdateOptions == null ? this.defaultFindOneAndUpdateOptions : findOneAndUpdateOptions);
+		} finally {
+			this.userCache.invalidate(userId);
+		}
 	}
 	
 	public Document getUserByIdAndUpdate(long userId, Bson update, Bson projection) {
@@ -593,21 +1003,29 @@ public class Database {
 	}
 	
 	public void getUserByIdAndUpdate(long userId, Bson filters, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions, DatabaseCallback<Document> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.getUserByIdAndUpdate(userId, filters, update, findOneAndUpdateOptions), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.getUserByIdAndUpdate(userId, filters, update, findOneAndUpdateOptions), callback);
 	}
 	
 	public void getUserByIdAndUpdate(long userId, Bson update, Bson projection, DatabaseCallback<Document> callback) {
 		this.getUserByIdAndUpdate(userId, null, update, this.defaultFindOneAndUpdateOptions.projection(projection), callback);
 	}
 	
+	public CompletableFuture<Document> getUserByIdAndUpdateAsync(long userId, Bson filters, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions) {
+		return this.write(() -> this.getUserByIdAndUpdate(userId, filters, update, findOneAndUpdateOptions));
+	}
+	
+	public CompletableFuture<Document> getUserByIdAndUpdateAsync(long userId, Bson update, Bson projection) {
+		return this.write(() -> this.getUserByIdAndUpdate(userId, update, projection));
+	}
+	
 	public UpdateResult updateManyUsers(Bson filter, Bson update) {
-		return this.users.updateMany(filter, update);
+		this.userWriteBuffer.flush();
+		
+		try {
+			return this.users.updateMany(filter, update);
+		} finally {
+			this.userCache.invalidateAll();
+		}
 	}
 	
 	public UpdateResult updateManyUsers(Bson update) {
@@ -615,37 +1033,33 @@ public class Database {
 	}
 	
 	public void updateManyUsers(Bson filter, Bson update, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateManyUsers(filter, update), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateManyUsers(filter, update), callback);
 	}
 	
 	public void updateManyUsers(Bson update, DatabaseCallback<UpdateResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.updateManyUsers(update), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.updateManyUsers(update), callback);
+	}
+	
+	public CompletableFuture<UpdateResult> updateManyUsersAsync(Bson filter, Bson update) {
+		return this.write(() -> this.updateManyUsers(filter, update));
 	}
 	
 	public BulkWriteResult bulkWriteUsers(List<WriteModel<Document>> bulkData) {
-		return this.users.bulkWrite(bulkData);
+		this.userWriteBuffer.flush();
+		
+		try {
+			return this.users.bulkWrite(bulkData, null);
+		} finally {
+			this.invalidate(this.userCache, bulkData);
+		}
 	}
 	
 	public void bulkWriteUsers(List<WriteModel<Document>> bulkData, DatabaseCallback<BulkWriteResult> callback) {
-		this.queryExecutor.submit(() -> {
-			try {
-				callback.onResult(this.bulkWriteUsers(bulkData), null);
-			} catch(Throwable e) {
-				callback.onResult(null, e);
-			}
-		});
+		this.submit(() -> this.bulkWriteUsers(bulkData), callback);
+	}
+	
+	public CompletableFuture<BulkWriteResult> bulkWriteUsersAsync(List<WriteModel<Document>> bulkData) {
+		return this.write(() -> this.bulkWriteUsers(bulkData));
 	}
 	
 }
@@ -0,0 +1,498 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongFunction;
+
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoClientSettings;
+
+import gnu.trove.map.TLongIntMap;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongIntHashMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.set.TLongSet;
+import gnu.trove.set.hash.TLongHashSet;
+
+/**
+ * A bounded cache of full documents keyed by their long _id, projections are answered from the cached document
+ * so every differently projected read of the same document only costs one round trip.
+ *
+ * Concurrent misses on the same id share a single load. Writes are applied to the cached copy once the database
+ * has acknowledged them, if they can not be applied in memory or overlap with another write to the same id the
+ * entry is invalidated instead. Any load which overlaps a write is not put back into the cache, whether it started
+ * before the write or while the write was still in flight, as it can not be known if the document it read has the write.
+ */
+public class DocumentCache {
+
+	private static final String STATISTICS_MESSAGE = "%s cache: %,d cached, %,d hits, %,d misses (%.2f%% hit rate), %,d loads, %,d coalesced, %,d evictions, %,d expirations, %,d write-throughs, %,d invalidations";
+
+	private static class Entry {
+
+		private final Document document;
+		private final long cachedAt;
+
+		private Entry(Document document, long cachedAt) {
+			this.document = document;
+			this.cachedAt = cachedAt;
+		}
+
+	}
+
+	private final String name;
+
+	private final int maxGenerationSize;
+
+	private final long expireAfterNanos;
+
+	private final LongFunction<Document> loader;
+
+	private TLongObjectMap<Entry> cache;
+	private TLongObjectMap<Entry> overloadCache;
+
+	private final TLongObjectMap<CompletableFuture<Document>> loading = new TLongObjectHashMap<>();
+
+	private final TLongIntMap pendingWrites = new TLongIntHashMap();
+	private final TLongSet conflictingWrites = new TLongHashSet();
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+	private final AtomicLong loads = new AtomicLong();
+	private final AtomicLong coalesced = new AtomicLong();
+	private final AtomicLong evictions = new AtomicLong();
+	private final AtomicLong expirations = new AtomicLong();
+	private final AtomicLong writeThroughs = new AtomicLong();
+	private final AtomicLong invalidations = new AtomicLong();
+
+	public DocumentCache(String name, int maxSize, LongFunction<Document> loader) {
+		this(name, maxSize, 0, null, loader);
+	}
+
+	/**
+	 * @param expireAfter how long a document can be served from the cache before it is loaded again, 0 to never expire
+	 */
+	public DocumentCache(String name, int maxSize, long expireAfter, TimeUnit unit, LongFunction<Document> loader) {
+		this.name = name;
+		this.maxGenerationSize = Math.max(1, maxSize / 2);
+		this.expireAfterNanos = expireAfter <= 0 ? 0 : unit.toNanos(expireAfter);
+		this.loader = loader;
+
+		this.cache = new TLongObjectHashMap<>(this.maxGenerationSize);
+		this.overloadCache = new TLongObjectHashMap<>(this.maxGenerationSize);
+	}
+
+	private Entry getCached(long id) {
+		Entry entry = this.cache.get(id);
+		if (entry == null) {
+			entry = this.overloadCache.remove(id);
+			if (entry != null) {
+				this.putCached(id, entry);
+			}
+		}
+
+		if (entry != null && this.expireAfterNanos != 0 && System.nanoTime() - entry.cachedAt > this.expireAfterNanos) {
+			this.expirations.incrementAndGet();
+
+			this.cache.remove(id);
+
+			return null;
+		}
+
+		return entry;
+	}
+
+	private void putCached(long id, Entry entry) {
+		if (!this.cache.containsKey(id) && this.cache.size() + 1 > this.maxGenerationSize) {
+			this.evictions.addAndGet(this.overloadCache.size());
+
+			TLongObjectMap<Entry> temp = this.overloadCache;
+
+			this.overloadCache = this.cache;
+			this.cache = temp;
+
+			this.cache.clear();
+		}
+
+		this.overloadCache.remove(id);
+		this.cache.put(id, entry);
+	}
+
+	private void putCached(long id, Document document) {
+		this.putCached(id, new Entry(document, System.nanoTime()));
+	}
+
+	/**
+	 * @return the full cached document, this is shared with the cache and should not be modified
+	 */
+	public Document get(long id) {
+		CompletableFuture<Document> future;
+		boolean owner = false, writing = false;
+
+		synchronized (this) {
+			Entry entry = this.getCached(id);
+			if (entry != null) {
+				this.hits.incrementAndGet();
+
+				return entry.document;
+			}
+
+			this.misses.incrementAndGet();
+
+			future = this.loading.get(id);
+			if (future == null) {
+				future = new CompletableFuture<>();
+				this.loading.put(id, future);
+
+				owner = true;
+
+				/* A write which starts during the load removes it from loading, one which already started has to be remembered here */
+				writing = this.pendingWrites.containsKey(id);
+			} else {
+				this.coalesced.incrementAndGet();
+			}
+		}
+
+		if (owner) {
+			Document document;
+			try {
+				this.loads.incrementAndGet();
+
+				document = this.loader.apply(id);
+				if (document == null) {
+					document = Database.EMPTY_DOCUMENT;
+				}
+			} catch (RuntimeException e) {
+				synchronized (this) {
+					if (this.loading.get(id) == future) {
+						this.loading.remove(id);
+					}
+				}
+
+				future.completeExceptionally(e);
+
+				throw e;
+			}
+
+			synchronized (this) {
+				if (this.loading.get(id) == future) {
+					this.loading.remove(id);
+
+					if (!writing) {
+						this.putCached(id, document);
+					}
+				}
+			}
+
+			future.complete(document);
+
+			return document;
+		}
+
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+
+			throw e;
+		}
+	}
+
+	/**
+	 * @return a copy of the cached document with the projection applied or null if the projection can not be applied in memory
+	 */
+	public Document get(long id, Bson projection) {
+		Document document = this.get(id);
+		if (document.isEmpty()) {
+			return Database.EMPTY_DOCUMENT;
+		}
+
+		return DocumentCache.project(document, projection);
+	}
+
+	/**
+	 * Marks a write to the id as in flight, this has to be followed by {@link #endWrite(long, Bson, List)}
+	 */
+	public synchronized void beginWrite(long id) {
+		this.loading.remove(id);
+
+		if (this.pendingWrites.adjustOrPutValue(id, 1, 1) > 1) {
+			this.conflictingWrites.add(id);
+		}
+	}
+
+	/**
+	 * Applies an acknowledged write to the cached copy of the document
+	 *
+	 * @param update the update which was applied or null if the outcome of the write is unknown
+	 */
+	public synchronized void endWrite(long id, Bson update, List<? extends Bson> arrayFilters) {
+		this.loading.remove(id);
+
+		boolean conflicting = this.conflictingWrites.contains(id);
+		if (this.pendingWrites.adjustOrPutValue(id, -1, 0) <= 0) {
+			this.pendingWrites.remove(id);
+			this.conflictingWrites.remove(id);
+		}
+
+		Entry entry = this.cache.get(id);
+		if (entry == null) {
+			entry = this.overloadCache.get(id);
+			if (entry == null) {
+				return;
+			}
+		}
+
+		if (update == null || conflicting || entry.document.isEmpty()) {
+			this.invalidate(id);
+			return;
+		}
+
+		Document document = DocumentCache.copy(entry.document);
+		try {
+			UpdateApplier.apply(document, update, arrayFilters);
+		} catch (RuntimeException e) {
+			this.invalidate(id);
+			return;
+		}
+
+		this.writeThroughs.incrementAndGet();
+
+		this.putCached(id, new Entry(document, entry.cachedAt));
+	}
+
+	public synchronized boolean isCached(long id) {
+		return this.cache.containsKey(id) || this.overloadCache.containsKey(id);
+	}
+
+	public synchronized void put(long id, Document document) {
+		this.loading.remove(id);
+		this.putCached(id, document);
+	}
+
+	public synchronized void invalidate(long id) {
+		this.invalidations.incrementAndGet();
+
+		this.loading.remove(id);
+		this.cache.remove(id);
+		this.overloadCache.remove(id);
+	}
+
+	public synchronized void invalidateAll() {
+		this.invalidations.incrementAndGet();
+
+		this.loading.clear();
+		this.cache.clear();
+		this.overloadCache.clear();
+	}
+
+	public synchronized int size() {
+		return this.cache.size() + this.overloadCache.size();
+	}
+
+	public long getHits() {
+		return this.hits.get();
+	}
+
+	public long getMisses() {
+		return this.misses.get();
+	}
+
+	public long getLoads() {
+		return this.loads.get();
+	}
+
+	public long getCoalesced() {
+		return this.coalesced.get();
+	}
+
+	public long getEvictions() {
+		return this.evictions.get();
+	}
+
+	public long getExpirations() {
+		return this.expirations.get();
+	}
+
+	public long getWriteThroughs() {
+		return this.writeThroughs.get();
+	}
+
+	public long getInvalidations() {
+		return this.invalidations.get();
+	}
+
+	public String getStatistics() {
+		long hits = this.hits.get(), misses = this.misses.get(), total = hits + misses;
+
+		return String.format(STATISTICS_MESSAGE, this.name, this.size(), hits, misses, total != 0 ? ((double) hits/total) * 100 : 0, this.loads.get(), this.coalesced.get(), this.evictions.get(), this.expirations.get(), this.writeThroughs.get(), this.invalidations.get());
+	}
+
+	/**
+	 * Applies an inclusion or exclusion projection to a copy of the document, mirroring how MongoDB would project
+	 * dotted paths through embedded documents and arrays of embedded documents
+	 *
+	 * @return the projected copy or null if the projection uses operators which can not be applied in memory
+	 */
+	public static Document project(Document document, Bson projection) {
+		if (projection == null) {
+			return DocumentCache.copy(document);
+		}
+
+		BsonDocument fields = projection.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry());
+		if (fields.isEmpty()) {
+			return DocumentCache.copy(document);
+		}
+
+		boolean includeId = true, inclusion = false, exclusion = false;
+		for (Map.Entry<String, BsonValue> field : fields.entrySet()) {
+			BsonValue value = field.getValue();
+
+			boolean included;
+			if (value.isBoolean()) {
+				included = value.asBoolean().getValue();
+			} else if (value.isNumber()) {
+				included = value.asNumber().doubleValue() != 0;
+			} else {
+				return null;
+			}
+
+			if (field.getKey().equals("_id")) {
+				includeId = included;
+			} else if (included) {
+				inclusion = true;
+			} else {
+				exclusion = true;
+			}
+		}
+
+		if (inclusion && exclusion) {
+			return null;
+		}
+
+		if (inclusion) {
+			Document projected = new Document();
+			if (includeId && document.containsKey("_id")) {
+				projected.put("_id", document.get("_id"));
+			}
+
+			for (String key : fields.keySet()) {
+				if (!key.equals("_id")) {
+					DocumentCache.include(document, projected, key.split("\\."), 0);
+				}
+			}
+
+			return projected;
+		} else {
+			Document projected = DocumentCache.copy(document);
+			if (!includeId) {
+				projected.remove("_id");
+			}
+
+			for (String key : fields.keySet()) {
+				if (!key.equals("_id")) {
+					DocumentCache.exclude(projected, key.split("\\."), 0);
+				}
+			}
+
+			return projected;
+		}
+	}
+
+	private static void include(Document source, Document target, String[] path, int index) {
+		String key = path[index];
+		if (!source.containsKey(key)) {
+			return;
+		}
+
+		Object value = source.get(key);
+		if (index == path.length - 1) {
+			target.put(key, DocumentCache.copy(value));
+		} else if (value instanceof Document) {
+			Object existing = target.get(key);
+
+			Document child = existing instanceof Document ? (Document) existing : new Document();
+			DocumentCache.include((Document) value, child, path, index + 1);
+
+			target.put(key, child);
+		} else if (value instanceof List) {
+			Object existing = target.get(key);
+
+			List<?> list = (List<?>) value;
+			List<Object> children = existing instanceof List ? DocumentCache.cast(existing) : new ArrayList<>();
+
+			int position = 0;
+			for (Object element : list) {
+				if (element instanceof Document) {
+					Document child;
+					if (position < children.size()) {
+						child = (Document) children.get(position);
+					} else {
+						child = new Document();
+						children.add(child);
+					}
+
+					DocumentCache.include((Document) element, child, path, index + 1);
+
+					position++;
+				}
+			}
+
+			target.put(key, children);
+		}
+	}
+
+	private static void exclude(Object target, String[] path, int index) {
+		if (target instanceof Document) {
+			Document document = (Document) target;
+			if (index == path.length - 1) {
+				document.remove(path[index]);
+			} else {
+				DocumentCache.exclude(document.get(path[index]), path, index + 1);
+			}
+		} else if (target instanceof List) {
+			for (Object element : (List<?>) target) {
+				DocumentCache.exclude(element, path, index);
+			}
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <Type> Type cast(Object object) {
+		return (Type) object;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <Type> Type copy(Type value) {
+		if (value instanceof Document) {
+			Document copy = new Document();
+			for (Map.Entry<String, Object> entry : ((Document) value).entrySet()) {
+				copy.put(entry.getKey(), DocumentCache.copy(entry.getValue()));
+			}
+
+			return (Type) copy;
+		} else if (value instanceof List) {
+			List<?> list = (List<?>) value;
+
+			List<Object> copy = new ArrayList<>(list.size());
+			for (Object element : list) {
+				copy.add(DocumentCache.copy(element));
+			}
+
+			return (Type) copy;
+		} else {
+			return value;
+		}
+	}
+
+}
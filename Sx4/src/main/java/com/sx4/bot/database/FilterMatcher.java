@@ -0,0 +1,343 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.BsonDocument;
+import org.bson.BsonDocumentReader;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoClientSettings;
+
+/**
+ * Evaluates MongoDB query filters against documents in memory, this covers the subset of query operators the bot uses
+ * and throws an {@link UnsupportedOperationException} for anything else so callers can fall back to the database
+ */
+public class FilterMatcher {
+
+	public static Document toDocument(Bson bson) {
+		if (bson == null) {
+			return Database.EMPTY_DOCUMENT;
+		} else if (bson instanceof Document) {
+			return (Document) bson;
+		}
+
+		BsonDocument document = bson.toBsonDocument(Document.class, MongoClientSettings.getDefaultCodecRegistry());
+
+		return MongoClientSettings.getDefaultCodecRegistry().get(Document.class).decode(new BsonDocumentReader(document), DecoderContext.builder().build());
+	}
+
+	public static boolean matches(Document document, Bson filter) {
+		return FilterMatcher.matchesDocument(document, FilterMatcher.toDocument(filter));
+	}
+
+	@SuppressWarnings("unchecked")
+	public static boolean matchesDocument(Document document, Document filter) {
+		for (Map.Entry<String, Object> entry : filter.entrySet()) {
+			String key = entry.getKey();
+			Object condition = entry.getValue();
+
+			if (key.equals("$and")) {
+				for (Document subFilter : (List<Document>) condition) {
+					if (!FilterMatcher.matchesDocument(document, subFilter)) {
+						return false;
+					}
+				}
+			} else if (key.equals("$or")) {
+				boolean matched = false;
+				for (Document subFilter : (List<Document>) condition) {
+					if (FilterMatcher.matchesDocument(document, subFilter)) {
+						matched = true;
+						break;
+					}
+				}
+
+				if (!matched) {
+					return false;
+				}
+			} else if (key.equals("$nor")) {
+				for (Document subFilter : (List<Document>) condition) {
+					if (FilterMatcher.matchesDocument(document, subFilter)) {
+						return false;
+					}
+				}
+			} else if (key.startsWith("$")) {
+				throw new UnsupportedOperationException("Unsupported query operator " + key);
+			} else if (!FilterMatcher.matchesField(document, key, condition)) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	public static boolean matchesField(Document document, String path, Object condition) {
+		List<Object> values = new ArrayList<>();
+		FilterMatcher.resolve(document, path.split("\\."), 0, values);
+
+		return FilterMatcher.matchesValues(values, condition);
+	}
+
+	/**
+	 * Matches a single value, such as an array element, against a condition
+	 */
+	public static boolean matchesValue(Object value, Object condition) {
+		List<Object> values = new ArrayList<>();
+		FilterMatcher.addValue(value, values);
+
+		return FilterMatcher.matchesValues(values, condition);
+	}
+
+	public static boolean isOperatorDocument(Object condition) {
+		if (!(condition instanceof Document)) {
+			return false;
+		}
+
+		Document document = (Document) condition;
+
+		return !document.isEmpty() && document.keySet().iterator().next().startsWith("$");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static boolean matchesValues(List<Object> values, Object condition) {
+		if (!FilterMatcher.isOperatorDocument(condition)) {
+			return FilterMatcher.anyEquals(values, condition);
+		}
+
+		for (Map.Entry<String, Object> entry : ((Document) condition).entrySet()) {
+			Object operand = entry.getValue();
+
+			boolean matched;
+			switch (entry.getKey()) {
+				case "$eq":
+					matched = FilterMatcher.anyEquals(values, operand);
+					break;
+				case "$ne":
+					matched = !FilterMatcher.anyEquals(values, operand);
+					break;
+				case "$gt":
+					matched = FilterMatcher.anyCompare(values, operand, 1, false);
+					break;
+				case "$gte":
+					matched = FilterMatcher.anyCompare(values, operand, 1, true);
+					break;
+				case "$lt":
+					matched = FilterMatcher.anyCompare(values, operand, -1, false);
+					break;
+				case "$lte":
+					matched = FilterMatcher.anyCompare(values, operand, -1, true);
+					break;
+				case "$in":
+					matched = false;
+					for (Object option : (List<Object>) operand) {
+						if (FilterMatcher.anyEquals(values, option)) {
+							matched = true;
+							break;
+						}
+					}
+
+					break;
+				case "$nin":
+					matched = true;
+					for (Object option : (List<Object>) operand) {
+						if (FilterMatcher.anyEquals(values, option)) {
+							matched = false;
+							break;
+						}
+					}
+
+					break;
+				case "$exists":
+					matched = values.isEmpty() != (Boolean) operand;
+					break;
+				case "$size":
+					matched = false;
+					for (Object value : values) {
+						if (value instanceof List && ((List<?>) value).size() == ((Number) operand).intValue()) {
+							matched = true;
+							break;
+						}
+					}
+
+					break;
+				case "$elemMatch":
+					matched = false;
+					for (Object value : values) {
+						if (value instanceof List && FilterMatcher.anyElementMatches((List<Object>) value, (Document) operand)) {
+							matched = true;
+							break;
+						}
+					}
+
+					break;
+				case "$not":
+					matched = !FilterMatcher.matchesValues(values, operand);
+					break;
+				default:
+					throw new UnsupportedOperationException("Unsupported query operator " + entry.getKey());
+			}
+
+			if (!matched) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean anyElementMatches(List<Object> list, Document filter) {
+		for (Object element : list) {
+			if (FilterMatcher.isOperatorDocument(filter)) {
+				if (FilterMatcher.matchesValue(element, filter)) {
+					return true;
+				}
+			} else if (element instanceof Document && FilterMatcher.matchesDocument((Document) element, filter)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static void addValue(Object value, List<Object> values) {
+		values.add(value);
+		if (value instanceof List) {
+			values.addAll((List<?>) value);
+		}
+	}
+
+	private static void resolve(Object current, String[] path, int index, List<Object> values) {
+		if (index == path.length) {
+			FilterMatcher.addValue(current, values);
+			return;
+		}
+
+		String segment = path[index];
+		if (current instanceof Document) {
+			Document document = (Document) current;
+			if (document.containsKey(segment)) {
+				FilterMatcher.resolve(document.get(segment), path, index + 1, values);
+			}
+		} else if (current instanceof List) {
+			List<?> list = (List<?>) current;
+			if (FilterMatcher.isIndex(segment)) {
+				int position = Integer.parseInt(segment);
+				if (position < list.size()) {
+					FilterMatcher.resolve(list.get(position), path, index + 1, values);
+				}
+			}
+
+			for (Object element : list) {
+				if (element instanceof Document) {
+					FilterMatcher.resolve(element, path, index, values);
+				}
+			}
+		}
+	}
+
+	public static boolean isIndex(String segment) {
+		if (segment.isEmpty()) {
+			return false;
+		}
+
+		for (int i = 0; i < segment.length(); i++) {
+			if (!Character.isDigit(segment.charAt(i))) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean anyEquals(List<Object> values, Object operand) {
+		if (operand == null && values.isEmpty()) {
+			return true;
+		}
+
+		for (Object value : values) {
+			if (FilterMatcher.valueEquals(value, operand)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean anyCompare(List<Object> values, Object operand, int direction, boolean inclusive) {
+		for (Object value : values) {
+			Integer comparison = FilterMatcher.compare(value, operand);
+			if (comparison != null && (comparison == 0 ? inclusive : Integer.signum(comparison) == direction)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	private static boolean isIntegral(Object value) {
+		return value instanceof Long || value instanceof Integer || value instanceof Short || value instanceof Byte;
+	}
+
+	/**
+	 * @return the comparison of both values or null if they are not comparable
+	 */
+	@SuppressWarnings("unchecked")
+	public static Integer compare(Object first, Object second) {
+		if (first instanceof Number && second instanceof Number) {
+			if (FilterMatcher.isIntegral(first) && FilterMatcher.isIntegral(second)) {
+				return Long.compare(((Number) first).longValue(), ((Number) second).longValue());
+			}
+
+			return Double.compare(((Number) first).doubleValue(), ((Number) second).doubleValue());
+		} else if (first instanceof String && second instanceof String) {
+			return ((String) first).compareTo((String) second);
+		} else if (first instanceof Date && second instanceof Date) {
+			return ((Date) first).compareTo((Date) second);
+		} else if (first instanceof Comparable && first.getClass().equals(second == null ? null : second.getClass())) {
+			return ((Comparable<Object>) first).compareTo(second);
+		}
+
+		return null;
+	}
+
+	public static boolean valueEquals(Object first, Object second) {
+		if (first == null || second == null) {
+			return first == second;
+		} else if (first instanceof Number && second instanceof Number) {
+			return FilterMatcher.compare(first, second) == 0;
+		} else if (first instanceof Document && second instanceof Document) {
+			Document firstDocument = (Document) first, secondDocument = (Document) second;
+			if (firstDocument.size() != secondDocument.size()) {
+				return false;
+			}
+
+			for (Map.Entry<String, Object> entry : firstDocument.entrySet()) {
+				if (!secondDocument.containsKey(entry.getKey()) || !FilterMatcher.valueEquals(entry.getValue(), secondDocument.get(entry.getKey()))) {
+					return false;
+				}
+			}
+
+			return true;
+		} else if (first instanceof List && second instanceof List) {
+			List<?> firstList = (List<?>) first, secondList = (List<?>) second;
+			if (firstList.size() != secondList.size()) {
+				return false;
+			}
+
+			for (int i = 0; i < firstList.size(); i++) {
+				if (!FilterMatcher.valueEquals(firstList.get(i), secondList.get(i))) {
+					return false;
+				}
+			}
+
+			return true;
+		}
+
+		return first.equals(second);
+	}
+
+}
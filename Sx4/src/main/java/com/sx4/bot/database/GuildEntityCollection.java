@@ -0,0 +1,287 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * A collection of documents which used to be elements of an array in the guild document, every document is
+ * keyed by the guild it belongs to and the id of its entity so reads and writes only touch the one entity.
+ *
+ * Guilds which still have the array are migrated the first time one of their entities is accessed and
+ * {@link #migrateAll()} back-fills every other guild in the background, once that has finished no more
+ * guild documents are checked.
+ */
+public class GuildEntityCollection {
+
+	private static final String STATISTICS_MESSAGE = "%s collection: %,d guilds migrated, %,d entities back-filled, %,d failed migrations, back-fill %s";
+
+	/* Migrations of the same guild are serialised so a stale copy of the array can not be written after it has been unset */
+	private static final int MIGRATION_LOCKS = 64;
+
+	private static final UpdateOptions UPSERT = new UpdateOptions().upsert(true);
+
+	public static final IndexOptions UNIQUE = new IndexOptions().unique(true).background(true);
+
+	private final String name;
+
+	private final Database database;
+	private final StorageCollection collection;
+
+	private final String legacyField;
+	private final List<String> legacyKeys;
+
+	private final Object[] migrationLocks = new Object[MIGRATION_LOCKS];
+
+	private volatile boolean migrated = false;
+
+	private final AtomicLong migratedGuilds = new AtomicLong();
+	private final AtomicLong migratedEntities = new AtomicLong();
+	private final AtomicLong failedMigrations = new AtomicLong();
+
+	/**
+	 * @param legacyField the dot separated path of the array in the guild document these entities were stored in
+	 */
+	public GuildEntityCollection(String name, Database database, StorageCollection collection, String legacyField) {
+		this.name = name;
+		this.database = database;
+		this.collection = collection;
+		this.legacyField = legacyField;
+		this.legacyKeys = Arrays.asList(legacyField.split("\\."));
+
+		for (int i = 0; i < MIGRATION_LOCKS; i++) {
+			this.migrationLocks[i] = new Object();
+		}
+	}
+
+	/**
+	 * @return the unique index every entity collection needs, other indexes can be added after it
+	 */
+	public static IndexModel getKeyIndex() {
+		return new IndexModel(Indexes.compoundIndex(Indexes.ascending("guildId"), Indexes.ascending("id")), UNIQUE);
+	}
+
+	public static Bson getFilter(long guildId, long id) {
+		return Filters.and(Filters.eq("guildId", guildId), Filters.eq("id", id));
+	}
+
+	public StorageCollection getCollection() {
+		return this.collection;
+	}
+
+	public String getLegacyField() {
+		return this.legacyField;
+	}
+
+	public boolean isMigrated() {
+		return this.migrated;
+	}
+
+	/**
+	 * Moves the legacy array of the guild into this collection if it still has one, entities which already
+	 * exist in this collection are newer than the array so they are not overwritten
+	 */
+	public void migrate(long guildId) {
+		if (this.migrated) {
+			return;
+		}
+
+		synchronized (this.migrationLocks[(int) Math.floorMod(guildId, (long) MIGRATION_LOCKS)]) {
+			Object legacy = this.database.getGuildById(guildId, null, Projections.include(this.legacyField)).getEmbedded(this.legacyKeys, Object.class);
+			if (legacy == null) {
+				return;
+			}
+
+			try {
+				List<WriteModel<Document>> bulkData = new ArrayList<>();
+				if (legacy instanceof List) {
+					for (Object element : (List<?>) legacy) {
+						if (!(element instanceof Document) || !(((Document) element).get("id") instanceof Long)) {
+							continue;
+						}
+
+						Document entity = new Document((Document) element).append("guildId", guildId);
+
+						bulkData.add(new UpdateOneModel<>(GuildEntityCollection.getFilter(guildId, entity.getLong("id")), Updates.setOnInsert(entity), UPSERT));
+					}
+				}
+
+				if (!bulkData.isEmpty()) {
+					this.collection.bulkWrite(bulkData, new BulkWriteOptions().ordered(false));
+				}
+
+				this.database.updateGuildById(guildId, Updates.unset(this.legacyField));
+
+				this.migratedGuilds.incrementAndGet();
+				this.migratedEntities.addAndGet(bulkData.size());
+			} catch (RuntimeException e) {
+				this.failedMigrations.incrementAndGet();
+
+				throw e;
+			}
+		}
+	}
+
+	/**
+	 * Migrates every guild which still has the legacy array, this is safe to run while the bot is handling events
+	 */
+	public void migrateAll() {
+		boolean failed = false;
+		for (Document data : this.database.getGuilds(Filters.exists(this.legacyField), Projections.include("_id"))) {
+			try {
+				this.migrate(data.getLong("_id"));
+			} catch (Exception e) {
+				System.err.println("[" + this.name + "] Failed to migrate " + this.legacyField + " for guild " + data.getLong("_id"));
+				e.printStackTrace();
+
+				failed = true;
+			}
+		}
+
+		this.migrated = !failed;
+	}
+
+	public Document getById(long guildId, long id, Bson projection) {
+		this.migrate(guildId);
+
+		Document data = this.collection.findOne(GuildEntityCollection.getFilter(guildId, id), projection, null);
+
+		return data == null ? Database.EMPTY_DOCUMENT : data;
+	}
+
+	public Document getById(long guildId, long id) {
+		return this.getById(guildId, id, null);
+	}
+
+	public CompletableFuture<Document> getByIdAsync(long guildId, long id, Bson projection) {
+		return this.database.query(() -> this.getById(guildId, id, projection));
+	}
+
+	/**
+	 * @param filter an extra filter for the entities of the guild, null for all of them
+	 */
+	public Iterable<Document> getByGuildId(long guildId, Bson filter, Bson projection) {
+		this.migrate(guildId);
+
+		Bson guildFilter = Filters.eq("guildId", guildId);
+
+		return this.collection.find(filter == null ? guildFilter : Filters.and(guildFilter, filter), projection, null);
+	}
+
+	/**
+	 * @return the first entity of the guild which matches the filter or null if none match
+	 */
+	public Document getOneByGuildId(long guildId, Bson filter, Bson projection) {
+		this.migrate(guildId);
+
+		return this.collection.findOne(Filters.and(Filters.eq("guildId", guildId), filter), projection, null);
+	}
+
+	public Iterable<Document> getByGuildId(long guildId, Bson projection) {
+		return this.getByGuildId(guildId, null, projection);
+	}
+
+	public List<Document> getListByGuildId(long guildId, Bson filter, Bson projection) {
+		List<Document> entities = new ArrayList<>();
+		for (Document entity : this.getByGuildId(guildId, filter, projection)) {
+			entities.add(entity);
+		}
+
+		return entities;
+	}
+
+	public List<Document> getListByGuildId(long guildId, Bson projection) {
+		return this.getListByGuildId(guildId, null, projection);
+	}
+
+	/**
+	 * @return the update for the entity, it is upserted if it does not exist
+	 */
+	public UpdateOneModel<Document> getUpdateModel(long guildId, long id, Bson update) {
+		return new UpdateOneModel<>(GuildEntityCollection.getFilter(guildId, id), update, UPSERT);
+	}
+
+	/**
+	 * @param updateOptions the options of the update, null to upsert the entity
+	 */
+	public UpdateResult updateById(long guildId, long id, Bson update, UpdateOptions updateOptions) {
+		this.migrate(guildId);
+
+		return this.collection.updateOne(GuildEntityCollection.getFilter(guildId, id), update, updateOptions == null ? UPSERT : updateOptions);
+	}
+
+	public UpdateResult updateById(long guildId, long id, Bson update) {
+		return this.updateById(guildId, id, update, (UpdateOptions) null);
+	}
+
+	public void updateById(long guildId, long id, Bson update, UpdateOptions updateOptions, DatabaseCallback<UpdateResult> callback) {
+		this.database.submit(() -> this.updateById(guildId, id, update, updateOptions), callback);
+	}
+
+	public void updateById(long guildId, long id, Bson update, DatabaseCallback<UpdateResult> callback) {
+		this.updateById(guildId, id, update, null, callback);
+	}
+
+	public CompletableFuture<UpdateResult> updateByIdAsync(long guildId, long id, Bson update) {
+		return this.database.write(() -> this.updateById(guildId, id, update));
+	}
+
+	public DeleteResult deleteById(long guildId, long id) {
+		this.migrate(guildId);
+
+		return this.collection.deleteOne(GuildEntityCollection.getFilter(guildId, id));
+	}
+
+	public void deleteById(long guildId, long id, DatabaseCallback<DeleteResult> callback) {
+		this.database.submit(() -> this.deleteById(guildId, id), callback);
+	}
+
+	public DeleteResult deleteByGuildId(long guildId) {
+		this.migrate(guildId);
+
+		return this.collection.deleteMany(Filters.eq("guildId", guildId));
+	}
+
+	public void deleteByGuildId(long guildId, DatabaseCallback<DeleteResult> callback) {
+		this.database.submit(() -> this.deleteByGuildId(guildId), callback);
+	}
+
+	/**
+	 * The writes are not checked against the legacy array so the guilds of the models should have been read through this collection first
+	 */
+	public BulkWriteResult bulkWrite(List<WriteModel<Document>> bulkData) {
+		return this.collection.bulkWrite(bulkData, null);
+	}
+
+	public void bulkWrite(List<WriteModel<Document>> bulkData, DatabaseCallback<BulkWriteResult> callback) {
+		this.database.submit(() -> this.bulkWrite(bulkData), callback);
+	}
+
+	public CompletableFuture<BulkWriteResult> bulkWriteAsync(List<WriteModel<Document>> bulkData) {
+		return this.database.write(() -> this.bulkWrite(bulkData));
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.name, this.migratedGuilds.get(), this.migratedEntities.get(), this.failedMigrations.get(), this.migrated ? "complete" : "pending");
+	}
+
+}
@@ -0,0 +1,129 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.bson.Document;
+
+import com.mongodb.client.MongoDatabase;
+
+/**
+ * Explains every registered {@link QueryShape} against the database and reports which ones scan the whole collection
+ */
+public class IndexAdvisor {
+
+	public static class Result {
+
+		private final QueryShape shape;
+
+		private final Set<String> stages;
+		private final Set<String> indexes;
+
+		private final String error;
+
+		private Result(QueryShape shape, Set<String> stages, Set<String> indexes, String error) {
+			this.shape = shape;
+			this.stages = stages;
+			this.indexes = indexes;
+			this.error = error;
+		}
+
+		public QueryShape getShape() {
+			return this.shape;
+		}
+
+		public Set<String> getStages() {
+			return this.stages;
+		}
+
+		public Set<String> getIndexes() {
+			return this.indexes;
+		}
+
+		public boolean isCollectionScan() {
+			return this.stages.contains("COLLSCAN");
+		}
+
+		public boolean isFailed() {
+			return this.error != null;
+		}
+
+		public String toString() {
+			if (this.error != null) {
+				return this.shape + ": failed to explain, " + this.error;
+			}
+
+			return this.shape + ": " + String.join(" -> ", this.stages) + (this.indexes.isEmpty() ? "" : " using " + String.join(", ", this.indexes));
+		}
+
+	}
+
+	public static List<Result> explain(MongoDatabase database, List<QueryShape> shapes) {
+		List<Result> results = new ArrayList<>(shapes.size());
+		for (QueryShape shape : shapes) {
+			results.add(IndexAdvisor.explain(database, shape));
+		}
+
+		return results;
+	}
+
+	public static Result explain(MongoDatabase database, QueryShape shape) {
+		Set<String> stages = new LinkedHashSet<>(), indexes = new LinkedHashSet<>();
+		try {
+			Document explain = database.runCommand(shape.getExplainCommand());
+
+			Document winningPlan = explain.get("queryPlanner", Database.EMPTY_DOCUMENT).get("winningPlan", Database.EMPTY_DOCUMENT);
+			IndexAdvisor.collectStages(winningPlan, stages, indexes);
+		} catch (Exception e) {
+			return new Result(shape, stages, indexes, e.getMessage());
+		}
+
+		return new Result(shape, stages, indexes, null);
+	}
+
+	private static void collectStages(Document plan, Set<String> stages, Set<String> indexes) {
+		String stage = plan.getString("stage");
+		if (stage != null) {
+			stages.add(stage);
+		}
+
+		String indexName = plan.getString("indexName");
+		if (indexName != null) {
+			indexes.add(indexName);
+		}
+
+		Object inputStage = plan.get("inputStage");
+		if (inputStage instanceof Document) {
+			IndexAdvisor.collectStages((Document) inputStage, stages, indexes);
+		}
+
+		for (Object input : plan.getList("inputStages", Object.class, List.of())) {
+			if (input instanceof Document) {
+				IndexAdvisor.collectStages((Document) input, stages, indexes);
+			}
+		}
+	}
+
+	/**
+	 * @param collectionScansOnly whether to only include the queries which scan the whole collection
+	 */
+	public static String getReport(List<Result> results, boolean collectionScansOnly) {
+		StringBuilder report = new StringBuilder();
+
+		int collectionScans = 0;
+		for (Result result : results) {
+			if (result.isCollectionScan() || result.isFailed()) {
+				collectionScans++;
+			} else if (collectionScansOnly) {
+				continue;
+			}
+
+			report.append('\n').append(result.isCollectionScan() ? "COLLSCAN " : "").append(result);
+		}
+
+		return report.append('\n').append(String.format("%d/%d query shapes scan the whole collection or failed to explain", collectionScans, results.size())).toString();
+	}
+
+}
@@ -0,0 +1,32 @@
+package com.sx4.bot.database;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps every collection in memory, nothing is persisted so this is only meant for load testing
+ * and benchmarking without a running mongod
+ */
+public class MemoryStorage implements Storage {
+
+	private final String name;
+
+	private final Map<String, MemoryStorageCollection> collections = new ConcurrentHashMap<>();
+
+	public MemoryStorage(String name) {
+		this.name = name;
+	}
+
+	public Type getType() {
+		return Type.MEMORY;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public MemoryStorageCollection getCollection(String name) {
+		return this.collections.computeIfAbsent(name, MemoryStorageCollection::new);
+	}
+
+}
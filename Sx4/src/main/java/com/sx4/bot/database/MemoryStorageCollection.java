@@ -0,0 +1,639 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonString;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.bson.types.ObjectId;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.ServerAddress;
+import com.mongodb.WriteError;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.bulk.BulkWriteUpsert;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.DeleteManyModel;
+import com.mongodb.client.model.DeleteOneModel;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateManyModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * A collection kept in memory, filters are evaluated with the {@link FilterMatcher} and updates are applied with the
+ * {@link UpdateApplier} so anything outside of the operators they support throws an {@link UnsupportedOperationException}.
+ *
+ * Documents are copied on the way in and out so callers can never modify what is stored, filters on _id are
+ * answered from the map directly and everything else scans the collection. Unique indexes are enforced like MongoDB
+ * would, any other index is only a hint for the query planner so it is ignored.
+ */
+public class MemoryStorageCollection implements StorageCollection {
+
+	private static final int DUPLICATE_KEY = 11000;
+
+	private static final UpdateOptions NO_OPTIONS = new UpdateOptions();
+
+	private final String name;
+
+	private static class UniqueIndex {
+
+		private final String name;
+		private final List<String> fields;
+
+		/* The _id of the document which holds each key */
+		private final Map<List<Object>, Object> ids = new HashMap<>();
+
+		private UniqueIndex(String name, List<String> fields) {
+			this.name = name;
+			this.fields = fields;
+		}
+
+		/**
+		 * Numbers are compared by value like MongoDB does, so 1, 1L and 1.0 are the same key
+		 */
+		private static Object getKeyValue(Object value) {
+			if (value instanceof List) {
+				throw new UnsupportedOperationException("Unique indexes on arrays can not be enforced in memory");
+			} else if (value instanceof Double || value instanceof Float) {
+				double number = ((Number) value).doubleValue();
+
+				return number == Math.rint(number) && !Double.isInfinite(number) ? (Object) (long) number : (Object) number;
+			} else if (value instanceof Number) {
+				return ((Number) value).longValue();
+			}
+
+			return value;
+		}
+
+		private List<Object> getKey(Document document) {
+			List<Object> key = new ArrayList<>(this.fields.size());
+			for (String field : this.fields) {
+				key.add(UniqueIndex.getKeyValue(MemoryStorageCollection.getValue(document, field)));
+			}
+
+			return key;
+		}
+
+	}
+
+	private final Map<Object, Document> documents = new LinkedHashMap<>();
+
+	private final List<UniqueIndex> indexes = new ArrayList<>();
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	public MemoryStorageCollection(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	private static BsonValue toBsonValue(Object value) {
+		return new Document("_id", value).toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry()).get("_id");
+	}
+
+	/**
+	 * @return the _id the filter matches on or null if it can match more than one _id
+	 */
+	@SuppressWarnings("unchecked")
+	private static Object getId(Document filter) {
+		Object id = filter.get("_id");
+		if (id != null && !FilterMatcher.isOperatorDocument(id)) {
+			return id;
+		} else if (id instanceof Document && ((Document) id).size() == 1 && ((Document) id).containsKey("$eq")) {
+			return ((Document) id).get("$eq");
+		}
+
+		Object and = filter.get("$and");
+		if (and instanceof List) {
+			for (Document subFilter : (List<Document>) and) {
+				Object andId = MemoryStorageCollection.getId(subFilter);
+				if (andId != null) {
+					return andId;
+				}
+			}
+		}
+
+		return null;
+	}
+
+	private List<Document> match(Document filter, int limit) {
+		List<Document> matches = new ArrayList<>();
+
+		Object id = MemoryStorageCollection.getId(filter);
+		if (id != null) {
+			Document document = this.documents.get(id);
+			if (document != null && FilterMatcher.matchesDocument(document, filter)) {
+				matches.add(document);
+			}
+
+			return matches;
+		}
+
+		for (Document document : this.documents.values()) {
+			if (FilterMatcher.matchesDocument(document, filter)) {
+				matches.add(document);
+				if (matches.size() == limit) {
+					break;
+				}
+			}
+		}
+
+		return matches;
+	}
+
+	private static Object getValue(Document document, String path) {
+		Object value = document;
+		for (String key : path.split("\\.")) {
+			if (!(value instanceof Document)) {
+				return null;
+			}
+
+			value = ((Document) value).get(key);
+		}
+
+		return value;
+	}
+
+	private static Comparator<Document> getComparator(Document sort) {
+		return (first, second) -> {
+			for (Map.Entry<String, Object> entry : sort.entrySet()) {
+				if (!(entry.getValue() instanceof Number)) {
+					throw new UnsupportedOperationException("Unsupported sort " + entry.getValue());
+				}
+
+				Object firstValue = MemoryStorageCollection.getValue(first, entry.getKey()), secondValue = MemoryStorageCollection.getValue(second, entry.getKey());
+
+				int comparison;
+				if (firstValue == null || secondValue == null) {
+					comparison = firstValue == secondValue ? 0 : firstValue == null ? -1 : 1;
+				} else {
+					Integer compared = FilterMatcher.compare(firstValue, secondValue);
+					comparison = compared == null ? 0 : compared;
+				}
+
+				if (comparison != 0) {
+					return ((Number) entry.getValue()).intValue() < 0 ? -comparison : comparison;
+				}
+			}
+
+			return 0;
+		};
+	}
+
+	private static Document project(Document document, Bson projection) {
+		Document projected = DocumentCache.project(document, projection);
+		if (projected == null) {
+			throw new UnsupportedOperationException("Projection operators can not be applied in memory");
+		}
+
+		return projected;
+	}
+
+	private List<Document> find(Bson filter, Bson projection, Bson sort, int limit) {
+		Document sortDocument = sort == null ? null : FilterMatcher.toDocument(sort);
+
+		List<Document> matches;
+		this.lock.readLock().lock();
+		try {
+			matches = this.match(FilterMatcher.toDocument(filter), sortDocument == null ? limit : -1);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+
+		if (sortDocument != null) {
+			matches.sort(MemoryStorageCollection.getComparator(sortDocument));
+		}
+
+		List<Document> projected = new ArrayList<>(Math.min(matches.size(), limit < 0 ? matches.size() : limit));
+		for (Document document : matches) {
+			if (projected.size() == limit) {
+				break;
+			}
+
+			projected.add(MemoryStorageCollection.project(document, projection));
+		}
+
+		return projected;
+	}
+
+	public Document findOne(Bson filter, Bson projection, Bson sort) {
+		List<Document> documents = this.find(filter, projection, sort, 1);
+
+		return documents.isEmpty() ? null : documents.get(0);
+	}
+
+	public List<Document> find(Bson filter, Bson projection, Bson sort) {
+		return this.find(filter, projection, sort, -1);
+	}
+
+	public long countDocuments(Bson filter) {
+		this.lock.readLock().lock();
+		try {
+			return this.match(FilterMatcher.toDocument(filter), -1).size();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	private void insert(Document document) {
+		if (!document.containsKey("_id")) {
+			document.put("_id", new ObjectId());
+		}
+
+		Object id = document.get("_id");
+		if (this.documents.containsKey(id)) {
+			throw this.getDuplicateKeyError("_id_", List.of(id));
+		}
+
+		this.put(null, DocumentCache.copy(document));
+	}
+
+	private MongoWriteException getDuplicateKeyError(String index, List<Object> key) {
+		return new MongoWriteException(new WriteError(DUPLICATE_KEY, "E11000 duplicate key error collection: " + this.name + " index: " + index + " dup key: " + key, new BsonDocument()), new ServerAddress());
+	}
+
+	/**
+	 * Stores the document in place of the previous one with the same _id, the unique indexes are checked before
+	 * anything is changed so a duplicate key leaves the collection as it was
+	 */
+	private void put(Document previous, Document document) {
+		Object id = document.get("_id");
+		for (UniqueIndex index : this.indexes) {
+			List<Object> key = index.getKey(document);
+
+			Object holder = index.ids.get(key);
+			if (holder != null && !holder.equals(id)) {
+				throw this.getDuplicateKeyError(index.name, key);
+			}
+		}
+
+		for (UniqueIndex index : this.indexes) {
+			if (previous != null) {
+				index.ids.remove(index.getKey(previous), id);
+			}
+
+			index.ids.put(index.getKey(document), id);
+		}
+
+		this.documents.put(id, document);
+	}
+
+	private void remove(Document document) {
+		Object id = document.get("_id");
+		for (UniqueIndex index : this.indexes) {
+			index.ids.remove(index.getKey(document), id);
+		}
+
+		this.documents.remove(id);
+	}
+
+	public void insertOne(Document document) {
+		this.lock.writeLock().lock();
+		try {
+			this.insert(document);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public void insertMany(List<Document> documents, boolean ordered) {
+		List<WriteModel<Document>> bulkData = new ArrayList<>(documents.size());
+		for (Document document : documents) {
+			bulkData.add(new InsertOneModel<>(document));
+		}
+
+		this.bulkWrite(bulkData, new BulkWriteOptions().ordered(ordered));
+	}
+
+	/**
+	 * Adds the equality conditions of the filter to the document, this is what MongoDB upserts from
+	 */
+	@SuppressWarnings("unchecked")
+	private static void addEqualities(Document upsert, Document filter) {
+		for (Map.Entry<String, Object> entry : filter.entrySet()) {
+			String key = entry.getKey();
+			Object condition = entry.getValue();
+
+			if (key.equals("$and")) {
+				for (Document subFilter : (List<Document>) condition) {
+					MemoryStorageCollection.addEqualities(upsert, subFilter);
+				}
+			} else if (!key.startsWith("$")) {
+				if (!FilterMatcher.isOperatorDocument(condition)) {
+					UpdateApplier.apply(upsert, "$set", key, condition, Collections.emptyMap());
+				} else if (((Document) condition).containsKey("$eq")) {
+					UpdateApplier.apply(upsert, "$set", key, ((Document) condition).get("$eq"), Collections.emptyMap());
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return the _id of the inserted document
+	 */
+	private Object upsert(Document filter, Bson update, List<? extends Bson> arrayFilters) {
+		Document document = new Document();
+		MemoryStorageCollection.addEqualities(document, filter);
+
+		UpdateApplier.apply(document, update, arrayFilters);
+
+		Object setOnInsert = FilterMatcher.toDocument(update).get("$setOnInsert");
+		if (setOnInsert instanceof Document) {
+			for (Map.Entry<String, Object> field : ((Document) setOnInsert).entrySet()) {
+				UpdateApplier.apply(document, "$set", field.getKey(), field.getValue(), Collections.emptyMap());
+			}
+		}
+
+		this.insert(document);
+
+		return document.get("_id");
+	}
+
+	/**
+	 * @return whether the document was modified
+	 */
+	private boolean update(Document document, Bson update, List<? extends Bson> arrayFilters) {
+		Document updated = DocumentCache.copy(document);
+		UpdateApplier.apply(updated, update, arrayFilters);
+
+		if (!updated.get("_id").equals(document.get("_id"))) {
+			throw new MongoWriteException(new WriteError(66, "Performing an update on the path '_id' would modify the immutable field '_id'", new BsonDocument()), new ServerAddress());
+		}
+
+		if (FilterMatcher.valueEquals(document, updated)) {
+			return false;
+		}
+
+		this.put(document, updated);
+
+		return true;
+	}
+
+	private UpdateResult update(Bson filter, Bson update, UpdateOptions updateOptions, boolean many) {
+		Document filterDocument = FilterMatcher.toDocument(filter);
+		UpdateOptions options = updateOptions == null ? NO_OPTIONS : updateOptions;
+
+		this.lock.writeLock().lock();
+		try {
+			List<Document> matches = this.match(filterDocument, many ? -1 : 1);
+			if (matches.isEmpty()) {
+				if (options.isUpsert()) {
+					return UpdateResult.acknowledged(0, 0L, MemoryStorageCollection.toBsonValue(this.upsert(filterDocument, update, options.getArrayFilters())));
+				}
+
+				return UpdateResult.acknowledged(0, 0L, null);
+			}
+
+			long modified = 0;
+			for (Document document : matches) {
+				if (this.update(document, update, options.getArrayFilters())) {
+					modified++;
+				}
+			}
+
+			return UpdateResult.acknowledged(matches.size(), modified, null);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public UpdateResult updateOne(Bson filter, Bson update, UpdateOptions updateOptions) {
+		return this.update(filter, update, updateOptions, false);
+	}
+
+	public UpdateResult updateMany(Bson filter, Bson update) {
+		return this.update(filter, update, null, true);
+	}
+
+	public Document findOneAndUpdate(Bson filter, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions) {
+		FindOneAndUpdateOptions options = findOneAndUpdateOptions == null ? new FindOneAndUpdateOptions() : findOneAndUpdateOptions;
+		Document filterDocument = FilterMatcher.toDocument(filter);
+
+		this.lock.writeLock().lock();
+		try {
+			List<Document> matches = this.match(filterDocument, options.getSort() == null ? 1 : -1);
+			if (options.getSort() != null) {
+				matches.sort(MemoryStorageCollection.getComparator(FilterMatcher.toDocument(options.getSort())));
+			}
+
+			if (matches.isEmpty()) {
+				if (!options.isUpsert()) {
+					return null;
+				}
+
+				Object id = this.upsert(filterDocument, update, options.getArrayFilters());
+
+				return options.getReturnDocument() == ReturnDocument.AFTER ? MemoryStorageCollection.project(this.documents.get(id), options.getProjection()) : null;
+			}
+
+			Document document = matches.get(0);
+			this.update(document, update, options.getArrayFilters());
+
+			return MemoryStorageCollection.project(options.getReturnDocument() == ReturnDocument.AFTER ? this.documents.get(document.get("_id")) : document, options.getProjection());
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	private long delete(Bson filter, boolean many) {
+		List<Document> matches = this.match(FilterMatcher.toDocument(filter), many ? -1 : 1);
+		for (Document document : matches) {
+			this.remove(document);
+		}
+
+		return matches.size();
+	}
+
+	public DeleteResult deleteOne(Bson filter) {
+		this.lock.writeLock().lock();
+		try {
+			return DeleteResult.acknowledged(this.delete(filter, false));
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	public DeleteResult deleteMany(Bson filter) {
+		this.lock.writeLock().lock();
+		try {
+			return DeleteResult.acknowledged(this.delete(filter, true));
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Models are applied in order, an unordered bulk write carries on after a model fails and throws a
+	 * {@link MongoBulkWriteException} with every failed index once the rest have been applied
+	 */
+	public BulkWriteResult bulkWrite(List<? extends WriteModel<Document>> bulkData, BulkWriteOptions bulkWriteOptions) {
+		boolean ordered = bulkWriteOptions == null || bulkWriteOptions.isOrdered();
+
+		int inserted = 0, matched = 0, deleted = 0, modified = 0;
+		List<BulkWriteUpsert> upserts = new ArrayList<>();
+		List<BulkWriteError> errors = new ArrayList<>();
+
+		this.lock.writeLock().lock();
+		try {
+			for (int i = 0; i < bulkData.size(); i++) {
+				WriteModel<Document> model = bulkData.get(i);
+
+				try {
+					if (model instanceof InsertOneModel) {
+						this.insert(((InsertOneModel<Document>) model).getDocument());
+						inserted++;
+					} else if (model instanceof UpdateOneModel || model instanceof UpdateManyModel) {
+						boolean many = model instanceof UpdateManyModel;
+
+						Bson filter = many ? ((UpdateManyModel<Document>) model).getFilter() : ((UpdateOneModel<Document>) model).getFilter();
+						Bson update = many ? ((UpdateManyModel<Document>) model).getUpdate() : ((UpdateOneModel<Document>) model).getUpdate();
+						UpdateOptions options = many ? ((UpdateManyModel<Document>) model).getOptions() : ((UpdateOneModel<Document>) model).getOptions();
+						if (update == null) {
+							throw new UnsupportedOperationException("Update pipelines can not be applied in memory");
+						}
+
+						UpdateResult result = this.update(filter, update, options, many);
+						if (result.getUpsertedId() != null) {
+							upserts.add(new BulkWriteUpsert(i, result.getUpsertedId()));
+						} else {
+							matched += result.getMatchedCount();
+							modified += result.getModifiedCount();
+						}
+					} else if (model instanceof ReplaceOneModel) {
+						ReplaceOneModel<Document> replaceModel = (ReplaceOneModel<Document>) model;
+
+						List<Document> matches = this.match(FilterMatcher.toDocument(replaceModel.getFilter()), 1);
+						if (!matches.isEmpty()) {
+							Document replacement = new Document(replaceModel.getReplacement());
+							replacement.put("_id", matches.get(0).get("_id"));
+
+							this.put(matches.get(0), DocumentCache.copy(replacement));
+
+							matched++;
+							modified++;
+						} else if (replaceModel.getReplaceOptions().isUpsert()) {
+							Document replacement = new Document(replaceModel.getReplacement());
+							this.insert(replacement);
+
+							upserts.add(new BulkWriteUpsert(i, MemoryStorageCollection.toBsonValue(replacement.get("_id"))));
+						}
+					} else if (model instanceof DeleteOneModel) {
+						deleted += this.delete(((DeleteOneModel<Document>) model).getFilter(), false);
+					} else if (model instanceof DeleteManyModel) {
+						deleted += this.delete(((DeleteManyModel<Document>) model).getFilter(), true);
+					} else {
+						throw new UnsupportedOperationException("Unsupported write model " + model.getClass().getSimpleName());
+					}
+				} catch (MongoWriteException e) {
+					errors.add(new BulkWriteError(e.getError().getCode(), e.getError().getMessage(), e.getError().getDetails(), i));
+					if (ordered) {
+						break;
+					}
+				}
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+
+		BulkWriteResult result = BulkWriteResult.acknowledged(inserted, matched, deleted, modified, upserts);
+		if (!errors.isEmpty()) {
+			throw new MongoBulkWriteException(result, errors, null, new ServerAddress());
+		}
+
+		return result;
+	}
+
+	public MemoryStorageCollection withJournaledWrites() {
+		return this;
+	}
+
+	private static String getIndexName(Document keys) {
+		StringBuilder name = new StringBuilder();
+		for (Map.Entry<String, Object> key : keys.entrySet()) {
+			if (name.length() != 0) {
+				name.append('_');
+			}
+
+			name.append(key.getKey()).append('_').append(key.getValue());
+		}
+
+		return name.toString();
+	}
+
+	/**
+	 * Only unique indexes are kept, they are built from the documents already stored and fail like MongoDB does if two
+	 * of them share a key. Options which change which documents a unique index covers are rejected rather than ignored
+	 * so a constraint is never silently missing
+	 */
+	public void createIndexes(List<IndexModel> indexes) {
+		this.lock.writeLock().lock();
+		try {
+			for (IndexModel model : indexes) {
+				IndexOptions options = model.getOptions();
+				if (!options.isUnique()) {
+					continue;
+				}
+
+				if (options.isSparse() || options.getPartialFilterExpression() != null) {
+					throw new UnsupportedOperationException("Sparse and partial unique indexes can not be enforced in memory");
+				}
+
+				Document keys = FilterMatcher.toDocument(model.getKeys());
+				for (Object direction : keys.values()) {
+					if (!(direction instanceof Number)) {
+						throw new UnsupportedOperationException("Unique " + direction + " indexes can not be enforced in memory");
+					}
+				}
+
+				List<String> fields = new ArrayList<>(keys.keySet());
+				if (this.indexes.stream().anyMatch(index -> index.fields.equals(fields))) {
+					continue;
+				}
+
+				UniqueIndex index = new UniqueIndex(options.getName() == null ? MemoryStorageCollection.getIndexName(keys) : options.getName(), fields);
+				for (Document document : this.documents.values()) {
+					List<Object> key = index.getKey(document);
+					if (index.ids.putIfAbsent(key, document.get("_id")) != null) {
+						BsonDocument response = new BsonDocument("ok", new BsonInt32(0))
+							.append("code", new BsonInt32(DUPLICATE_KEY))
+							.append("errmsg", new BsonString("E11000 duplicate key error collection: " + this.name + " index: " + index.name + " dup key: " + key));
+
+						throw new MongoCommandException(response, new ServerAddress());
+					}
+				}
+
+				this.indexes.add(index);
+			}
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+}
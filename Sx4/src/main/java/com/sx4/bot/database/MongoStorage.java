@@ -0,0 +1,29 @@
+package com.sx4.bot.database;
+
+import com.mongodb.client.MongoDatabase;
+
+public class MongoStorage implements Storage {
+
+	private final MongoDatabase database;
+
+	public MongoStorage(MongoDatabase database) {
+		this.database = database;
+	}
+
+	public MongoDatabase getDatabase() {
+		return this.database;
+	}
+
+	public Type getType() {
+		return Type.MONGO;
+	}
+
+	public String getName() {
+		return this.database.getName();
+	}
+
+	public MongoStorageCollection getCollection(String name) {
+		return new MongoStorageCollection(this.database.getCollection(name));
+	}
+
+}
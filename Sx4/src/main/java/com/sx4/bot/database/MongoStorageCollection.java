@@ -0,0 +1,93 @@
+package com.sx4.bot.database;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.WriteConcern;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+public class MongoStorageCollection implements StorageCollection {
+
+	private final MongoCollection<Document> collection;
+
+	public MongoStorageCollection(MongoCollection<Document> collection) {
+		this.collection = collection;
+	}
+
+	public MongoCollection<Document> getCollection() {
+		return this.collection;
+	}
+
+	public String getName() {
+		return this.collection.getNamespace().getCollectionName();
+	}
+
+	private static Bson getFilter(Bson filter) {
+		return filter == null ? Database.EMPTY_DOCUMENT : filter;
+	}
+
+	public Document findOne(Bson filter, Bson projection, Bson sort) {
+		return this.find(filter, projection, sort).first();
+	}
+
+	public FindIterable<Document> find(Bson filter, Bson projection, Bson sort) {
+		return this.collection.find(MongoStorageCollection.getFilter(filter)).projection(projection).sort(sort);
+	}
+
+	public long countDocuments(Bson filter) {
+		return this.collection.countDocuments(MongoStorageCollection.getFilter(filter));
+	}
+
+	public void insertOne(Document document) {
+		this.collection.insertOne(document);
+	}
+
+	public void insertMany(List<Document> documents, boolean ordered) {
+		this.collection.insertMany(documents, new InsertManyOptions().ordered(ordered));
+	}
+
+	public UpdateResult updateOne(Bson filter, Bson update, UpdateOptions updateOptions) {
+		return this.collection.updateOne(MongoStorageCollection.getFilter(filter), update, updateOptions == null ? new UpdateOptions() : updateOptions);
+	}
+
+	public UpdateResult updateMany(Bson filter, Bson update) {
+		return this.collection.updateMany(MongoStorageCollection.getFilter(filter), update);
+	}
+
+	public Document findOneAndUpdate(Bson filter, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions) {
+		return this.collection.findOneAndUpdate(MongoStorageCollection.getFilter(filter), update, findOneAndUpdateOptions == null ? new FindOneAndUpdateOptions() : findOneAndUpdateOptions);
+	}
+
+	public DeleteResult deleteOne(Bson filter) {
+		return this.collection.deleteOne(MongoStorageCollection.getFilter(filter));
+	}
+
+	public DeleteResult deleteMany(Bson filter) {
+		return this.collection.deleteMany(MongoStorageCollection.getFilter(filter));
+	}
+
+	public BulkWriteResult bulkWrite(List<? extends WriteModel<Document>> bulkData, BulkWriteOptions bulkWriteOptions) {
+		return this.collection.bulkWrite(bulkData, bulkWriteOptions == null ? new BulkWriteOptions() : bulkWriteOptions);
+	}
+
+	public MongoStorageCollection withJournaledWrites() {
+		return new MongoStorageCollection(this.collection.withWriteConcern(WriteConcern.JOURNALED));
+	}
+
+	public void createIndexes(List<IndexModel> indexes) {
+		this.collection.createIndexes(indexes);
+	}
+
+}
@@ -0,0 +1,178 @@
+package com.sx4.bot.database;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * A fixed size pool for database queries with a bounded queue, queries are rejected once the queue is full
+ * rather than spawning more threads and each query can be given a deadline after which it is failed and,
+ * if it has not started yet, never executed.
+ *
+ * A read which is still running at its deadline is failed and its result thrown away. A write is only failed if it
+ * has not started by its deadline, once it has started it could still be committed so its future waits for the database.
+ * Callbacks never run on the thread which submitted the query, a query completes its future on the pool and a failure
+ * from a full queue or a deadline is completed on a callback thread of its own so a pool which is stuck on slow queries
+ * can not hold it up.
+ */
+public class QueryExecutor {
+
+	private static final String STATISTICS_MESSAGE = "Query executor: %d/%d active, %,d/%,d queued, %,d completed, %,d failed, %,d rejected, %,d timed out, %.2fms average wait, %.2fms average execution";
+
+	public static final int CALLBACK_THREADS = 2;
+
+	private final ThreadPoolExecutor executor;
+
+	/* Only fires deadlines, the futures they fail are completed on the callback threads */
+	private final ScheduledThreadPoolExecutor timer;
+
+	private final ExecutorService callbacks;
+
+	private final int maxQueued;
+
+	private final AtomicLong completed = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong rejected = new AtomicLong();
+	private final AtomicLong timedOut = new AtomicLong();
+
+	private final AtomicLong totalWaitNanos = new AtomicLong();
+	private final AtomicLong totalExecutionNanos = new AtomicLong();
+
+	public QueryExecutor(int threads, int maxQueued) {
+		this.maxQueued = maxQueued;
+
+		this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(maxQueued), new ThreadFactoryBuilder()
+			.setNameFormat("database-query-executor-%d")
+			.setDaemon(true)
+			.build());
+
+		this.executor.allowCoreThreadTimeOut(true);
+
+		this.timer = new ScheduledThreadPoolExecutor(1, new ThreadFactoryBuilder()
+			.setNameFormat("database-query-timer-%d")
+			.setDaemon(true)
+			.build());
+
+		this.timer.setRemoveOnCancelPolicy(true);
+
+		this.callbacks = Executors.newFixedThreadPool(CALLBACK_THREADS, new ThreadFactoryBuilder()
+			.setNameFormat("database-query-callback-%d")
+			.setDaemon(true)
+			.build());
+	}
+
+	/**
+	 * @return a future which fails with a RejectedExecutionException if the queue is full or a TimeoutException if the
+	 * query has not completed within the timeout
+	 */
+	public <Type> CompletableFuture<Type> submit(Supplier<Type> query, long timeout, TimeUnit unit) {
+		return this.submit(query, timeout, unit, false);
+	}
+
+	/**
+	 * @return a future which fails with a RejectedExecutionException if the queue is full or a TimeoutException if the
+	 * write has not started within the timeout, a write which has started is never failed before the database answers
+	 */
+	public <Type> CompletableFuture<Type> submitWrite(Supplier<Type> query, long timeout, TimeUnit unit) {
+		return this.submit(query, timeout, unit, true);
+	}
+
+	private <Type> CompletableFuture<Type> submit(Supplier<Type> query, long timeout, TimeUnit unit, boolean write) {
+		CompletableFuture<Type> future = new CompletableFuture<>();
+
+		/* Claimed by whichever of the query and its deadline gets there first */
+		AtomicBoolean started = new AtomicBoolean(false);
+
+		long submittedAt = System.nanoTime();
+		try {
+			this.executor.execute(() -> {
+				long startedAt = System.nanoTime();
+				this.totalWaitNanos.addAndGet(startedAt - submittedAt);
+
+				if (!started.compareAndSet(false, true)) {
+					return;
+				}
+
+				try {
+					future.complete(query.get());
+
+					this.completed.incrementAndGet();
+				} catch (Throwable e) {
+					future.completeExceptionally(e);
+
+					this.failed.incrementAndGet();
+				} finally {
+					this.totalExecutionNanos.addAndGet(System.nanoTime() - startedAt);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			this.rejected.incrementAndGet();
+
+			this.fail(future, new RejectedExecutionException("The database query queue is full (" + this.maxQueued + " queued queries)", e));
+
+			return future;
+		}
+
+		if (timeout > 0) {
+			ScheduledFuture<?> deadline = this.timer.schedule(() -> {
+				if (!started.compareAndSet(false, true) && (write || future.isDone())) {
+					return;
+				}
+
+				this.timedOut.incrementAndGet();
+
+				this.fail(future, new TimeoutException("The database query did not " + (write ? "start" : "complete") + " within " + timeout + " " + unit.toString().toLowerCase()));
+			}, timeout, unit);
+
+			future.whenComplete((result, exception) -> deadline.cancel(false));
+		}
+
+		return future;
+	}
+
+	private void fail(CompletableFuture<?> future, Throwable exception) {
+		this.callbacks.execute(() -> future.completeExceptionally(exception));
+	}
+
+	public int getActiveCount() {
+		return this.executor.getActiveCount();
+	}
+
+	public int getQueueSize() {
+		return this.executor.getQueue().size();
+	}
+
+	public long getRejected() {
+		return this.rejected.get();
+	}
+
+	public long getTimedOut() {
+		return this.timedOut.get();
+	}
+
+	public String getStatistics() {
+		long completed = this.completed.get(), failed = this.failed.get(), executed = completed + failed;
+
+		return String.format(STATISTICS_MESSAGE, this.executor.getActiveCount(), this.executor.getMaximumPoolSize(), this.executor.getQueue().size(), this.maxQueued, completed, failed, this.rejected.get(), this.timedOut.get(),
+			executed == 0 ? 0 : this.totalWaitNanos.get() / (double) executed / 1_000_000D, executed == 0 ? 0 : this.totalExecutionNanos.get() / (double) executed / 1_000_000D);
+	}
+
+	public void shutdown() {
+		this.executor.shutdown();
+		this.timer.shutdown();
+		this.callbacks.shutdown();
+	}
+
+}
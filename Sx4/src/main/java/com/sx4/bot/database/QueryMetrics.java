@@ -0,0 +1,488 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.bson.RawBsonDocument;
+
+import com.mongodb.event.CommandFailedEvent;
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+/**
+ * Records every command sent to MongoDB grouped by collection and query shape, a query shape is the
+ * command with every value replaced by ? so queries which only differ by their values are grouped together.
+ *
+ * A getMore is credited to the shape of the find or aggregate which opened its cursor, so the time and documents
+ * of every batch after the first count towards the query which asked for them.
+ *
+ * Bytes are the size of the replies as they came off the wire, the driver hands them to the listener undecoded so
+ * reading the size does not decode or encode anything.
+ */
+public class QueryMetrics implements CommandListener {
+
+	/* Upper bounds of the latency histogram buckets in milliseconds, the last bucket holds everything slower */
+	public static final long[] LATENCY_BUCKETS = {1, 2, 5, 10, 25, 50, 100, 250, 500, 1000, 2500};
+
+	/* Commands which are not run against a collection, these are grouped by command name only */
+	private static final String NO_COLLECTION = "-";
+
+	/* Shapes past this are grouped per collection and operation so dynamic field names can not grow the map forever */
+	public static final int MAX_SHAPES = 2000;
+
+	private static final String OTHER_SHAPE = "(other)";
+
+	/* Cursors which are never exhausted or killed are forgotten past this so the map can not grow forever */
+	public static final int MAX_CURSORS = 10000;
+
+	public static class Shape {
+
+		private final String collection;
+		private final String operation;
+		private final String shape;
+
+		private final AtomicLong count = new AtomicLong();
+		private final AtomicLong failures = new AtomicLong();
+		private final AtomicLong totalNanos = new AtomicLong();
+		private final AtomicLong maxNanos = new AtomicLong();
+		private final AtomicLong documents = new AtomicLong();
+		private final AtomicLong bytes = new AtomicLong();
+		private final AtomicLong getMores = new AtomicLong();
+
+		private final AtomicLongArray latencies = new AtomicLongArray(LATENCY_BUCKETS.length + 1);
+
+		private Shape(String collection, String operation, String shape) {
+			this.collection = collection;
+			this.operation = operation;
+			this.shape = shape;
+		}
+
+		private void record(long nanos, long documents, long bytes, boolean failed) {
+			this.count.incrementAndGet();
+			this.totalNanos.addAndGet(nanos);
+			this.maxNanos.accumulateAndGet(nanos, Math::max);
+			this.documents.addAndGet(documents);
+			this.bytes.addAndGet(bytes);
+
+			if (failed) {
+				this.failures.incrementAndGet();
+			}
+
+			long millis = TimeUnit.NANOSECONDS.toMillis(nanos);
+
+			int bucket = 0;
+			while (bucket < LATENCY_BUCKETS.length && millis >= LATENCY_BUCKETS[bucket]) {
+				bucket++;
+			}
+
+			this.latencies.incrementAndGet(bucket);
+		}
+
+		/**
+		 * Adds a further batch of a cursor opened by this shape, it is not counted as another query
+		 */
+		private void recordGetMore(long nanos, long documents, long bytes, boolean failed) {
+			this.getMores.incrementAndGet();
+			this.totalNanos.addAndGet(nanos);
+			this.documents.addAndGet(documents);
+			this.bytes.addAndGet(bytes);
+
+			if (failed) {
+				this.failures.incrementAndGet();
+			}
+		}
+
+		public String getCollection() {
+			return this.collection;
+		}
+
+		public String getOperation() {
+			return this.operation;
+		}
+
+		public String getShape() {
+			return this.shape;
+		}
+
+		public long getCount() {
+			return this.count.get();
+		}
+
+		public long getFailures() {
+			return this.failures.get();
+		}
+
+		public long getTotalNanos() {
+			return this.totalNanos.get();
+		}
+
+		public double getAverageMillis() {
+			long count = this.count.get();
+
+			return count == 0 ? 0 : this.totalNanos.get() / (double) count / 1_000_000D;
+		}
+
+		public double getMaxMillis() {
+			return this.maxNanos.get() / 1_000_000D;
+		}
+
+		/**
+		 * @return an approximate percentile in milliseconds, this is the upper bound of the bucket the percentile falls in
+		 */
+		public long getPercentileMillis(double percentile) {
+			long count = this.count.get(), target = (long) Math.ceil(count * percentile), seen = 0;
+			for (int i = 0; i < LATENCY_BUCKETS.length; i++) {
+				seen += this.latencies.get(i);
+				if (seen >= target) {
+					return LATENCY_BUCKETS[i];
+				}
+			}
+
+			return (long) this.getMaxMillis();
+		}
+
+		public long getDocuments() {
+			return this.documents.get();
+		}
+
+		public long getBytes() {
+			return this.bytes.get();
+		}
+
+		public long getGetMores() {
+			return this.getMores.get();
+		}
+
+		public Document toDocument() {
+			List<Long> latencies = new ArrayList<>(this.latencies.length());
+			for (int i = 0; i < this.latencies.length(); i++) {
+				latencies.add(this.latencies.get(i));
+			}
+
+			return new Document("collection", this.collection)
+				.append("operation", this.operation)
+				.append("shape", this.shape)
+				.append("count", this.count.get())
+				.append("failures", this.failures.get())
+				.append("totalMillis", TimeUnit.NANOSECONDS.toMillis(this.totalNanos.get()))
+				.append("averageMillis", this.getAverageMillis())
+				.append("maxMillis", this.getMaxMillis())
+				.append("p50Millis", this.getPercentileMillis(0.5D))
+				.append("p99Millis", this.getPercentileMillis(0.99D))
+				.append("documents", this.documents.get())
+				.append("bytes", this.bytes.get())
+				.append("getMores", this.getMores.get())
+				.append("latencyBuckets", latencies);
+		}
+
+	}
+
+	private final Map<String, Shape> shapes = new ConcurrentHashMap<>();
+	private final Map<Integer, Shape> started = new ConcurrentHashMap<>();
+
+	private final Map<Long, Shape> cursors = new ConcurrentHashMap<>();
+	private final Map<Integer, Long> startedGetMores = new ConcurrentHashMap<>();
+
+	private volatile long resetAt = System.currentTimeMillis();
+
+	public void commandStarted(CommandStartedEvent event) {
+		BsonDocument command = event.getCommand();
+		String operation = event.getCommandName();
+
+		if (operation.equals("killCursors")) {
+			BsonValue cursorIds = command.get("cursors");
+			if (cursorIds != null && cursorIds.isArray()) {
+				for (BsonValue cursorId : cursorIds.asArray()) {
+					if (cursorId.isInt64()) {
+						this.cursors.remove(cursorId.asInt64().getValue());
+					}
+				}
+			}
+		} else if (operation.equals("getMore")) {
+			BsonValue cursorId = command.get("getMore");
+			if (cursorId != null && cursorId.isInt64() && this.cursors.containsKey(cursorId.asInt64().getValue())) {
+				this.startedGetMores.put(event.getRequestId(), cursorId.asInt64().getValue());
+
+				return;
+			}
+		}
+
+		String collection = QueryMetrics.getCollection(operation, command);
+		String shape = QueryMetrics.getShape(operation, command);
+
+		/* Shapes already tracked keep being recorded once the cap is reached, only new ones fall back to the other shape */
+		Shape metrics = this.shapes.get(collection + " " + operation + " " + shape);
+		if (metrics == null) {
+			String key = this.shapes.size() >= MAX_SHAPES ? OTHER_SHAPE : shape;
+
+			metrics = this.shapes.computeIfAbsent(collection + " " + operation + " " + key, k -> new Shape(collection, operation, key));
+		}
+
+		this.started.put(event.getRequestId(), metrics);
+	}
+
+	public void commandSucceeded(CommandSucceededEvent event) {
+		BsonDocument response = event.getResponse();
+		long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+
+		Long getMoreCursorId = this.startedGetMores.remove(event.getRequestId());
+		if (getMoreCursorId != null) {
+			/* The cursor id is 0 once the last batch has been returned */
+			Shape shape = QueryMetrics.getCursorId(response) == 0 ? this.cursors.remove(getMoreCursorId) : this.cursors.get(getMoreCursorId);
+			if (shape != null) {
+				shape.recordGetMore(nanos, QueryMetrics.getDocuments(response), QueryMetrics.getBytes(response), false);
+			}
+
+			return;
+		}
+
+		Shape shape = this.started.remove(event.getRequestId());
+		if (shape == null) {
+			return;
+		}
+
+		/* The first batch returns the id every getMore of the cursor is sent with */
+		long cursorId = QueryMetrics.getCursorId(response);
+		if (cursorId != 0 && this.cursors.size() < MAX_CURSORS) {
+			this.cursors.put(cursorId, shape);
+		}
+
+		shape.record(nanos, QueryMetrics.getDocuments(response), QueryMetrics.getBytes(response), false);
+	}
+
+	public void commandFailed(CommandFailedEvent event) {
+		long nanos = event.getElapsedTime(TimeUnit.NANOSECONDS);
+
+		Long getMoreCursorId = this.startedGetMores.remove(event.getRequestId());
+		if (getMoreCursorId != null) {
+			Shape shape = this.cursors.remove(getMoreCursorId);
+			if (shape != null) {
+				shape.recordGetMore(nanos, 0, 0, true);
+			}
+
+			return;
+		}
+
+		Shape shape = this.started.remove(event.getRequestId());
+		if (shape == null) {
+			return;
+		}
+
+		shape.record(nanos, 0, 0, true);
+	}
+
+	private static String getCollection(String operation, BsonDocument command) {
+		if (operation.equals("getMore")) {
+			return command.containsKey("collection") ? command.getString("collection").getValue() : NO_COLLECTION;
+		}
+
+		BsonValue collection = command.get(operation);
+
+		return collection != null && collection.isString() ? collection.asString().getValue() : NO_COLLECTION;
+	}
+
+	private static String getShape(String operation, BsonDocument command) {
+		switch (operation) {
+			case "find":
+				return QueryMetrics.getShape("filter", command.get("filter")) + QueryMetrics.getShape(" sort", command.get("sort"));
+			case "count":
+			case "distinct":
+				return QueryMetrics.getShape("query", command.get("query"));
+			case "findAndModify":
+				return QueryMetrics.getShape("query", command.get("query")) + QueryMetrics.getShape(" sort", command.get("sort"));
+			case "update":
+				return QueryMetrics.getStatementShape(command.get("updates"), "q");
+			case "delete":
+				return QueryMetrics.getStatementShape(command.get("deletes"), "q");
+			case "aggregate":
+				StringBuilder pipeline = new StringBuilder("pipeline=[");
+
+				BsonValue stages = command.get("pipeline");
+				if (stages != null && stages.isArray()) {
+					for (BsonValue stage : stages.asArray()) {
+						if (!stage.isDocument() || stage.asDocument().isEmpty()) {
+							continue;
+						}
+
+						String stageName = stage.asDocument().getFirstKey();
+						if (pipeline.length() != 10) {
+							pipeline.append(", ");
+						}
+
+						if (stageName.equals("$match") || stageName.equals("$sort")) {
+							pipeline.append(QueryMetrics.getShape(stageName, stage.asDocument().get(stageName)));
+						} else {
+							pipeline.append(stageName);
+						}
+					}
+				}
+
+				return pipeline.append("]").toString();
+			default:
+				return "";
+		}
+	}
+
+	private static String getStatementShape(BsonValue statements, String key) {
+		if (statements == null || !statements.isArray() || statements.asArray().isEmpty()) {
+			return "";
+		}
+
+		BsonArray array = statements.asArray();
+
+		/* Bulk writes send many statements, the first one is used as the shape of all of them */
+		String shape = array.get(0).isDocument() ? QueryMetrics.getShape(key, array.get(0).asDocument().get(key)) : "";
+
+		return array.size() == 1 ? shape : shape + " (bulk)";
+	}
+
+	private static String getShape(String name, BsonValue value) {
+		if (value == null || !value.isDocument() || value.asDocument().isEmpty()) {
+			return "";
+		}
+
+		StringBuilder shape = new StringBuilder(name).append("=");
+		QueryMetrics.appendShape(shape, value.asDocument());
+
+		return shape.toString();
+	}
+
+	private static void appendShape(StringBuilder shape, BsonDocument document) {
+		shape.append("{");
+
+		boolean first = true;
+		for (Map.Entry<String, BsonValue> entry : document.entrySet()) {
+			if (!first) {
+				shape.append(", ");
+			}
+
+			first = false;
+
+			String key = entry.getKey();
+			shape.append(key).append(": ");
+
+			BsonValue value = entry.getValue();
+			if ((key.equals("$and") || key.equals("$or") || key.equals("$nor")) && value.isArray()) {
+				shape.append("[");
+
+				BsonArray array = value.asArray();
+				for (int i = 0; i < array.size(); i++) {
+					if (i != 0) {
+						shape.append(", ");
+					}
+
+					if (array.get(i).isDocument()) {
+						QueryMetrics.appendShape(shape, array.get(i).asDocument());
+					} else {
+						shape.append("?");
+					}
+				}
+
+				shape.append("]");
+			} else if (value.isDocument() && !value.asDocument().isEmpty() && value.asDocument().getFirstKey().startsWith("$")) {
+				QueryMetrics.appendShape(shape, value.asDocument());
+			} else {
+				shape.append("?");
+			}
+		}
+
+		shape.append("}");
+	}
+
+	private static long getDocuments(BsonDocument response) {
+		BsonValue cursor = response.get("cursor");
+		if (cursor != null && cursor.isDocument()) {
+			BsonValue batch = cursor.asDocument().get("firstBatch");
+			if (batch == null) {
+				batch = cursor.asDocument().get("nextBatch");
+			}
+
+			return batch != null && batch.isArray() ? batch.asArray().size() : 0;
+		}
+
+		BsonValue value = response.get("value");
+		if (value != null) {
+			return value.isNull() ? 0 : 1;
+		}
+
+		BsonValue n = response.get("n");
+
+		return n != null && n.isNumber() ? n.asNumber().longValue() : 0;
+	}
+
+	/**
+	 * @return the size of the reply, replies which were not read from the wire have no size and count as 0
+	 */
+	private static long getBytes(BsonDocument response) {
+		return response instanceof RawBsonDocument ? ((RawBsonDocument) response).getByteBuffer().remaining() : 0;
+	}
+
+	private static long getCursorId(BsonDocument response) {
+		BsonValue cursor = response.get("cursor");
+		if (cursor == null || !cursor.isDocument()) {
+			return 0;
+		}
+
+		BsonValue id = cursor.asDocument().get("id");
+
+		return id != null && id.isNumber() ? id.asNumber().longValue() : 0;
+	}
+
+	public List<Shape> getShapes() {
+		return new ArrayList<>(this.shapes.values());
+	}
+
+	/**
+	 * @return the query shapes which took the most time in total first
+	 */
+	public List<Shape> getSlowestShapes(int limit) {
+		List<Shape> shapes = this.getShapes();
+		shapes.sort(Comparator.comparingLong(Shape::getTotalNanos).reversed());
+
+		return shapes.subList(0, Math.min(limit, shapes.size()));
+	}
+
+	public void reset() {
+		this.shapes.clear();
+		this.cursors.clear();
+		this.resetAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * @return every query shape as json, so the numbers can be compared between deploys
+	 */
+	public String toJson() {
+		List<Document> shapes = new ArrayList<>();
+		for (Shape shape : this.getSlowestShapes(Integer.MAX_VALUE)) {
+			shapes.add(shape.toDocument());
+		}
+
+		return new Document("since", this.resetAt)
+			.append("latencyBuckets", QueryMetrics.getBucketNames())
+			.append("shapes", shapes)
+			.toJson();
+	}
+
+	private static List<String> getBucketNames() {
+		List<String> names = new ArrayList<>(LATENCY_BUCKETS.length + 1);
+		for (long bucket : LATENCY_BUCKETS) {
+			names.add("<" + bucket + "ms");
+		}
+
+		names.add(">=" + LATENCY_BUCKETS[LATENCY_BUCKETS.length - 1] + "ms");
+
+		return names;
+	}
+
+}
@@ -0,0 +1,142 @@
+package com.sx4.bot.database;
+
+import java.util.function.Function;
+
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.FindIterable;
+import com.mongodb.client.MongoCollection;
+
+/**
+ * A query the bot runs declared with its filter, sort and projection so the {@link IndexAdvisor} can explain it,
+ * the filter takes the values of the query and the sample values are used when explaining it
+ */
+public class QueryShape {
+
+	public enum Type {
+		FIND,
+		COUNT;
+	}
+
+	private final String name;
+	private final String collection;
+	private final Type type;
+
+	private final Function<Object[], Bson> filter;
+	private final Object[] sample;
+
+	private Bson sort = null;
+	private Bson projection = null;
+
+	public QueryShape(String name, String collection, Type type, Function<Object[], Bson> filter, Object... sample) {
+		this.name = name;
+		this.collection = collection;
+		this.type = type;
+		this.filter = filter;
+		this.sample = sample;
+	}
+
+	public static QueryShape find(String name, String collection, Function<Object[], Bson> filter, Object... sample) {
+		return new QueryShape(name, collection, Type.FIND, filter, sample);
+	}
+
+	public static QueryShape count(String name, String collection, Function<Object[], Bson> filter, Object... sample) {
+		return new QueryShape(name, collection, Type.COUNT, filter, sample);
+	}
+
+	public QueryShape setSort(Bson sort) {
+		this.sort = sort;
+
+		return this;
+	}
+
+	public QueryShape setProjection(Bson projection) {
+		this.projection = projection;
+
+		return this;
+	}
+
+	public String getName() {
+		return this.name;
+	}
+
+	public String getCollection() {
+		return this.collection;
+	}
+
+	public Type getType() {
+		return this.type;
+	}
+
+	public Bson getFilter(Object... values) {
+		return this.filter.apply(values);
+	}
+
+	public Bson getSort() {
+		return this.sort;
+	}
+
+	public Bson getProjection() {
+		return this.projection;
+	}
+
+	public FindIterable<Document> find(MongoCollection<Document> collection, Object... values) {
+		FindIterable<Document> iterable = collection.find(this.getFilter(values));
+		if (this.sort != null) {
+			iterable.sort(this.sort);
+		}
+
+		if (this.projection != null) {
+			iterable.projection(this.projection);
+		}
+
+		return iterable;
+	}
+
+	public long count(MongoCollection<Document> collection, Object... values) {
+		return collection.countDocuments(this.getFilter(values));
+	}
+
+	public Iterable<Document> find(StorageCollection collection, Object... values) {
+		return collection.find(this.getFilter(values), this.projection, this.sort);
+	}
+
+	public long count(StorageCollection collection, Object... values) {
+		return collection.countDocuments(this.getFilter(values));
+	}
+
+	/**
+	 * @return the command to explain this query with the sample values
+	 */
+	public Document getExplainCommand() {
+		BsonDocument filter = QueryShape.toBsonDocument(this.getFilter(this.sample));
+
+		Document command;
+		if (this.type == Type.COUNT) {
+			command = new Document("count", this.collection).append("query", filter);
+		} else {
+			command = new Document("find", this.collection).append("filter", filter);
+			if (this.sort != null) {
+				command.append("sort", QueryShape.toBsonDocument(this.sort));
+			}
+
+			if (this.projection != null) {
+				command.append("projection", QueryShape.toBsonDocument(this.projection));
+			}
+		}
+
+		return new Document("explain", command).append("verbosity", "queryPlanner");
+	}
+
+	private static BsonDocument toBsonDocument(Bson bson) {
+		return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+	}
+
+	public String toString() {
+		return this.name + " (" + this.collection + ")";
+	}
+
+}
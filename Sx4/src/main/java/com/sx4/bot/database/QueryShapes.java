@@ -0,0 +1,69 @@
+package com.sx4.bot.database;
+
+import java.util.List;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
+import com.sx4.bot.core.JobScheduler;
+
+/**
+ * Every query which reads more than one document by _id, these are explained by the {@link IndexAdvisor}
+ * so a query which is missing an index shows up as a collection scan
+ */
+public class QueryShapes {
+
+	public static final QueryShape BANK_LEADERBOARD = QueryShape.find("leaderboard bank", "users", values -> Filters.and(Filters.exists("economy.balance"), Filters.ne("economy.balance", 0)))
+		.setProjection(Projections.include("economy.balance"));
+
+	public static final QueryShape WINNINGS_LEADERBOARD = QueryShape.find("leaderboard winnings", "users", values -> Filters.and(Filters.exists("economy.winnings"), Filters.ne("economy.winnings", 0)))
+		.setProjection(Projections.include("economy.winnings"));
+
+	public static final QueryShape REPUTATION_LEADERBOARD = QueryShape.find("leaderboard reputation", "users", values -> Filters.and(Filters.exists("reputation.amount"), Filters.ne("reputation.amount", 0)))
+		.setProjection(Projections.include("reputation.amount"));
+
+	public static final QueryShape STREAK_LEADERBOARD = QueryShape.find("leaderboard streak", "users", values -> Filters.and(Filters.exists("economy.streak"), Filters.ne("economy.streak", 0)))
+		.setProjection(Projections.include("economy.streak"));
+
+	public static final QueryShape BIRTHDAYS = QueryShape.find("birthdays", "users", values -> Filters.exists("profile.birthday"))
+		.setProjection(Projections.include("profile.birthday"));
+
+	public static final QueryShape YOUTUBE_UPLOADER_COUNT = QueryShape.count("youtube uploader", "guilds", values -> Filters.elemMatch("youtubeNotifications", Filters.eq("uploaderId", values[0])), "UCBR8-60-B28hp2BmDPdntcQ");
+
+	public static final QueryShape MODLOG_CASE = QueryShape.find("modlog case", "modLogs", values -> Filters.and(Filters.eq("id", values[0]), Filters.eq("guildId", values[1])), 1, 0L);
+
+	public static final QueryShape MODLOG_CASES = QueryShape.find("modlog cases", "modLogs", values -> Filters.and(Filters.eq("guildId", values[0]), Filters.in("id", (Object[]) values[1])), 0L, new Object[] {1, 2})
+		.setProjection(Projections.include("moderatorId", "messageId", "id"));
+
+	public static final QueryShape GUILDS_GAINED = QueryShape.find("guilds gained", "guildLogs", values -> Filters.gte("timestamp", values[0]), 0L)
+		.setProjection(Projections.include("joined"));
+
+	public static final QueryShape JOBS_DUE = QueryShape.find("jobs due", "jobs", values -> Filters.and(Filters.lte("dueAt", values[0]), JobScheduler.getLeaseFilter((long) values[1], (String) values[2])), 0L, 0L, "")
+		.setSort(Sorts.ascending("dueAt"));
+
+	public static final QueryShape COMMANDS_USED = QueryShape.count("commands used", "commandLogs", values -> Filters.gte("timestamp", values[0]), 0L);
+
+	public static final QueryShape NOTIFICATIONS_BY_VIDEO = QueryShape.find("notifications by video", "notifications", values -> Filters.eq("videoId", values[0]), "");
+
+	public static final QueryShape AUCTION_BY_ITEM = QueryShape.find("auction by item", "auction", values -> Filters.eq("item.name", values[0]), "");
+
+	public static final QueryShape AUCTION_BY_OWNER = QueryShape.find("auction by owner", "auction", values -> Filters.eq("ownerId", values[0]), 0L);
+
+	public static final List<QueryShape> ALL = List.of(
+		BANK_LEADERBOARD,
+		WINNINGS_LEADERBOARD,
+		REPUTATION_LEADERBOARD,
+		STREAK_LEADERBOARD,
+		BIRTHDAYS,
+		YOUTUBE_UPLOADER_COUNT,
+		MODLOG_CASE,
+		MODLOG_CASES,
+		GUILDS_GAINED,
+		JOBS_DUE,
+		COMMANDS_USED,
+		NOTIFICATIONS_BY_VIDEO,
+		AUCTION_BY_ITEM,
+		AUCTION_BY_OWNER
+	);
+
+}
@@ -0,0 +1,20 @@
+package com.sx4.bot.database;
+
+/**
+ * Where the collections of a database are stored, {@link Database} only talks to its collections through this
+ * so the bot can be run against MongoDB or against memory when load testing on a machine without mongod
+ */
+public interface Storage {
+
+	public enum Type {
+		MONGO,
+		MEMORY;
+	}
+
+	public Type getType();
+
+	public String getName();
+
+	public StorageCollection getCollection(String name);
+
+}
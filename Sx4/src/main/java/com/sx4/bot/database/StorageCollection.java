@@ -0,0 +1,54 @@
+package com.sx4.bot.database;
+
+import java.util.List;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+
+/**
+ * The operations the bot runs against a single collection, these mirror the {@link com.mongodb.client.MongoCollection}
+ * methods of the same name and a null filter, projection or sort means none
+ */
+public interface StorageCollection {
+
+	public String getName();
+
+	public Document findOne(Bson filter, Bson projection, Bson sort);
+
+	public Iterable<Document> find(Bson filter, Bson projection, Bson sort);
+
+	public long countDocuments(Bson filter);
+
+	public void insertOne(Document document);
+
+	public void insertMany(List<Document> documents, boolean ordered);
+
+	public UpdateResult updateOne(Bson filter, Bson update, UpdateOptions updateOptions);
+
+	public UpdateResult updateMany(Bson filter, Bson update);
+
+	public Document findOneAndUpdate(Bson filter, Bson update, FindOneAndUpdateOptions findOneAndUpdateOptions);
+
+	public DeleteResult deleteOne(Bson filter);
+
+	public DeleteResult deleteMany(Bson filter);
+
+	public BulkWriteResult bulkWrite(List<? extends WriteModel<Document>> bulkData, BulkWriteOptions bulkWriteOptions);
+
+	/**
+	 * @return this collection with writes which are acknowledged once they are in the journal
+	 */
+	public StorageCollection withJournaledWrites();
+
+	public void createIndexes(List<IndexModel> indexes);
+
+}
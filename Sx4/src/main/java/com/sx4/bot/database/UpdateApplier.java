@@ -0,0 +1,363 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+/**
+ * Applies MongoDB update operators to a document in memory, this covers the subset of update operators the bot uses
+ * including array filters and throws an {@link UnsupportedOperationException} for anything else
+ */
+public class UpdateApplier {
+
+	private static final Object UNCHANGED = new Object();
+	private static final Object REMOVE = new Object();
+
+	private interface Operation {
+
+		public Object apply(Object value, boolean exists);
+
+	}
+
+	/**
+	 * Applies the update to the document, the document is modified so callers should pass a copy of anything which is shared
+	 */
+	public static void apply(Document document, Bson update, List<? extends Bson> arrayFilters) {
+		Map<String, List<Document>> filters = UpdateApplier.getArrayFilters(arrayFilters);
+
+		for (Map.Entry<String, Object> entry : FilterMatcher.toDocument(update).entrySet()) {
+			String operator = entry.getKey();
+			if (!(entry.getValue() instanceof Document)) {
+				throw new UnsupportedOperationException("Replacement updates can not be applied in memory");
+			}
+
+			for (Map.Entry<String, Object> field : ((Document) entry.getValue()).entrySet()) {
+				UpdateApplier.apply(document, operator, field.getKey(), field.getValue(), filters);
+			}
+		}
+	}
+
+	public static void apply(Document document, String operator, String path, Object operand, Map<String, List<Document>> filters) {
+		switch (operator) {
+			case "$set":
+				UpdateApplier.update(document, path, filters, true, (value, exists) -> DocumentCache.copy(operand));
+				break;
+			case "$setOnInsert":
+				break;
+			case "$unset":
+				UpdateApplier.update(document, path, filters, false, (value, exists) -> exists ? REMOVE : UNCHANGED);
+				break;
+			case "$inc":
+				UpdateApplier.update(document, path, filters, true, (value, exists) -> exists ? UpdateApplier.add((Number) value, (Number) operand) : operand);
+				break;
+			case "$mul":
+				UpdateApplier.update(document, path, filters, true, (value, exists) -> exists ? UpdateApplier.multiply((Number) value, (Number) operand) : UpdateApplier.multiply(operand instanceof Double ? 0D : 0, (Number) operand));
+				break;
+			case "$min":
+			case "$max":
+				int direction = operator.equals("$min") ? -1 : 1;
+				UpdateApplier.update(document, path, filters, true, (value, exists) -> {
+					if (!exists) {
+						return operand;
+					}
+
+					Integer comparison = FilterMatcher.compare(operand, value);
+					if (comparison == null) {
+						throw new UnsupportedOperationException("Can not compare " + value + " to " + operand);
+					}
+
+					return Integer.signum(comparison) == direction ? operand : UNCHANGED;
+				});
+
+				break;
+			case "$bit":
+				UpdateApplier.update(document, path, filters, true, (value, exists) -> UpdateApplier.bitwise(exists ? (Number) value : 0, (Document) operand));
+				break;
+			case "$push":
+			case "$addToSet":
+				boolean set = operator.equals("$addToSet");
+				List<Object> values = UpdateApplier.getEach(operand);
+				UpdateApplier.update(document, path, filters, true, (value, exists) -> {
+					List<Object> list = UpdateApplier.getList(value, exists);
+					for (Object element : values) {
+						if (!set || !UpdateApplier.contains(list, element)) {
+							list.add(DocumentCache.copy(element));
+						}
+					}
+
+					return list;
+				});
+
+				break;
+			case "$pull":
+				UpdateApplier.update(document, path, filters, false, (value, exists) -> {
+					if (!exists || value == null) {
+						return UNCHANGED;
+					}
+
+					List<Object> list = UpdateApplier.getList(value, true);
+					list.removeIf(element -> UpdateApplier.matchesPull(element, operand));
+
+					return list;
+				});
+
+				break;
+			case "$pullAll":
+				UpdateApplier.update(document, path, filters, false, (value, exists) -> {
+					if (!exists || value == null) {
+						return UNCHANGED;
+					}
+
+					List<Object> list = UpdateApplier.getList(value, true);
+					list.removeIf(element -> UpdateApplier.contains((List<?>) operand, element));
+
+					return list;
+				});
+
+				break;
+			case "$pop":
+				UpdateApplier.update(document, path, filters, false, (value, exists) -> {
+					if (!exists || value == null) {
+						return UNCHANGED;
+					}
+
+					List<Object> list = UpdateApplier.getList(value, true);
+					if (!list.isEmpty()) {
+						list.remove(((Number) operand).intValue() < 0 ? 0 : list.size() - 1);
+					}
+
+					return list;
+				});
+
+				break;
+			default:
+				throw new UnsupportedOperationException("Unsupported update operator " + operator);
+		}
+	}
+
+	private static Map<String, List<Document>> getArrayFilters(List<? extends Bson> arrayFilters) {
+		Map<String, List<Document>> filters = new HashMap<>();
+		if (arrayFilters == null) {
+			return filters;
+		}
+
+		for (Bson arrayFilter : arrayFilters) {
+			UpdateApplier.addArrayFilter(filters, FilterMatcher.toDocument(arrayFilter));
+		}
+
+		return filters;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addArrayFilter(Map<String, List<Document>> filters, Document filter) {
+		for (Map.Entry<String, Object> entry : filter.entrySet()) {
+			String key = entry.getKey();
+			if (key.equals("$and")) {
+				for (Document subFilter : (List<Document>) entry.getValue()) {
+					UpdateApplier.addArrayFilter(filters, subFilter);
+				}
+
+				continue;
+			} else if (key.startsWith("$")) {
+				throw new UnsupportedOperationException("Unsupported array filter operator " + key);
+			}
+
+			int index = key.indexOf('.');
+
+			String identifier = index == -1 ? key : key.substring(0, index);
+			String field = index == -1 ? null : key.substring(index + 1);
+
+			filters.computeIfAbsent(identifier, k -> new ArrayList<>()).add(new Document(field == null ? "" : field, entry.getValue()));
+		}
+	}
+
+	private static boolean matchesArrayFilter(Object element, List<Document> conditions) {
+		for (Document condition : conditions) {
+			Map.Entry<String, Object> entry = condition.entrySet().iterator().next();
+			if (entry.getKey().isEmpty()) {
+				if (!FilterMatcher.matchesValue(element, entry.getValue())) {
+					return false;
+				}
+			} else if (!(element instanceof Document) || !FilterMatcher.matchesField((Document) element, entry.getKey(), entry.getValue())) {
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	private static boolean matchesPull(Object element, Object condition) {
+		if (condition instanceof Document && !FilterMatcher.isOperatorDocument(condition)) {
+			return element instanceof Document && FilterMatcher.matchesDocument((Document) element, (Document) condition);
+		}
+
+		return FilterMatcher.matchesValue(element, condition);
+	}
+
+	private static boolean contains(List<?> list, Object value) {
+		for (Object element : list) {
+			if (FilterMatcher.valueEquals(element, value)) {
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> getEach(Object operand) {
+		if (operand instanceof Document && ((Document) operand).containsKey("$each")) {
+			Document modifiers = (Document) operand;
+			if (modifiers.size() != 1) {
+				throw new UnsupportedOperationException("Unsupported push modifiers " + modifiers.keySet());
+			}
+
+			return (List<Object>) modifiers.get("$each");
+		}
+
+		return Collections.singletonList(operand);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> getList(Object value, boolean exists) {
+		if (!exists || value == null) {
+			return new ArrayList<>();
+		} else if (value instanceof List) {
+			return (List<Object>) value;
+		}
+
+		throw new UnsupportedOperationException("Can not apply an array operator to a non array field");
+	}
+
+	static Number add(Number value, Number operand) {
+		if (value instanceof Double || operand instanceof Double) {
+			return value.doubleValue() + operand.doubleValue();
+		} else if (value instanceof Long || operand instanceof Long) {
+			return value.longValue() + operand.longValue();
+		}
+
+		long result = value.longValue() + operand.longValue();
+
+		return result == (int) result ? (Number) (int) result : (Number) result;
+	}
+
+	private static Number multiply(Number value, Number operand) {
+		if (value instanceof Double || operand instanceof Double) {
+			return value.doubleValue() * operand.doubleValue();
+		} else if (value instanceof Long || operand instanceof Long) {
+			return value.longValue() * operand.longValue();
+		}
+
+		long result = value.longValue() * operand.longValue();
+
+		return result == (int) result ? (Number) (int) result : (Number) result;
+	}
+
+	private static Number bitwise(Number value, Document operand) {
+		long result = value.longValue();
+		boolean isLong = value instanceof Long;
+		for (Map.Entry<String, Object> entry : operand.entrySet()) {
+			Number bits = (Number) entry.getValue();
+			isLong |= bits instanceof Long;
+
+			switch (entry.getKey()) {
+				case "and":
+					result &= bits.longValue();
+					break;
+				case "or":
+					result |= bits.longValue();
+					break;
+				case "xor":
+					result ^= bits.longValue();
+					break;
+				default:
+					throw new UnsupportedOperationException("Unsupported bitwise operator " + entry.getKey());
+			}
+		}
+
+		return isLong ? (Number) result : (Number) (int) result;
+	}
+
+	private static void update(Document document, String path, Map<String, List<Document>> filters, boolean create, Operation operation) {
+		UpdateApplier.update(document, path.split("\\."), 0, filters, create, operation);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void update(Object container, String[] path, int index, Map<String, List<Document>> filters, boolean create, Operation operation) {
+		String segment = path[index];
+		boolean last = index == path.length - 1;
+
+		if (container instanceof Document) {
+			if (segment.startsWith("$")) {
+				throw new UnsupportedOperationException("Positional operators can only be used on arrays");
+			}
+
+			Document document = (Document) container;
+			if (last) {
+				Object result = operation.apply(document.get(segment), document.containsKey(segment));
+				if (result == REMOVE) {
+					document.remove(segment);
+				} else if (result != UNCHANGED) {
+					document.put(segment, result);
+				}
+			} else {
+				Object child = document.get(segment);
+				if (child == null) {
+					if (!create) {
+						return;
+					}
+
+					child = new Document();
+					document.put(segment, child);
+				}
+
+				UpdateApplier.update(child, path, index + 1, filters, create, operation);
+			}
+		} else if (container instanceof List) {
+			List<Object> list = (List<Object>) container;
+
+			List<Integer> positions = new ArrayList<>();
+			if (segment.equals("$[]")) {
+				for (int i = 0; i < list.size(); i++) {
+					positions.add(i);
+				}
+			} else if (segment.startsWith("$[") && segment.endsWith("]")) {
+				List<Document> conditions = filters.get(segment.substring(2, segment.length() - 1));
+				if (conditions == null) {
+					throw new UnsupportedOperationException("No array filter found for " + segment);
+				}
+
+				for (int i = 0; i < list.size(); i++) {
+					if (UpdateApplier.matchesArrayFilter(list.get(i), conditions)) {
+						positions.add(i);
+					}
+				}
+			} else if (FilterMatcher.isIndex(segment) && Integer.parseInt(segment) < list.size()) {
+				positions.add(Integer.parseInt(segment));
+			} else {
+				throw new UnsupportedOperationException("Can not update " + segment + " of an array in memory");
+			}
+
+			for (int position : positions) {
+				if (last) {
+					Object result = operation.apply(list.get(position), true);
+					if (result == REMOVE) {
+						list.set(position, null);
+					} else if (result != UNCHANGED) {
+						list.set(position, result);
+					}
+				} else {
+					UpdateApplier.update(list.get(position), path, index + 1, filters, create, operation);
+				}
+			}
+		} else if (create || container != null) {
+			throw new UnsupportedOperationException("Can not create field " + segment + " in a non document value");
+		}
+	}
+
+}
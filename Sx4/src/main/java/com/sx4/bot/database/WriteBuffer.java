@@ -0,0 +1,482 @@
+package com.sx4.bot.database;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.WriteModel;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+
+/**
+ * Collects small $inc, $set, $push and $addToSet updates per document and writes them as one unordered bulk write
+ * every flush interval, updates to the same document are merged where the operators commute and the cached copy of
+ * the document is updated straight away so reads through the cache see buffered writes.
+ *
+ * Every update keeps the options it was buffered with, only updates which upsert the same way are merged.
+ */
+public class WriteBuffer {
+
+	private static final String STATISTICS_MESSAGE = "%s write buffer: %,d pending documents, %,d buffered, %,d merged, %,d written, %,d failed, %,d flushes";
+
+	private static final Set<String> OPERATORS = Set.of("$inc", "$set", "$push", "$addToSet");
+
+	private static final BulkWriteOptions BULK_WRITE_OPTIONS = new BulkWriteOptions().ordered(false);
+
+	/**
+	 * A set of updates to one document which can be written as a single update, updates which can not be merged
+	 * into it start a new segment which is written after it
+	 */
+	private static class Segment {
+
+		private final Document update = new Document();
+		private final Map<String, Document> arrayFilters = new LinkedHashMap<>();
+
+		private final List<CompletableFuture<Void>> futures = new ArrayList<>();
+
+		private final boolean upsert;
+
+		private Segment(boolean upsert) {
+			this.upsert = upsert;
+		}
+
+		private boolean canMerge(Document update, Map<String, Document> arrayFilters, boolean upsert) {
+			if (this.upsert != upsert) {
+				return false;
+			}
+
+			for (Map.Entry<String, Document> arrayFilter : arrayFilters.entrySet()) {
+				Document existing = this.arrayFilters.get(arrayFilter.getKey());
+				if (existing != null && !existing.equals(arrayFilter.getValue())) {
+					return false;
+				}
+			}
+
+			for (Map.Entry<String, Object> operation : update.entrySet()) {
+				String operator = operation.getKey();
+				for (Map.Entry<String, Object> field : ((Document) operation.getValue()).entrySet()) {
+					String path = field.getKey();
+					for (Map.Entry<String, Object> existingOperation : this.update.entrySet()) {
+						for (Map.Entry<String, Object> existingField : ((Document) existingOperation.getValue()).entrySet()) {
+							String existingPath = existingField.getKey();
+							if (!WriteBuffer.overlaps(path, existingPath)) {
+								continue;
+							}
+
+							if (!existingOperation.getKey().equals(operator) || !existingPath.equals(path)) {
+								return false;
+							}
+
+							if ((operator.equals("$push") || operator.equals("$addToSet")) && (!WriteBuffer.isEach(field.getValue()) || !WriteBuffer.isEach(existingField.getValue()))) {
+								return false;
+							}
+						}
+					}
+				}
+			}
+
+			return true;
+		}
+
+		private void merge(Document update, Map<String, Document> arrayFilters) {
+			this.arrayFilters.putAll(arrayFilters);
+
+			for (Map.Entry<String, Object> operation : update.entrySet()) {
+				String operator = operation.getKey();
+
+				Document fields = (Document) this.update.get(operator);
+				if (fields == null) {
+					fields = new Document();
+					this.update.put(operator, fields);
+				}
+
+				for (Map.Entry<String, Object> field : ((Document) operation.getValue()).entrySet()) {
+					String path = field.getKey();
+					Object value = field.getValue();
+					if (!fields.containsKey(path)) {
+						fields.put(path, DocumentCache.copy(value));
+
+						continue;
+					}
+
+					switch (operator) {
+						case "$inc":
+							fields.put(path, UpdateApplier.add((Number) fields.get(path), (Number) value));
+							break;
+						case "$set":
+							fields.put(path, DocumentCache.copy(value));
+							break;
+						case "$push":
+						case "$addToSet":
+							List<Object> values = new ArrayList<>(WriteBuffer.getEach(fields.get(path)));
+							values.addAll(WriteBuffer.getEach(DocumentCache.copy(value)));
+
+							fields.put(path, new Document("$each", values));
+							break;
+					}
+				}
+			}
+		}
+
+		private UpdateOneModel<Document> toModel(long id) {
+			UpdateOptions updateOptions = new UpdateOptions().upsert(this.upsert);
+			if (!this.arrayFilters.isEmpty()) {
+				updateOptions.arrayFilters(new ArrayList<>(this.arrayFilters.values()));
+			}
+
+			return new UpdateOneModel<>(Filters.eq("_id", id), this.update, updateOptions);
+		}
+
+	}
+
+	private final String name;
+
+	private final StorageCollection collection;
+	private final DocumentCache cache;
+
+	private final ScheduledExecutorService flushExecutor;
+
+	private final int maxPendingDocuments;
+
+	private final Object flushLock = new Object();
+
+	private TLongObjectMap<List<Segment>> pending = new TLongObjectHashMap<>();
+	private TLongObjectMap<List<Segment>> flushing = null;
+
+	private boolean flushScheduled = false;
+
+	private final AtomicLong buffered = new AtomicLong();
+	private final AtomicLong merged = new AtomicLong();
+	private final AtomicLong written = new AtomicLong();
+	private final AtomicLong failed = new AtomicLong();
+	private final AtomicLong flushes = new AtomicLong();
+
+	public WriteBuffer(String name, StorageCollection collection, DocumentCache cache, long flushInterval, TimeUnit unit, int maxPendingDocuments) {
+		this.name = name;
+		this.collection = collection;
+		this.cache = cache;
+		this.maxPendingDocuments = maxPendingDocuments;
+
+		this.flushExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+			.setNameFormat(name.toLowerCase() + "-write-buffer-%d")
+			.setDaemon(true)
+			.build());
+
+		this.flushExecutor.scheduleWithFixedDelay(this::flushSafely, flushInterval, flushInterval, unit);
+	}
+
+	private static boolean overlaps(String path, String otherPath) {
+		if (path.length() == otherPath.length()) {
+			return path.equals(otherPath);
+		}
+
+		String shorter = path.length() < otherPath.length() ? path : otherPath;
+		String longer = shorter == path ? otherPath : path;
+
+		return longer.startsWith(shorter) && longer.charAt(shorter.length()) == '.';
+	}
+
+	private static boolean isEach(Object value) {
+		if (!FilterMatcher.isOperatorDocument(value)) {
+			return true;
+		}
+
+		return ((Document) value).size() == 1 && ((Document) value).containsKey("$each");
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Object> getEach(Object value) {
+		if (value instanceof Document && ((Document) value).containsKey("$each")) {
+			return (List<Object>) ((Document) value).get("$each");
+		}
+
+		return Collections.singletonList(value);
+	}
+
+	private static Map<String, Document> getArrayFilters(List<? extends Bson> arrayFilters) {
+		Map<String, Document> filters = new HashMap<>();
+		if (arrayFilters == null) {
+			return filters;
+		}
+
+		for (Bson arrayFilter : arrayFilters) {
+			Document filter = FilterMatcher.toDocument(arrayFilter);
+
+			Set<String> identifiers = new HashSet<>();
+			for (String key : filter.keySet()) {
+				if (key.startsWith("$")) {
+					throw new IllegalArgumentException("Array filters with top level operators can not be buffered");
+				}
+
+				int index = key.indexOf('.');
+				identifiers.add(index == -1 ? key : key.substring(0, index));
+			}
+
+			if (identifiers.size() != 1) {
+				throw new IllegalArgumentException("Array filters have to reference exactly one identifier to be buffered");
+			}
+
+			filters.put(identifiers.iterator().next(), filter);
+		}
+
+		return filters;
+	}
+
+	/**
+	 * Buffers an update to the document with the id
+	 *
+	 * @param updateOptions the options the update would have been written with, only upsert and array filters can be buffered
+	 * @return a future which completes once the update has been written
+	 */
+	public CompletableFuture<Void> update(long id, Bson update, UpdateOptions updateOptions, WriteDurability durability) {
+		Document updateData = FilterMatcher.toDocument(update);
+		for (Map.Entry<String, Object> operation : updateData.entrySet()) {
+			if (!OPERATORS.contains(operation.getKey())) {
+				throw new IllegalArgumentException("Only " + OPERATORS + " can be buffered, use a direct update for " + operation.getKey());
+			}
+		}
+
+		if (updateOptions.getCollation() != null || updateOptions.getBypassDocumentValidation() != null || updateOptions.getHint() != null || updateOptions.getHintString() != null) {
+			throw new IllegalArgumentException("Only upsert and array filters can be buffered, use a direct update for any other options");
+		}
+
+		List<? extends Bson> arrayFilters = updateOptions.getArrayFilters();
+		Map<String, Document> filters = WriteBuffer.getArrayFilters(arrayFilters);
+
+		CompletableFuture<Void> future = new CompletableFuture<>();
+
+		boolean flush = false;
+		synchronized (this) {
+			List<Segment> segments = this.pending.get(id);
+			if (segments == null) {
+				segments = new ArrayList<>(1);
+				this.pending.put(id, segments);
+			}
+
+			Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+			if (segment == null || !segment.canMerge(updateData, filters, updateOptions.isUpsert())) {
+				segment = new Segment(updateOptions.isUpsert());
+				segments.add(segment);
+			} else {
+				this.merged.incrementAndGet();
+			}
+
+			segment.merge(updateData, filters);
+			segment.futures.add(future);
+
+			this.buffered.incrementAndGet();
+
+			/* Applied while holding the lock so a concurrent cache load either sees this write flushed or discards its result */
+			this.cache.beginWrite(id);
+			this.cache.endWrite(id, update, arrayFilters);
+
+			if (this.pending.size() >= this.maxPendingDocuments && !this.flushScheduled) {
+				this.flushScheduled = flush = true;
+			}
+		}
+
+		if (flush) {
+			this.flushExecutor.execute(this::flushSafely);
+		}
+
+		if (durability == WriteDurability.IMMEDIATE) {
+			this.flushExecutor.execute(() -> this.flush(id, false));
+		} else if (durability == WriteDurability.JOURNALED) {
+			this.flush(id, true);
+		}
+
+		return future;
+	}
+
+	public CompletableFuture<Void> update(long id, Bson update, UpdateOptions updateOptions) {
+		return this.update(id, update, updateOptions, WriteDurability.BUFFERED);
+	}
+
+	public synchronized boolean isPending(long id) {
+		return this.pending.containsKey(id) || (this.flushing != null && this.flushing.containsKey(id));
+	}
+
+	/**
+	 * Writes the pending updates to the document with the id, this should be called before any
+	 * direct write or read from the database of the document so the buffered updates are not reordered
+	 */
+	public void flush(long id) {
+		this.flush(id, false);
+	}
+
+	private void flush(long id, boolean journaled) {
+		if (!this.isPending(id)) {
+			return;
+		}
+
+		synchronized (this.flushLock) {
+			TLongObjectMap<List<Segment>> segments = new TLongObjectHashMap<>();
+			synchronized (this) {
+				List<Segment> documentSegments = this.pending.remove(id);
+				if (documentSegments == null) {
+					return;
+				}
+
+				segments.put(id, documentSegments);
+			}
+
+			this.write(segments, journaled ? this.collection.withJournaledWrites() : this.collection);
+		}
+	}
+
+	/**
+	 * Writes all pending updates
+	 */
+	public void flush() {
+		synchronized (this.flushLock) {
+			TLongObjectMap<List<Segment>> segments;
+			synchronized (this) {
+				this.flushScheduled = false;
+
+				if (this.pending.isEmpty()) {
+					return;
+				}
+
+				segments = this.pending;
+
+				this.pending = new TLongObjectHashMap<>();
+			}
+
+			this.write(segments, this.collection);
+		}
+	}
+
+	private void flushSafely() {
+		try {
+			this.flush();
+		} catch (Throwable e) {
+			e.printStackTrace();
+		}
+	}
+
+	private void write(TLongObjectMap<List<Segment>> segments, StorageCollection collection) {
+		this.flushes.incrementAndGet();
+
+		synchronized (this) {
+			this.flushing = new TLongObjectHashMap<>(segments);
+		}
+
+		try {
+			this.writeRounds(segments, collection);
+		} finally {
+			synchronized (this) {
+				this.flushing = null;
+			}
+		}
+	}
+
+	private void writeRounds(TLongObjectMap<List<Segment>> segments, StorageCollection collection) {
+		/* Segments of the same document have to be written in order so each round writes the next segment of every document */
+		for (int round = 0; !segments.isEmpty(); round++) {
+			List<WriteModel<Document>> bulkData = new ArrayList<>(segments.size());
+			List<Long> ids = new ArrayList<>(segments.size());
+			List<Segment> roundSegments = new ArrayList<>(segments.size());
+
+			for (long id : segments.keys()) {
+				List<Segment> documentSegments = segments.get(id);
+				if (round >= documentSegments.size()) {
+					segments.remove(id);
+
+					continue;
+				}
+
+				Segment segment = documentSegments.get(round);
+
+				bulkData.add(segment.toModel(id));
+				ids.add(id);
+				roundSegments.add(segment);
+			}
+
+			if (bulkData.isEmpty()) {
+				break;
+			}
+
+			Set<Integer> failedIndexes = new HashSet<>();
+			Throwable exception = null;
+			try {
+				collection.bulkWrite(bulkData, BULK_WRITE_OPTIONS);
+			} catch (MongoBulkWriteException e) {
+				for (BulkWriteError error : e.getWriteErrors()) {
+					failedIndexes.add(error.getIndex());
+				}
+
+				exception = e;
+			} catch (RuntimeException e) {
+				for (int i = 0; i < bulkData.size(); i++) {
+					failedIndexes.add(i);
+				}
+
+				exception = e;
+			}
+
+			for (int i = 0; i < roundSegments.size(); i++) {
+				Segment segment = roundSegments.get(i);
+				if (failedIndexes.contains(i)) {
+					long id = ids.get(i);
+
+					/* The cached copy has these updates applied and the later segments depend on them */
+					this.cache.invalidate(id);
+
+					List<Segment> documentSegments = segments.remove(id);
+					for (Segment failedSegment : documentSegments.subList(round, documentSegments.size())) {
+						this.failed.addAndGet(failedSegment.futures.size());
+
+						for (CompletableFuture<Void> future : failedSegment.futures) {
+							future.completeExceptionally(exception);
+						}
+					}
+				} else {
+					this.written.addAndGet(segment.futures.size());
+
+					for (CompletableFuture<Void> future : segment.futures) {
+						future.complete(null);
+					}
+				}
+			}
+		}
+	}
+
+	public synchronized int getPendingDocuments() {
+		return this.pending.size();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.name, this.getPendingDocuments(), this.buffered.get(), this.merged.get(), this.written.get(), this.failed.get(), this.flushes.get());
+	}
+
+	/**
+	 * Stops the periodic flush and writes everything which is still pending
+	 */
+	public void shutdown() {
+		this.flushExecutor.shutdown();
+
+		this.flush();
+	}
+
+}
@@ -0,0 +1,12 @@
+package com.sx4.bot.database;
+
+public enum WriteDurability {
+
+	/* Written with the next periodic flush, lost if the process dies before then */
+	BUFFERED,
+	/* Flushes the pending writes of the document straight away */
+	IMMEDIATE,
+	/* Flushes the pending writes of the document straight away and waits for them to be journaled */
+	JOURNALED;
+
+}
@@ -1,6 +1,9 @@
 package com.sx4.bot.events;
 
 import com.mongodb.client.model.*;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.cache.GuildMessageContext;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.utils.ModUtils;
 import net.dv8tion.jda.api.Permission;
@@ -24,15 +27,26 @@ public class AntiInviteEvents extends ListenerAdapter {
 
 	private Pattern inviteRegex = Pattern.compile("(?:.|\n)*(?:https?://)?(?:www.)?(?:discord.gg|(?:canary.)?discordapp.com/invite)/((?:[a-zA-Z0-9\\-]){2,32})(?:.|\n)*", Pattern.CASE_INSENSITIVE);	
 	
+	public static final String[] GUILD_FIELDS = {"antiinvite.enabled", "antiinvite.whitelist", "antiinvite.users", "antiinvite.action", "antiinvite.attempts"};
+	
+	public AntiInviteEvents() {
+		GuildMessageContext.declareGuildFields(AntiInviteEvents.GUILD_FIELDS);
+	}
+	
 	public void onGuildMessageReceived(GuildMessageReceivedEvent event) {		
 		if (event.getJDA().getSelfUser().equals(event.getAuthor()) || event.isWebhookMessage() || event.getMember().hasPermission(Permission.ADMINISTRATOR)) {
 			return;
 		}
 		
-		Matcher inviteMatch = this.inviteRegex.matcher(event.getMessage().getContentRaw());
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.ANTI_INVITE)) {
+			return;
+		}
+		
+		GuildMessageContext context = GuildMessageContext.get(event.getMessage());
+		
+		Matcher inviteMatch = this.inviteRegex.matcher(context.getContent());
 		if (inviteMatch.matches()) {
-			Bson projection = Projections.include("antiinvite.enabled", "antiinvite.whitelist", "antiinvite.users", "antiinvite.action", "antiinvite.attempts", "mute.users");
-			Document allData = Database.get().getGuildById(event.getGuild().getIdLong(), null, projection);
+			Document allData = context.getGuildData(AntiInviteEvents.GUILD_FIELDS);
 			
 			Document data = allData.get("antiinvite", Database.EMPTY_DOCUMENT);
 			if (!data.getBoolean("enabled", false)) {
@@ -144,14 +158,13 @@ public class AntiInviteEvents extends ListenerAdapter {
 								event.getGuild().addRoleToMember(event.getMember(), role).queue();
 								ModUtils.createModLogAndOffence(event.getGuild(), event.getJDA().getSelfUser(), event.getAuthor(), "Mute (Automatic)", reason);
 
-								UpdateOneModel<Document> muteModel = ModUtils.getMuteUpdate(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), allData.getEmbedded(List.of("mute", "users"), Collections.emptyList()), null);		
-								Bson update = Updates.combine(
-										muteModel.getUpdate(),
-										Updates.pull("antiinvite.users", Filters.eq("id", event.getAuthor().getIdLong()))
-								);
-								
+								ModUtils.updateMute(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), null, (result, exception) -> {
+									if (exception != null) {
+										exception.printStackTrace();
+									}
+								});
 								
-								Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, muteModel.getOptions(), (result, exception) -> {
+								Database.get().updateGuildById(event.getGuild().getIdLong(), Updates.pull("antiinvite.users", Filters.eq("id", event.getAuthor().getIdLong())), (result, exception) -> {
 									if (exception != null) {
 										exception.printStackTrace();
 									}
@@ -177,7 +190,7 @@ public class AntiInviteEvents extends ListenerAdapter {
 						}
 						
 						UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters).upsert(true);
-						Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+						Database.get().bufferGuildUpdate(event.getGuild().getIdLong(), update, updateOptions).whenComplete((result, exception) -> {
 							if (exception != null) {
 								exception.printStackTrace();
 							}
@@ -193,10 +206,15 @@ public class AntiInviteEvents extends ListenerAdapter {
 			return;
 		}
 		
-		Matcher inviteMatch = this.inviteRegex.matcher(event.getMessage().getContentRaw());
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.ANTI_INVITE)) {
+			return;
+		}
+		
+		GuildMessageContext context = GuildMessageContext.get(event.getMessage());
+		
+		Matcher inviteMatch = this.inviteRegex.matcher(context.getContent());
 		if (inviteMatch.matches()) {
-			Bson projection = Projections.include("antiinvite.enabled", "antiinvite.whitelist", "antiinvite.users", "antiinvite.action", "antiinvite.attempts", "mute.users");
-			Document allData = Database.get().getGuildById(event.getGuild().getIdLong(), null, projection);
+			Document allData = context.getGuildData(AntiInviteEvents.GUILD_FIELDS);
 			
 			Document data = allData.get("antiinvite", Database.EMPTY_DOCUMENT);
 			if (!data.getBoolean("enabled", false)) {
@@ -308,14 +326,13 @@ public class AntiInviteEvents extends ListenerAdapter {
 								event.getGuild().addRoleToMember(event.getMember(), role).queue();
 								ModUtils.createModLogAndOffence(event.getGuild(), event.getJDA().getSelfUser(), event.getAuthor(), "Mute (Automatic)", reason);
 								
-								UpdateOneModel<Document> muteModel = ModUtils.getMuteUpdate(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), allData.getEmbedded(List.of("mute", "users"), Collections.emptyList()), null);		
-								Bson update = Updates.combine(
-										muteModel.getUpdate(),
-										Updates.pull("antiinvite.users", Filters.eq("id", event.getAuthor().getIdLong()))
-								);
-								
+								ModUtils.updateMute(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), null, (result, exception) -> {
+									if (exception != null) {
+										exception.printStackTrace();
+									}
+								});
 								
-								Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, muteModel.getOptions(), (result, exception) -> {
+								Database.get().updateGuildById(event.getGuild().getIdLong(), Updates.pull("antiinvite.users", Filters.eq("id", event.getAuthor().getIdLong())), (result, exception) -> {
 									if (exception != null) {
 										exception.printStackTrace();
 									}
@@ -341,7 +358,7 @@ public class AntiInviteEvents extends ListenerAdapter {
 						}
 						
 						UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters).upsert(true);
-						Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+						Database.get().bufferGuildUpdate(event.getGuild().getIdLong(), update, updateOptions).whenComplete((result, exception) -> {
 							if (exception != null) {
 								exception.printStackTrace();
 							}
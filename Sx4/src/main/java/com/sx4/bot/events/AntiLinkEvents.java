@@ -10,10 +10,11 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.cache.GuildMessageContext;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.utils.ModUtils;
 
@@ -28,15 +29,26 @@ public class AntiLinkEvents extends ListenerAdapter {
 
 	private Pattern linkRegex = Pattern.compile(".*(https?|ftp|file)://[-a-zA-Z0-9+&@#/%?=~_|!:,.;]*[-a-zA-Z0-9+&@#/%=~_|].*");
 	
+	public static final String[] GUILD_FIELDS = {"antilink.enabled", "antilink.whitelist", "antilink.users", "antilink.action", "antilink.attempts"};
+	
+	public AntiLinkEvents() {
+		GuildMessageContext.declareGuildFields(AntiLinkEvents.GUILD_FIELDS);
+	}
+	
 	public void onGuildMessageReceived(GuildMessageReceivedEvent event) {		
 		if (event.getJDA().getSelfUser().equals(event.getAuthor()) || event.isWebhookMessage() || event.getMember().hasPermission(Permission.ADMINISTRATOR)) {
 			return;
 		}
 		
-		Matcher linkMatch = this.linkRegex.matcher(event.getMessage().getContentRaw());
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.ANTI_LINK)) {
+			return;
+		}
+		
+		GuildMessageContext context = GuildMessageContext.get(event.getMessage());
+		
+		Matcher linkMatch = this.linkRegex.matcher(context.getContent());
 		if (linkMatch.matches()) {
-			Bson projection = Projections.include("antilink.enabled", "antilink.whitelist", "antilink.users", "antilink.action", "antilink.attempts", "mute.users");
-			Document allData = Database.get().getGuildById(event.getGuild().getIdLong(), null, projection);
+			Document allData = context.getGuildData(AntiLinkEvents.GUILD_FIELDS);
 			
 			Document data = allData.get("antilink", Database.EMPTY_DOCUMENT);
 			if (!data.getBoolean("enabled", false)) {
@@ -142,14 +154,13 @@ public class AntiLinkEvents extends ListenerAdapter {
 							event.getGuild().addRoleToMember(event.getMember(), role).queue();
 							ModUtils.createModLogAndOffence(event.getGuild(), event.getJDA().getSelfUser(), event.getAuthor(), "Mute (Automatic)", reason);
 							
-							UpdateOneModel<Document> muteModel = ModUtils.getMuteUpdate(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), allData.getEmbedded(List.of("mute", "users"), Collections.emptyList()), null);		
-							Bson update = Updates.combine(
-									muteModel.getUpdate(),
-									Updates.pull("antiinvite.users", Filters.eq("id", event.getAuthor().getIdLong()))
-							);
-							
+							ModUtils.updateMute(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), null, (result, exception) -> {
+								if (exception != null) {
+									exception.printStackTrace();
+								}
+							});
 							
-							Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, muteModel.getOptions(), (result, exception) -> {
+							Database.get().updateGuildById(event.getGuild().getIdLong(), Updates.pull("antilink.users", Filters.eq("id", event.getAuthor().getIdLong())), (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
@@ -175,7 +186,7 @@ public class AntiLinkEvents extends ListenerAdapter {
 					}
 					
 					UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters).upsert(true);
-					Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+					Database.get().bufferGuildUpdate(event.getGuild().getIdLong(), update, updateOptions).whenComplete((result, exception) -> {
 						if (exception != null) {
 							exception.printStackTrace();
 						}
@@ -190,10 +201,15 @@ public class AntiLinkEvents extends ListenerAdapter {
 			return;
 		}
 		
-		Matcher linkMatch = this.linkRegex.matcher(event.getMessage().getContentRaw());
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.ANTI_LINK)) {
+			return;
+		}
+		
+		GuildMessageContext context = GuildMessageContext.get(event.getMessage());
+		
+		Matcher linkMatch = this.linkRegex.matcher(context.getContent());
 		if (linkMatch.matches()) {
-			Bson projection = Projections.include("antilink.enabled", "antilink.whitelist", "antilink.users", "antilink.action", "antilink.attempts", "mute.users");
-			Document allData = Database.get().getGuildById(event.getGuild().getIdLong(), null, projection);
+			Document allData = context.getGuildData(AntiLinkEvents.GUILD_FIELDS);
 			
 			Document data = allData.get("antilink", Database.EMPTY_DOCUMENT);
 			if (!data.getBoolean("enabled", false)) {
@@ -299,14 +315,13 @@ public class AntiLinkEvents extends ListenerAdapter {
 							event.getGuild().addRoleToMember(event.getMember(), role).queue();
 							ModUtils.createModLogAndOffence(event.getGuild(), event.getJDA().getSelfUser(), event.getAuthor(), "Mute (Automatic)", reason);
 							
-							UpdateOneModel<Document> muteModel = ModUtils.getMuteUpdate(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), allData.getEmbedded(List.of("mute", "users"), Collections.emptyList()), null);		
-							Bson update = Updates.combine(
-									muteModel.getUpdate(),
-									Updates.pull("antiinvite.users", Filters.eq("id", event.getAuthor().getIdLong()))
-							);
-							
+							ModUtils.updateMute(event.getGuild().getIdLong(), event.getAuthor().getIdLong(), null, (result, exception) -> {
+								if (exception != null) {
+									exception.printStackTrace();
+								}
+							});
 							
-							Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, muteModel.getOptions(), (result, exception) -> {
+							Database.get().updateGuildById(event.getGuild().getIdLong(), Updates.pull("antilink.users", Filters.eq("id", event.getAuthor().getIdLong())), (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
@@ -332,7 +347,7 @@ public class AntiLinkEvents extends ListenerAdapter {
 					}
 					
 					UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters).upsert(true);
-					Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+					Database.get().bufferGuildUpdate(event.getGuild().getIdLong(), update, updateOptions).whenComplete((result, exception) -> {
 						if (exception != null) {
 							exception.printStackTrace();
 						}
@@ -1,19 +1,21 @@
 package com.sx4.bot.events;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.bson.Document;
 
-import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
-import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.database.Database;
 
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.events.guild.member.GuildMemberJoinEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.dv8tion.jda.api.sharding.ShardManager;
 
 public class AutoroleEvents extends ListenerAdapter {
 
@@ -61,13 +63,20 @@ public class AutoroleEvents extends ListenerAdapter {
 		}
 	}
 	
-	public static void ensureAutoroles() {
-		ShardManager shardManager = Sx4Bot.getShardManager();
-		FindIterable<Document> allData = Database.get().getGuilds().find().projection(Projections.include("autorole.autoUpdate", "autorole.enabled", "autorole.roleId", "autorole.botRoleId"));
+	/**
+	 * Gives the autoroles to members of the guilds on the shard who joined while the bot was offline
+	 */
+	public static void ensureAutoroles(JDA shard) {
+		List<Long> guildIds = new ArrayList<>();
+		for (Guild guild : shard.getGuilds()) {
+			guildIds.add(guild.getIdLong());
+		}
+		
+		Iterable<Document> allData = Database.get().getGuilds(Filters.in("_id", guildIds), Projections.include("autorole.autoUpdate", "autorole.enabled", "autorole.roleId", "autorole.botRoleId"));
 		allData.forEach((Document data) -> {
 			Document autoroleData = data.get("autorole", Database.EMPTY_DOCUMENT);
 			if (autoroleData.getBoolean("enabled", false) && autoroleData.getBoolean("autoUpdate", true)) {
-				Guild guild = shardManager.getGuildById(data.getLong("_id"));
+				Guild guild = shard.getGuildById(data.getLong("_id"));
 				if (guild != null) {
 					Member self = guild.getSelfMember();
 					if (self.hasPermission(Permission.MANAGE_ROLES)) {
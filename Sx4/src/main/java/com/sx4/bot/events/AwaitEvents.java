@@ -59,7 +59,10 @@ public class AwaitEvents extends ListenerAdapter {
 	}
 	
 	public static void ensureAwaitData() {
-		awaitData = Database.get().getUsers().find(Filters.exists("await.users")).projection(Projections.include("await.users")).into(new ArrayList<>());
+		List<Document> allData = new ArrayList<>();
+		Database.get().getUsers(Filters.exists("await.users"), Projections.include("await.users")).forEach(allData::add);
+		
+		awaitData = allData;
 	}
 
 	public void onUserUpdateOnlineStatus(UserUpdateOnlineStatusEvent event) {
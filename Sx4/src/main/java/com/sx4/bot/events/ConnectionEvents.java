@@ -1,10 +1,19 @@
 package com.sx4.bot.events;
 
+import java.lang.management.ManagementFactory;
 import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import com.sx4.api.Main;
+import com.sx4.bot.cache.PopulationCache;
 import com.sx4.bot.cache.SteamCache;
+import com.sx4.bot.core.JobScheduler;
 import com.sx4.bot.core.Sx4Bot;
+import com.sx4.bot.core.WarmUp;
+import com.sx4.bot.database.Database;
 import com.sx4.bot.economy.Item;
 import com.sx4.bot.settings.Settings;
 import com.sx4.bot.utils.HelpUtils;
@@ -15,6 +24,7 @@ import club.minnced.discord.webhook.send.WebhookEmbed.EmbedAuthor;
 import club.minnced.discord.webhook.send.WebhookEmbed.EmbedField;
 import club.minnced.discord.webhook.send.WebhookEmbed.EmbedFooter;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.events.DisconnectEvent;
 import net.dv8tion.jda.api.events.GatewayPingEvent;
 import net.dv8tion.jda.api.events.ReadyEvent;
@@ -32,38 +42,62 @@ public class ConnectionEvents extends ListenerAdapter {
 	
 	private WebhookClient webhook = new WebhookClientBuilder(Settings.EVENTS_WEBHOOK_ID, Settings.EVENTS_WEBHOOK_TOKEN).build();
 	
-	private int readyEventsCalled = 0;
+	/* Ready events of different shards can be handled at the same time */
+	private final AtomicInteger readyEventsCalled = new AtomicInteger(0);
+	
+	/* Completed once the mute roles of each shard have been loaded whether that worked or not */
+	private final List<CompletableFuture<Void>> muteRoles = new CopyOnWriteArrayList<>();
 	
 	public void onReady(ReadyEvent event) {
-		this.readyEventsCalled++;
-		if (this.readyEventsCalled == Sx4Bot.getShardManager().getShardsTotal()) {
+		JDA shard = event.getJDA();
+		
+		/* Each shard warms up its own guilds as soon as it is ready rather than waiting for every other shard */
+		WarmUp shardWarmUp = new WarmUp("shard " + (shard.getShardInfo().getShardId() + 1) + "/" + shard.getShardInfo().getShardTotal())
+			.addStage("database migration", Database.get().getMigration())
+			.addTask("mute roles", () -> MuteEvents.ensureMuteRoles(shard), "database migration")
+			.addTask("autoroles", () -> AutoroleEvents.ensureAutoroles(shard));
+		
+		shardWarmUp.run();
+		
+		this.muteRoles.add(shardWarmUp.getTask("mute roles").handle((result, exception) -> null));
+		
+		if (this.readyEventsCalled.incrementAndGet() == Sx4Bot.getShardManager().getShardsTotal()) {
 			int availableGuilds = event.getGuildAvailableCount();
 			int totalGuilds = event.getGuildTotalCount();
-			System.out.println(String.format("Connected to %s with %,d/%,d available servers and %,d users", event.getJDA().getSelfUser().getAsTag(), availableGuilds, totalGuilds, Sx4Bot.getShardManager().getUsers().size()));
-			
-			try {
-				Main.initiateWebserver();
-			} catch(Exception e) {
-				e.printStackTrace();
-			}
+			System.out.println(String.format("Connected to %s with %,d/%,d available servers and %,d users", shard.getSelfUser().getAsTag(), availableGuilds, totalGuilds, PopulationCache.INSTANCE.getUsers()));
 			
-			NotificationEvents.get().ensureWebhooks();
-			Sx4Bot.getYouTubeManager().ensureResubscriptions();
-			SteamCache.getGames();
-			HelpUtils.ensureAdvertisement();
-			StatusEvents.initialize();
-			ServerPostEvents.initializePosting();
-			MuteEvents.ensureMuteRoles();
-			StatsEvents.initializeBotLogs();
-			StatsEvents.initializeGuildStats();
-			ReminderEvents.ensureReminders();
-			GiveawayEvents.ensureGiveaways();
-			AwaitEvents.ensureAwaitData();
-			MuteEvents.ensureMutes();
-			AutoroleEvents.ensureAutoroles();
-			Item.loadConfig();
+			/* Jobs run handlers which expect the webserver to be up and the mute roles of every shard to be loaded, only the mute roles and mute jobs wait for the database migration */
+			WarmUp warmUp = new WarmUp("all shards")
+				.addStage("database migration", Database.get().getMigration())
+				.addStage("mute roles", CompletableFuture.allOf(this.muteRoles.toArray(CompletableFuture[]::new)))
+				/* Timed jobs still have to run if the webserver can not be started so the failure is only logged */
+				.addTask("webserver", () -> {
+					try {
+						Main.initiateWebserver();
+					} catch(Exception e) {
+						e.printStackTrace();
+					}
+				})
+				.addTask("webhooks", () -> NotificationEvents.get().ensureWebhooks())
+				.addTask("jobs", () -> JobScheduler.INSTANCE.start(), "webserver", "mute roles")
+				.addResultTask("youtube jobs", () -> String.format("%,d migrated", Sx4Bot.getYouTubeManager().migrateJobs()), "jobs")
+				.addResultTask("reminder jobs", () -> String.format("%,d migrated", ReminderEvents.migrateJobs()), "jobs")
+				.addResultTask("giveaway jobs", () -> String.format("%,d migrated", GiveawayEvents.migrateJobs()), "jobs")
+				/* Mutes are read from the mutes collection so they have to wait for every guild to be migrated to it */
+				.addResultTask("mute jobs", () -> String.format("%,d migrated", MuteEvents.migrateJobs()), "jobs", "database migration")
+				.addTask("steam games", () -> SteamCache.getGames())
+				.addTask("advertisement", () -> HelpUtils.ensureAdvertisement())
+				.addTask("status", () -> StatusEvents.initialize())
+				.addTask("server posting", () -> ServerPostEvents.initializePosting())
+				.addTask("bot logs", () -> StatsEvents.initializeBotLogs())
+				.addTask("guild stats", () -> StatsEvents.initializeGuildStats())
+				.addTask("await data", () -> AwaitEvents.ensureAwaitData())
+				.addTask("economy items", () -> Item.loadConfig())
+				.addTask("population reconciliation", () -> PopulationCache.INSTANCE.initialize());
 			
-			System.gc();
+			warmUp.run().thenRun(() -> {
+				System.out.println(String.format("Ready in %,dms since the process started", ManagementFactory.getRuntimeMXBean().getUptime()));
+			});
 		}
 	}
 	
@@ -1,24 +1,24 @@
 package com.sx4.bot.events;
 
-import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
 import java.util.function.Predicate;
 
+import com.sx4.bot.core.TimerWheel;
+
 import net.dv8tion.jda.api.events.GenericEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 public class EventWaiterEvents extends ListenerAdapter {
 	
-	private ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
-	
+	/* Events are dispatched from more than one thread so waiters can be added and completed concurrently */
 	@SuppressWarnings("rawtypes")
-	private Map<Class<?>, List<WaitEvent>> waiters = new HashMap<>();
+	private Map<Class<?>, List<WaitEvent>> waiters = new ConcurrentHashMap<>();
 	
 	public EventWaiterEvents() {}
 	
@@ -26,12 +26,16 @@ public class EventWaiterEvents extends ListenerAdapter {
 	public <Type extends GenericEvent> void waitForEvent(Class<Type> classType, Predicate<Type> check, Consumer<Type> action, long timeout, TimeUnit unit, Runnable timeoutAction) {
 		WaitEvent<Type> waitEvent = new WaitEvent<>(check, action);
 		
-		List<WaitEvent> list = this.waiters.computeIfAbsent(classType, c -> new ArrayList<>());
+		List<WaitEvent> list = this.waiters.computeIfAbsent(classType, c -> new CopyOnWriteArrayList<>());
 		list.add(waitEvent);
 		
-		executor.schedule(() -> {
-			if (list.remove(waitEvent) && timeoutAction != null) {
-				timeoutAction.run();
+		waitEvent.timeout = TimerWheel.INSTANCE.schedule(() -> {
+			if (waitEvent.complete()) {
+				list.remove(waitEvent);
+				
+				if (timeoutAction != null) {
+					timeoutAction.run();
+				}
 			}
 		}, timeout, unit);
 	}
@@ -41,9 +45,9 @@ public class EventWaiterEvents extends ListenerAdapter {
 		Class eventClass = event.getClass();
 		
 		while (eventClass != null) {
-			if (this.waiters.containsKey(eventClass)) {
-				List<WaitEvent> actions = this.waiters.get(eventClass);
-				for (WaitEvent action : new ArrayList<>(actions)) {
+			List<WaitEvent> actions = this.waiters.get(eventClass);
+			if (actions != null) {
+				for (WaitEvent action : actions) {
 					boolean successful = action.execute(event);
 					if (successful) {
 						actions.remove(action);
@@ -60,14 +64,32 @@ public class EventWaiterEvents extends ListenerAdapter {
 		private Predicate<Type> check;
 		private Consumer<Type> action;
 		
+		/* Set once by whichever of the action and the timeout runs first */
+		private final AtomicBoolean completed = new AtomicBoolean(false);
+		
+		private volatile TimerWheel.Timeout timeout;
+		
 		public WaitEvent(Predicate<Type> check, Consumer<Type> action) {
 			this.check = check;
 			this.action = action;
 		}
 		
+		public boolean complete() {
+			return this.completed.compareAndSet(false, true);
+		}
+		
 		public boolean execute(Type event) {
-			if (check.test(event)) {
-				action.accept(event);
+			if (this.completed.get()) {
+				return true;
+			}
+			
+			if (this.check.test(event) && this.complete()) {
+				TimerWheel.Timeout timeout = this.timeout;
+				if (timeout != null) {
+					timeout.cancel();
+				}
+				
+				this.action.accept(event);
 				return true;
 			}
 			
@@ -1,27 +1,20 @@
 package com.sx4.bot.events;
 
-import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.EnumSet;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 
-import com.mongodb.client.FindIterable;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.model.WriteModel;
+import com.sx4.bot.core.JobScheduler;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4CommandEventListener;
 import com.sx4.bot.database.Database;
@@ -34,37 +27,28 @@ import net.dv8tion.jda.api.entities.Member;
 import net.dv8tion.jda.api.entities.Message.MentionType;
 import net.dv8tion.jda.api.entities.MessageReaction;
 import net.dv8tion.jda.api.entities.TextChannel;
-import net.dv8tion.jda.api.sharding.ShardManager;
 
 public class GiveawayEvents {
 
-	public static Map<Long, Map<Integer, ScheduledFuture<?>>> executors = new HashMap<>();
+	public static final String JOB_TYPE = "giveaway";
 	
-	public static ScheduledExecutorService scheduledExectuor = Executors.newSingleThreadScheduledExecutor();
+	public static String getJobId(long guildId, int id) {
+		return JobScheduler.getId(GiveawayEvents.JOB_TYPE, guildId, id);
+	}
 	
-	public static void putExecutor(long guildId, int id, ScheduledFuture<?> executor) {
-		Map<Integer, ScheduledFuture<?>> userExecutors = executors.containsKey(guildId) ? executors.get(guildId) : new HashMap<>();
-		userExecutors.put(id, executor);
-		executors.put(guildId, userExecutors);
+	/**
+	 * Schedules the end of a giveaway as a job, a pending job for the same giveaway is replaced
+	 */
+	public static void scheduleExecutor(long guildId, int id, Document giveaway, long seconds) {
+		JobScheduler.INSTANCE.schedule(GiveawayEvents.getJobId(guildId, id), GiveawayEvents.JOB_TYPE, seconds, new Document("guildId", guildId).append("giveaway", giveaway));
 	}
 	
 	public static boolean cancelExecutor(long guildId, int id) {
-		if (executors.containsKey(guildId)) {
-			Map<Integer, ScheduledFuture<?>> userExecutors = executors.get(guildId);
-			if (userExecutors.containsKey(id)) {
-				ScheduledFuture<?> executor = userExecutors.get(id);
-				if (!executor.isDone()) {
-					executor.cancel(false);
-				}
-				
-				userExecutors.remove(id);
-				executors.put(guildId, userExecutors);
-				
-				return true;
-			}
-		}
-		
-		return false;
+		return JobScheduler.INSTANCE.cancel(GiveawayEvents.getJobId(guildId, id));
+	}
+	
+	public static void executeJob(Document data) {
+		GiveawayEvents.removeGiveaway(data.getLong("guildId"), data.get("giveaway", Document.class));
 	}
 	
 	public static UpdateOneModel<Document> removeGiveawayAndGet(long guildId, Document data) {
@@ -117,8 +101,6 @@ public class GiveawayEvents {
 			}
 		}
 		
-		GiveawayEvents.cancelExecutor(guildId, giveawayId);
-		
 		return new UpdateOneModel<>(Filters.eq("_id", guildId), Updates.pull("giveaway.giveaways", Filters.eq("id", giveawayId)));
 	}
 	
@@ -130,40 +112,25 @@ public class GiveawayEvents {
 		});
 	}
 	
-	public static void ensureGiveaways() {
-		ShardManager shardManager = Sx4Bot.getShardManager();
-		FindIterable<Document> allData = Database.get().getGuilds().find(Filters.exists("giveaway.giveaways")).projection(Projections.include("giveaway.giveaways"));
-		
-		List<WriteModel<Document>> bulkData = new ArrayList<>();
-		allData.forEach((Document data) -> {
-			try {
-				Document giveawayData = data.get("giveaway", Database.EMPTY_DOCUMENT);
-				long timestampNow = Clock.systemUTC().instant().getEpochSecond();
-				Guild guild = shardManager.getGuildById(data.getLong("_id"));
-				if (guild != null) {
-					List<Document> giveaways = giveawayData.getList("giveaways", Document.class, Collections.emptyList());
-					for (Document giveaway : giveaways) {
-						long timeLeft = giveaway.getLong("endTimestamp") - timestampNow;
-						if (timeLeft <= 0) {
-							bulkData.add(GiveawayEvents.removeGiveawayAndGet(guild.getIdLong(), giveaway));
-						} else {
-							ScheduledFuture<?> executor = GiveawayEvents.scheduledExectuor.schedule(() -> GiveawayEvents.removeGiveaway(guild.getIdLong(), giveaway), timeLeft, TimeUnit.SECONDS);
-							GiveawayEvents.putExecutor(guild.getIdLong(), giveaway.getInteger("id"), executor);
-						}
-					}
+	/**
+	 * Moves the giveaways into the jobs collection the first time the bot is started with it
+	 */
+	public static int migrateJobs() {
+		return JobScheduler.INSTANCE.migrate(GiveawayEvents.JOB_TYPE, () -> {
+			List<WriteModel<Document>> bulkData = new ArrayList<>();
+			for (Document data : Database.get().getGuilds(Filters.exists("giveaway.giveaways"), Projections.include("giveaway.giveaways"))) {
+				long guildId = data.getLong("_id");
+				
+				List<Document> giveaways = data.getEmbedded(List.of("giveaway", "giveaways"), Collections.emptyList());
+				for (Document giveaway : giveaways) {
+					Document jobData = new Document("guildId", guildId).append("giveaway", giveaway);
+					
+					bulkData.add(JobScheduler.getJobModel(GiveawayEvents.getJobId(guildId, giveaway.getInteger("id")), GiveawayEvents.JOB_TYPE, giveaway.getLong("endTimestamp"), jobData, true));
 				}
-			} catch(Throwable e) {
-				e.printStackTrace();
 			}
+			
+			return bulkData;
 		});
-		
-		if (!bulkData.isEmpty()) {
-			Database.get().bulkWriteGuilds(bulkData, (result, exception) -> {
-				if (exception != null) {
-					exception.printStackTrace();
-				}
-			});
-		}
 	}
 	
 }
\ No newline at end of file
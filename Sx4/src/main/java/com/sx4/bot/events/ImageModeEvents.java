@@ -11,9 +11,11 @@ import org.bson.Document;
 import org.bson.conversions.Bson;
 
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.cache.GuildMessageContext;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.utils.TimeUtils;
 
@@ -26,14 +28,24 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 
 public class ImageModeEvents extends ListenerAdapter {
 
+	public static final String[] GUILD_FIELDS = {"imageMode.channels"};
+	
 	private List<String> supportedFileTypes = List.of("png", "jpg", "jpeg", "gif", "webp", "mp4", "gifv", "mov", "image");
 	
+	public ImageModeEvents() {
+		GuildMessageContext.declareGuildFields(ImageModeEvents.GUILD_FIELDS);
+	}
+	
 	public void onGuildMessageReceived(GuildMessageReceivedEvent event) {
 		if (event.getAuthor().isBot()) {
 			return;
 		}
 		
-		List<Document> channels = Database.get().getGuildById(event.getGuild().getIdLong(), null, Projections.include("imageMode.channels")).getEmbedded(List.of("imageMode", "channels"), Collections.emptyList());
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.IMAGE_MODE)) {
+			return;
+		}
+		
+		List<Document> channels = GuildMessageContext.get(event.getMessage()).getGuildData(ImageModeEvents.GUILD_FIELDS).getEmbedded(List.of("imageMode", "channels"), Collections.emptyList());
 		for (Document channelData : channels) {
 			if (channelData.getLong("id") == event.getChannel().getIdLong()) {
 				if (event.getMessage().getAttachments().isEmpty()) {
@@ -112,7 +124,7 @@ public class ImageModeEvents extends ListenerAdapter {
 								List<Bson> arrayFilters = List.of(Filters.eq("channel.id", event.getChannel().getIdLong()), Filters.eq("user.id", event.getAuthor().getIdLong()));
 								UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters).upsert(true);
 								
-								Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+								Database.get().bufferGuildUpdate(event.getGuild().getIdLong(), update, updateOptions).whenComplete((result, exception) -> {
 									if (exception != null) {
 										exception.printStackTrace();
 									}
@@ -128,9 +140,10 @@ public class ImageModeEvents extends ListenerAdapter {
 					
 					Bson update = Updates.push("imageMode.channels.$[channel].users", newUserData);
 					
-					UpdateOptions updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("channel.id", event.getChannel().getIdLong())));
+					List<Bson> arrayFilters = List.of(Filters.eq("channel.id", event.getChannel().getIdLong()));
+					UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters);
 					
-					Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+					Database.get().bufferGuildUpdate(event.getGuild().getIdLong(), update, updateOptions).whenComplete((result, exception) -> {
 						if (exception != null) {
 							exception.printStackTrace();
 						}
@@ -3,18 +3,10 @@ package com.sx4.bot.events;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.Collections;
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
-import org.bson.conversions.Bson;
 
-import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.UpdateOptions;
-import com.mongodb.client.model.Updates;
-import com.sx4.bot.database.Database;
 import com.sx4.bot.utils.ModUtils;
 
 import net.dv8tion.jda.api.Permission;
@@ -95,25 +87,21 @@ public class ModEvents extends ListenerAdapter {
 	}
 	
 	public void onGuildMemberJoin(GuildMemberJoinEvent event) {
-		Document data = Database.get().getGuildById(event.getGuild().getIdLong(), null, Projections.include("mute.users")).get("mute", Database.EMPTY_DOCUMENT);
-		if (!data.isEmpty()) {
+		Document userData = ModUtils.getMute(event.getGuild().getIdLong(), event.getMember().getIdLong());
+		if (!userData.isEmpty()) {
 			long timestampNow = Clock.systemUTC().instant().getEpochSecond();
 			
-			List<Document> users = data.getList("users", Document.class, Collections.emptyList());
-			for (Document userData : users) {
-				if (userData.getLong("id") == event.getMember().getUser().getIdLong()) {
-					Long duration = userData.getLong("duration");
-					if (duration != null) {
-						long timeLeft = userData.getLong("timestamp") + duration - timestampNow;
-						if (timeLeft > 0) {
-							Role mutedRole = MuteEvents.getMuteRole(event.getGuild());
-							if (mutedRole != null) {
-								event.getGuild().addRoleToMember(event.getMember(), mutedRole).queue();
-							}
-						} else {
-							MuteEvents.removeUserMute(event.getGuild().getIdLong(), event.getMember().getIdLong());
-						}
+			Long duration = userData.getLong("duration");
+			if (duration != null) {
+				long timeLeft = userData.getLong("timestamp") + duration - timestampNow;
+				if (timeLeft > 0) {
+					Role mutedRole = MuteEvents.getMuteRole(event.getGuild());
+					if (mutedRole != null) {
+						event.getGuild().addRoleToMember(event.getMember(), mutedRole).queue();
 					}
+				} else {
+					MuteEvents.cancelExecutor(event.getGuild().getIdLong(), event.getMember().getIdLong());
+					MuteEvents.removeUserMute(event.getGuild().getIdLong(), event.getMember().getIdLong());
 				}
 			}
 		}
@@ -139,14 +127,7 @@ public class ModEvents extends ListenerAdapter {
 						if (moderator == null || !moderator.equals(event.getJDA().getSelfUser())) {
 							ModUtils.createModLogAndOffence(event.getGuild(), moderator, event.getUser(), "Mute (Infinite)", reason);
 							
-							Bson update = Updates.combine(
-								Updates.set("mute.users.$[user].duration", null),
-								Updates.set("mute.users.$[user].timestamp", timestampNow)
-							);
-							
-							UpdateOptions updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("user.id", event.getUser().getIdLong()))).upsert(true);
-							
-							Database.get().updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+							ModUtils.updateMute(event.getGuild().getIdLong(), event.getUser().getIdLong(), null, (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
@@ -178,7 +159,7 @@ public class ModEvents extends ListenerAdapter {
 						if (moderator != null && !moderator.equals(event.getJDA().getSelfUser())) {
 							ModUtils.createModLog(event.getGuild(), moderator, event.getUser(), "Unmute", reason);
 
-							Database.get().updateGuildById(event.getGuild().getIdLong(), Updates.pull("mute.users", Filters.eq("id", event.getUser().getIdLong())), (result, exception) -> {
+							ModUtils.removeMute(event.getGuild().getIdLong(), event.getUser().getIdLong(), (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
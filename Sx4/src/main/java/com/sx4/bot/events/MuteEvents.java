@@ -6,25 +6,21 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.bson.Document;
-import org.bson.conversions.Bson;
 
-import com.mongodb.client.FindIterable;
+import com.mongodb.client.model.DeleteOneModel;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.UpdateOneModel;
-import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.model.WriteModel;
+import com.sx4.bot.core.JobScheduler;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.GuildEntityCollection;
 import com.sx4.bot.utils.ModUtils;
 
+import net.dv8tion.jda.api.JDA;
 import net.dv8tion.jda.api.Permission;
 import net.dv8tion.jda.api.entities.Guild;
 import net.dv8tion.jda.api.entities.Member;
@@ -32,15 +28,11 @@ import net.dv8tion.jda.api.entities.Role;
 import net.dv8tion.jda.api.entities.User;
 import net.dv8tion.jda.api.events.role.RoleDeleteEvent;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
-import net.dv8tion.jda.api.sharding.ShardManager;
 
 public class MuteEvents extends ListenerAdapter {
 	
-	public static Map<Long, Long> muteRoles = new HashMap<>();
-	
-	public static Map<Long, Map<Long, ScheduledFuture<?>>> executors = new HashMap<>();
-	
-	public static ScheduledExecutorService scheduledExectuor = Executors.newSingleThreadScheduledExecutor();
+	/* Shards load their mute roles in parallel */
+	public static Map<Long, Long> muteRoles = new ConcurrentHashMap<>();
 	
 	public void onRoleDelete(RoleDeleteEvent event) {
 		if (muteRoles.containsKey(event.getGuild().getIdLong())) {
@@ -63,110 +55,112 @@ public class MuteEvents extends ListenerAdapter {
 		}
 	}
 	
-	public static void ensureMuteRoles() {
-		ShardManager shardManager = Sx4Bot.getShardManager();
-		FindIterable<Document> allData = Database.get().getGuilds().find().projection(Projections.include("mute.users"));
-		allData.forEach((Document data) -> {
-			Document muteData = data.get("mute", Database.EMPTY_DOCUMENT);
-			User selfUser = shardManager.getShardById(0).getSelfUser();
+	/**
+	 * Loads the mute roles of the guilds on the shard, reads the mutes collection directly so it should only be
+	 * called once {@link Database#getMigration()} has completed
+	 */
+	public static void ensureMuteRoles(JDA shard) {
+		List<Long> guildIds = new ArrayList<>();
+		for (Guild guild : shard.getGuilds()) {
+			guildIds.add(guild.getIdLong());
+		}
+		
+		Map<Long, List<Document>> allMutes = new HashMap<>();
+		for (Document data : Database.get().getMutes().getCollection().find(Filters.in("guildId", guildIds), null, null)) {
+			allMutes.computeIfAbsent(data.getLong("guildId"), key -> new ArrayList<>()).add(data);
+		}
+		
+		User selfUser = shard.getSelfUser();
+		for (Guild guild : shard.getGuilds()) {
 			long timestampNow = Clock.systemUTC().instant().getEpochSecond();
-			Guild guild = shardManager.getGuildById(data.getLong("_id"));
-			if (guild != null) {
-				Role muteRole = null;
-				for (Role role : guild.getRoles()) {
-					if (role.getName().equals("Muted - " + selfUser.getName())) {
-						MuteEvents.putMuteRole(guild.getIdLong(), role.getIdLong());
-						muteRole = role;
-						break;
-					}
+			List<Document> users = allMutes.getOrDefault(guild.getIdLong(), Collections.emptyList());
+			
+			Role muteRole = null;
+			for (Role role : guild.getRoles()) {
+				if (role.getName().equals("Muted - " + selfUser.getName())) {
+					MuteEvents.putMuteRole(guild.getIdLong(), role.getIdLong());
+					muteRole = role;
+					break;
+				}
+			}
+			
+			if (muteRole != null) {
+				List<Long> userIds = new ArrayList<>();
+				for (Document userData : users) {
+					userIds.add(userData.getLong("id"));
 				}
 				
-				if (muteRole != null) {
-					List<Document> users = muteData.getList("users", Document.class, Collections.emptyList());
-					List<Long> userIds = new ArrayList<>();
-					for (Document userData : users) {
-						userIds.add(userData.getLong("id"));
+				List<Member> mutedMembers = guild.getMembersWithRoles(muteRole);
+				List<Long> mutedMemberIds = new ArrayList<>();
+				for (Member member : mutedMembers) {
+					mutedMemberIds.add(member.getUser().getIdLong());
+					if (userIds.contains(member.getUser().getIdLong())) {
+						continue;
+					} else {
+						Database.get().getMutes().updateById(guild.getIdLong(), member.getIdLong(), Updates.combine(Updates.set("duration", null), Updates.set("timestamp", timestampNow)), (result, exception) -> {
+							if (exception != null) {
+								exception.printStackTrace();
+							}
+						});
+						
+						ModUtils.createModLogAndOffence(guild, selfUser, member.getUser(), "Mute (Infinite)", "Mute role was added while the bot was offline");
 					}
-					
-					List<Member> mutedMembers = guild.getMembersWithRoles(muteRole);
-					List<Long> mutedMemberIds = new ArrayList<>();
-					for (Member member : mutedMembers) {
-						mutedMemberIds.add(member.getUser().getIdLong());
-						if (userIds.contains(member.getUser().getIdLong())) {
-							continue;
-						} else {
-							Bson update = Updates.combine(
-									Updates.set("mute.users.$[user].duration", null),
-									Updates.set("mute.users.$[user].timestamp", timestampNow)
-							);
-							
-							UpdateOptions updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("user.id", member.getIdLong()))).upsert(true);
+				}
+				
+				for (Document userData : users) {
+					if (mutedMemberIds.contains(userData.getLong("id"))) {
+						continue;
+					} else {
+						Member unmutedMember = guild.getMemberById(userData.getLong("id"));
+						if (unmutedMember != null) {
+							MuteEvents.cancelExecutor(guild.getIdLong(), unmutedMember.getUser().getIdLong());
 							
-							Database.get().updateGuildById(guild.getIdLong(), null, update, updateOptions, (result, exception) -> {
+							ModUtils.removeMute(guild.getIdLong(), unmutedMember.getIdLong(), (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
 							});
 							
-							ModUtils.createModLogAndOffence(guild, selfUser, member.getUser(), "Mute (Infinite)", "Mute role was added while the bot was offline");
-						}
-					}
-					
-					for (Document userData : users) {
-						if (mutedMemberIds.contains(userData.getLong("id"))) {
-							continue;
-						} else {
-							Member unmutedMember = guild.getMemberById(userData.getLong("id"));
-							if (unmutedMember != null) {
-								MuteEvents.cancelExecutor(guild.getIdLong(), unmutedMember.getUser().getIdLong());
-								
-								Database.get().updateGuildById(guild.getIdLong(), Updates.pull("mute.users", Filters.eq("id", unmutedMember.getIdLong())), (result, exception) -> {
-									if (exception != null) {
-										exception.printStackTrace();
-									}
-								});
-								
-								ModUtils.createModLog(guild, selfUser, unmutedMember.getUser(), "Unmute", "Mute role was removed while the bot was offline");
-							}
+							ModUtils.createModLog(guild, selfUser, unmutedMember.getUser(), "Unmute", "Mute role was removed while the bot was offline");
 						}
 					}
-				} else {
-					Database.get().updateGuildById(guild.getIdLong(), Updates.unset("mute.users"), (result, exception) -> {
-						if (exception != null) {
-							exception.printStackTrace();
-						}
-					});
 				}
+			} else if (!users.isEmpty()) {
+				Database.get().getMutes().deleteByGuildId(guild.getIdLong(), (result, exception) -> {
+					if (exception != null) {
+						exception.printStackTrace();
+					}
+				});
 			}
-		});
+		}
+	}
+	
+	public static final String JOB_TYPE = "mute";
+	
+	public static String getJobId(long guildId, long userId) {
+		return JobScheduler.getId(MuteEvents.JOB_TYPE, guildId, userId);
+	}
+	
+	private static Document getJobData(long guildId, long userId, Long roleId) {
+		return new Document("guildId", guildId).append("userId", userId).append("roleId", roleId);
 	}
 	
-	public static void putExecutor(long guildId, long userId, ScheduledFuture<?> executor) {
-		Map<Long, ScheduledFuture<?>> userExecutors = executors.containsKey(guildId) ? executors.get(guildId) : new HashMap<>();
-		userExecutors.put(userId, executor);
-		executors.put(guildId, userExecutors);
+	/**
+	 * Schedules the unmute of a member as a job, a pending unmute of the same member is replaced
+	 */
+	public static void scheduleExecutor(long guildId, long userId, Long roleId, long seconds) {
+		JobScheduler.INSTANCE.schedule(MuteEvents.getJobId(guildId, userId), MuteEvents.JOB_TYPE, seconds, MuteEvents.getJobData(guildId, userId, roleId));
 	}
 	
 	public static boolean cancelExecutor(long guildId, long userId) {
-		if (executors.containsKey(guildId)) {
-			Map<Long, ScheduledFuture<?>> userExecutors = executors.get(guildId);
-			if (userExecutors.containsKey(userId)) {
-				ScheduledFuture<?> executor = userExecutors.get(userId);
-				if (!executor.isDone()) {
-					executor.cancel(false);
-				}
-				
-				userExecutors.remove(userId);
-				executors.put(guildId, userExecutors);
-				
-				return true;
-			}
-		}
-		
-		return false;
+		return JobScheduler.INSTANCE.cancel(MuteEvents.getJobId(guildId, userId));
 	}
 	
-	public static UpdateOneModel<Document> removeUserMuteAndGet(long guildId, long userId, Long roleId) {
+	public static void executeJob(Document data) {
+		MuteEvents.removeUserMute(data.getLong("guildId"), data.getLong("userId"), data.getLong("roleId"));
+	}
+	
+	public static WriteModel<Document> removeUserMuteAndGet(long guildId, long userId, Long roleId) {
 		Guild guild = Sx4Bot.getShardManager().getGuildById(guildId);
 		if (guild != null) {
 			Role muteRole = roleId == null ? null : guild.getRoleById(roleId);
@@ -190,9 +184,7 @@ public class MuteEvents extends ListenerAdapter {
 					ModUtils.createModLog(guild, selfUser, member.getUser(), "Unmute (Automatic)", "Time Limit Served");
 					member.getUser().openPrivateChannel().queue(channel -> channel.sendMessage(ModUtils.getUnmuteEmbed(guild, null, selfUser, "Time Limit Served")).queue(), e -> {});
 					
-					MuteEvents.cancelExecutor(guild.getIdLong(), member.getUser().getIdLong());
-					
-					return new UpdateOneModel<>(Filters.eq("_id", guild.getIdLong()), Updates.pull("mute.users", Filters.eq("id", member.getIdLong())));
+					return new DeleteOneModel<>(GuildEntityCollection.getFilter(guild.getIdLong(), member.getIdLong()));
 				}
 			}
 		}
@@ -200,12 +192,17 @@ public class MuteEvents extends ListenerAdapter {
 		return null;
 	}
 	
-	public static UpdateOneModel<Document> removeUserMuteAndGet(long guildId, long userId) {
+	public static WriteModel<Document> removeUserMuteAndGet(long guildId, long userId) {
 		return MuteEvents.removeUserMuteAndGet(guildId, userId, null);
 	}
 	
 	public static void removeUserMute(long guildId, long userId, Long roleId) {
-		Database.get().updateGuildById(MuteEvents.removeUserMuteAndGet(guildId, userId, roleId), (result, exception) -> {
+		WriteModel<Document> model = MuteEvents.removeUserMuteAndGet(guildId, userId, roleId);
+		if (model == null) {
+			return;
+		}
+		
+		Database.get().getMutes().bulkWrite(List.of(model), (result, exception) -> {
 			if (exception != null) {
 				exception.printStackTrace();
 			}
@@ -216,49 +213,22 @@ public class MuteEvents extends ListenerAdapter {
 		MuteEvents.removeUserMute(guildId, userId, null);
 	}
 	
-	public static void ensureMutes() {
-		ShardManager shardManager = Sx4Bot.getShardManager();
-		FindIterable<Document> allData = Database.get().getGuilds().find(Filters.exists("mute.users")).projection(Projections.include("mute.users"));
-		
-		List<WriteModel<Document>> bulkData = new ArrayList<>();
-		allData.forEach((Document data) -> {
-			try {
-				Document guildData = data.get("mute", Database.EMPTY_DOCUMENT);
-				long timestampNow = Clock.systemUTC().instant().getEpochSecond();
-				Guild guild = shardManager.getGuildById(data.getLong("_id"));
-				if (guild != null) {
-					List<Document> users = guildData.getList("users", Document.class, Collections.emptyList());
-					for (Document userData : users) {
-						Long duration = userData.getLong("duration");
-						if (duration != null) {
-							Member member = guild.getMemberById(userData.getLong("id"));
-							if (member != null) {
-								long timeLeft = userData.getLong("timestamp") + duration - timestampNow;
-								if (timeLeft <= 0) {
-									UpdateOneModel<Document> update = MuteEvents.removeUserMuteAndGet(guild.getIdLong(), member.getIdLong());
-									if (update != null) {
-										bulkData.add(update);
-									}
-								} else {
-									ScheduledFuture<?> executor = MuteEvents.scheduledExectuor.schedule(() -> MuteEvents.removeUserMute(guild.getIdLong(), member.getIdLong()), timeLeft, TimeUnit.SECONDS);
-									MuteEvents.putExecutor(guild.getIdLong(), member.getUser().getIdLong(), executor);
-								}
-							}
-						}
-					}
-				}
-			} catch(Throwable e) {
-				e.printStackTrace();
+	/**
+	 * Moves the timed mutes into the jobs collection the first time the bot is started with it, reads the mutes
+	 * collection directly so it should only be called once {@link Database#getMigration()} has completed
+	 */
+	public static int migrateJobs() {
+		return JobScheduler.INSTANCE.migrate(MuteEvents.JOB_TYPE, () -> {
+			List<WriteModel<Document>> bulkData = new ArrayList<>();
+			for (Document userData : Database.get().getMutes().getCollection().find(Filters.ne("duration", null), null, null)) {
+				long guildId = userData.getLong("guildId"), userId = userData.getLong("id");
+				long dueAt = userData.getLong("timestamp") + userData.getLong("duration");
+				
+				bulkData.add(JobScheduler.getJobModel(MuteEvents.getJobId(guildId, userId), MuteEvents.JOB_TYPE, dueAt, MuteEvents.getJobData(guildId, userId, null), true));
 			}
+			
+			return bulkData;
 		});
-		
-		if (!bulkData.isEmpty()) {
-			Database.get().bulkWriteGuilds(bulkData, (result, exception) -> {
-				if (exception != null) {
-					exception.printStackTrace();
-				}
-			});
-		}
 	}
 	
 }
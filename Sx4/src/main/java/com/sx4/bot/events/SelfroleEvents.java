@@ -9,6 +9,8 @@ import org.bson.Document;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.database.Database;
 
 import net.dv8tion.jda.api.Permission;
@@ -26,6 +28,10 @@ public class SelfroleEvents extends ListenerAdapter {
 			return;
 		}
 		
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.SELFROLES)) {
+			return;
+		}
+		
 		Document data = Database.get().getGuildById(event.getGuild().getIdLong(), null, Projections.include("reactionRole.reactionRoles", "reactionRole.dm")).get("reactionRole", Database.EMPTY_DOCUMENT);
 		List<Document> reactionRoles = data.getList("reactionRoles", Document.class, Collections.emptyList()); 		
 		for (Document reactionRole : reactionRoles) {
@@ -98,6 +104,10 @@ public class SelfroleEvents extends ListenerAdapter {
 			return;
 		}
 		
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.SELFROLES)) {
+			return;
+		}
+		
 		Document data = Database.get().getGuildById(event.getGuild().getIdLong(), null, Projections.include("reactionRole.reactionRoles", "reactionRole.dm")).get("reactionRole", Database.EMPTY_DOCUMENT);
 		List<Document> reactionRoles = data.getList("reactionRoles", Document.class, Collections.emptyList()); 
 		for (Document reactionRole : reactionRoles) {
@@ -166,6 +176,10 @@ public class SelfroleEvents extends ListenerAdapter {
 	}
 	
 	public void onGuildMessageDelete(GuildMessageDeleteEvent event) {
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.SELFROLES)) {
+			return;
+		}
+		
 		List<Document> reactionRoles = Database.get().getGuildById(event.getGuild().getIdLong(), null, Projections.include("reactionRole.reactionRoles")).getEmbedded(List.of("reactionRole", "reactionRoles"), Collections.emptyList());
 		for (Document reactionRole : reactionRoles) {
 			if (event.getMessageIdLong() == reactionRole.getLong("id")) {
@@ -8,6 +8,7 @@ import java.time.ZonedDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.concurrent.TimeUnit;
 
+import com.sx4.bot.cache.PopulationCache;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.settings.Settings;
 import com.sx4.bot.utils.ModUtils;
@@ -36,7 +37,7 @@ public class ServerLogEvents extends ListenerAdapter {
 		embed.setColor(Settings.COLOR_GREEN);
 		embed.setThumbnail(event.getGuild().getIconUrl());
 		embed.setTimestamp(Instant.now());
-		embed.setDescription(String.format("I am now in %,d servers and connected to %,d users", shardManager.getGuilds().size(), shardManager.getUsers().size()));
+		embed.setDescription(String.format("I am now in %,d servers and connected to %,d users", shardManager.getGuildCache().size(), PopulationCache.INSTANCE.getUsers()));
 		embed.setAuthor("Joined Server!", null, event.getJDA().getSelfUser().getEffectiveAvatarUrl());
 		embed.addField("Server Name", event.getGuild().getName(), true);
 		embed.addField("Server ID", event.getGuild().getId(), true);
@@ -80,7 +81,7 @@ public class ServerLogEvents extends ListenerAdapter {
 		embed.setColor(Settings.COLOR_RED);
 		embed.setThumbnail(event.getGuild().getIconUrl());
 		embed.setTimestamp(Instant.now());
-		embed.setDescription(String.format("I am now in %,d servers and connected to %,d users", shardManager.getGuilds().size(), shardManager.getUsers().size()));
+		embed.setDescription(String.format("I am now in %,d servers and connected to %,d users", shardManager.getGuildCache().size(), PopulationCache.INSTANCE.getUsers()));
 		embed.setAuthor("Left Server!", null, event.getJDA().getSelfUser().getEffectiveAvatarUrl());
 		embed.addField("Server Name", event.getGuild().getName(), true);
 		embed.addField("Server ID", event.getGuild().getId(), true);
@@ -4,6 +4,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.json.JSONObject;
 
+import com.sx4.bot.cache.PopulationCache;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.interfaces.Sx4Callback;
 import com.sx4.bot.settings.Settings;
@@ -22,7 +23,7 @@ public class ServerPostEvents {
 				ShardManager shardManager = Sx4Bot.getShardManager();
 				String botId = shardManager.getShardById(0).getSelfUser().getId();
 				long guildCount = shardManager.getGuildCache().size();
-				long userCount = shardManager.getUserCache().size();
+				long userCount = PopulationCache.INSTANCE.getUsers();
 				int shardCount = shardManager.getShardsTotal();
 				
 				String bodyDiscordBots = new JSONObject()
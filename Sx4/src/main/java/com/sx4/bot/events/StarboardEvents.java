@@ -3,12 +3,10 @@ package com.sx4.bot.events;
 import java.util.List;
 
 import org.bson.Document;
-import org.bson.conversions.Bson;
 
-import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.UpdateOptions;
-import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.starboard.Starboard;
 import com.sx4.bot.starboard.StarboardConfiguration;
@@ -29,10 +27,10 @@ import net.dv8tion.jda.api.hooks.ListenerAdapter;
 public class StarboardEvents extends ListenerAdapter {
 
 	public void onGuildMessageReactionAdd(GuildMessageReactionAddEvent event) {
-		if (event.getReactionEmote().isEmoji() && event.getReactionEmote().getEmoji().equals("⭐") && !event.getUser().isBot()) {
+		if (event.getReactionEmote().isEmoji() && event.getReactionEmote().getEmoji().equals("⭐") && !event.getUser().isBot() && GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.STARBOARD)) {
 			Database database = Database.get();
 			
-			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.messages", "starboard.enabled", "starboard.configuration", "starboard.channelId", "starboard.deleted")).get("starboard", Database.EMPTY_DOCUMENT);
+			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.enabled", "starboard.configuration", "starboard.channelId", "starboard.deleted")).get("starboard", Database.EMPTY_DOCUMENT);
 			Starboard starboard = new Starboard(data);
 			if (starboard.isEnabled()) {
 				TextChannel channel = starboard.getChannel(event.getGuild());
@@ -44,7 +42,7 @@ public class StarboardEvents extends ListenerAdapter {
 					return;
 				}
 				
-				StarboardMessage message = starboard.getMessageById(event.getMessageIdLong());
+				StarboardMessage message = StarboardUtils.getMessageById(event.getGuild().getIdLong(), event.getMessageIdLong());
 				if (message != null) {
 					Long starboardId = message.getStarboardId();
 					
@@ -54,8 +52,6 @@ public class StarboardEvents extends ListenerAdapter {
 					} else {
 						int newSize = stars.size() + 1;
 						
-						UpdateOptions updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("message.id", message.getMessageId())));
-						
 						StarboardConfiguration star = starboard.getConfigurationById(newSize);
 						if (star != null) {
 							String display = star.getMessage();
@@ -66,12 +62,7 @@ public class StarboardEvents extends ListenerAdapter {
 								channel.sendMessage(starboardMessageRaw).queue(starboardMessage -> {
 									starboardMessage.addReaction("⭐").queue();
 									
-									Bson update = Updates.combine(
-											Updates.addToSet("starboard.messages.$[message].stars", event.getUser().getIdLong()), 
-											Updates.set("starboard.messages.$[message].starboardId", starboardMessage.getIdLong())
-									);
-									
-									database.updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+									StarboardUtils.addStar(event.getGuild().getIdLong(), message.getMessageId(), event.getUser().getIdLong(), starboardMessage.getIdLong(), (result, exception) -> {
 										if (exception != null) {
 											exception.printStackTrace();
 										}
@@ -86,9 +77,7 @@ public class StarboardEvents extends ListenerAdapter {
 							channel.editMessageById(starboardId, StarboardUtils.getCurrentMessage(event.getUser(), message.getChannel(event.getGuild()), event.getMessageIdLong(), starboard.getConfiguration(), newSize)).queue();
 						}
 						
-						Bson update = Updates.addToSet("starboard.messages.$[message].stars", event.getUser().getIdLong());
-						
-						database.updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+						StarboardUtils.addStar(event.getGuild().getIdLong(), message.getMessageId(), event.getUser().getIdLong(), null, (result, exception) -> {
 							if (exception != null) {
 								exception.printStackTrace();
 							}
@@ -114,29 +103,14 @@ public class StarboardEvents extends ListenerAdapter {
 							channel.sendMessage(StarboardUtils.getStarboard(originalMessage, event.getUser(), 1, starboard.getConfiguration(), display)).queue(starboardMessage -> {
 								starboardMessage.addReaction("⭐").queue();
 								
-								Document newData = new Document("stars", List.of(event.getUser().getIdLong()))
-										.append("starboardId", starboardMessage.getIdLong())
-										.append("id", originalMessage.getIdLong())
-										.append("channelId", originalMessage.getChannel().getIdLong())
-										.append("authorId", originalMessage.getAuthor().getIdLong())
-										.append("content", originalMessage.getContentRaw())
-										.append("image", imageUrl);
-								
-								database.updateGuildById(event.getGuild().getIdLong(), Updates.push("starboard.messages", newData), (result, exception) -> {
+								StarboardUtils.addStar(originalMessage, imageUrl, event.getUser().getIdLong(), starboardMessage.getIdLong(), (result, exception) -> {
 									if (exception != null) {
 										exception.printStackTrace();
 									}
 								});
 							});
 						} else {
-							Document newData = new Document("stars", List.of(event.getUser().getIdLong()))
-									.append("id", event.getMessageIdLong())
-									.append("channelId", originalMessage.getChannel().getIdLong())
-									.append("authorId", originalMessage.getAuthor().getIdLong())
-									.append("content", originalMessage.getContentRaw())
-									.append("image", imageUrl);
-							
-							database.updateGuildById(event.getGuild().getIdLong(), Updates.push("starboard.messages", newData), (result, exception) -> {
+							StarboardUtils.addStar(originalMessage, imageUrl, event.getUser().getIdLong(), null, (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
@@ -149,10 +123,10 @@ public class StarboardEvents extends ListenerAdapter {
 	}
 	
 	public void onGuildMessageReactionRemove(GuildMessageReactionRemoveEvent event) {
-		if (event.getReactionEmote().isEmoji() && event.getReactionEmote().getEmoji().equals("⭐") && !event.getUser().isBot()) {
+		if (event.getReactionEmote().isEmoji() && event.getReactionEmote().getEmoji().equals("⭐") && !event.getUser().isBot() && GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.STARBOARD)) {
 			Database database = Database.get();
 			
-			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.messages", "starboard.enabled", "starboard.configuration", "starboard.channelId")).get("starboard", Database.EMPTY_DOCUMENT);
+			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.enabled", "starboard.configuration", "starboard.channelId")).get("starboard", Database.EMPTY_DOCUMENT);
 			Starboard starboard = new Starboard(data);
 			if (starboard.isEnabled()) {
 				TextChannel channel = starboard.getChannel(event.getGuild());
@@ -160,7 +134,7 @@ public class StarboardEvents extends ListenerAdapter {
 					return;
 				}
 
-				StarboardMessage message = starboard.getMessageById(event.getMessageIdLong());
+				StarboardMessage message = StarboardUtils.getMessageById(event.getGuild().getIdLong(), event.getMessageIdLong());
 				if (message != null) {
 					Long starboardId = message.getStarboardId();
 					
@@ -169,29 +143,27 @@ public class StarboardEvents extends ListenerAdapter {
 						int newSize = stars.size() - 1;
 						StarboardConfiguration configuration = starboard.getConfigurationById(newSize);
 						
-						Bson update;
-						List<Bson> arrayFilters = null;
 						if (configuration == null && starboardId != null) {
 							channel.deleteMessageById(starboardId).queue();
 						} 
 						
 						if (newSize == 0) {
-							update = Updates.pull("starboard.messages", Filters.eq("id", message.getMessageId()));
+							StarboardUtils.deleteMessage(event.getGuild().getIdLong(), message.getMessageId(), (result, exception) -> {
+								if (exception != null) {
+									exception.printStackTrace();
+								}
+							});
 						} else {
-							update = Updates.pull("starboard.messages.$[message].stars", event.getUser().getIdLong());
-							arrayFilters = List.of(Filters.eq("message.id", message.getMessageId()));
-							
 							if (configuration != null && starboardId != null) {
 								channel.editMessageById(starboardId, StarboardUtils.getCurrentMessage(event.getUser(), message.getChannel(event.getGuild()), event.getMessageIdLong(), starboard.getConfiguration(), newSize)).queue();
 							}
+							
+							StarboardUtils.removeStar(event.getGuild().getIdLong(), message.getMessageId(), event.getUser().getIdLong(), (result, exception) -> {
+								if (exception != null) {
+									exception.printStackTrace();
+								}
+							});
 						}
-						
-						UpdateOptions updateOptions = new UpdateOptions().arrayFilters(arrayFilters);
-						database.updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
-							if (exception != null) {
-								exception.printStackTrace();
-							}
-						});
 					}
 				}
 			}
@@ -199,9 +171,13 @@ public class StarboardEvents extends ListenerAdapter {
 	}
 	
 	public void onGuildMessageUpdate(GuildMessageUpdateEvent event) {
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.STARBOARD)) {
+			return;
+		}
+		
 		Database database = Database.get();
 		
-		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.messages", "starboard.enabled", "starboard.channelId")).get("starboard", Database.EMPTY_DOCUMENT);
+		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.enabled", "starboard.channelId")).get("starboard", Database.EMPTY_DOCUMENT);
 		Starboard starboard = new Starboard(data);
 		if (starboard.isEnabled()) {
 			TextChannel channel = starboard.getChannel(event.getGuild());
@@ -211,7 +187,7 @@ public class StarboardEvents extends ListenerAdapter {
 			
 			String newContent = event.getMessage().getContentRaw();
 			
-			StarboardMessage message = starboard.getMessageByOriginalId(event.getMessageIdLong());
+			StarboardMessage message = StarboardUtils.getMessageByOriginalId(event.getGuild().getIdLong(), event.getMessageIdLong());
 			if (message != null) {
 				Long starboardId = message.getStarboardId();
 				if (starboardId != null && !message.getContent().equals(newContent)) {
@@ -229,8 +205,7 @@ public class StarboardEvents extends ListenerAdapter {
 						}
 						
 						starboardMessage.editMessage(embed.build()).queue(newMessage -> {
-							UpdateOptions updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("message.id", message.getMessageId())));
-							database.updateGuildById(event.getGuild().getIdLong(), null, Updates.set("starboard.messages.$[message].content", newContent), updateOptions, (result, exception) -> {
+							StarboardUtils.updateContent(event.getGuild().getIdLong(), message.getMessageId(), newContent, (result, exception) -> {
 								if (exception != null) {
 									exception.printStackTrace();
 								}
@@ -243,9 +218,13 @@ public class StarboardEvents extends ListenerAdapter {
 	}
 	
 	public void onGuildMessageDelete(GuildMessageDeleteEvent event) {
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.STARBOARD)) {
+			return;
+		}
+		
 		Database database = Database.get();
 		
-		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.messages", "starboard.enabled", "starboard.channelId")).get("starboard", Database.EMPTY_DOCUMENT);
+		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.enabled", "starboard.channelId")).get("starboard", Database.EMPTY_DOCUMENT);
 		Starboard starboard = new Starboard(data);
 		if (starboard.isEnabled()) {
 			TextChannel channel = starboard.getChannel(event.getGuild());
@@ -253,13 +232,13 @@ public class StarboardEvents extends ListenerAdapter {
 				return;
 			}
 			
-			StarboardMessage message = starboard.getMessageById(event.getMessageIdLong());
+			StarboardMessage message = StarboardUtils.getMessageById(event.getGuild().getIdLong(), event.getMessageIdLong());
 			if (message != null) {
 				if (message.hasStarboard() && event.getMessageIdLong() != message.getStarboardId()) {
 					channel.deleteMessageById(message.getStarboardId()).queue();
 				}
 				
-				database.updateGuildById(event.getGuild().getIdLong(), Updates.pull("starboard.messages", Filters.eq("id", message.getMessageId())), (result, exception) -> {
+				StarboardUtils.deleteMessage(event.getGuild().getIdLong(), message.getMessageId(), (result, exception) -> {
 					if (exception != null) {
 						exception.printStackTrace();
 					}
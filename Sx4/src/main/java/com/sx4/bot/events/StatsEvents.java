@@ -21,8 +21,10 @@ import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.model.WriteModel;
+import com.sx4.bot.cache.PopulationCache;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
 import com.sx4.bot.settings.Settings;
 
 import net.dv8tion.jda.api.EmbedBuilder;
@@ -45,10 +47,8 @@ public class StatsEvents extends ListenerAdapter {
 			ShardManager shardManager = Sx4Bot.getShardManager();
 			long timestampNow = Clock.systemUTC().instant().getEpochSecond();
 			
-			Bson filter = Filters.gte("timestamp", timestampNow - StatsEvents.DAY_IN_SECONDS);
-			
-			int guildsGained = Database.get().getGuildsGained(filter);
-			long commandsUsed = Database.get().getCommandLogs().countDocuments(filter);
+			int guildsGained = Database.get().getGuildsGained(timestampNow - StatsEvents.DAY_IN_SECONDS);
+			long commandsUsed = QueryShapes.COMMANDS_USED.count(Database.get().getCommandLogs(), timestampNow - StatsEvents.DAY_IN_SECONDS);
 			
 			EmbedBuilder embed = new EmbedBuilder();
 			embed.setColor(Settings.EMBED_COLOUR);
@@ -56,7 +56,7 @@ public class StatsEvents extends ListenerAdapter {
 			embed.setAuthor("Bot Logs", null, shardManager.getShards().get(0).getSelfUser().getEffectiveAvatarUrl());
 			embed.addField("Average Command Usage", String.format("1 every %.2f seconds (%,d)", (double) StatsEvents.DAY_IN_SECONDS / commandsUsed, commandsUsed), false);
 			embed.addField("Servers", String.format("%,d", shardManager.getGuilds().size()) + " (" + (guildsGained < 0 ? "" : "+") + String.format("%,d)", guildsGained), false);
-			embed.addField("Users", String.format("%,d", shardManager.getUsers().size()), false);
+			embed.addField("Users", String.format("%,d", PopulationCache.INSTANCE.getUsers()), false);
 			shardManager.getGuildById(Settings.SUPPORT_SERVER_ID).getTextChannelById(Settings.BOT_LOGS_ID).sendMessage(embed.build()).queue();
 			
 			Database.get().updateManyGuilds(Updates.unset("stats"), (result, exception) -> {
@@ -2,6 +2,7 @@ package com.sx4.bot.events;
 
 import java.util.concurrent.TimeUnit;
 
+import com.sx4.bot.cache.PopulationCache;
 import com.sx4.bot.core.Sx4Bot;
 
 import net.dv8tion.jda.api.entities.Activity;
@@ -19,7 +20,7 @@ public class StatusEvents {
 				shardManager.setActivity(Activity.of(ActivityType.WATCHING, String.format("%,d servers", shardManager.getGuilds().size())));
 				servers = false;
 			} else {
-				shardManager.setActivity(Activity.of(ActivityType.WATCHING, String.format("%,d users", shardManager.getUsers().size())));
+				shardManager.setActivity(Activity.of(ActivityType.WATCHING, String.format("%,d users", PopulationCache.INSTANCE.getUsers())));
 				servers = true;
 			}
 		}, 0, 5, TimeUnit.MINUTES);
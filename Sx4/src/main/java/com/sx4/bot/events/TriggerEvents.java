@@ -1,6 +1,8 @@
 package com.sx4.bot.events;
 
-import com.mongodb.client.model.Projections;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.cache.GuildMessageContext;
 import com.sx4.bot.database.Database;
 import net.dv8tion.jda.api.entities.Message.MentionType;
 import net.dv8tion.jda.api.events.message.guild.GuildMessageReceivedEvent;
@@ -13,6 +15,12 @@ import java.util.List;
 
 public class TriggerEvents extends ListenerAdapter {
 	
+	public static final String[] GUILD_FIELDS = {"trigger.enabled", "trigger.triggers", "trigger.case"};
+	
+	public TriggerEvents() {
+		GuildMessageContext.declareGuildFields(TriggerEvents.GUILD_FIELDS);
+	}
+	
 	private String getTriggerText(GuildMessageReceivedEvent event, String text) {
 		int index = -1;
 		while ((index = text.indexOf('{', index + 1)) != -1) {
@@ -59,17 +67,24 @@ public class TriggerEvents extends ListenerAdapter {
 			return;
 		}
 		
-		Document data = Database.get().getGuildById(event.getGuild().getIdLong(), null, Projections.include("trigger.enabled", "trigger.triggers", "trigger.case")).get("trigger", Database.EMPTY_DOCUMENT);	
+		if (!GuildFeatureCache.INSTANCE.isEnabled(event.getGuild().getIdLong(), Feature.TRIGGER)) {
+			return;
+		}
+		
+		GuildMessageContext context = GuildMessageContext.get(event.getMessage());
+		
+		Document data = context.getGuildData(TriggerEvents.GUILD_FIELDS).get("trigger", Database.EMPTY_DOCUMENT);	
 		if (data.isEmpty() || !data.getBoolean("enabled", true)) {
 			return;
 		}
 		
 		boolean isCaseSensitive = data.getBoolean("case", true);
+		String messageContent = isCaseSensitive ? context.getContent() : context.getLowerCaseContent();
+		
 		List<Document> triggers = data.getList("triggers", Document.class, Collections.emptyList());
 		for (Document triggerData : triggers) {
 			String triggerText = triggerData.getString("trigger");
 			triggerText = isCaseSensitive ? triggerText : triggerText.toLowerCase();
-			String messageContent = isCaseSensitive ? event.getMessage().getContentRaw() : event.getMessage().getContentRaw().toLowerCase();
 			if (messageContent.equals(triggerText)) {
 				event.getChannel().sendMessage(this.getTriggerText(event, triggerData.getString("response"))).allowedMentions(EnumSet.of(MentionType.USER, MentionType.ROLE)).queue();
 			}
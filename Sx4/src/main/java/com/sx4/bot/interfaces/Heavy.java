@@ -0,0 +1,18 @@
+package com.sx4.bot.interfaces;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Commands which are slow or expensive to run, such as image commands and leaderboards, these are scheduled
+ * on the heavy lane of the command scheduler. Annotating a module or command class marks every command in it.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface Heavy {
+	
+	public boolean value() default true;
+	
+}
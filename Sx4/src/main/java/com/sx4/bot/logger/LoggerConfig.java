@@ -0,0 +1,132 @@
+package com.sx4.bot.logger;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.bson.Document;
+
+import com.sx4.bot.database.Database;
+
+import gnu.trove.map.TLongLongMap;
+import gnu.trove.map.hash.TLongLongHashMap;
+import net.dv8tion.jda.api.entities.GuildChannel;
+
+/**
+ * The logger settings of a guild compiled from its document, the events are kept as their bitmask and every blacklist
+ * as a map of id to the events it is blacklisted from so deciding whether to log an event does not look through any lists.
+ *
+ * A config is never changed once it has been compiled, a change to the settings compiles a new one.
+ */
+public class LoggerConfig {
+
+	private static final List<String> BLACKLIST_TYPES = List.of("users", "channels", "roles");
+
+	private static final Category[] BLACKLIST_CATEGORIES = {Category.MEMBER, Category.CHANNEL, Category.ROLE};
+
+	/* Has to be made after the blacklist types as it is compiled like any other config */
+	public static final LoggerConfig EMPTY = new LoggerConfig(Database.EMPTY_DOCUMENT);
+
+	private final boolean enabled;
+	private final Long channelId;
+
+	private final Long webhookId;
+	private final String webhookToken;
+
+	private final long events;
+
+	/* Indexed by the ordinal of the category, the message category has no blacklist of its own */
+	private final TLongLongMap[] blacklists = new TLongLongMap[Category.values().length];
+
+	public LoggerConfig(Document data) {
+		this.enabled = data.getBoolean("enabled", false);
+		this.channelId = data.getLong("channelId");
+		this.webhookId = data.getLong("webhookId");
+		this.webhookToken = data.getString("webhookToken");
+		this.events = data.get("events", Event.ALL_EVENTS);
+
+		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
+		for (int i = 0; i < BLACKLIST_CATEGORIES.length; i++) {
+			List<Document> blacklists = blacklisted.getList(BLACKLIST_TYPES.get(i), Document.class, Collections.emptyList());
+
+			TLongLongMap blacklist = new TLongLongHashMap(Math.max(blacklists.size(), 1));
+			for (Document entry : blacklists) {
+				blacklist.put(entry.getLong("id"), blacklist.get(entry.getLong("id")) | entry.getLong("events"));
+			}
+
+			this.blacklists[BLACKLIST_CATEGORIES[i].ordinal()] = blacklist;
+		}
+	}
+
+	private LoggerConfig(LoggerConfig config, Long webhookId, String webhookToken) {
+		this.enabled = config.enabled;
+		this.channelId = config.channelId;
+		this.webhookId = webhookId;
+		this.webhookToken = webhookToken;
+		this.events = config.events;
+
+		System.arraycopy(config.blacklists, 0, this.blacklists, 0, this.blacklists.length);
+	}
+
+	/**
+	 * @return whether the logger is enabled and has a channel to send to, handlers should return before any other work when it is not
+	 */
+	public boolean isActive() {
+		return this.enabled && this.channelId != null;
+	}
+
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	public Long getChannelId() {
+		return this.channelId;
+	}
+
+	public Long getWebhookId() {
+		return this.webhookId;
+	}
+
+	public String getWebhookToken() {
+		return this.webhookToken;
+	}
+
+	public boolean hasWebhook() {
+		return this.webhookId != null && this.webhookToken != null;
+	}
+
+	public long getEvents() {
+		return this.events;
+	}
+
+	public boolean isEnabled(Event event) {
+		return (this.events & event.getRaw()) == event.getRaw();
+	}
+
+	/**
+	 * @param category the blacklist to check, {@link Category#MEMBER} for users
+	 */
+	public boolean isBlacklisted(Category category, long id, Event event) {
+		TLongLongMap blacklist = this.blacklists[category.ordinal()];
+
+		return blacklist != null && (blacklist.get(id) & event.getRaw()) == event.getRaw();
+	}
+
+	/**
+	 * @return whether the channel or the category it is in is blacklisted from the event
+	 */
+	public boolean isBlacklisted(GuildChannel channel, Event event) {
+		if (this.isBlacklisted(Category.CHANNEL, channel.getIdLong(), event)) {
+			return true;
+		}
+
+		return channel.getParent() != null && this.isBlacklisted(Category.CHANNEL, channel.getParent().getIdLong(), event);
+	}
+
+	/**
+	 * @return a copy of this config with the webhook replaced, null for both if the webhook is gone
+	 */
+	public LoggerConfig withWebhook(Long webhookId, String webhookToken) {
+		return new LoggerConfig(this, webhookId, webhookToken);
+	}
+
+}
@@ -2,6 +2,7 @@ package com.sx4.bot.logger;
 
 import java.util.concurrent.atomic.AtomicInteger;
 
+import com.sx4.bot.cache.LoggerConfigCache;
 import com.sx4.bot.core.Sx4Bot;
 
 public class Statistics {
@@ -69,6 +70,9 @@ public class Statistics {
 		
 		message.append('\n').append(String.format(WEBHOOK_MESSAGE, Sx4Bot.getEventHandler().getRegisteredWebhooks().size()));
 		message.append('\n').append(String.format(QUEUED_LOGS_MESSAGE, Sx4Bot.getEventHandler().getTotalRequestsQueued()));
+		message.append('\n').append(Sx4Bot.getEventHandler().getDispatcher().getStatistics());
+		message.append('\n').append(Sx4Bot.getEventHandler().getAuditLogs().getStatistics());
+		message.append('\n').append(LoggerConfigCache.INSTANCE.getStatistics());
 		
 		return message.toString();
 	}
@@ -0,0 +1,254 @@
+package com.sx4.bot.logger.handler;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+import com.google.common.cache.CacheBuilder;
+
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.api.audit.ActionType;
+import net.dv8tion.jda.api.audit.AuditLogEntry;
+import net.dv8tion.jda.api.entities.Guild;
+
+/**
+ * Finds the audit log entries the logger attributes its events with, lookups for the same action type in a guild which
+ * come in while a fetch is waiting share that fetch so a raid or a mass role change does not fetch the audit log for
+ * every event.
+ *
+ * The latest page of each action type is kept for a short while along with when it was fetched, a lookup whose entry
+ * should have been written by then is answered from it without fetching if its target has a recent entry on it. Any
+ * other lookup joins the fetch which is waiting or starts a new one so it never sees an older audit log than its own
+ * fetch would have. A lookup which joined a fetch later than its own delay allowed for and found nothing is retried
+ * with the next fetch as its entry may not have been written yet.
+ */
+public class AuditLogFetcher {
+
+	private static final String STATISTICS_MESSAGE = "Audit logs: %,d lookups, %,d answered from the cache, %,d fetches, %,d lookups retried";
+
+	/* The most entries Discord sends in one page, the handlers already fetched this many */
+	public static final int LIMIT = 100;
+
+	/* How long a page is kept for lookups of the targets on it */
+	public static final long CACHE_DURATION = 10000;
+
+	/* How long before a lookup an entry from the cache can have been created, the same window the handlers give their own entries */
+	public static final long CACHE_TOLERANCE = 5000;
+
+	private static class Key {
+
+		private final long guildId;
+		private final ActionType type;
+
+		private Key(long guildId, ActionType type) {
+			this.guildId = guildId;
+			this.type = type;
+		}
+
+		public boolean equals(Object object) {
+			if(!(object instanceof Key)) {
+				return false;
+			}
+
+			Key key = (Key) object;
+
+			return key.guildId == this.guildId && key.type == this.type;
+		}
+
+		public int hashCode() {
+			return Objects.hash(this.guildId, this.type);
+		}
+
+	}
+
+	private static class Lookup {
+
+		private final long targetId;
+		private final Predicate<AuditLogEntry> filter;
+		private final Consumer<AuditLogEntry> callback;
+
+		/* When the entry is expected to be in the audit log */
+		private final long readyAt;
+
+		private Lookup(long targetId, Predicate<AuditLogEntry> filter, Consumer<AuditLogEntry> callback, long readyAt) {
+			this.targetId = targetId;
+			this.filter = filter;
+			this.callback = callback;
+			this.readyAt = readyAt;
+		}
+
+	}
+
+	private static class Window {
+
+		private final long sendAt;
+
+		private final List<Lookup> lookups = new ArrayList<>();
+
+		private Window(long sendAt) {
+			this.sendAt = sendAt;
+		}
+
+	}
+
+	private static class Page {
+
+		/* The entries of each target newest first, a page is not changed once it has been built */
+		private final TLongObjectMap<List<AuditLogEntry>> entries = new TLongObjectHashMap<>();
+
+		/* When the fetch was sent, entries written before then are on the page */
+		private final long fetchedAt;
+
+		private Page(List<AuditLogEntry> entries, long fetchedAt) {
+			this.fetchedAt = fetchedAt;
+
+			for(AuditLogEntry entry : entries) {
+				List<AuditLogEntry> targetEntries = this.entries.get(entry.getTargetIdLong());
+				if(targetEntries == null) {
+					targetEntries = new ArrayList<>(1);
+					this.entries.put(entry.getTargetIdLong(), targetEntries);
+				}
+
+				targetEntries.add(entry);
+			}
+		}
+
+		private AuditLogEntry find(long targetId, Predicate<AuditLogEntry> filter, long createdAfter) {
+			List<AuditLogEntry> entries = this.entries.get(targetId);
+			if(entries == null) {
+				return null;
+			}
+
+			for(AuditLogEntry entry : entries) {
+				if(entry.getTimeCreated().toInstant().toEpochMilli() >= createdAfter && filter.test(entry)) {
+					return entry;
+				}
+			}
+
+			return null;
+		}
+
+	}
+
+	private final Map<Key, Window> windows = new ConcurrentHashMap<>();
+
+	private final ConcurrentMap<Key, Page> pages = CacheBuilder.newBuilder()
+		.expireAfterWrite(AuditLogFetcher.CACHE_DURATION, TimeUnit.MILLISECONDS)
+		.<Key, Page>build()
+		.asMap();
+
+	private final long delay;
+
+	private final AtomicLong lookups = new AtomicLong(0);
+	private final AtomicLong cached = new AtomicLong(0);
+	private final AtomicLong fetches = new AtomicLong(0);
+	private final AtomicLong retried = new AtomicLong(0);
+
+	/**
+	 * @param delay how many milliseconds after an event its audit log entry is expected to be written by
+	 */
+	public AuditLogFetcher(long delay) {
+		this.delay = delay;
+	}
+
+	public void retrieve(Guild guild, ActionType type, long targetId, Consumer<AuditLogEntry> callback) {
+		this.retrieve(guild, type, targetId, System.currentTimeMillis(), entry -> true, callback);
+	}
+
+	public void retrieve(Guild guild, ActionType type, long targetId, Predicate<AuditLogEntry> filter, Consumer<AuditLogEntry> callback) {
+		this.retrieve(guild, type, targetId, System.currentTimeMillis(), filter, callback);
+	}
+
+	/**
+	 * @param eventTime when the event happened in epoch milliseconds, its entry is expected to be written by the delay after it
+	 * @param callback called with the newest entry of the target which passes the filter or null if there is none, it is
+	 * not called if the audit log could not be fetched
+	 */
+	public void retrieve(Guild guild, ActionType type, long targetId, long eventTime, Predicate<AuditLogEntry> filter, Consumer<AuditLogEntry> callback) {
+		this.lookups.incrementAndGet();
+
+		Key key = new Key(guild.getIdLong(), type);
+		long readyAt = eventTime + this.delay;
+
+		/* A page fetched before the entry was due may only have an older entry of the target */
+		Page page = this.pages.get(key);
+		if(page != null && readyAt <= page.fetchedAt) {
+			AuditLogEntry entry = page.find(targetId, filter, eventTime - AuditLogFetcher.CACHE_TOLERANCE);
+			if(entry != null) {
+				this.cached.incrementAndGet();
+
+				callback.accept(entry);
+
+				return;
+			}
+		}
+
+		this.add(guild, key, new Lookup(targetId, filter, callback, readyAt));
+	}
+
+	private void add(Guild guild, Key key, Lookup lookup) {
+		this.windows.compute(key, (k, window) -> {
+			if(window != null) {
+				window.lookups.add(lookup);
+
+				return window;
+			}
+
+			long now = System.currentTimeMillis();
+
+			Window newWindow = new Window(Math.max(now, lookup.readyAt));
+			newWindow.lookups.add(lookup);
+
+			this.fetches.incrementAndGet();
+
+			guild.retrieveAuditLogs().type(key.type).limit(AuditLogFetcher.LIMIT).queueAfter(newWindow.sendAt - now, TimeUnit.MILLISECONDS, entries -> this.complete(guild, key, newWindow, entries), exception -> {
+				this.windows.remove(key, newWindow);
+
+				exception.printStackTrace();
+			});
+
+			return newWindow;
+		});
+	}
+
+	private void complete(Guild guild, Key key, Window window, List<AuditLogEntry> entries) {
+		/* Nothing joins the window once it has been removed so its lookups can be read without the map */
+		this.windows.remove(key, window);
+
+		/* A fetch is sent after its window is made so that is the earliest the page was read, an older page never replaces a newer one */
+		Page page = new Page(entries, window.sendAt);
+		this.pages.merge(key, page, (oldPage, newPage) -> newPage.fetchedAt >= oldPage.fetchedAt ? newPage : oldPage);
+
+		for(Lookup lookup : window.lookups) {
+			AuditLogEntry entry = page.find(lookup.targetId, lookup.filter, Long.MIN_VALUE);
+
+			/* A window is never sent before it is made so a lookup stops being retried once its time has passed */
+			if(entry == null && lookup.readyAt > window.sendAt) {
+				this.retried.incrementAndGet();
+
+				this.add(guild, key, lookup);
+
+				continue;
+			}
+
+			try {
+				lookup.callback.accept(entry);
+			} catch(Throwable e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.lookups.get(), this.cached.get(), this.fetches.get(), this.retried.get());
+	}
+
+}
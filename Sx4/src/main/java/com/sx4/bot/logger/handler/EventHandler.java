@@ -10,13 +10,17 @@ import club.minnced.discord.webhook.send.WebhookEmbed.EmbedFooter;
 import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
 import club.minnced.discord.webhook.send.WebhookMessage;
 import club.minnced.discord.webhook.send.WebhookMessageBuilder;
-import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.cache.GuildMessageCache;
+import com.sx4.bot.cache.LoggerConfigCache;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4CommandEventListener;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.logger.Category;
 import com.sx4.bot.logger.Event;
+import com.sx4.bot.logger.LoggerConfig;
 import com.sx4.bot.logger.Statistics;
 import com.sx4.bot.logger.util.Utils;
 import com.sx4.bot.settings.Settings;
@@ -27,6 +31,7 @@ import net.dv8tion.jda.api.audit.AuditLogChange;
 import net.dv8tion.jda.api.audit.AuditLogEntry;
 import net.dv8tion.jda.api.audit.AuditLogKey;
 import net.dv8tion.jda.api.entities.*;
+import net.dv8tion.jda.api.events.ReadyEvent;
 import net.dv8tion.jda.api.events.channel.category.CategoryCreateEvent;
 import net.dv8tion.jda.api.events.channel.category.CategoryDeleteEvent;
 import net.dv8tion.jda.api.events.channel.category.update.CategoryUpdateNameEvent;
@@ -60,12 +65,14 @@ import net.dv8tion.jda.api.exceptions.ErrorResponseException;
 import net.dv8tion.jda.api.hooks.ListenerAdapter;
 import net.dv8tion.jda.internal.requests.CompletedRestAction;
 import okhttp3.OkHttpClient;
-import org.bson.Document;
 import org.bson.conversions.Bson;
 
+import java.io.File;
+import java.io.IOException;
 import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 public class EventHandler extends ListenerAdapter {
@@ -81,24 +88,35 @@ public class EventHandler extends ListenerAdapter {
 	/* Used to ensure that the audit-log has come through */
 	private static final int AUDIT_LOG_DELAY = 500;
 	
-	private static final Bson DEFAULT_PROJECTION = Projections.include("logger");
-	
-	public static final Request EMPTY_REQUEST = new Request(null, 0L, null, 0L, null);
+	/* Run with -Dsx4.logger.journal=none to keep every request in memory, every process needs a directory of its own */
+	public static final String JOURNAL_DIRECTORY = System.getProperty("sx4.logger.journal", "logger-journal");
 	
 	public static class Request {
 		
 		public final JDA bot;
 		public final long guildId;
-		public final Document data;
+		public final LoggerConfig config;
 		public final long timestamp;
 		public final List<WebhookEmbed> embeds;
 		
-		public Request(JDA bot, long guildId, Document data, long timestamp, List<WebhookEmbed> embeds) {
+		/* When the request was queued, used for the latency of the dispatcher */
+		public final long queuedAt;
+		
+		/* The sequence of the request in the journal if it was read back from it, -1 if it was never spilled */
+		public final long sequence;
+		
+		Request(JDA bot, long guildId, LoggerConfig config, long timestamp, List<WebhookEmbed> embeds, long queuedAt, long sequence) {
 			this.bot = bot;
 			this.guildId = guildId;
-			this.data = data;
+			this.config = config;
 			this.timestamp = timestamp;
 			this.embeds = embeds;
+			this.queuedAt = queuedAt;
+			this.sequence = sequence;
+		}
+		
+		public Request(JDA bot, long guildId, LoggerConfig config, long timestamp, List<WebhookEmbed> embeds) {
+			this(bot, guildId, config, timestamp, embeds, System.nanoTime(), -1);
 		}
 		
 		public Guild getGuild() {
@@ -106,140 +124,195 @@ public class EventHandler extends ListenerAdapter {
 		}
 	}
 	
-	private Map<Long, WebhookClient> webhooks = new HashMap<>();
+	/* Webhooks are looked up from every dispatcher thread */
+	private Map<Long, WebhookClient> webhooks = new ConcurrentHashMap<>();
+	
+	/* Sees the rate limit headers of every webhook response so the dispatcher can hold requests instead of hitting a 429 */
+	private final WebhookPlanner planner = new WebhookPlanner();
+	
+	/* Requests which can not be kept in memory are spilled here so they are still sent after a restart */
+	private final LogJournal journal = EventHandler.openJournal();
 	
-	private Map<Long, BlockingDeque<Request>> queue = new HashMap<>();
+	private final LogDispatcher dispatcher = new LogDispatcher(this::sendRequest, this.planner, this.journal);
+	
+	/* Lookups of the same action type in a guild share a fetch so mass changes do not fetch the audit log for every event */
+	private final AuditLogFetcher auditLogs = new AuditLogFetcher(AUDIT_LOG_DELAY);
 	
 	private Map<Long, Map<Long, Integer>> disconnectCache = new HashMap<>();
 	
-	private ExecutorService executor = Executors.newCachedThreadPool();
 	private ScheduledExecutorService scheduledExecutorService = Executors.newSingleThreadScheduledExecutor();
 	
-	private OkHttpClient client = new OkHttpClient.Builder().build();
+	private OkHttpClient client = new OkHttpClient.Builder()
+		.addInterceptor(this.planner)
+		.build();
+	
+	public EventHandler() {
+		if(this.journal != null) {
+			Runtime.getRuntime().addShutdownHook(new Thread(this.journal::close));
+		}
+	}
 	
-	public EventHandler() {}
+	/**
+	 * @return the journal or null if it is disabled or could not be opened, in which case every request is kept in memory
+	 */
+	private static LogJournal openJournal() {
+		if(JOURNAL_DIRECTORY.equals("none")) {
+			return null;
+		}
+		
+		try {
+			return new LogJournal(new File(JOURNAL_DIRECTORY));
+		}catch(IOException e) {
+			System.err.println("[" + LocalDateTime.now().format(Sx4Bot.getTimeFormatter()) + "] [openJournal]");
+			e.printStackTrace();
+			
+			return null;
+		}
+	}
 	
 	public Collection<WebhookClient> getRegisteredWebhooks() {
 		return this.webhooks.values();
 	}
 	
-	public Map<Long, BlockingDeque<Request>> getQueue() {
-		return this.queue;
+	public LogDispatcher getDispatcher() {
+		return this.dispatcher;
+	}
+	
+	public AuditLogFetcher getAuditLogs() {
+		return this.auditLogs;
+	}
+	
+	/**
+	 * @return the compiled logger settings of the guild, guilds which have the logger disabled get an empty config without a database query
+	 */
+	private LoggerConfig getConfig(Guild guild) {
+		return LoggerConfigCache.INSTANCE.get(guild.getIdLong());
 	}
 	
 	public int getTotalRequestsQueued() {
-		return this.queue.values().stream()
-			.mapToInt(queue -> queue.size())
-			.sum();
+		return this.dispatcher.getQueued();
 	}
 	
-	private void handleRequest(JDA bot, Guild guild, Document data, List<WebhookEmbed> requestEmbeds) {
+	private void handleRequest(JDA bot, Guild guild, LoggerConfig config, List<WebhookEmbed> requestEmbeds) {
 		long guildId = guild.getIdLong();
-		if(!this.queue.containsKey(guildId)) {
-			BlockingDeque<Request> blockingDeque = new LinkedBlockingDeque<>();
-			this.queue.put(guildId, blockingDeque);
-			
-			this.executor.submit(() -> {
-				try {
-					List<WebhookEmbed> embeds = new ArrayList<>();
-					int length = 0, requests = 0;
-					
-					Request request;
-					while((request = blockingDeque.take()) != EMPTY_REQUEST) {
-						int lengthToSend = request.embeds.stream()
-							.mapToInt(embed -> Utils.getLength(embed))
-							.sum();
-						
-						/* Bulk the requests if there is more than one queued up */
-						boolean hasSpace = embeds.size() + request.embeds.size() <= 10 && length + lengthToSend <= MessageEmbed.EMBED_MAX_LENGTH_BOT;
-						if(hasSpace) {
-							embeds.addAll(request.embeds);
-							
-							length += lengthToSend;
-							requests++;
-						}else{
-							blockingDeque.addFirst(request);
-						}
-						
-						if(!hasSpace || embeds.size() == 10 || blockingDeque.isEmpty()) {
-							this._send(request.bot, request.getGuild(), request.data, embeds, requests, 0);
-							
-							embeds.clear();
-							requests = 0;
-							length = 0;
-						}
-					}
-				}catch(Throwable e) {
-					Sx4CommandEventListener.sendErrorMessage(Sx4Bot.getShardManager().getGuildById(Settings.SUPPORT_SERVER_ID).getTextChannelById(Settings.ERRORS_CHANNEL_ID), e, new Object[0]);
-					this.queue.remove(guildId);
-				}
-			});
-		}
 		
 		int requests = (int) Math.ceil((double) requestEmbeds.size() / 10);
 		for (int i = 1; i <= requests; i++) {
 			List<WebhookEmbed> embedsSplit = i == requests ? requestEmbeds.subList(i * 10 - 10, requestEmbeds.size()) : requestEmbeds.subList(i * 10 - 10, i * 10);
-			this.queue.get(guildId).offer(new Request(bot, guildId, data, Clock.systemUTC().instant().getEpochSecond(), embedsSplit));
+			this.dispatcher.offer(new Request(bot, guildId, config, Clock.systemUTC().instant().getEpochSecond(), embedsSplit));
 		}
 	}
 	
-	private void _send(JDA bot, Guild guild, Document rawData, List<WebhookEmbed> embeds, int requestAmount, int attempts) {
+	/**
+	 * Continues on the dispatcher once the future has completed, straight away if it already has, so nothing after a
+	 * database query or a rest action runs on the thread which completed it
+	 */
+	private <Type> CompletableFuture<Void> thenSend(CompletableFuture<Type> future, Function<Type, CompletableFuture<Void>> send) {
+		return future.isDone() ? future.thenCompose(send) : future.thenComposeAsync(send, this.dispatcher.getExecutor());
+	}
+	
+	private CompletableFuture<Void> sendRequest(Request request, List<WebhookEmbed> embeds, int requestAmount) {
+		Guild guild = request.getGuild();
+		if(guild == null) {
+			Statistics.increaseSkippedLogs();
+			
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		/* The config the request was made with can be from before an earlier request created the webhook */
+		return this.thenSend(LoggerConfigCache.INSTANCE.getAsync(guild.getIdLong()), config -> this._send(request.bot, guild, config, embeds, requestAmount, 0)).exceptionally(e -> {
+			Sx4CommandEventListener.sendErrorMessage(Sx4Bot.getShardManager().getGuildById(Settings.SUPPORT_SERVER_ID).getTextChannelById(Settings.ERRORS_CHANNEL_ID), e instanceof CompletionException ? e.getCause() : e, new Object[0]);
+			
+			return null;
+		});
+	}
+	
+	private CompletableFuture<Void> _send(JDA bot, Guild guild, LoggerConfig config, List<WebhookEmbed> embeds, int requestAmount, int attempts) {
 		if(attempts >= MAX_ATTEMPTS) {
 			Statistics.increaseSkippedLogs();
 			
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 		
 		if(attempts >= ATTEMPTS_BEFORE_REFETCH) {
-			rawData = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
+			LoggerConfigCache.INSTANCE.invalidate(guild.getIdLong());
+			
+			return this.thenSend(LoggerConfigCache.INSTANCE.getAsync(guild.getIdLong()), refetchedConfig -> this.sendWithConfig(bot, guild, refetchedConfig, embeds, requestAmount, attempts));
 		}
 		
-		Document data = rawData;
+		return this.sendWithConfig(bot, guild, config, embeds, requestAmount, attempts);
+	}
+	
+	private CompletableFuture<Void> sendWithConfig(JDA bot, Guild guild, LoggerConfig config, List<WebhookEmbed> embeds, int requestAmount, int attempts) {
+		if(!config.isActive()) {
+			Statistics.increaseSkippedLogs();
+			
+			return CompletableFuture.completedFuture(null);
+		}
 		
-		TextChannel channel = guild.getTextChannelById(data.getLong("channelId"));
+		TextChannel channel = guild.getTextChannelById(config.getChannelId());
 		if (channel == null) {
-			BlockingDeque<Request> queue = this.queue.remove(guild.getIdLong());
-			if(queue != null) {
-				queue.clear();
-				
-				/* Tell the thread that it is time to stop blocking */
-				queue.offer(EMPTY_REQUEST);
-			}
+			this.dispatcher.clear(guild.getIdLong());
 			
 			Database.get().updateGuildById(guild.getIdLong(), Updates.unset("logger.channelId"), (result, exception) -> {
 				if (exception != null) {
 					exception.printStackTrace();
+				} else {
+					LoggerConfigCache.INSTANCE.invalidate(guild.getIdLong());
 				}
 			});
 			
-			return;
+			return CompletableFuture.completedFuture(null);
 		}
 		
-		WebhookClient client;
-		if(data.getLong("webhookId") == null || data.getString("webhookToken") == null) {
-			Webhook webhook;
-			if (guild.getSelfMember().hasPermission(channel, Permission.MANAGE_WEBHOOKS)) {
-				try {
-					webhook = channel.createWebhook("Sx4 - Logs").complete();
-				} catch (ErrorResponseException e) {
-					if (e.getErrorCode() == 30007) {
-						Database.get().updateGuildById(guild.getIdLong(), Updates.set("logger.enabled", false), (result, exception) -> {
-							if (exception != null) {
-								exception.printStackTrace();
-							}
-						});
-					}
-					
-					return;
+		if(config.hasWebhook()) {
+			Long webhookId = config.getWebhookId();
+			String webhookToken = config.getWebhookToken();
+			
+			WebhookClient client = this.webhooks.computeIfAbsent(webhookId, ($) -> 
+				new WebhookClientBuilder(webhookId, webhookToken)
+					.setExecutorService(this.scheduledExecutorService)
+					.setHttpClient(this.client)
+					.build());
+			
+			return this.sendMessage(bot, guild, config, client, embeds, requestAmount, attempts);
+		}
+		
+		if (!guild.getSelfMember().hasPermission(channel, Permission.MANAGE_WEBHOOKS)) {
+			Statistics.increaseSkippedLogs();
+			
+			return CompletableFuture.completedFuture(null);
+		}
+		
+		/* Submitted rather than completed so creating the webhook does not hold a dispatcher thread */
+		return channel.createWebhook("Sx4 - Logs").submit().handle((webhook, e) -> {
+			if (e != null) {
+				Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+				if (!(cause instanceof ErrorResponseException)) {
+					return CompletableFuture.<Webhook>failedFuture(cause);
 				}
-			} else {
-				Statistics.increaseSkippedLogs();
 				
-				return;
+				if (((ErrorResponseException) cause).getErrorCode() == 30007) {
+					Database.get().updateGuildById(guild.getIdLong(), Updates.set("logger.enabled", false), (result, exception) -> {
+						if (exception != null) {
+							exception.printStackTrace();
+						} else {
+							GuildFeatureCache.INSTANCE.setEnabled(guild.getIdLong(), Feature.LOGGER, false);
+							LoggerConfigCache.INSTANCE.invalidate(guild.getIdLong());
+						}
+					});
+				}
+				
+				return CompletableFuture.<Webhook>completedFuture(null);
+			}
+			
+			return CompletableFuture.completedFuture(webhook);
+		}).thenCompose(future -> future).thenComposeAsync(webhook -> {
+			if (webhook == null) {
+				return CompletableFuture.<Void>completedFuture(null);
 			}
 			
-			data.put("webhookId", webhook.getIdLong());
-			data.put("webhookToken", webhook.getToken());
+			LoggerConfigCache.INSTANCE.setWebhook(guild.getIdLong(), webhook.getIdLong(), webhook.getToken());
 			
 			Bson update = Updates.combine(Updates.set("logger.webhookId", webhook.getIdLong()), Updates.set("logger.webhookToken", webhook.getToken()));
 			Database.get().updateGuildById(guild.getIdLong(), update, (result, exception) -> {
@@ -248,39 +321,38 @@ public class EventHandler extends ListenerAdapter {
 				}
 			});
 			
-			client = new WebhookClientBuilder(webhook.getUrl())
+			WebhookClient client = new WebhookClientBuilder(webhook.getUrl())
 				.setExecutorService(this.scheduledExecutorService)
 				.setHttpClient(this.client)
 				.build();
 			
 			this.webhooks.put(client.getId(), client);
-		}else{
-			Long webhookId = data.getLong("webhookId");
-			String webhookToken = data.getString("webhookToken");
 			
-			client = this.webhooks.computeIfAbsent(webhookId, ($) -> 
-				new WebhookClientBuilder(webhookId, webhookToken)
-					.setExecutorService(this.scheduledExecutorService)
-					.setHttpClient(this.client)
-					.build());
-		}
-		
+			return this.sendMessage(bot, guild, config.withWebhook(webhook.getIdLong(), webhook.getToken()), client, embeds, requestAmount, attempts);
+		}, this.dispatcher.getExecutor());
+	}
+	
+	private CompletableFuture<Void> sendMessage(JDA bot, Guild guild, LoggerConfig config, WebhookClient client, List<WebhookEmbed> embeds, int requestAmount, int attempts) {
 		WebhookMessage message = new WebhookMessageBuilder()
 			.setAvatarUrl(bot.getSelfUser().getEffectiveAvatarUrl())
 			.setUsername("Sx4 - Logs")
 			.addEmbeds(embeds)
 			.build();
 
-		try {
-			client.send(message).get();
-			Statistics.increaseSuccessfulLogs(requestAmount);
-		} catch (Throwable e) {
+		/* Handled on the dispatcher so a retry does not run on the webhook executor */
+		return client.send(message).handleAsync((sentMessage, e) -> {
+			if (e == null) {
+				Statistics.increaseSuccessfulLogs(requestAmount);
+				
+				return CompletableFuture.<Void>completedFuture(null);
+			}
+			
 			Statistics.increaseFailedLogs();
 
-			if (e instanceof ExecutionException) {
-				if (e.getCause() instanceof HttpException && ((HttpException) e.getCause()).getCode() == 404) {
-					data.put("webhookId", null);
-					data.put("wehookToken", null);
+			Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+			if (cause instanceof HttpException) {
+				if (((HttpException) cause).getCode() == 404) {
+					LoggerConfigCache.INSTANCE.removeWebhook(guild.getIdLong(), client.getId());
 
 					/*
 					 * Calling close would close the scheduled executor service we are using,
@@ -290,6 +362,7 @@ public class EventHandler extends ListenerAdapter {
 					 */
 
 					this.webhooks.remove(client.getId());
+					this.planner.remove(client.getId());
 
 					Bson update = Updates.combine(Updates.set("logger.webhookId", null), Updates.set("logger.webhookToken", null));
 					Database.get().updateGuildById(guild.getIdLong(), update, (result, exception) -> {
@@ -298,41 +371,44 @@ public class EventHandler extends ListenerAdapter {
 						}
 					});
 
-					this._send(bot, guild, data, embeds, requestAmount, attempts + 1);
-
-					return;
+					return this._send(bot, guild, config.withWebhook(null, null), embeds, requestAmount, attempts + 1);
 				}
 			}
 
 			System.err.println("[" + LocalDateTime.now().format(Sx4Bot.getTimeFormatter()) + "] [_send]");
 			e.printStackTrace();
-		}
+			
+			return CompletableFuture.<Void>completedFuture(null);
+		}, this.dispatcher.getExecutor()).thenCompose(future -> future);
+	}
+	
+	public void send(JDA bot, Guild guild, LoggerConfig config, List<WebhookEmbed> embeds) {
+		this.handleRequest(bot, guild, config, embeds);
 	}
 	
-	public void send(JDA bot, Guild guild, Document data, List<WebhookEmbed> embeds) {
-		this.handleRequest(bot, guild, data, embeds);
+	public void send(JDA bot, Guild guild, LoggerConfig config, WebhookEmbed... embeds) {
+		this.send(bot, guild, config, List.of(embeds));
 	}
 	
-	public void send(JDA bot, Guild guild, Document data, WebhookEmbed... embeds) {
-		this.send(bot, guild, data, List.of(embeds));
+	public void onReady(ReadyEvent event) {
+		JDA bot = event.getJDA();
+		
+		/* Requests of guilds on shards which are not ready yet stay in the journal until theirs is */
+		this.dispatcher.recover(guildId -> bot.getGuildById(guildId) == null ? null : bot, guildId -> LoggerConfigCache.INSTANCE.get(guildId));
 	}
 	
 	public void onGuildLeave(GuildLeaveEvent event) {
-		BlockingDeque<Request> queue = this.queue.remove(event.getGuild().getIdLong());
-		if(queue != null) {
-			queue.clear();
-			
-			/* Tell the thread that it is time to stop blocking */
-			queue.offer(EMPTY_REQUEST);
-		}
+		this.dispatcher.clear(event.getGuild().getIdLong());
+		
+		LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
 	}
 	
 	public void onGuildMemberJoin(GuildMemberJoinEvent event) {
 		Guild guild = event.getGuild();
 		Member member = event.getMember();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
@@ -342,39 +418,25 @@ public class EventHandler extends ListenerAdapter {
 		embed.setAuthor(new EmbedAuthor(member.getUser().getAsTag(), member.getUser().getEffectiveAvatarUrl(), null));
 		embed.setFooter(new EmbedFooter(String.format("%s ID: %s", event.getUser().isBot() ? "Bot" : "User", member.getId()), null));
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
 		if (event.getUser().isBot()) {
-			if (!events.contains(Event.BOT_ADDED)) {
+			if (!config.isEnabled(Event.BOT_ADDED)) {
 				return;
 			}
 			
-			List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-			for (Document userBlacklist : users) {
-				if (userBlacklist.getLong("id") == member.getIdLong()) {
-					if ((userBlacklist.getLong("events") & Event.BOT_ADDED.getRaw()) == Event.BOT_ADDED.getRaw()) {
-						return;
-					}
-					
-					break;
-				}
+			if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.BOT_ADDED)) {
+				return;
 			}
 			
 			StringBuilder description = new StringBuilder(String.format("`%s` was just added to the server", member.getEffectiveName()));
 			
 			if (guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-				guild.retrieveAuditLogs().type(ActionType.BOT_ADD).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-					AuditLogEntry entry = logs.stream()
-							.filter(e -> e.getTargetIdLong() == member.getIdLong())
-							.filter(e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() <= 5)
-							.findFirst()
-							.orElse(null);
-					
+				this.auditLogs.retrieve(guild, ActionType.BOT_ADD, member.getIdLong(), e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() <= 5, entry -> {
 					if (entry != null) {
 						description.append(" by **" + entry.getUser().getAsTag() + "**");
 					}
 					
 					embed.setDescription(description.toString());
-					this.send(event.getJDA(), guild, data, embed.build());
+					this.send(event.getJDA(), guild, config, embed.build());
 				});
 				
 				return;
@@ -382,50 +444,35 @@ public class EventHandler extends ListenerAdapter {
 			
 			embed.setDescription(description.toString());
 		} else {
-			if (!events.contains(Event.MEMBER_JOIN)) {
+			if (!config.isEnabled(Event.MEMBER_JOIN)) {
 				return;
 			}
 			
-			List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-			for (Document userBlacklist : users) {
-				if (userBlacklist.getLong("id") == member.getIdLong()) {
-					if ((userBlacklist.getLong("events") & Event.MEMBER_JOIN.getRaw()) == Event.MEMBER_JOIN.getRaw()) {
-						return;
-					}
-					
-					break;
-				}
+			if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_JOIN)) {
+				return;
 			}
 		
 			embed.setDescription(String.format("`%s` just joined the server", member.getEffectiveName()));
 		}
 			
-		this.send(event.getJDA(), guild, data, embed.build());		
+		this.send(event.getJDA(), guild, config, embed.build());		
 	}
 	
 	public void onGuildMemberRemove(GuildMemberRemoveEvent event) {
 		Guild guild = event.getGuild();
 		Member member = event.getMember();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_LEAVE)) {
+		if (!config.isEnabled(Event.MEMBER_LEAVE)) {
 			return;
 		}
 		
-		List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_LEAVE.getRaw()) == Event.MEMBER_LEAVE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_LEAVE)) {
+			return;
 		}
 	
 		List<WebhookEmbed> embeds = new ArrayList<>();
@@ -440,23 +487,17 @@ public class EventHandler extends ListenerAdapter {
 		embeds.add(embed.build());
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.KICK).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == member.getUser().getIdLong())
-					.filter(e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now()).toSeconds() < 10)
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.KICK, member.getUser().getIdLong(), e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now()).toSeconds() < 10, entry -> {
 				if(entry != null) {
 					embed.setDescription(String.format("`%s` has been kicked by **%s**", member.getEffectiveName(), entry.getUser().getAsTag()));
 					
 					embeds.add(embed.build());
 				}
 				
-				this.send(event.getJDA(), guild, data, embeds);
+				this.send(event.getJDA(), guild, config, embeds);
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embeds);
+			this.send(event.getJDA(), guild, config, embeds);
 		}
 	}
 	
@@ -464,25 +505,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		User user = event.getUser();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_BANNED)) {
+		if (!config.isEnabled(Event.MEMBER_BANNED)) {
 			return;
 		}
 		
-		List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == user.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_BANNED.getRaw()) == Event.MEMBER_BANNED.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, user.getIdLong(), Event.MEMBER_BANNED)) {
+			return;
 		}
 	
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -493,12 +526,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("User ID: %s", user.getId()), null));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.BAN).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == user.getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.BAN, user.getIdLong(), entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -509,10 +537,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onGuildBan] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), user.getAsTag(), user.getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -520,25 +548,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		User user = event.getUser();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_UNBANNED)) {
+		if (!config.isEnabled(Event.MEMBER_UNBANNED)) {
 			return;
 		}
 		
-		List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == event.getUser().getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_UNBANNED.getRaw()) == Event.MEMBER_UNBANNED.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, event.getUser().getIdLong(), Event.MEMBER_UNBANNED)) {
+			return;
 		}
 	
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -549,12 +569,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("User ID: %s", user.getId()), null));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.UNBAN).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == user.getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.UNBAN, user.getIdLong(), entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -565,10 +580,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onGuildUnban] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), user.getAsTag(), user.getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -581,38 +596,21 @@ public class EventHandler extends ListenerAdapter {
 			return;
 		}
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MESSAGE_UPDATE)) {
+		if (!config.isEnabled(Event.MESSAGE_UPDATE)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == event.getAuthor().getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MESSAGE_UPDATE.getRaw()) == Event.MESSAGE_UPDATE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, event.getAuthor().getIdLong(), Event.MESSAGE_UPDATE)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & Event.MESSAGE_UPDATE.getRaw()) == Event.MESSAGE_UPDATE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, Event.MESSAGE_UPDATE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -640,50 +638,33 @@ public class EventHandler extends ListenerAdapter {
 			embed.addField(new EmbedField(false, "After", Utils.limitField(message.getContentRaw())));
 		}
 		
-		this.send(event.getJDA(), guild, data, embed.build());
+		this.send(event.getJDA(), guild, config, embed.build());
 	}
 	
 	public void onMessageDelete(TextChannel channel, List<String> messages) {
 		Guild guild = channel.getGuild();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MESSAGE_DELETE)) {
+		if (!config.isEnabled(Event.MESSAGE_DELETE)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
 		List<WebhookEmbed> embeds = new ArrayList<>();
 		MessageTask : for (String messageId : messages) {
 			Message message = GuildMessageCache.INSTANCE.getMessageById(messageId);
 			
 			if (message != null) {
-				List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-				for (Document userBlacklist : users) {
-					if (userBlacklist.getLong("id") == message.getAuthor().getIdLong()) {
-						if ((userBlacklist.getLong("events") & Event.MESSAGE_DELETE.getRaw()) == Event.MESSAGE_DELETE.getRaw()) {
-							continue MessageTask;
-						}
-						
-						break;
-					}
+				if (config.isBlacklisted(Category.MEMBER, message.getAuthor().getIdLong(), Event.MESSAGE_DELETE)) {
+					continue MessageTask;
 				}
 			}
 			
-			List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-			for (Document channelBlacklist : channels) {
-				if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-					if ((channelBlacklist.getLong("events") & Event.MESSAGE_DELETE.getRaw()) == Event.MESSAGE_DELETE.getRaw()) {
-						continue MessageTask;
-					}
-					
-					break;
-				}
+			if (config.isBlacklisted(channel, Event.MESSAGE_DELETE)) {
+				continue MessageTask;
 			}
 			
 			WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -722,7 +703,7 @@ public class EventHandler extends ListenerAdapter {
 		}
 		
 		if (!embeds.isEmpty()) {
-			this.send(channel.getJDA(), guild, data, embeds);
+			this.send(channel.getJDA(), guild, config, embeds);
 		}
 	}
 	
@@ -737,8 +718,8 @@ public class EventHandler extends ListenerAdapter {
 	public void onChannelDelete(GuildChannel channel) {
 		Guild guild = channel.getGuild();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
@@ -746,20 +727,12 @@ public class EventHandler extends ListenerAdapter {
 			channel.getType().equals(ChannelType.VOICE) ? Event.VOICE_CHANNEL_DELETE : 
 			channel.getType().equals(ChannelType.STORE) ? Event.STORE_CHANNEL_DELETE : Event.CATEGORY_DELETE;
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(eventType)) {
+		if (!config.isEnabled(eventType)) {
 			return;
 		}
 		
-		List<Document> channels = data.getEmbedded(List.of("blacklisted", "channels"), Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong()) {
-				if ((channelBlacklist.getLong("events") & eventType.getRaw()) == eventType.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.CHANNEL, channel.getIdLong(), eventType)) {
+			return;
 		}
 
 		String type = Utils.getChannelTypeReadable(channel);
@@ -775,12 +748,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("%s ID: %s", channel.getType().equals(ChannelType.CATEGORY) ? "Category" : "Channel", channel.getId()), null));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.CHANNEL_DELETE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == channel.getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.CHANNEL_DELETE, channel.getIdLong(), entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -791,10 +759,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onChannelDelete] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), channel.getName(), channel.getId()));
 				}
 				
-				this.send(channel.getJDA(), guild, data, embed.build());
+				this.send(channel.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(channel.getJDA(), guild, data, embed.build());
+			this.send(channel.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -817,8 +785,8 @@ public class EventHandler extends ListenerAdapter {
 	public void onChannelCreate(GuildChannel channel) {
 		Guild guild = channel.getGuild();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
@@ -826,20 +794,12 @@ public class EventHandler extends ListenerAdapter {
 			channel.getType().equals(ChannelType.VOICE) ? Event.VOICE_CHANNEL_CREATE : 
 			channel.getType().equals(ChannelType.STORE) ? Event.STORE_CHANNEL_CREATE : Event.CATEGORY_CREATE;
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(eventType)) {
+		if (!config.isEnabled(eventType)) {
 			return;
 		}
 		
-		List<Document> channels = data.getEmbedded(List.of("blacklisted", "channels"), Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong()) {
-				if ((channelBlacklist.getLong("events") & eventType.getRaw()) == eventType.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.CHANNEL, channel.getIdLong(), eventType)) {
+			return;
 		}
 
 		String type = Utils.getChannelTypeReadable(channel);
@@ -855,12 +815,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("%s ID: %s", channel.getType().equals(ChannelType.CATEGORY) ? "Category" : "Channel", channel.getId()), null));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.CHANNEL_CREATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == channel.getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.CHANNEL_CREATE, channel.getIdLong(), entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -871,10 +826,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onChannelCreate] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), channel.getName(), channel.getId()));
 				}
 				
-				this.send(channel.getJDA(), guild, data, embed.build());
+				this.send(channel.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(channel.getJDA(), guild, data, embed.build());
+			this.send(channel.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -893,8 +848,8 @@ public class EventHandler extends ListenerAdapter {
 	public void onChannelUpdateName(GuildChannel channel, String previous, String current) {
 		Guild guild = channel.getGuild();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
@@ -902,20 +857,12 @@ public class EventHandler extends ListenerAdapter {
 			channel.getType().equals(ChannelType.VOICE) ? Event.VOICE_CHANNEL_NAME_UPDATE : 
 			channel.getType().equals(ChannelType.STORE) ? Event.STORE_CHANNEL_NAME_UPDATE : Event.CATEGORY_NAME_UPDATE;
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(eventType)) {
+		if (!config.isEnabled(eventType)) {
 			return;
 		}
 		
-		List<Document> channels = data.getEmbedded(List.of("blacklisted", "channels"), Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong()) {
-				if ((channelBlacklist.getLong("events") & eventType.getRaw()) == eventType.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.CHANNEL, channel.getIdLong(), eventType)) {
+			return;
 		}
 
 		String type = Utils.getChannelTypeReadable(channel);
@@ -934,13 +881,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.addField(new EmbedField(false, "After", String.format("`%s`", current)));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.CHANNEL_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == channel.getIdLong())
-					.filter(e -> e.getChangeByKey(AuditLogKey.CHANNEL_NAME) != null)
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.CHANNEL_UPDATE, channel.getIdLong(), e -> e.getChangeByKey(AuditLogKey.CHANNEL_NAME) != null, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -951,10 +892,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onChannelUpdateName] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), channel.getName(), channel.getId()));
 				}
 				
-				this.send(channel.getJDA(), guild, data, embed.build());
+				this.send(channel.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(channel.getJDA(), guild, data, embed.build());
+			this.send(channel.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -974,25 +915,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		Role role = event.getRole();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.ROLE_CREATE)) {
+		if (!config.isEnabled(Event.ROLE_CREATE)) {
 			return;
 		}
 		
-		List<Document> roles = data.getEmbedded(List.of("blacklisted", "roles"), Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == role.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & Event.ROLE_CREATE.getRaw()) == Event.ROLE_CREATE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, role.getIdLong(), Event.ROLE_CREATE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -1003,12 +936,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("Role ID: %s", role.getId()), null));
 		
 		if(!role.isManaged() && guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.ROLE_CREATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == event.getRole().getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.ROLE_CREATE, event.getRole().getIdLong(), entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1019,10 +947,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onRoleCreate] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), role.getName(), role.getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1030,25 +958,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		Role role = event.getRole();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.ROLE_DELETE)) {
+		if (!config.isEnabled(Event.ROLE_DELETE)) {
 			return;
 		}
 		
-		List<Document> roles = data.getEmbedded(List.of("blacklisted", "roles"), Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == role.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & Event.ROLE_DELETE.getRaw()) == Event.ROLE_DELETE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, role.getIdLong(), Event.ROLE_DELETE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -1059,12 +979,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("Role ID: %s", role.getId()), null));
 		
 		if(!role.isManaged() && guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.ROLE_DELETE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == event.getRole().getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.ROLE_DELETE, event.getRole().getIdLong(), entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1075,10 +990,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onRoleCreate] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), role.getName(), role.getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1086,25 +1001,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		Role role = event.getRole();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.ROLE_NAME_UPDATE)) {
+		if (!config.isEnabled(Event.ROLE_NAME_UPDATE)) {
 			return;
 		}
 		
-		List<Document> roles = data.getEmbedded(List.of("blacklisted", "roles"), Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == role.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & Event.ROLE_NAME_UPDATE.getRaw()) == Event.ROLE_NAME_UPDATE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, role.getIdLong(), Event.ROLE_NAME_UPDATE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -1118,13 +1025,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.addField(new EmbedField(false, "After", String.format("`%s`", event.getNewName())));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.ROLE_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == event.getRole().getIdLong())
-					.filter(e -> e.getChangeByKey(AuditLogKey.ROLE_NAME) != null)
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.ROLE_UPDATE, event.getRole().getIdLong(), e -> e.getChangeByKey(AuditLogKey.ROLE_NAME) != null, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1135,10 +1036,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onRoleUpdateName] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), role.getName(), role.getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1171,25 +1072,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		Role role = event.getRole();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.ROLE_PERMISSION_UPDATE)) {
+		if (!config.isEnabled(Event.ROLE_PERMISSION_UPDATE)) {
 			return;
 		}
 		
-		List<Document> roles = data.getEmbedded(List.of("blacklisted", "roles"), Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == role.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & Event.ROLE_PERMISSION_UPDATE.getRaw()) == Event.ROLE_PERMISSION_UPDATE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, role.getIdLong(), Event.ROLE_PERMISSION_UPDATE)) {
+			return;
 		}
 
 		String message = this.getPermissionDifference(event.getOldPermissionsRaw(), event.getNewPermissionsRaw());
@@ -1204,13 +1097,7 @@ public class EventHandler extends ListenerAdapter {
 			embed.setFooter(new EmbedFooter(String.format("Role ID: %s", role.getId()), null));
 			
 			if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-				guild.retrieveAuditLogs().type(ActionType.ROLE_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-					AuditLogEntry entry = logs.stream()
-						.filter(e -> e.getTargetIdLong() == event.getRole().getIdLong())
-						.filter(e -> e.getChangeByKey(AuditLogKey.ROLE_PERMISSIONS) != null)
-						.findFirst()
-						.orElse(null);
-					
+				this.auditLogs.retrieve(guild, ActionType.ROLE_UPDATE, event.getRole().getIdLong(), e -> e.getChangeByKey(AuditLogKey.ROLE_PERMISSIONS) != null, entry -> {
 					if(entry != null) {
 						Statistics.increaseSuccessfulAuditLogs();
 						
@@ -1225,14 +1112,14 @@ public class EventHandler extends ListenerAdapter {
 					
 					embed.setDescription(embedDescription.toString());
 					
-					this.send(event.getJDA(), guild, data, embed.build());
+					this.send(event.getJDA(), guild, config, embed.build());
 				});
 			}else{
 				embedDescription.append(message);
 				
 				embed.setDescription(embedDescription.toString());
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			}
 		}
 	}
@@ -1281,51 +1168,27 @@ public class EventHandler extends ListenerAdapter {
 		GuildChannel channel = event.getChannel();
 		IPermissionHolder permissionHolder = event.getPermissionHolder();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
 		Event logEvent = event.getChannelType() == ChannelType.STORE ? Event.STORE_CHANNEL_OVERRIDE_CREATE : event.getChannelType() == ChannelType.VOICE ? Event.VOICE_CHANNEL_OVERRIDE_CREATE : Event.TEXT_CHANNEL_OVERRIDE_CREATE;
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(logEvent)) {
+		if (!config.isEnabled(logEvent)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> roles = blacklisted.getList("roles", Document.class, Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == permissionHolder.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, permissionHolder.getIdLong(), logEvent)) {
+			return;
 		}
 		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == permissionHolder.getIdLong()) {
-				if ((userBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, permissionHolder.getIdLong(), logEvent)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, logEvent)) {
+			return;
 		}
 		
 		PermissionOverride permissionOverride = event.getPermissionOverride();
@@ -1341,22 +1204,19 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("%s ID: %s", event.isRoleOverride() ? "Role" : "User", permissionHolder.getIdLong()), null));
 		
 		if (guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.CHANNEL_OVERRIDE_CREATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() <= 5)
-					.filter(e -> e.getTargetIdLong() == channel.getIdLong())
-					.filter(e -> {
-						AuditLogChange allow = e.getChangeByKey("allow");
-						AuditLogChange deny = e.getChangeByKey("deny");
-						
-						int denyNew = deny == null ? (int) permissionOverride.getDeniedRaw() : deny.getNewValue();
-						int allowNew = allow == null ? (int) permissionOverride.getAllowedRaw() : allow.getNewValue();
-						
-						return denyNew == permissionOverride.getDeniedRaw() && allowNew == permissionOverride.getAllowedRaw();
-					})
-					.findFirst()
-					.orElse(null);
+			this.auditLogs.retrieve(guild, ActionType.CHANNEL_OVERRIDE_CREATE, channel.getIdLong(), e -> {
+				if(Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() > 5) {
+					return false;
+				}
+				
+				AuditLogChange allow = e.getChangeByKey("allow");
+				AuditLogChange deny = e.getChangeByKey("deny");
 				
+				int denyNew = deny == null ? (int) permissionOverride.getDeniedRaw() : deny.getNewValue();
+				int allowNew = allow == null ? (int) permissionOverride.getAllowedRaw() : allow.getNewValue();
+				
+				return denyNew == permissionOverride.getDeniedRaw() && allowNew == permissionOverride.getAllowedRaw();
+			}, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1371,14 +1231,14 @@ public class EventHandler extends ListenerAdapter {
 				
 				embed.setDescription(embedDescription.toString());
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		} else {
 			embedDescription.append(message);
 			
 			embed.setDescription(embedDescription.toString());
 			
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1387,51 +1247,27 @@ public class EventHandler extends ListenerAdapter {
 		GuildChannel channel = event.getChannel();
 		IPermissionHolder permissionHolder = event.getPermissionHolder();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
 		Event logEvent = event.getChannelType() == ChannelType.STORE ? Event.STORE_CHANNEL_OVERRIDE_UPDATE : event.getChannelType() == ChannelType.VOICE ? Event.VOICE_CHANNEL_OVERRIDE_UPDATE : Event.TEXT_CHANNEL_OVERRIDE_UPDATE;
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(logEvent)) {
+		if (!config.isEnabled(logEvent)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> roles = blacklisted.getList("roles", Document.class, Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == permissionHolder.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, permissionHolder.getIdLong(), logEvent)) {
+			return;
 		}
 		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == permissionHolder.getIdLong()) {
-				if ((userBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, permissionHolder.getIdLong(), logEvent)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, logEvent)) {
+			return;
 		}
 		
 		PermissionOverride permissionOverride = event.getPermissionOverride();
@@ -1447,22 +1283,19 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("%s ID: %s", event.isRoleOverride() ? "Role" : "User", permissionHolder.getIdLong()), null));
 		
 		if (guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.CHANNEL_OVERRIDE_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() <= 5)
-					.filter(e -> e.getTargetIdLong() == channel.getIdLong())
-					.filter(e -> {
-						AuditLogChange allow = e.getChangeByKey("allow");
-						AuditLogChange deny = e.getChangeByKey("deny");
-						
-						int denyNew = deny == null ? (int) permissionOverride.getDeniedRaw() : deny.getNewValue(), denyOld = deny == null ? (int) event.getOldDenyRaw() : deny.getOldValue();
-						int allowNew = allow == null ? (int) permissionOverride.getAllowedRaw() : allow.getNewValue(), allowOld = allow == null ? (int) event.getOldAllowRaw() : allow.getOldValue();
-						
-						return denyNew == permissionOverride.getDeniedRaw() && denyOld == event.getOldDenyRaw() && allowNew == permissionOverride.getAllowedRaw() && allowOld == event.getOldAllowRaw();
-					})
-					.findFirst()
-					.orElse(null);
+			this.auditLogs.retrieve(guild, ActionType.CHANNEL_OVERRIDE_UPDATE, channel.getIdLong(), e -> {
+				if(Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() > 5) {
+					return false;
+				}
+				
+				AuditLogChange allow = e.getChangeByKey("allow");
+				AuditLogChange deny = e.getChangeByKey("deny");
 				
+				int denyNew = deny == null ? (int) permissionOverride.getDeniedRaw() : deny.getNewValue(), denyOld = deny == null ? (int) event.getOldDenyRaw() : deny.getOldValue();
+				int allowNew = allow == null ? (int) permissionOverride.getAllowedRaw() : allow.getNewValue(), allowOld = allow == null ? (int) event.getOldAllowRaw() : allow.getOldValue();
+				
+				return denyNew == permissionOverride.getDeniedRaw() && denyOld == event.getOldDenyRaw() && allowNew == permissionOverride.getAllowedRaw() && allowOld == event.getOldAllowRaw();
+			}, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1477,14 +1310,14 @@ public class EventHandler extends ListenerAdapter {
 				
 				embed.setDescription(embedDescription.toString());
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		} else {
 			embedDescription.append(message);
 			
 			embed.setDescription(embedDescription.toString());
 			
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1493,51 +1326,27 @@ public class EventHandler extends ListenerAdapter {
 		GuildChannel channel = event.getChannel();
 		IPermissionHolder permissionHolder = event.getPermissionHolder();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
 		Event logEvent = event.getChannelType() == ChannelType.STORE ? Event.STORE_CHANNEL_OVERRIDE_DELETE : event.getChannelType() == ChannelType.VOICE ? Event.VOICE_CHANNEL_OVERRIDE_DELETE : Event.TEXT_CHANNEL_OVERRIDE_DELETE;
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(logEvent)) {
+		if (!config.isEnabled(logEvent)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> roles = blacklisted.getList("roles", Document.class, Collections.emptyList());
-		for (Document roleBlacklist : roles) {
-			if (roleBlacklist.getLong("id") == permissionHolder.getIdLong()) {
-				if ((roleBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.ROLE, permissionHolder.getIdLong(), logEvent)) {
+			return;
 		}
 		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == permissionHolder.getIdLong()) {
-				if ((userBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, permissionHolder.getIdLong(), logEvent)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, logEvent)) {
+			return;
 		}
 		
 		StringBuilder embedDescription = new StringBuilder();
@@ -1550,13 +1359,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setFooter(new EmbedFooter(String.format("%s ID: %s", event.isRoleOverride() ? "Role" : "User", permissionHolder.getIdLong()), null));
 		
 		if (guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.CHANNEL_OVERRIDE_DELETE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() <= 5)
-					.filter(e -> e.getTargetIdLong() == channel.getIdLong())
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.CHANNEL_OVERRIDE_DELETE, channel.getIdLong(), e -> Duration.between(e.getTimeCreated(), ZonedDateTime.now(ZoneOffset.UTC)).toSeconds() <= 5, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1569,12 +1372,12 @@ public class EventHandler extends ListenerAdapter {
 				
 				embed.setDescription(embedDescription.toString());
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		} else {
 			embed.setDescription(embedDescription.toString());
 			
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1585,39 +1388,22 @@ public class EventHandler extends ListenerAdapter {
 		List<Role> roles = event.getRoles();
 		Role firstRole = roles.get(0);
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_ROLE_ADD)) {
+		if (!config.isEnabled(Event.MEMBER_ROLE_ADD)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_ROLE_ADD.getRaw()) == Event.MEMBER_ROLE_ADD.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_ROLE_ADD)) {
+			return;
 		}
 		
-		List<Document> blacklistedRoles = blacklisted.getList("roles", Document.class, Collections.emptyList());
-		for (Document roleBlacklist : blacklistedRoles) {
-			for (Role role : roles) {
-				if (roleBlacklist.getLong("id") == role.getIdLong()) {
-					if ((roleBlacklist.getLong("events") & Event.MEMBER_ROLE_ADD.getRaw()) == Event.MEMBER_ROLE_ADD.getRaw()) {
-						return;
-					}
-					
-					break;
-				}
+		for (Role role : roles) {
+			if (config.isBlacklisted(Category.ROLE, role.getIdLong(), Event.MEMBER_ROLE_ADD)) {
+				return;
 			}
 		}
 
@@ -1658,25 +1444,22 @@ public class EventHandler extends ListenerAdapter {
 		}
 		
 		if(!firstRole.isManaged() && guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.MEMBER_ROLE_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == member.getUser().getIdLong())
-					.filter(e -> e.getChangeByKey(AuditLogKey.MEMBER_ROLES_ADD) != null)
-					.filter(e -> {
-						List<Map<String, String>> roleEntries = e.getChangeByKey(AuditLogKey.MEMBER_ROLES_ADD).getNewValue();
-						List<String> roleIds = roleEntries.stream().map(roleEntry -> roleEntry.get("id")).collect(Collectors.toList());
-						
-						for(Role role : roles) {
-							if(!roleIds.contains(role.getId())) {
-								return false;
-							}
-						}
-						
-						return true;
-					})
-					.findFirst()
-					.orElse(null);
+			this.auditLogs.retrieve(guild, ActionType.MEMBER_ROLE_UPDATE, member.getUser().getIdLong(), e -> {
+				if(e.getChangeByKey(AuditLogKey.MEMBER_ROLES_ADD) == null) {
+					return false;
+				}
 				
+				List<Map<String, String>> roleEntries = e.getChangeByKey(AuditLogKey.MEMBER_ROLES_ADD).getNewValue();
+				List<String> roleIds = roleEntries.stream().map(roleEntry -> roleEntry.get("id")).collect(Collectors.toList());
+				
+				for(Role role : roles) {
+					if(!roleIds.contains(role.getId())) {
+						return false;
+					}
+				}
+				
+				return true;
+			}, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1689,12 +1472,12 @@ public class EventHandler extends ListenerAdapter {
 				
 				embed.setDescription(embedDescription.toString());
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
 			embed.setDescription(embedDescription.toString());
 			
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1705,42 +1488,27 @@ public class EventHandler extends ListenerAdapter {
 		List<Role> roles = event.getRoles();
 		Role firstRole = roles.get(0);
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_ROLE_REMOVE)) {
+		if (!config.isEnabled(Event.MEMBER_ROLE_REMOVE)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_ROLE_REMOVE.getRaw()) == Event.MEMBER_ROLE_REMOVE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_ROLE_REMOVE)) {
+			return;
 		}
 		
-		List<Document> blacklistedRoles = blacklisted.getList("roles", Document.class, Collections.emptyList());
-		for (Document roleBlacklist : blacklistedRoles) {
-			for (Role role : roles) {
-				if (roleBlacklist.getLong("id") == role.getIdLong()) {
-					if ((roleBlacklist.getLong("events") & Event.MEMBER_ROLE_REMOVE.getRaw()) == Event.MEMBER_ROLE_REMOVE.getRaw()) {
-						return;
-					}
-					
-					break;
-				}
+		for (Role role : roles) {
+			if (config.isBlacklisted(Category.ROLE, role.getIdLong(), Event.MEMBER_ROLE_REMOVE)) {
+				return;
 			}
 		}
 
+		long eventTime = System.currentTimeMillis();
+
 		/* Wait AUDIT_LOG_DELAY milliseconds to ensure that the role-deletion event has come through */
 		new CompletedRestAction<Void>(event.getJDA(), (Void) null).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, ($) -> {
 			StringBuilder embedDescription = new StringBuilder();
@@ -1754,7 +1522,7 @@ public class EventHandler extends ListenerAdapter {
 				embed.setDescription(String.format("The role `%s` has been removed from `%s` by **role deletion**", firstRole.getName(), member.getEffectiveName()));
 				embed.setFooter(new EmbedFooter(String.format("Role ID: %s", firstRole.getId()), null));
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			}else{
 				if(roles.size() > 1) {
 					StringBuilder builder = new StringBuilder();
@@ -1786,25 +1554,22 @@ public class EventHandler extends ListenerAdapter {
 				}
 				
 				if(!firstRole.isManaged() && guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-					guild.retrieveAuditLogs().type(ActionType.MEMBER_ROLE_UPDATE).limit(100).queue(logs -> {
-						AuditLogEntry entry = logs.stream()
-							.filter(e -> e.getTargetIdLong() == member.getUser().getIdLong())
-							.filter(e -> e.getChangeByKey(AuditLogKey.MEMBER_ROLES_REMOVE) != null)
-							.filter(e -> {
-								List<Map<String, String>> roleEntries = e.getChangeByKey(AuditLogKey.MEMBER_ROLES_REMOVE).getNewValue();
-								List<String> roleIds = roleEntries.stream().map(roleEntry -> roleEntry.get("id")).collect(Collectors.toList());
-								
-								for(Role role : roles) {
-									if(!roleIds.contains(role.getId())) {
-										return false;
-									}
-								}
-								
-								return true;
-							})
-							.findFirst()
-							.orElse(null);
+					this.auditLogs.retrieve(guild, ActionType.MEMBER_ROLE_UPDATE, member.getUser().getIdLong(), eventTime, e -> {
+						if(e.getChangeByKey(AuditLogKey.MEMBER_ROLES_REMOVE) == null) {
+							return false;
+						}
 						
+						List<Map<String, String>> roleEntries = e.getChangeByKey(AuditLogKey.MEMBER_ROLES_REMOVE).getNewValue();
+						List<String> roleIds = roleEntries.stream().map(roleEntry -> roleEntry.get("id")).collect(Collectors.toList());
+						
+						for(Role role : roles) {
+							if(!roleIds.contains(role.getId())) {
+								return false;
+							}
+						}
+						
+						return true;
+					}, entry -> {
 						if(entry != null) {
 							Statistics.increaseSuccessfulAuditLogs();
 							
@@ -1817,12 +1582,12 @@ public class EventHandler extends ListenerAdapter {
 						
 						embed.setDescription(embedDescription.toString());
 						
-						this.send(event.getJDA(), guild, data, embed.build());
+						this.send(event.getJDA(), guild, config, embed.build());
 					});
 				}else{
 					embed.setDescription(embedDescription.toString());
 					
-					this.send(event.getJDA(), guild, data, embed.build());
+					this.send(event.getJDA(), guild, config, embed.build());
 				}
 			}
 		});
@@ -1832,25 +1597,17 @@ public class EventHandler extends ListenerAdapter {
 		Guild guild = event.getGuild();
 		Member member = event.getMember();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_NICKNAME_UPDATE)) {
+		if (!config.isEnabled(Event.MEMBER_NICKNAME_UPDATE)) {
 			return;
 		}
 		
-		List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_NICKNAME_UPDATE.getRaw()) == Event.MEMBER_NICKNAME_UPDATE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_NICKNAME_UPDATE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -1863,13 +1620,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.addField(new EmbedField(false, "After", String.format("`%s`", event.getNewNickname() != null ? event.getNewNickname() : member.getUser().getName())));
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.MEMBER_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == member.getUser().getIdLong())
-					.filter(e -> e.getChangeByKey(AuditLogKey.MEMBER_NICK) != null)
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.MEMBER_UPDATE, member.getUser().getIdLong(), e -> e.getChangeByKey(AuditLogKey.MEMBER_NICK) != null, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1880,10 +1631,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onGuildMemberNickChange] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), member.getUser().getName(), member.getUser().getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1892,38 +1643,21 @@ public class EventHandler extends ListenerAdapter {
 		Member member = event.getMember();
 		VoiceChannel channel = event.getVoiceState().getChannel();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_SERVER_VOICE_MUTE)) {
+		if (!config.isEnabled(Event.MEMBER_SERVER_VOICE_MUTE)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_SERVER_VOICE_MUTE.getRaw()) == Event.MEMBER_SERVER_VOICE_MUTE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_SERVER_VOICE_MUTE)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & Event.MEMBER_SERVER_VOICE_MUTE.getRaw()) == Event.MEMBER_SERVER_VOICE_MUTE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, Event.MEMBER_SERVER_VOICE_MUTE)) {
+			return;
 		}
 
 		boolean muted = event.getVoiceState().isGuildMuted();
@@ -1940,13 +1674,7 @@ public class EventHandler extends ListenerAdapter {
 		}
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.MEMBER_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == member.getUser().getIdLong())
-					.filter(e -> e.getChangeByKey(AuditLogKey.MEMBER_MUTE) != null)
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.MEMBER_UPDATE, member.getUser().getIdLong(), e -> e.getChangeByKey(AuditLogKey.MEMBER_MUTE) != null, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -1957,10 +1685,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onGuildVoiceGuildMute] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), member.getUser().getAsTag(), member.getUser().getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -1969,38 +1697,21 @@ public class EventHandler extends ListenerAdapter {
 		Member member = event.getMember();	
 		VoiceChannel channel = event.getVoiceState().getChannel();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_SERVER_VOICE_DEAFEN)) {
+		if (!config.isEnabled(Event.MEMBER_SERVER_VOICE_DEAFEN)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_SERVER_VOICE_DEAFEN.getRaw()) == Event.MEMBER_SERVER_VOICE_DEAFEN.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_SERVER_VOICE_DEAFEN)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & Event.MEMBER_SERVER_VOICE_DEAFEN.getRaw()) == Event.MEMBER_SERVER_VOICE_DEAFEN.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, Event.MEMBER_SERVER_VOICE_DEAFEN)) {
+			return;
 		}
 
 		boolean deafened = event.getVoiceState().isGuildDeafened();
@@ -2017,13 +1728,7 @@ public class EventHandler extends ListenerAdapter {
 		}
 		
 		if(guild.getSelfMember().hasPermission(Permission.VIEW_AUDIT_LOGS)) {
-			guild.retrieveAuditLogs().type(ActionType.MEMBER_UPDATE).limit(100).queueAfter(AUDIT_LOG_DELAY, TimeUnit.MILLISECONDS, logs -> {
-				AuditLogEntry entry = logs.stream()
-					.filter(e -> e.getTargetIdLong() == member.getUser().getIdLong())
-					.filter(e -> e.getChangeByKey(AuditLogKey.MEMBER_DEAF) != null)
-					.findFirst()
-					.orElse(null);
-				
+			this.auditLogs.retrieve(guild, ActionType.MEMBER_UPDATE, member.getUser().getIdLong(), e -> e.getChangeByKey(AuditLogKey.MEMBER_DEAF) != null, entry -> {
 				if(entry != null) {
 					Statistics.increaseSuccessfulAuditLogs();
 					
@@ -2034,10 +1739,10 @@ public class EventHandler extends ListenerAdapter {
 					System.err.println(String.format("[onGuildVoiceGuildDeafen] Could not find audit log for %s (%s) %s (%s)", guild.getName(), guild.getId(), member.getUser().getAsTag(), member.getUser().getId()));
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 		}else{
-			this.send(event.getJDA(), guild, data, embed.build());
+			this.send(event.getJDA(), guild, config, embed.build());
 		}
 	}
 	
@@ -2046,38 +1751,21 @@ public class EventHandler extends ListenerAdapter {
 		Member member = event.getMember();
 		VoiceChannel channel = event.getChannelJoined();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_VOICE_JOIN)) {
+		if (!config.isEnabled(Event.MEMBER_VOICE_JOIN)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_VOICE_JOIN.getRaw()) == Event.MEMBER_VOICE_JOIN.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_VOICE_JOIN)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & Event.MEMBER_VOICE_JOIN.getRaw()) == Event.MEMBER_VOICE_JOIN.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, Event.MEMBER_VOICE_JOIN)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -2086,7 +1774,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setTimestamp(ZonedDateTime.now());
 		embed.setAuthor(new EmbedAuthor(member.getUser().getAsTag(), member.getUser().getEffectiveAvatarUrl(), null));
 		
-		this.send(event.getJDA(), guild, data, embed.build());
+		this.send(event.getJDA(), guild, config, embed.build());
 	}
 	
 	public void onGuildVoiceLeave(GuildVoiceLeaveEvent event) {
@@ -2094,8 +1782,8 @@ public class EventHandler extends ListenerAdapter {
 		Member member = event.getMember();
 		VoiceChannel channel = event.getChannelLeft();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
@@ -2148,68 +1836,34 @@ public class EventHandler extends ListenerAdapter {
 					embed.setDescription(String.format("`%s` was disconnected from the voice channel `%s` by **%s**", member.getEffectiveName(), channel.getName(), entry.getUser().getAsTag()));
 				}
 				
-				EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-				if (!events.contains(logEvent)) {
+				if (!config.isEnabled(logEvent)) {
 					return;
 				}
 				
-				Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-				
-				List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-				for (Document userBlacklist : users) {
-					if (userBlacklist.getLong("id") == member.getIdLong()) {
-						if ((userBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-							return;
-						}
-						
-						break;
-					}
+				if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), logEvent)) {
+					return;
 				}
 				
-				List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-				for (Document channelBlacklist : channels) {
-					if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-						if ((channelBlacklist.getLong("events") & logEvent.getRaw()) == logEvent.getRaw()) {
-							return;
-						}
-						
-						break;
-					}
+				if (config.isBlacklisted(channel, logEvent)) {
+					return;
 				}
 				
-				this.send(event.getJDA(), guild, data, embed.build());
+				this.send(event.getJDA(), guild, config, embed.build());
 			});
 			
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_VOICE_LEAVE)) {
+		if (!config.isEnabled(Event.MEMBER_VOICE_LEAVE)) {
 			return;
 		}
 		
-		Document blacklisted = data.get("blacklisted", Database.EMPTY_DOCUMENT);
-		
-		List<Document> users = blacklisted.getList("users", Document.class, Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_VOICE_LEAVE.getRaw()) == Event.MEMBER_VOICE_LEAVE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_VOICE_LEAVE)) {
+			return;
 		}
 		
-		List<Document> channels = blacklisted.getList("channels", Document.class, Collections.emptyList());
-		for (Document channelBlacklist : channels) {
-			if (channelBlacklist.getLong("id") == channel.getIdLong() || (channel.getParent() != null && channelBlacklist.getLong("id") == channel.getParent().getIdLong())) {
-				if ((channelBlacklist.getLong("events") & Event.MEMBER_VOICE_LEAVE.getRaw()) == Event.MEMBER_VOICE_LEAVE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(channel, Event.MEMBER_VOICE_LEAVE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -2218,7 +1872,7 @@ public class EventHandler extends ListenerAdapter {
 		embed.setTimestamp(ZonedDateTime.now());
 		embed.setAuthor(new EmbedAuthor(member.getUser().getAsTag(), member.getUser().getEffectiveAvatarUrl(), null));
 		
-		this.send(event.getJDA(), guild, data, embed.build());
+		this.send(event.getJDA(), guild, config, embed.build());
 	}
 	
 	public void onGuildVoiceMove(GuildVoiceMoveEvent event) {
@@ -2227,25 +1881,17 @@ public class EventHandler extends ListenerAdapter {
 		
 		VoiceChannel left = event.getChannelLeft(), joined = event.getChannelJoined();
 		
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, DEFAULT_PROJECTION).get("logger", Database.EMPTY_DOCUMENT);
-		if (!data.getBoolean("enabled", false) || data.getLong("channelId") == null) {
+		LoggerConfig config = this.getConfig(guild);
+		if (!config.isActive()) {
 			return;
 		}
 		
-		EnumSet<Event> events = Event.getEvents(data.get("events", Event.ALL_EVENTS));
-		if (!events.contains(Event.MEMBER_VOICE_MOVE)) {
+		if (!config.isEnabled(Event.MEMBER_VOICE_MOVE)) {
 			return;
 		}
 		
-		List<Document> users = data.getEmbedded(List.of("blacklisted", "users"), Collections.emptyList());
-		for (Document userBlacklist : users) {
-			if (userBlacklist.getLong("id") == member.getIdLong()) {
-				if ((userBlacklist.getLong("events") & Event.MEMBER_VOICE_MOVE.getRaw()) == Event.MEMBER_VOICE_MOVE.getRaw()) {
-					return;
-				}
-				
-				break;
-			}
+		if (config.isBlacklisted(Category.MEMBER, member.getIdLong(), Event.MEMBER_VOICE_MOVE)) {
+			return;
 		}
 
 		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
@@ -2257,6 +1903,6 @@ public class EventHandler extends ListenerAdapter {
 		embed.addField(new EmbedField(false, "Before", String.format("`%s`", left.getName())));
 		embed.addField(new EmbedField(false, "After", String.format("`%s`", joined.getName())));
 		
-		this.send(event.getJDA(), guild, data, embed.build());
+		this.send(event.getJDA(), guild, config, embed.build());
 	}
 }
\ No newline at end of file
@@ -0,0 +1,542 @@
+package com.sx4.bot.logger.handler;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongFunction;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.sx4.bot.logger.LoggerConfig;
+import com.sx4.bot.logger.handler.EventHandler.Request;
+import com.sx4.bot.logger.util.Utils;
+
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.MessageEmbed;
+
+/**
+ * Sends the logs of every guild from a small fixed pool, a guild with pending requests is handed to the pool once and
+ * its requests are bulked into as few webhook messages as possible.
+ *
+ * The next message of a guild is only sent once the previous one has completed so the logs of a guild stay in order
+ * without a thread being parked for every guild while the webhook request is in flight.
+ *
+ * Embeds are packed into messages in the order they were queued, a message is filled until the next embed would go over
+ * the embed or length limit and a request which does not fit is split across messages, with the order fixed this fills
+ * every message as much as it can be. When a planner is given the requests of a guild are held while its webhook is rate
+ * limited so they are sent in fuller messages once the bucket resets instead of being retried by the webhook client.
+ *
+ * When a journal is given the requests of a guild are spilled to it once too many requests are held in memory or the
+ * guild has stopped being delivered to, every request after that is spilled as well until the journal has caught up so
+ * the order is kept. Spilled requests are read back as the guild has room for them and acknowledged once they are sent.
+ */
+public class LogDispatcher {
+
+	private static final String STATISTICS_MESSAGE = "Dispatcher: %,d queued logs in %,d guilds, %,d sends in flight, %,d logs completed, %.2fms average latency, %,dms max latency, %,d messages, %.2f embeds per message, %,d holds";
+
+	public static final int THREADS = 4;
+
+	public static final int MAX_EMBEDS = 10;
+
+	/* Requests held in memory by every guild and by a single guild before new requests are spilled to the journal */
+	public static final int MAX_QUEUED_IN_MEMORY = 10000;
+	public static final int MAX_GUILD_QUEUED_IN_MEMORY = 250;
+
+	/* How long the oldest request or the message in flight of a guild can wait before its new requests are spilled */
+	public static final long STALL_AFTER = TimeUnit.SECONDS.toNanos(30);
+
+	public interface Sender {
+
+		/**
+		 * @param request the latest request which is being sent, the rest are bulked into its message
+		 * @param requests the amount of requests whose last embed is in the message
+		 * @return a future which is completed once the message has been sent or given up on
+		 */
+		public CompletableFuture<Void> send(Request request, List<WebhookEmbed> embeds, int requests);
+
+	}
+
+	private static class GuildQueue {
+
+		private final Deque<Request> requests = new ArrayDeque<>();
+
+		/* How many embeds of the first request have already been sent */
+		private int offset = 0;
+
+		/* The embeds which have not been sent yet and their length */
+		private int embeds = 0;
+		private int length = 0;
+
+		/* Set while the guild is held for the rate limit of its webhook */
+		private ScheduledFuture<?> hold = null;
+
+		/* Requests in the journal which come after every request in memory */
+		private final Deque<LogJournal.Entry> spilled = new ArrayDeque<>();
+
+		/* When the message in flight was sent, 0 if there is none */
+		private long sentAt = 0;
+
+		private void add(Request request, int length) {
+			this.requests.add(request);
+			this.embeds += request.embeds.size();
+			this.length += length;
+		}
+
+		private boolean isFull() {
+			return this.isFullInMemory() || !this.spilled.isEmpty();
+		}
+
+		private boolean isFullInMemory() {
+			return this.embeds >= LogDispatcher.MAX_EMBEDS || this.length >= MessageEmbed.EMBED_MAX_LENGTH_BOT;
+		}
+
+		private boolean isStalled(long now) {
+			if(this.sentAt != 0 && now - this.sentAt >= LogDispatcher.STALL_AFTER) {
+				return true;
+			}
+
+			return !this.requests.isEmpty() && now - this.requests.peek().queuedAt >= LogDispatcher.STALL_AFTER;
+		}
+
+	}
+
+	private static class Batch {
+
+		/* The requests whose last embed is in this message */
+		private final List<Request> requests = new ArrayList<>();
+		private final List<WebhookEmbed> embeds = new ArrayList<>();
+
+		private Request request = null;
+
+		private long delay = 0;
+
+	}
+
+	/*
+	 * A guild only has a queue while it has been handed to the pool or has a message in flight, queues are created and
+	 * removed in a compute of their guild so a guild is never handed to the pool twice
+	 */
+	private final Map<Long, GuildQueue> queues = new ConcurrentHashMap<>();
+
+	private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(LogDispatcher.THREADS, new ThreadFactoryBuilder().setNameFormat("logger-%d").build());
+
+	private final Sender sender;
+	private final WebhookPlanner planner;
+	private final LogJournal journal;
+
+	private final AtomicInteger queued = new AtomicInteger(0);
+	private final AtomicInteger inMemory = new AtomicInteger(0);
+	private final AtomicInteger inFlight = new AtomicInteger(0);
+
+	private final AtomicLong completed = new AtomicLong(0);
+	private final AtomicLong totalLatencyNanos = new AtomicLong(0);
+	private final AtomicLong maxLatencyNanos = new AtomicLong(0);
+
+	private final AtomicLong messages = new AtomicLong(0);
+	private final AtomicLong embeds = new AtomicLong(0);
+	private final AtomicLongArray messageSizes = new AtomicLongArray(LogDispatcher.MAX_EMBEDS + 1);
+	private final AtomicLong holds = new AtomicLong(0);
+
+	/**
+	 * @param planner the planner requests are held by while their webhook is rate limited, null to send them straight away
+	 * @param journal the journal requests are spilled to, null to keep every request in memory
+	 */
+	public LogDispatcher(Sender sender, WebhookPlanner planner, LogJournal journal) {
+		this.sender = sender;
+		this.planner = planner;
+		this.journal = journal;
+	}
+
+	public LogDispatcher(Sender sender, WebhookPlanner planner) {
+		this(sender, planner, null);
+	}
+
+	public LogDispatcher(Sender sender) {
+		this(sender, null, null);
+	}
+
+	public void offer(Request request) {
+		int length = request.embeds.stream()
+			.mapToInt(embed -> Utils.getLength(embed))
+			.sum();
+
+		this.queued.incrementAndGet();
+
+		this.queues.compute(request.guildId, (guildId, queue) -> {
+			if(queue == null) {
+				GuildQueue newQueue = new GuildQueue();
+				this.add(newQueue, request, length);
+
+				this.executor.execute(() -> this.process(guildId, newQueue));
+
+				return newQueue;
+			}
+
+			synchronized(queue) {
+				this.add(queue, request, length);
+
+				/* A full message is worth the last use of the bucket, if the bucket is empty the planner holds it again */
+				if(queue.hold != null && queue.isFull() && queue.hold.cancel(false)) {
+					queue.hold = null;
+
+					this.executor.execute(() -> this.process(guildId, queue));
+				}
+			}
+
+			return queue;
+		});
+	}
+
+	private void add(GuildQueue queue, Request request, int length) {
+		if(this.journal != null && (!queue.spilled.isEmpty() || this.inMemory.get() >= LogDispatcher.MAX_QUEUED_IN_MEMORY || queue.requests.size() >= LogDispatcher.MAX_GUILD_QUEUED_IN_MEMORY || queue.isStalled(System.nanoTime()))) {
+			try {
+				LogJournal.Entry entry = this.journal.append(request);
+				if(entry != null) {
+					queue.spilled.add(entry);
+
+					return;
+				}
+			} catch(Throwable e) {
+				/* Keeping the request in memory is all that can be done if it could not be written */
+				e.printStackTrace();
+			}
+		}
+
+		this.inMemory.incrementAndGet();
+
+		queue.add(request, length);
+	}
+
+	/**
+	 * Reads spilled requests back into memory until the next message could be filled from memory, a request which can
+	 * not be read is acknowledged and dropped
+	 */
+	private void load(GuildQueue queue) {
+		while(!queue.spilled.isEmpty() && !queue.isFullInMemory()) {
+			LogJournal.Entry entry = queue.spilled.poll();
+
+			Request request;
+			try {
+				request = this.journal.read(entry);
+			} catch(Throwable e) {
+				e.printStackTrace();
+
+				this.queued.decrementAndGet();
+				this.journal.acknowledge(entry.getSequence());
+
+				continue;
+			}
+
+			int length = request.embeds.stream()
+				.mapToInt(embed -> Utils.getLength(embed))
+				.sum();
+
+			this.inMemory.incrementAndGet();
+
+			queue.add(request, length);
+		}
+	}
+
+	/**
+	 * Hands the requests recovered by the journal to their guilds, requests whose guild is not on a shard yet are kept
+	 * in the journal for a later call
+	 *
+	 * @return the amount of requests recovered
+	 */
+	public int recover(LongFunction<JDA> bots, LongFunction<LoggerConfig> configs) {
+		if(this.journal == null) {
+			return 0;
+		}
+
+		List<LogJournal.Entry> entries = this.journal.recover(bots, configs);
+		for(LogJournal.Entry entry : entries) {
+			this.queued.incrementAndGet();
+
+			this.queues.compute(entry.getGuildId(), (guildId, queue) -> {
+				if(queue == null) {
+					GuildQueue newQueue = new GuildQueue();
+					newQueue.spilled.add(entry);
+
+					this.executor.execute(() -> this.process(guildId, newQueue));
+
+					return newQueue;
+				}
+
+				synchronized(queue) {
+					queue.spilled.add(entry);
+				}
+
+				return queue;
+			});
+		}
+
+		return entries.size();
+	}
+
+	/**
+	 * Drops the pending requests of a guild, a message which is already in flight is still sent
+	 */
+	public void clear(long guildId) {
+		GuildQueue queue = this.queues.remove(guildId);
+		if(queue != null) {
+			synchronized(queue) {
+				if(queue.hold != null) {
+					queue.hold.cancel(false);
+					queue.hold = null;
+				}
+
+				this.queued.addAndGet(-queue.requests.size() - queue.spilled.size());
+				this.inMemory.addAndGet(-queue.requests.size());
+
+				if(this.journal != null) {
+					for(Request request : queue.requests) {
+						this.acknowledge(request);
+					}
+
+					for(LogJournal.Entry entry : queue.spilled) {
+						this.journal.acknowledge(entry.getSequence());
+					}
+				}
+
+				queue.requests.clear();
+				queue.spilled.clear();
+				queue.offset = 0;
+				queue.embeds = 0;
+				queue.length = 0;
+			}
+		}
+	}
+
+	private void process(long guildId, GuildQueue queue) {
+		Batch batch = new Batch();
+
+		this.queues.computeIfPresent(guildId, (key, current) -> {
+			if(current != queue) {
+				return current;
+			}
+
+			synchronized(queue) {
+				queue.hold = null;
+
+				if(this.journal != null) {
+					this.load(queue);
+				}
+
+				if(queue.requests.isEmpty()) {
+					return current;
+				}
+
+				if(this.planner != null) {
+					batch.delay = this.planner.getDelay(queue.requests.peek().config.getWebhookId(), queue.isFull());
+					if(batch.delay > 0) {
+						queue.hold = this.executor.schedule(() -> this.process(guildId, queue), batch.delay, TimeUnit.MILLISECONDS);
+
+						return current;
+					}
+				}
+
+				this.pack(queue, batch);
+
+				if(!batch.embeds.isEmpty()) {
+					queue.sentAt = System.nanoTime();
+				}
+			}
+
+			return current;
+		});
+
+		if(batch.delay > 0) {
+			this.holds.incrementAndGet();
+
+			return;
+		}
+
+		if(batch.embeds.isEmpty()) {
+			this.complete(guildId, queue);
+
+			return;
+		}
+
+		List<Request> requests = batch.requests;
+
+		this.queued.addAndGet(-requests.size());
+		this.inMemory.addAndGet(-requests.size());
+		this.inFlight.incrementAndGet();
+
+		this.messages.incrementAndGet();
+		this.embeds.addAndGet(batch.embeds.size());
+		this.messageSizes.incrementAndGet(Math.min(batch.embeds.size(), LogDispatcher.MAX_EMBEDS));
+
+		CompletableFuture<Void> future;
+		try {
+			future = this.sender.send(batch.request, batch.embeds, requests.size());
+		} catch(Throwable e) {
+			future = CompletableFuture.failedFuture(e);
+		}
+
+		future.whenComplete((result, exception) -> {
+			if(exception != null) {
+				exception.printStackTrace();
+			}
+
+			this.inFlight.decrementAndGet();
+
+			long now = System.nanoTime();
+			for(Request request : requests) {
+				long latency = now - request.queuedAt;
+
+				this.totalLatencyNanos.addAndGet(latency);
+				this.maxLatencyNanos.accumulateAndGet(latency, Math::max);
+			}
+
+			this.completed.addAndGet(requests.size());
+
+			/* A request which was given up on is acknowledged as well, the sender has already tried it as many times as it will */
+			for(Request request : requests) {
+				this.acknowledge(request);
+			}
+
+			synchronized(queue) {
+				queue.sentAt = 0;
+			}
+
+			this.complete(guildId, queue);
+		});
+	}
+
+	/**
+	 * Takes embeds from the front of the queue until the next one would not fit in the message, a single embed is always
+	 * taken so an embed which is too long on its own is still sent and rejected rather than blocking the guild
+	 */
+	private void pack(GuildQueue queue, Batch batch) {
+		int length = 0;
+		while(!queue.requests.isEmpty()) {
+			Request request = queue.requests.peek();
+
+			while(queue.offset < request.embeds.size()) {
+				WebhookEmbed embed = request.embeds.get(queue.offset);
+
+				int embedLength = Utils.getLength(embed);
+				if(!batch.embeds.isEmpty() && (batch.embeds.size() == LogDispatcher.MAX_EMBEDS || length + embedLength > MessageEmbed.EMBED_MAX_LENGTH_BOT)) {
+					return;
+				}
+
+				batch.embeds.add(embed);
+				batch.request = request;
+
+				length += embedLength;
+
+				queue.offset++;
+				queue.embeds--;
+				queue.length -= embedLength;
+			}
+
+			queue.requests.poll();
+			queue.offset = 0;
+
+			batch.requests.add(request);
+		}
+	}
+
+	private void acknowledge(Request request) {
+		if(this.journal != null && request.sequence != -1) {
+			this.journal.acknowledge(request.sequence);
+		}
+	}
+
+	private void complete(long guildId, GuildQueue queue) {
+		this.queues.computeIfPresent(guildId, (key, current) -> {
+			if(current != queue) {
+				return current;
+			}
+
+			synchronized(queue) {
+				if(queue.requests.isEmpty() && queue.spilled.isEmpty()) {
+					return null;
+				}
+			}
+
+			this.executor.execute(() -> this.process(guildId, queue));
+
+			return current;
+		});
+	}
+
+	public ScheduledExecutorService getExecutor() {
+		return this.executor;
+	}
+
+	public int getQueued() {
+		return this.queued.get();
+	}
+
+	public int getQueuedInMemory() {
+		return this.inMemory.get();
+	}
+
+	public LogJournal getJournal() {
+		return this.journal;
+	}
+
+	public int getInFlight() {
+		return this.inFlight.get();
+	}
+
+	/**
+	 * @return how many messages have been sent with each amount of embeds, indexed by the amount of embeds
+	 */
+	public long[] getMessageSizes() {
+		long[] sizes = new long[this.messageSizes.length()];
+		for(int i = 0; i < sizes.length; i++) {
+			sizes[i] = this.messageSizes.get(i);
+		}
+
+		return sizes;
+	}
+
+	public long getMessages() {
+		return this.messages.get();
+	}
+
+	/**
+	 * @return the amount of requests queued for each guild which has any
+	 */
+	public Map<Long, Integer> getQueuedByGuild() {
+		Map<Long, Integer> queued = new HashMap<>();
+		for(Map.Entry<Long, GuildQueue> entry : this.queues.entrySet()) {
+			GuildQueue queue = entry.getValue();
+			synchronized(queue) {
+				if(!queue.requests.isEmpty() || !queue.spilled.isEmpty()) {
+					queued.put(entry.getKey(), queue.requests.size() + queue.spilled.size());
+				}
+			}
+		}
+
+		return queued;
+	}
+
+	public String getStatistics() {
+		long completed = this.completed.get(), messages = this.messages.get();
+
+		String statistics = String.format(STATISTICS_MESSAGE, this.queued.get(), this.queues.size(), this.inFlight.get(), completed, completed == 0 ? 0 : this.totalLatencyNanos.get() / (double) completed / 1_000_000D, TimeUnit.NANOSECONDS.toMillis(this.maxLatencyNanos.get()), messages, messages == 0 ? 0 : this.embeds.get() / (double) messages, this.holds.get());
+
+		if(this.planner != null) {
+			statistics += "\n" + this.planner.getStatistics();
+		}
+
+		return this.journal == null ? statistics : statistics + "\n" + this.journal.getStatistics();
+	}
+
+}
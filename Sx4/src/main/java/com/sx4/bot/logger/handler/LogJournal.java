@@ -0,0 +1,476 @@
+package com.sx4.bot.logger.handler;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.CRC32;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sx4.bot.logger.LoggerConfig;
+import com.sx4.bot.logger.handler.EventHandler.Request;
+
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import club.minnced.discord.webhook.send.WebhookEmbed.EmbedAuthor;
+import club.minnced.discord.webhook.send.WebhookEmbed.EmbedField;
+import club.minnced.discord.webhook.send.WebhookEmbed.EmbedFooter;
+import club.minnced.discord.webhook.send.WebhookEmbed.EmbedTitle;
+import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import gnu.trove.map.TLongObjectMap;
+import gnu.trove.map.hash.TLongObjectHashMap;
+import net.dv8tion.jda.api.JDA;
+
+/**
+ * An append-only journal of the requests the dispatcher could not keep in memory, every request is written to a memory
+ * mapped segment file so it is still there if the process goes down before it is sent and it is replayed in the order it
+ * was written once the shard of its guild is ready again.
+ *
+ * A request is acknowledged with a record of its own once it has been sent or given up on. Segments are only deleted from
+ * the front of the journal once every request in them has been acknowledged so an acknowledgement is never deleted before
+ * the request it is for, a record which was not completely written when the process went down fails its checksum and
+ * ends the segment.
+ *
+ * The mapped segments are written back by the operating system so the journal survives the process crashing, it is only
+ * forced to disk when a segment is finished or the journal is closed.
+ */
+public class LogJournal implements AutoCloseable {
+
+	private static final String STATISTICS_MESSAGE = "Journal: %,d requests pending in %,d segments, %,d spilled, %,d recovered, %,d replayed, %,d expired, %,d segments compacted";
+
+	public static final int SEGMENT_SIZE = 8 * 1024 * 1024;
+
+	/* Recovered requests older than this are acknowledged without being replayed */
+	public static final long MAX_AGE = TimeUnit.DAYS.toMillis(1);
+
+	private static final byte TYPE_REQUEST = 1;
+	private static final byte TYPE_ACKNOWLEDGE = 2;
+
+	/* The length and checksum of the body of a record */
+	private static final int HEADER_SIZE = 8;
+
+	/* The type and sequence every record starts with, followed by the guild id, timestamp and time it was written for a request */
+	private static final int ACKNOWLEDGE_SIZE = 9;
+	private static final int REQUEST_SIZE = ACKNOWLEDGE_SIZE + 24;
+
+	private static final String SEGMENT_FORMAT = "segment-%016d.journal";
+	private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{16})\\.journal");
+
+	private static class Segment {
+
+		private final long id;
+		private final File file;
+		private final MappedByteBuffer buffer;
+
+		/* How many requests written to this segment have not been acknowledged yet */
+		private int pending = 0;
+
+		private Segment(long id, File file, MappedByteBuffer buffer) {
+			this.id = id;
+			this.file = file;
+			this.buffer = buffer;
+		}
+
+	}
+
+	/**
+	 * A request which is in the journal, only the embeds are read back from the segment
+	 */
+	public static class Entry {
+
+		private final long sequence;
+		private final long guildId;
+		private final long timestamp;
+		private final long writtenAt;
+
+		private final Segment segment;
+		private final int position;
+
+		/* Only known for requests spilled by this process, recovered requests are given them when they are replayed */
+		private final JDA bot;
+		private final LoggerConfig config;
+		private final long queuedAt;
+
+		private Entry(long sequence, long guildId, long timestamp, long writtenAt, Segment segment, int position, JDA bot, LoggerConfig config, long queuedAt) {
+			this.sequence = sequence;
+			this.guildId = guildId;
+			this.timestamp = timestamp;
+			this.writtenAt = writtenAt;
+			this.segment = segment;
+			this.position = position;
+			this.bot = bot;
+			this.config = config;
+			this.queuedAt = queuedAt;
+		}
+
+		public long getSequence() {
+			return this.sequence;
+		}
+
+		public long getGuildId() {
+			return this.guildId;
+		}
+
+	}
+
+	private final File directory;
+	private final int segmentSize;
+
+	/* Oldest first, the last segment is the one being written to */
+	private final Deque<Segment> segments = new ArrayDeque<>();
+
+	/* The segment of every request which has not been acknowledged */
+	private final TLongObjectMap<Segment> pending = new TLongObjectHashMap<>();
+
+	/* Requests read from the segments on start up which have not been replayed yet, in the order they were written */
+	private final Map<Long, Entry> recovered = new LinkedHashMap<>();
+
+	private long sequence = 0;
+
+	private long spilled = 0;
+	private long recoveredTotal = 0;
+	private long replayed = 0;
+	private long expired = 0;
+	private long compacted = 0;
+
+	/**
+	 * Reads the requests which were not acknowledged from the segments already in the directory, they are kept until
+	 * {@link #recover(LongFunction, LongFunction)} is called for their guild
+	 */
+	public LogJournal(File directory, int segmentSize) throws IOException {
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+
+		if(!directory.isDirectory() && !directory.mkdirs()) {
+			throw new IOException("Could not create the journal directory " + directory);
+		}
+
+		File[] files = directory.listFiles((dir, name) -> SEGMENT_NAME.matcher(name).matches());
+		Arrays.sort(files);
+
+		long nextId = 0;
+		for(File file : files) {
+			Matcher matcher = SEGMENT_NAME.matcher(file.getName());
+			matcher.matches();
+
+			Segment segment = new Segment(Long.parseLong(matcher.group(1)), file, LogJournal.map(file, (int) Math.max(file.length(), HEADER_SIZE)));
+			this.segments.add(segment);
+			this.read(segment);
+
+			nextId = segment.id + 1;
+		}
+
+		this.recoveredTotal = this.recovered.size();
+
+		/* New records never go into a recovered segment as its end may be a record which was cut off */
+		this.segments.add(this.createSegment(nextId));
+
+		this.compact();
+	}
+
+	public LogJournal(File directory) throws IOException {
+		this(directory, LogJournal.SEGMENT_SIZE);
+	}
+
+	private static MappedByteBuffer map(File file, int size) throws IOException {
+		try(RandomAccessFile randomAccessFile = new RandomAccessFile(file, "rw"); FileChannel channel = randomAccessFile.getChannel()) {
+			/* The mapping stays valid once the channel is closed */
+			return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+	}
+
+	private Segment createSegment(long id) throws IOException {
+		File file = new File(this.directory, String.format(SEGMENT_FORMAT, id));
+
+		return new Segment(id, file, LogJournal.map(file, this.segmentSize));
+	}
+
+	private void read(Segment segment) {
+		ByteBuffer buffer = segment.buffer.duplicate();
+
+		CRC32 checksum = new CRC32();
+		while(buffer.remaining() >= HEADER_SIZE) {
+			int position = buffer.position();
+
+			int length = buffer.getInt();
+			int expected = buffer.getInt();
+			if(length < ACKNOWLEDGE_SIZE || length > buffer.remaining()) {
+				break;
+			}
+
+			ByteBuffer body = buffer.slice().limit(length);
+
+			checksum.reset();
+			checksum.update(body.duplicate());
+			if((int) checksum.getValue() != expected) {
+				break;
+			}
+
+			byte type = body.get();
+			long sequence = body.getLong();
+			if(type == TYPE_REQUEST) {
+				Entry entry = new Entry(sequence, body.getLong(), body.getLong(), body.getLong(), segment, position, null, null, 0);
+
+				this.recovered.put(sequence, entry);
+				this.pending.put(sequence, segment);
+				segment.pending++;
+			}else if(type == TYPE_ACKNOWLEDGE) {
+				this.recovered.remove(sequence);
+
+				Segment requestSegment = this.pending.remove(sequence);
+				if(requestSegment != null) {
+					requestSegment.pending--;
+				}
+			}
+
+			this.sequence = Math.max(this.sequence, sequence + 1);
+
+			buffer.position(position + HEADER_SIZE + length);
+		}
+	}
+
+	private int write(byte type, long sequence, long guildId, long timestamp, long writtenAt, byte[] embeds) throws IOException {
+		int length = type == TYPE_REQUEST ? REQUEST_SIZE + embeds.length : ACKNOWLEDGE_SIZE;
+
+		Segment segment = this.segments.peekLast();
+		if(segment.buffer.remaining() < HEADER_SIZE + length) {
+			segment.buffer.force();
+
+			segment = this.createSegment(segment.id + 1);
+			this.segments.add(segment);
+		}
+
+		MappedByteBuffer buffer = segment.buffer;
+
+		int position = buffer.position();
+
+		ByteBuffer body = buffer.duplicate().position(position + HEADER_SIZE);
+		body.put(type).putLong(sequence);
+		if(type == TYPE_REQUEST) {
+			body.putLong(guildId).putLong(timestamp).putLong(writtenAt).put(embeds);
+		}
+
+		CRC32 checksum = new CRC32();
+		checksum.update(buffer.duplicate().position(position + HEADER_SIZE).limit(position + HEADER_SIZE + length));
+
+		/* The length is written last so a record is never read before its body and checksum are there */
+		buffer.putInt(position + 4, (int) checksum.getValue());
+		buffer.putInt(position, length);
+		buffer.position(position + HEADER_SIZE + length);
+
+		return position;
+	}
+
+	/**
+	 * @return the entry of the request, null if it is too big to fit in a segment and has to be kept in memory
+	 */
+	public synchronized Entry append(Request request) throws IOException {
+		JSONArray array = new JSONArray();
+		for(WebhookEmbed embed : request.embeds) {
+			array.put(new JSONObject(embed.toJSONString()));
+		}
+
+		byte[] embeds = array.toString().getBytes(StandardCharsets.UTF_8);
+		if(HEADER_SIZE + REQUEST_SIZE + embeds.length > this.segmentSize) {
+			return null;
+		}
+
+		long sequence = this.sequence++, writtenAt = System.currentTimeMillis();
+
+		int position = this.write(TYPE_REQUEST, sequence, request.guildId, request.timestamp, writtenAt, embeds);
+
+		Segment segment = this.segments.peekLast();
+		segment.pending++;
+
+		this.pending.put(sequence, segment);
+		this.spilled++;
+
+		return new Entry(sequence, request.guildId, request.timestamp, writtenAt, segment, position, request.bot, request.config, request.queuedAt);
+	}
+
+	/**
+	 * Reads the embeds of the entry back into a request which has to be acknowledged once it has been sent
+	 */
+	public synchronized Request read(Entry entry) {
+		ByteBuffer buffer = entry.segment.buffer.duplicate().position(entry.position);
+
+		int length = buffer.getInt();
+		buffer.position(entry.position + HEADER_SIZE + REQUEST_SIZE);
+
+		byte[] bytes = new byte[length - REQUEST_SIZE];
+		buffer.get(bytes);
+
+		JSONArray array = new JSONArray(new String(bytes, StandardCharsets.UTF_8));
+
+		List<WebhookEmbed> embeds = new ArrayList<>(array.length());
+		for(int i = 0; i < array.length(); i++) {
+			embeds.add(LogJournal.toEmbed(array.getJSONObject(i)));
+		}
+
+		return new Request(entry.bot, entry.guildId, entry.config, entry.timestamp, embeds, entry.queuedAt, entry.sequence);
+	}
+
+	/**
+	 * Marks the request as sent or given up on, a sequence which is not pending is ignored
+	 */
+	public synchronized void acknowledge(long sequence) {
+		Segment segment = this.pending.remove(sequence);
+		if(segment == null) {
+			return;
+		}
+
+		this.recovered.remove(sequence);
+
+		try {
+			this.write(TYPE_ACKNOWLEDGE, sequence, 0, 0, 0, null);
+		} catch(IOException e) {
+			/* The request is replayed again after a restart, sending a log twice is better than losing it */
+			e.printStackTrace();
+		}
+
+		segment.pending--;
+
+		this.compact();
+	}
+
+	private void compact() {
+		while(this.segments.size() > 1 && this.segments.peekFirst().pending == 0) {
+			Segment segment = this.segments.pollFirst();
+			if(!segment.file.delete()) {
+				System.err.println("[LogJournal] Could not delete " + segment.file);
+			}
+
+			this.compacted++;
+		}
+	}
+
+	/**
+	 * Takes the recovered requests which can be replayed, requests whose guild has no shard yet are kept for a later call
+	 *
+	 * @param bots the shard of a guild, null if the guild is not on a shard which is ready
+	 * @param configs the logger config of a guild
+	 * @return the requests to replay in the order they were written
+	 */
+	public synchronized List<Entry> recover(LongFunction<JDA> bots, LongFunction<LoggerConfig> configs) {
+		List<Entry> entries = new ArrayList<>();
+
+		long now = System.currentTimeMillis();
+
+		Iterator<Entry> iterator = this.recovered.values().iterator();
+		while(iterator.hasNext()) {
+			Entry entry = iterator.next();
+			if(now - entry.writtenAt > LogJournal.MAX_AGE) {
+				iterator.remove();
+
+				this.expired++;
+				this.acknowledge(entry.sequence);
+
+				continue;
+			}
+
+			JDA bot = bots.apply(entry.guildId);
+			if(bot == null) {
+				continue;
+			}
+
+			iterator.remove();
+
+			entries.add(new Entry(entry.sequence, entry.guildId, entry.timestamp, entry.writtenAt, entry.segment, entry.position, bot, configs.apply(entry.guildId), System.nanoTime()));
+		}
+
+		this.replayed += entries.size();
+
+		return entries;
+	}
+
+	private static WebhookEmbed toEmbed(JSONObject json) {
+		WebhookEmbedBuilder embed = new WebhookEmbedBuilder();
+		if(json.has("color")) {
+			embed.setColor(json.getInt("color"));
+		}
+
+		if(json.has("timestamp")) {
+			embed.setTimestamp(OffsetDateTime.parse(json.getString("timestamp")));
+		}
+
+		embed.setDescription(json.optString("description", null));
+
+		if(json.has("title")) {
+			embed.setTitle(new EmbedTitle(json.getString("title"), json.optString("url", null)));
+		}
+
+		JSONObject author = json.optJSONObject("author");
+		if(author != null) {
+			embed.setAuthor(new EmbedAuthor(author.getString("name"), author.optString("icon_url", null), author.optString("url", null)));
+		}
+
+		JSONObject footer = json.optJSONObject("footer");
+		if(footer != null) {
+			embed.setFooter(new EmbedFooter(footer.getString("text"), footer.optString("icon_url", null)));
+		}
+
+		JSONObject image = json.optJSONObject("image");
+		if(image != null) {
+			embed.setImageUrl(image.getString("url"));
+		}
+
+		JSONObject thumbnail = json.optJSONObject("thumbnail");
+		if(thumbnail != null) {
+			embed.setThumbnailUrl(thumbnail.getString("url"));
+		}
+
+		JSONArray fields = json.optJSONArray("fields");
+		if(fields != null) {
+			for(int i = 0; i < fields.length(); i++) {
+				JSONObject field = fields.getJSONObject(i);
+
+				embed.addField(new EmbedField(field.optBoolean("inline", false), field.getString("name"), field.getString("value")));
+			}
+		}
+
+		return embed.build();
+	}
+
+	public synchronized int getPending() {
+		return this.pending.size();
+	}
+
+	public synchronized int getSegments() {
+		return this.segments.size();
+	}
+
+	public synchronized int getRecovered() {
+		return this.recovered.size();
+	}
+
+	public synchronized String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.pending.size(), this.segments.size(), this.spilled, this.recoveredTotal, this.replayed, this.expired, this.compacted);
+	}
+
+	/**
+	 * Forces every segment to disk, the journal can not be written to once it is closed
+	 */
+	public synchronized void close() {
+		for(Segment segment : this.segments) {
+			segment.buffer.force();
+		}
+	}
+
+}
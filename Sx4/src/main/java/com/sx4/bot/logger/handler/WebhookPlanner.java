@@ -0,0 +1,133 @@
+package com.sx4.bot.logger.handler;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import okhttp3.Interceptor;
+import okhttp3.Response;
+
+/**
+ * Keeps track of the rate limit bucket of every webhook from the headers of its responses, it is added as an interceptor
+ * to the http client of the webhooks so every response is seen.
+ *
+ * The dispatcher asks it how long to hold the requests of a guild for, nothing is held while the bucket has uses left
+ * apart from the last use which is saved for a full batch unless the bucket resets first.
+ */
+public class WebhookPlanner implements Interceptor {
+
+	private static final String STATISTICS_MESSAGE = "Planner: %,d webhooks tracked, %,d rate limited responses";
+
+	private static final Pattern WEBHOOK_PATH = Pattern.compile("/webhooks/(\\d+)/");
+
+	private static class Bucket {
+
+		private int remaining;
+		private long resetAt;
+
+	}
+
+	private final Map<Long, Bucket> buckets = new ConcurrentHashMap<>();
+
+	private final AtomicLong rateLimited = new AtomicLong(0);
+
+	/* The current time in milliseconds */
+	private final LongSupplier clock;
+
+	public WebhookPlanner() {
+		this(System::currentTimeMillis);
+	}
+
+	WebhookPlanner(LongSupplier clock) {
+		this.clock = clock;
+	}
+
+	public Response intercept(Chain chain) throws IOException {
+		Response response = chain.proceed(chain.request());
+
+		Matcher matcher = WEBHOOK_PATH.matcher(chain.request().url().encodedPath());
+		if(matcher.find()) {
+			this.update(Long.parseLong(matcher.group(1)), response.code(), response.header("X-RateLimit-Remaining"), response.header("X-RateLimit-Reset-After"), response.header("Retry-After"));
+		}
+
+		return response;
+	}
+
+	void update(long webhookId, int code, String remaining, String resetAfter, String retryAfter) {
+		long now = this.clock.getAsLong();
+
+		try {
+			if(code == 429) {
+				this.rateLimited.incrementAndGet();
+
+				if(retryAfter != null) {
+					Bucket bucket = this.buckets.computeIfAbsent(webhookId, key -> new Bucket());
+					synchronized(bucket) {
+						bucket.remaining = 0;
+						bucket.resetAt = now + (long) Math.ceil(Double.parseDouble(retryAfter) * 1000);
+					}
+				}
+
+				return;
+			}
+
+			if(remaining != null && resetAfter != null) {
+				Bucket bucket = this.buckets.computeIfAbsent(webhookId, key -> new Bucket());
+				synchronized(bucket) {
+					bucket.remaining = Integer.parseInt(remaining);
+					bucket.resetAt = now + (long) Math.ceil(Double.parseDouble(resetAfter) * 1000);
+				}
+			}
+		} catch(NumberFormatException e) {
+			/* A malformed header only means the bucket is not known, the webhook client still handles the rate limit */
+			this.buckets.remove(webhookId);
+		}
+	}
+
+	/**
+	 * @param full whether the next message would already have as many embeds as it can
+	 * @return how many milliseconds the requests for the webhook should be held for, 0 if they can be sent now
+	 */
+	public long getDelay(Long webhookId, boolean full) {
+		if(webhookId == null) {
+			return 0;
+		}
+
+		Bucket bucket = this.buckets.get(webhookId);
+		if(bucket == null) {
+			return 0;
+		}
+
+		synchronized(bucket) {
+			long delay = bucket.resetAt - this.clock.getAsLong();
+			if(delay <= 0) {
+				this.buckets.remove(webhookId, bucket);
+
+				return 0;
+			}
+
+			if(bucket.remaining == 0 || (bucket.remaining == 1 && !full)) {
+				return delay;
+			}
+
+			return 0;
+		}
+	}
+
+	public void remove(long webhookId) {
+		this.buckets.remove(webhookId);
+	}
+
+	public long getRateLimited() {
+		return this.rateLimited.get();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.buckets.size(), this.rateLimited.get());
+	}
+
+}
@@ -19,6 +19,8 @@ import com.jockie.bot.core.module.Module;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
@@ -70,6 +72,8 @@ public class AntiInviteModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.ANTI_INVITE, !enabled);
+					
 					event.reply("Anti-Invite is now " + (enabled ? "disabled" : "enabled") + " <:done:403285928233402378>").queue();
 				}
 			});
@@ -12,6 +12,8 @@ import com.jockie.bot.core.module.Module;
 import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
@@ -64,6 +66,8 @@ public class AntiLinkModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.ANTI_LINK, !enabled);
+					
 					event.reply("Anti-Link is now " + (enabled ? "disabled" : "enabled") + " <:done:403285928233402378>").queue();
 				}
 			});
@@ -5,6 +5,7 @@ import com.fasterxml.jackson.databind.ObjectWriter;
 import com.jockie.bot.core.argument.Argument;
 import com.jockie.bot.core.category.ICategory;
 import com.jockie.bot.core.command.Command;
+import com.jockie.bot.core.command.Command.Async;
 import com.jockie.bot.core.command.Command.Developer;
 import com.jockie.bot.core.command.Context;
 import com.jockie.bot.core.command.ICommand;
@@ -14,16 +15,25 @@ import com.jockie.bot.core.command.Initialize;
 import com.jockie.bot.core.command.impl.CommandEvent;
 import com.jockie.bot.core.command.impl.CommandImpl;
 import com.jockie.bot.core.module.Module;
+import com.jockie.bot.core.option.Option;
 import com.mongodb.client.model.*;
+import com.sx4.bot.cache.EntityNameCache;
+import com.sx4.bot.cache.GuildFeatureCache;
 import com.sx4.bot.categories.Categories;
+import com.sx4.bot.core.CommandScheduler;
+import com.sx4.bot.core.GuildEventManager;
+import com.sx4.bot.core.JobScheduler;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
+import com.sx4.bot.core.TimerWheel;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.GuildEntityCollection;
+import com.sx4.bot.database.IndexAdvisor;
+import com.sx4.bot.database.QueryMetrics;
 import com.sx4.bot.economy.Item;
 import com.sx4.bot.interfaces.Examples;
 import com.sx4.bot.logger.Statistics;
-import com.sx4.bot.logger.handler.EventHandler;
 import com.sx4.bot.logger.util.Utils;
 import com.sx4.bot.utils.ArgumentUtils;
 import com.sx4.bot.utils.GeneralUtils;
@@ -48,7 +58,6 @@ import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ExecutionException;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
@@ -322,15 +331,15 @@ public class DeveloperModule {
 	public void loggerQueue(CommandEvent event) {
 		StringBuilder message = new StringBuilder();
 		
-		Map<Long, BlockingDeque<EventHandler.Request>> queue = Sx4Bot.getEventHandler().getQueue();
+		Map<Long, Integer> queue = Sx4Bot.getEventHandler().getDispatcher().getQueuedByGuild();
 		
 		List<Long> mostQueued = queue.keySet().stream()
-			.sorted((key, key2) -> -Integer.compare(queue.get(key).size(), queue.get(key2).size()))
+			.sorted((key, key2) -> -Integer.compare(queue.get(key), queue.get(key2)))
 			.limit(10)
 			.collect(Collectors.toList());
 		
 		for(long guildId : mostQueued) {
-			int queued = queue.get(guildId).size();
+			int queued = queue.get(guildId);
 			if(queued > 0) {
 				Guild guild = Sx4Bot.getShardManager().getGuildById(guildId);
 				if(guild != null) {
@@ -342,10 +351,101 @@ public class DeveloperModule {
 		}
 		
 		message.append('\n').append("Total queued requests: " + Sx4Bot.getEventHandler().getTotalRequestsQueued());
+		message.append('\n').append(Sx4Bot.getEventHandler().getDispatcher().getStatistics());
 
 		event.reply(Utils.getMessageSeperated(message)).queue();
 	}
 	
+	@Command(value="event stats", aliases={"event lanes"}, description="Sends the queue depth and lag of the busiest event lanes", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"event stats"})
+	@Developer
+	public void eventStats(CommandEvent event) {
+		GuildEventManager eventManager = Sx4Bot.getEventManager();
+		
+		StringBuilder message = new StringBuilder();
+		for (GuildEventManager.Lane lane : eventManager.getBusiestLanes(10)) {
+			message.append('\n').append(lane);
+		}
+		
+		event.reply(Utils.getMessageSeperated(message.append('\n').append(eventManager.getStatistics()))).queue();
+	}
+	
+	@Command(value="command stats", aliases={"scheduler stats"}, description="Sends the queue depth of the command scheduler lanes and the commands which waited the longest", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"command stats"})
+	@Developer
+	public void commandStats(CommandEvent event) {
+		CommandScheduler scheduler = Sx4Bot.getCommandScheduler();
+		
+		StringBuilder message = new StringBuilder();
+		for (CommandScheduler.CommandWait wait : scheduler.getLongestWaits(10)) {
+			message.append('\n').append(wait);
+		}
+		
+		event.reply(Utils.getMessageSeperated(message.append('\n').append(scheduler.getStatistics()))).queue();
+	}
+	
+	@Command(value="timer stats", aliases={"job stats"}, description="Sends the pending, expired and cancelled counters of the timer wheel and the jobs loaded by this process", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"timer stats"})
+	@Developer
+	public void timerStats(CommandEvent event) {
+		event.reply(Utils.getMessageSeperated(new StringBuilder().append('\n').append(TimerWheel.INSTANCE.getStatistics()).append('\n').append(JobScheduler.INSTANCE.getStatistics()))).queue();
+	}
+	
+	@Command(value="name index stats", description="Sends the amount of users, guilds, emotes and members in the name indexes", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"name index stats"})
+	@Developer
+	public void nameIndexStats(CommandEvent event) {
+		event.reply(Utils.getMessageSeperated(new StringBuilder().append('\n').append(EntityNameCache.INSTANCE.getStatistics()))).queue();
+	}
+	
+	@Command(value="feature stats", aliases={"features stats"}, description="Sends how many events each listener skipped because the guild had the feature disabled", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"feature stats"})
+	@Developer
+	public void featureStats(CommandEvent event) {
+		event.reply(Utils.getMessageSeperated("\n" + GuildFeatureCache.INSTANCE.getStatistics())).queue();
+	}
+	
+	@Command(value="database stats", aliases={"cache stats", "db stats"}, description="Sends the query executor, cache, write buffer and command telemetry counters of the database", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"database stats"})
+	@Developer
+	public void databaseStats(CommandEvent event, @Context Database database) {
+		StringBuilder statistics = new StringBuilder("\n" + database.getQueryExecutor().getStatistics() + "\n" + database.getGuildCache().getStatistics() + "\n" + database.getUserCache().getStatistics() + "\n" + database.getGuildWriteBuffer().getStatistics() + "\n" + database.getUserWriteBuffer().getStatistics());
+		for (GuildEntityCollection collection : database.getGuildEntityCollections()) {
+			statistics.append("\n" + collection.getStatistics());
+		}
+		
+		event.reply(Utils.getMessageSeperated(statistics.append("\n" + Sx4CommandEventListener.getTelemetry().getStatistics()))).queue();
+	}
+	
+	@Command(value="query stats", description="Sends the slowest query shapes by total time spent on them", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"query stats", "query stats --json", "query stats --reset"})
+	@Developer
+	public void queryStats(CommandEvent event, @Context Database database, @Option(value="json", description="Sends every query shape as a json file") boolean json, @Option(value="reset", description="Resets the query stats after sending them") boolean reset) {
+		QueryMetrics queryMetrics = database.getQueryMetrics();
+		if (json) {
+			event.getTextChannel().sendFile(queryMetrics.toJson().getBytes(StandardCharsets.UTF_8), "query-stats.json").queue();
+		} else {
+			StringBuilder message = new StringBuilder();
+			for (QueryMetrics.Shape shape : queryMetrics.getSlowestShapes(15)) {
+				message.append('\n').append(String.format("%s.%s %s\n%,d queries (%,d failed), %.2fms average, %dms p99, %.2fms max, %,d documents, %,d bytes, %,d getMores", shape.getCollection(), shape.getOperation(), shape.getShape(), shape.getCount(), shape.getFailures(), shape.getAverageMillis(), shape.getPercentileMillis(0.99D), shape.getMaxMillis(), shape.getDocuments(), shape.getBytes(), shape.getGetMores()));
+			}
+			
+			event.reply(Utils.getMessageSeperated(message.length() == 0 ? "\nNo queries recorded" : message)).queue();
+		}
+		
+		if (reset) {
+			queryMetrics.reset();
+		}
+	}
+	
+	@Command(value="index advisor", aliases={"query shapes"}, description="Explains every registered query shape and shows the ones which scan a whole collection", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
+	@Examples({"index advisor", "index advisor --all"})
+	@Developer
+	@Async
+	public void indexAdvisor(CommandEvent event, @Context Database database, @Option(value="all", description="Shows the plan of every query shape rather than only the collection scans") boolean all) {
+		event.reply(Utils.getMessageSeperated(IndexAdvisor.getReport(database.adviseIndexes(), !all))).queue();
+	}
+	
 	@Command(value="advertisement description", aliases={"ad description"}, description="Updates the description for the sponsor on the help menu")
 	@Examples({"advertisement description Check out said sponsor here"})
 	@Developer
@@ -19,6 +19,7 @@ import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
 import com.sx4.bot.economy.AuctionItem;
 import com.sx4.bot.economy.Item;
 import com.sx4.bot.economy.ItemStack;
@@ -34,6 +35,7 @@ import com.sx4.bot.economy.upgrades.PickaxeUpgrade;
 import com.sx4.bot.economy.upgrades.RodUpgrade;
 import com.sx4.bot.interfaces.Canary;
 import com.sx4.bot.interfaces.Examples;
+import com.sx4.bot.interfaces.Heavy;
 import com.sx4.bot.interfaces.Sx4Callback;
 import com.sx4.bot.settings.Settings;
 import com.sx4.bot.utils.*;
@@ -2923,7 +2925,7 @@ public class EconomyModule {
 					return;
 				}
 				
-				shownData = database.getAuction().find(Filters.eq("item.name", item.getName())).into(new ArrayList<>());
+				shownData = QueryShapes.AUCTION_BY_ITEM.find(database.getAuction(), item.getName()).into(new ArrayList<>());
 			} else {
 				shownData = database.getAuction().find().into(new ArrayList<>());
 			}
@@ -3057,7 +3059,7 @@ public class EconomyModule {
 					return;
 				}
 				
-				shownData = database.getAuction().find(Filters.eq("item.name", item.getName())).into(new ArrayList<>());
+				shownData = QueryShapes.AUCTION_BY_ITEM.find(database.getAuction(), item.getName()).into(new ArrayList<>());
 				
 				if (shownData.isEmpty()) {
 					event.replyFormat("There is no `%s` on the auction house :no_entry:", item.getName()).queue();
@@ -3657,6 +3659,7 @@ public class EconomyModule {
 		}
 	}
 	
+	@Heavy
 	public class LeaderboardCommand extends Sx4Command {
 		
 		public LeaderboardCommand() {
@@ -3676,7 +3679,7 @@ public class EconomyModule {
 		@Examples({"leaderboard bank", "leaderboard bank --server", "leaderboard bank --reverse", "leaderboard bank --sort=name --reverse"})
 		@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 		public void bank(CommandEvent event, @Context Database database, @Option(value="server", /*aliases={"guild"},*/ description="Filters the leaderboard so only people in the current server are shown") boolean guild, @Option(value="sort", description="Sort the leaderboard by `name` or `balance` (default)") String sort, @Option(value="reverse", description="Reverses the sorting order") boolean reverse) {
-			FindIterable<Document> data = database.getUsers().find(Filters.and(Filters.exists("economy.balance"), Filters.ne("economy.balance", 0))).projection(Projections.include("economy.balance"));
+			FindIterable<Document> data = QueryShapes.BANK_LEADERBOARD.find(database.getUsers());
 
 			List<Document> compressedData = new ArrayList<>();
 			for (Document dataObject : data) {
@@ -3807,7 +3810,7 @@ public class EconomyModule {
 		@Examples({"leaderboard winnings", "leaderboard winnings --server", "leaderboard winnings --reverse", "leaderboard winnings --sort=name --reverse"})
 		@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 		public void winnings(CommandEvent event, @Context Database database, @Option(value="server", /*aliases={"guild"},*/ description="Filters the leaderboard so only people in the current server are shown") boolean guild, @Option(value="sort", description="Sort the leaderboard by `name` or `winnings` (default)") String sort, @Option(value="reverse", description="Reverses the sorting order") boolean reverse) {
-			FindIterable<Document> data = database.getUsers().find(Filters.and(Filters.exists("economy.winnings"), Filters.ne("economy.winnings", 0))).projection(Projections.include("economy.winnings"));
+			FindIterable<Document> data = QueryShapes.WINNINGS_LEADERBOARD.find(database.getUsers());
 
 			List<Document> compressedData = new ArrayList<>();
 			for (Document dataObject : data) {
@@ -3946,7 +3949,7 @@ public class EconomyModule {
 		@Examples({"leaderboard reputation", "leaderboard repuatation --server", "leaderboard reputation --reverse", "leaderboard reputation --sort=name --reverse"})
 		@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 		public void reputation(CommandEvent event, @Context Database database, @Option(value="server", /*aliases={"guild"},*/ description="Filters the leaderboard so only people in the current server are shown") boolean guild, @Option(value="sort", description="Sort the leaderboard by `name` or `reputation` (default)") String sort, @Option(value="reverse", description="Reverses the sorting order") boolean reverse) {
-			FindIterable<Document> data = database.getUsers().find(Filters.and(Filters.exists("reputation.amount"), Filters.ne("reputation.amount", 0))).projection(Projections.include("reputation.amount"));
+			FindIterable<Document> data = QueryShapes.REPUTATION_LEADERBOARD.find(database.getUsers());
 
 			List<Document> compressedData = new ArrayList<>();
 			for (Document dataObject : data) {
@@ -4009,7 +4012,7 @@ public class EconomyModule {
 		@Examples({"leaderboard streak", "leaderboard streak --server", "leaderboard streak --reverse", "leaderboard streak --sort=name --reverse"})
 		@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 		public void streak(CommandEvent event, @Context Database database, @Option(value="server", /*aliases={"guild"},*/ description="Filters the leaderboard so only people in the current server are shown") boolean guild, @Option(value="sort", description="Sort the leaderboard by `name` or `streak` (default)") String sort, @Option(value="reverse", description="Reverses the sorting order") boolean reverse) {
-			FindIterable<Document> data = database.getUsers().find(Filters.and(Filters.exists("economy.streak"), Filters.ne("economy.streak", 0))).projection(Projections.include("economy.streak"));
+			FindIterable<Document> data = QueryShapes.STREAK_LEADERBOARD.find(database.getUsers());
 
 			List<Document> compressedData = new ArrayList<>();
 			for (Document dataObject : data) {
@@ -13,6 +13,8 @@ import com.jockie.bot.core.option.Option;
 import com.mongodb.client.FindIterable;
 import com.mongodb.client.model.*;
 import com.sx4.bot.cache.DictionaryCache;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.cache.GoogleSearchCache;
 import com.sx4.bot.cache.GoogleSearchCache.GoogleSearchResult;
 import com.sx4.bot.cache.SteamCache;
@@ -21,6 +23,7 @@ import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
 import com.sx4.bot.events.NotificationEvents;
 import com.sx4.bot.interfaces.Examples;
 import com.sx4.bot.interfaces.Sx4Callback;
@@ -160,7 +163,8 @@ public class FunModule {
 				Document notificationData = new Document("uploaderId", channelId)
 						.append("channelId", channel.getIdLong());
 				
-				List<Document> guilds = database.getGuilds(Filters.elemMatch("youtubeNotifications", Filters.eq("uploaderId", channelId)), Projections.include("youtubeNotifications.channelId", "youtubeNotifications.uploaderId")).into(new ArrayList<>());
+				List<Document> guilds = new ArrayList<>();
+				database.getGuilds(Filters.elemMatch("youtubeNotifications", Filters.eq("uploaderId", channelId)), Projections.include("youtubeNotifications.channelId", "youtubeNotifications.uploaderId")).forEach(guilds::add);
 				
 				if (guilds.isEmpty() && !Sx4Bot.getYouTubeManager().hasResubscription(channelId)) {
 					RequestBody body = new MultipartBody.Builder()
@@ -443,6 +447,8 @@ public class FunModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.STARBOARD, !enabled);
+					
 					event.reply("Starboard is now " + (enabled ? "disabled" : "enabled") + " in this server <:done:403285928233402378>").queue();
 				}
 			});
@@ -628,7 +634,7 @@ public class FunModule {
 		@Examples({"starboard delete 643110427487633418"})
 		@AuthorPermissions({Permission.MANAGE_SERVER})
 		public void delete(CommandEvent event, @Context Database database, @Argument(value="message id") long messageId) {
-			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.deleted", "starboard.messages")).get("starboard", Database.EMPTY_DOCUMENT);
+			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.deleted")).get("starboard", Database.EMPTY_DOCUMENT);
 			Starboard starboard = new Starboard(data);
 
 			if (starboard.isDeletedMessage(messageId)) {
@@ -636,21 +642,28 @@ public class FunModule {
 				return;
 			}
 			
-			StarboardMessage message = starboard.getMessageById(messageId);
+			StarboardMessage message = StarboardUtils.getMessageById(event.getGuild().getIdLong(), messageId);
 			if (message != null) {
-				database.updateGuildById(event.getGuild().getIdLong(), Updates.combine(Updates.pull("starboard.messages", Filters.eq("id", message.getMessageId())), Updates.addToSet("starboard.deleted", message.getMessageId())), (result, exception) -> {
+				database.updateGuildById(event.getGuild().getIdLong(), Updates.addToSet("starboard.deleted", message.getMessageId()), (result, exception) -> {
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
-						if (message.hasStarboard()) {
-							TextChannel channel = message.getChannel(event.getGuild());
-							if (channel != null) {
-								channel.deleteMessageById(message.getStarboardId()).queue(null, e -> {});
+						StarboardUtils.deleteMessage(event.getGuild().getIdLong(), message.getMessageId(), (deleteResult, deleteException) -> {
+							if (deleteException != null) {
+								deleteException.printStackTrace();
+								event.reply(Sx4CommandEventListener.getUserErrorMessage(deleteException)).queue();
+							} else {
+								if (message.hasStarboard()) {
+									TextChannel channel = message.getChannel(event.getGuild());
+									if (channel != null) {
+										channel.deleteMessageById(message.getStarboardId()).queue(null, e -> {});
+									}
+								}
+								
+								event.reply("That message has been deleted and blacklisted <:done:403285928233402378>").queue();
 							}
-						}
-						
-						event.reply("That message has been deleted and blacklisted <:done:403285928233402378>").queue();
+						});
 					}
 				});
 			} else {
@@ -661,7 +674,7 @@ public class FunModule {
 		@Command(value="top", description="View the top starred messages in this server", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
 		@Examples({"starboard top"})
 		public void top(CommandEvent event, @Context Database database) {
-			List<Document> messages = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("starboard.messages")).getEmbedded(List.of("starboard", "messages"), Collections.emptyList());
+			List<Document> messages = database.getStarboardMessages().getListByGuildId(event.getGuild().getIdLong(), Projections.include("id", "channelId", "authorId", "stars"));
 			if (messages.isEmpty()) {
 				event.reply("No messages have been starred in this server :no_entry:").queue();
 				return;
@@ -1244,7 +1257,7 @@ public class FunModule {
 	@Examples({"birthdays", "birthdays --server"})
 	@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 	public void birthdays(CommandEvent event, @Context Database database, @Option(value="server", /*aliases={"guild"},*/ description="Filters all birthdays so only peoples birthdays from the current server are shown") boolean guild) {
-		FindIterable<Document> data = database.getUsers().find(Filters.exists("profile.birthday")).projection(Projections.include("profile.birthday"));
+		FindIterable<Document> data = QueryShapes.BIRTHDAYS.find(database.getUsers());
 		
 		LocalDate now = LocalDate.now(ZoneOffset.UTC);
 		
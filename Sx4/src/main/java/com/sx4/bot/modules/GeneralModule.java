@@ -15,17 +15,23 @@ import com.jockie.bot.core.option.Option;
 import com.mongodb.client.AggregateIterable;
 import com.mongodb.client.model.*;
 import com.sun.management.OperatingSystemMXBean;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.cache.ChangesMessageCache;
+import com.sx4.bot.cache.EntityNameCache;
+import com.sx4.bot.cache.PopulationCache;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
 import com.sx4.bot.events.AwaitEvents;
 import com.sx4.bot.events.ConnectionEvents;
 import com.sx4.bot.events.ReminderEvents;
 import com.sx4.bot.events.StatsEvents;
 import com.sx4.bot.interfaces.Examples;
+import com.sx4.bot.interfaces.Heavy;
 import com.sx4.bot.interfaces.Sx4Callback;
 import com.sx4.bot.settings.Settings;
 import com.sx4.bot.utils.*;
@@ -58,7 +64,6 @@ import java.time.zone.ZoneRulesException;
 import java.util.List;
 import java.util.*;
 import java.util.Map.Entry;
-import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -180,8 +185,7 @@ public class GeneralModule {
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
 					event.reply(String.format("I have added your reminder, you will be reminded about it in `%s` (Reminder ID: **%s**)", TimeUtils.toTimeString(duration, ChronoUnit.SECONDS), reminderCount + 1)).queue();
-					ScheduledFuture<?> executor = ReminderEvents.scheduledExectuor.schedule(() -> ReminderEvents.removeUserReminder(event.getAuthor().getIdLong(), reminderCount + 1, reminderName, duration, repeat), duration, TimeUnit.SECONDS);
-					ReminderEvents.putExecutor(event.getAuthor().getIdLong(), reminderCount + 1, executor);
+					ReminderEvents.scheduleExecutor(event.getAuthor().getIdLong(), reminderCount + 1, reminderName, duration, repeat, duration);
 				}
 			});
 		}
@@ -815,6 +819,8 @@ public class GeneralModule {
 							exception.printStackTrace();
 							event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 						} else {
+							GuildFeatureCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+							
 							event.reply("Image mode in " + channel.getAsMention() + " is now disabled <:done:403285928233402378>").queue();
 						}
 					});
@@ -832,6 +838,8 @@ public class GeneralModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.IMAGE_MODE, true);
+					
 					event.reply("Image mode in " + channel.getAsMention() + " is now enabled <:done:403285928233402378>").queue();
 				}
 			});
@@ -1402,6 +1410,7 @@ public class GeneralModule {
 	
 	@Command(value="leaderboard invites", aliases={"lb invites", "invites lb", "inviteslb", "lbinvites", "invites leaderboard"}, description="View a leaderboard of users with the most invites", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
 	@Examples({"leaderboard invites"})
+	@Heavy
 	@BotPermissions({Permission.MANAGE_SERVER, Permission.MESSAGE_EMBED_LINKS})
 	public void leaderboardInvites(CommandEvent event) {
 		event.getGuild().retrieveInvites().queue(invites -> {
@@ -1776,7 +1785,7 @@ public class GeneralModule {
 				.setDescription(description)
 				.setAuthor("Info!", null, event.getSelfUser().getEffectiveAvatarUrl())
 				.setColor(Settings.EMBED_COLOUR)
-				.addField("Stats", String.format("Ping: %dms\nServers: %,d\nUsers: %,d\nCommands: %d", event.getJDA().getGatewayPing(), event.getShardManager().getGuilds().size(), event.getShardManager().getUsers().size(), event.getCommandListener().getAllCommands().size()), true)
+				.addField("Stats", String.format("Ping: %dms\nServers: %,d\nUsers: %,d\nCommands: %d", event.getJDA().getGatewayPing(), event.getShardManager().getGuildCache().size(), PopulationCache.INSTANCE.getUsers(), event.getCommandListener().getAllCommands().size()), true)
 				.addField("Credits", "[Taiitoo#7419 (Host)](https://taiitoo.tk)\n[Victor#6359 (Ex Host)](https://vjserver.ddns.net)\n[ETLegacy](https://discord.gg/MqQsmF7)\n[Nexus](https://discord.gg/BEdrSaW)\n[MongoDB]"
 						+ "(https://www.mongodb.com/)\n[JDA](https://github.com/DV8FromTheWorld/JDA)\n[Jockie Utils](https://github.com/21Joakim/Jockie-Utils)", true)
 				.addField("Sx4", "Developers: " + String.join(", ", developers) + "\nInvite: [Click Here](https://discordapp.com/oauth2/authorize?client_id=440996323156819968&permissions=8&scope=bot)\nSupport: "
@@ -1790,7 +1799,7 @@ public class GeneralModule {
 	@Cooldown(value=7)
 	@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 	public void shardInfo(CommandEvent event) {
-		long totalGuilds = event.getShardManager().getGuildCache().size(), totalUsers = event.getShardManager().getUserCache().size();
+		long totalGuilds = event.getShardManager().getGuildCache().size(), totalUsers = PopulationCache.INSTANCE.getUsers();
 		
 		List<JDA> shards = new ArrayList<>(event.getShardManager().getShards());
 		shards.sort((a, b) -> Integer.compare(a.getShardInfo().getShardId(), b.getShardInfo().getShardId()));
@@ -1810,7 +1819,7 @@ public class GeneralModule {
 					for (int i = page.getCurrentPage() * page.getPerPage() - page.getPerPage(); i < (page.getMaxPage() == page.getCurrentPage() ? pageShards.size() : page.getCurrentPage() * page.getPerPage()); i++) {
 						JDA shard = pageShards.get(i);
 						String currentShard = shardInfo.getShardId() == i ? "\\> " : "";
-						embed.addField(currentShard + "Shard " + (i + 1), String.format("%,d servers\n%,d users\n%dms\n%s", shard.getGuilds().size(), shard.getUsers().size(), shard.getGatewayPing(), shard.getStatus().toString()), true);
+						embed.addField(currentShard + "Shard " + (i + 1), String.format("%,d servers\n%,d users\n%dms\n%s", shard.getGuildCache().size(), PopulationCache.INSTANCE.getUsers(shard), shard.getGatewayPing(), shard.getStatus().toString()), true);
 					}
 					
 					return embed.build();
@@ -1994,11 +2003,11 @@ public class GeneralModule {
 	}
 	
 	@Command(value="discriminator", aliases={"discrim"}, description="Search through all the users Sx4 can see by discriminator", contentOverflowPolicy=ContentOverflowPolicy.IGNORE)
-	@Examples({"discriminator", "discriminator 6653", "discriminator 0001"})
+	@Examples({"discriminator", "discriminator 6653", "discriminator 0001", "discriminator 0001 --server"})
 	@Cooldown(value=10, cooldownScope=ICooldown.Scope.GUILD)
 	@Async
 	@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
-	public void discriminator(CommandEvent event, @Argument(value="discriminator", nullDefault=true) String discriminator) {
+	public void discriminator(CommandEvent event, @Argument(value="discriminator", nullDefault=true) String discriminator, @Option(value="server", description="Only shows the users in the current server") boolean guild) {
 		if (discriminator == null) {
 			discriminator = event.getAuthor().getDiscriminator();
 		} else {
@@ -2011,12 +2020,7 @@ public class GeneralModule {
 			}
 		}
 		
-		List<User> users = new ArrayList<User>();
-		for (User user : event.getShardManager().getUsers()) {
-			if (discriminator.equals(user.getDiscriminator())) {
-				users.add(user);
-			}
-		}
+		List<User> users = EntityNameCache.INSTANCE.getUsersByDiscriminator(discriminator, guild ? event.getGuild() : null);
 		
 		if (users.isEmpty()) {
 			event.reply("There are no users in that discriminator :no_entry:").queue();
@@ -2113,6 +2117,8 @@ public class GeneralModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+					
 					event.reply("Triggers are now " + (enabled ? "disabled" : "enabled") + " in this server <:done:403285928233402378>").queue();
 				}
 			});
@@ -2187,6 +2193,8 @@ public class GeneralModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+					
 					event.reply("The trigger **" + triggerText + "** has been created <:done:403285928233402378>").queue();
 				}
 			});
@@ -2230,6 +2238,8 @@ public class GeneralModule {
 							exception.printStackTrace();
 							event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 						} else {
+							GuildFeatureCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+							
 							event.reply("The trigger **" + triggerText + "** has been removed <:done:403285928233402378>").queue();
 						}
 					});
@@ -2503,12 +2513,11 @@ public class GeneralModule {
 	@Async
 	public void stats(CommandEvent event, @Context Database database) {
 		long timestampNow = Clock.systemUTC().instant().getEpochSecond();
-		Bson timeFilter = Filters.gte("timestamp", timestampNow - StatsEvents.DAY_IN_SECONDS);
-		long commandsUsed = database.getCommandLogs().countDocuments(timeFilter);
-		int guildsGained = database.getGuildsGained(timeFilter);
+		long commandsUsed = QueryShapes.COMMANDS_USED.count(database.getCommandLogs(), timestampNow - StatsEvents.DAY_IN_SECONDS);
+		int guildsGained = database.getGuildsGained(timestampNow - StatsEvents.DAY_IN_SECONDS);
 		
-		List<Member> members = ArgumentUtils.getAllUniqueMembers();
-		long onlineMembers = members.stream().filter(m -> !m.getOnlineStatus().equals(OnlineStatus.OFFLINE)).count();
+		int users = PopulationCache.INSTANCE.getUsers();
+		long onlineUsers = PopulationCache.INSTANCE.getOnlineUsers();
 		
 		Runtime runtime = Runtime.getRuntime();
 		double cpuUsage = ManagementFactory.getOperatingSystemMXBean().getSystemLoadAverage();
@@ -2554,7 +2563,7 @@ public class GeneralModule {
 		embed.addField("Average Execution Time", String.format("%.2fms", (double) Sx4CommandEventListener.getAverageExecutionTime() / 1000000), true);
 		embed.addField("Database Queries", String.format("Average Reads Per Second: %,.2f\nAverage Writes Per Second: %,.2f", reads.getLong("ops") / mongoUptime, writes.getLong("ops") / mongoUptime), true);
 		embed.addField("Servers", String.format("%,d", event.getShardManager().getGuildCache().size()), true);
-		embed.addField(String.format("Users (%,d total)", members.size()), String.format("%,d Online\n%,d Offline", onlineMembers, members.size() - onlineMembers), true);
+		embed.addField(String.format("Users (%,d total)", users), String.format("%,d Online\n%,d Offline", onlineUsers, users - onlineUsers), true);
 		
 		event.reply(embed.build()).queue();
 	}
@@ -9,8 +9,6 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -354,8 +352,7 @@ public class GiveawayModule {
 						} else {
 							event.reply("Your giveaway has been created in " + channel.getAsMention() + " :tada:\nGiveaway ID: `" + id + "`").queue();
 							
-							ScheduledFuture<?> executor = GiveawayEvents.scheduledExectuor.schedule(() -> GiveawayEvents.removeGiveaway(event.getGuild().getIdLong(), giveaway), durationLength, TimeUnit.SECONDS);
-							GiveawayEvents.putExecutor(event.getGuild().getIdLong(), id, executor);
+							GiveawayEvents.scheduleExecutor(event.getGuild().getIdLong(), id, giveaway, durationLength);
 						}
 					});
 				});
@@ -539,8 +536,7 @@ public class GiveawayModule {
 							} else {
 								event.reply("Your giveaway has been created in " + channel.getAsMention() + " :tada:\nGiveaway ID: `" + id + "`").queue();
 								
-								ScheduledFuture<?> executor = GiveawayEvents.scheduledExectuor.schedule(() -> GiveawayEvents.removeGiveaway(event.getGuild().getIdLong(), giveaway), durationLength, TimeUnit.SECONDS);
-								GiveawayEvents.putExecutor(event.getGuild().getIdLong(), id, executor);
+								GiveawayEvents.scheduleExecutor(event.getGuild().getIdLong(), id, giveaway, durationLength);
 							}
 						});
 					});
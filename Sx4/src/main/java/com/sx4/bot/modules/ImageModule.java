@@ -11,6 +11,7 @@ import com.jockie.bot.core.module.Module;
 import com.jockie.bot.core.option.Option;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.interfaces.Examples;
+import com.sx4.bot.interfaces.Heavy;
 import com.sx4.bot.interfaces.Sx4Callback;
 import com.sx4.bot.settings.Settings;
 import com.sx4.bot.utils.*;
@@ -32,6 +33,7 @@ import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 @Module
+@Heavy
 public class ImageModule {
 	
 	public static OkHttpClient client = new OkHttpClient.Builder()
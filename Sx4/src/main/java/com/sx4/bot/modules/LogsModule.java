@@ -21,6 +21,9 @@ import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.cache.LoggerConfigCache;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
@@ -71,6 +74,9 @@ public class LogsModule {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 				} else {
+					GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.LOGGER, !enabled);
+					LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+					
 					event.reply("Logs are now " + (enabled ? "disabled" : "enabled") + " <:done:403285928233402378>").queue();
 				}
 			});
@@ -128,6 +134,8 @@ public class LogsModule {
 								exception.printStackTrace();
 								event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 							} else {
+								LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+								
 								event.reply("The logs channel has been " + (channel == null ? "reset" : "set to " + channel.getAsMention()) + " <:done:403285928233402378>").queue();
 							}
 						});
@@ -138,6 +146,8 @@ public class LogsModule {
 							exception.printStackTrace();
 							event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 						} else {
+							LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+							
 							event.reply("The logs channel has been " + (channel == null ? "reset" : "set to " + channel.getAsMention()) + " <:done:403285928233402378>").queue();
 						}
 					});
@@ -148,6 +158,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("The logs channel has been " + (channel == null ? "reset" : "set to " + channel.getAsMention()) + " <:done:403285928233402378>").queue();
 					}
 				});
@@ -255,6 +267,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("That " + category.toString().toLowerCase() + " is now blacklisted from appearing in only those events <:done:403285928233402378>").queue();
 					}
 				});
@@ -324,6 +338,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("That " + category.toString().toLowerCase() + " is now blacklisted from appearing in those events <:done:403285928233402378>").queue();
 					}
 				});
@@ -386,6 +402,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("That " + category.toString().toLowerCase() + " is no longer blacklisted from appearing in those events <:done:403285928233402378>").queue();
 					}
 				});
@@ -515,6 +533,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("The logger will now only send logs for those events <:done:403285928233402378>").queue();
 					}
 				});
@@ -547,6 +567,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("The logger will now send logs for those events <:done:403285928233402378>").queue();
 					}
 				});
@@ -578,6 +600,8 @@ public class LogsModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						LoggerConfigCache.INSTANCE.invalidate(event.getGuild().getIdLong());
+						
 						event.reply("The logger will no longer send logs for those events <:done:403285928233402378>").queue();
 					}
 				});
@@ -12,8 +12,6 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.Predicate;
 import java.util.regex.Matcher;
 import java.util.stream.Collectors;
@@ -40,11 +38,13 @@ import com.mongodb.client.model.UpdateOneModel;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import com.mongodb.client.model.WriteModel;
+import com.sx4.bot.cache.PrefixCache;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
 import com.sx4.bot.events.MuteEvents;
 import com.sx4.bot.interfaces.Examples;
 import com.sx4.bot.interfaces.Sx4Callback;
@@ -1660,6 +1660,8 @@ public class ModModule {
 				}
 				
 				database.updateUserById(event.getAuthor().getIdLong(), Updates.set("prefixes", cleanPrefixes), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateUser(event.getAuthor().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1692,6 +1694,8 @@ public class ModModule {
 				}
 				
 				database.updateUserById(event.getAuthor().getIdLong(), Updates.addEachToSet("prefixes", cleanPrefixes), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateUser(event.getAuthor().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1718,6 +1722,8 @@ public class ModModule {
 				}
 				
 				database.updateUserById(event.getAuthor().getIdLong(), Updates.pullAll("prefixes", Arrays.asList(prefixes)), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateUser(event.getAuthor().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1737,6 +1743,8 @@ public class ModModule {
 				}
 				
 				database.updateUserById(event.getAuthor().getIdLong(), Updates.unset("prefixes"), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateUser(event.getAuthor().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1773,6 +1781,8 @@ public class ModModule {
 				}
 				
 				database.updateGuildById(event.getGuild().getIdLong(), Updates.set("prefixes", cleanPrefixes), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateGuild(event.getGuild().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1806,6 +1816,8 @@ public class ModModule {
 				}
 				
 				database.updateGuildById(event.getGuild().getIdLong(), Updates.addEachToSet("prefixes", cleanPrefixes), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateGuild(event.getGuild().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1833,6 +1845,8 @@ public class ModModule {
 				}
 				
 				database.updateGuildById(event.getGuild().getIdLong(), Updates.pullAll("prefixes", Arrays.asList(prefixes)), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateGuild(event.getGuild().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -1853,6 +1867,8 @@ public class ModModule {
 				}
 				
 				database.updateGuildById(event.getGuild().getIdLong(), Updates.unset("prefixes"), (result, exception) -> {
+					PrefixCache.INSTANCE.invalidateGuild(event.getGuild().getIdLong());
+					
 					if (exception != null) {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -2444,12 +2460,7 @@ public class ModModule {
 				return;
 			}
 			
-			List<Bson> filters = new ArrayList<>();
-			for (Integer caseNumber : caseNumbers) {
-				filters.add(Filters.eq("id", caseNumber));
-			}
-			
-			List<Document> cases = database.getModLogs().find(Filters.and(Filters.eq("guildId", event.getGuild().getIdLong()), Filters.or(filters))).projection(Projections.include("moderatorId", "messageId", "id")).into(new ArrayList<>());
+			List<Document> cases = QueryShapes.MODLOG_CASES.find(database.getModLogs(), event.getGuild().getIdLong(), caseNumbers.toArray()).into(new ArrayList<>());
 			if (cases.isEmpty()) {
 				event.reply("There are no cases to edit in this server :no_entry:").queue();
 				return;
@@ -2506,7 +2517,7 @@ public class ModModule {
 		@AuthorPermissions({Permission.MESSAGE_MANAGE})
 		@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 		public void viewCase(CommandEvent event, @Context Database database, @Argument(value="case number") int caseNumber) {
-			Document modlogCase = database.getModLogs().find(Filters.and(Filters.eq("id", caseNumber), Filters.eq("guildId", event.getGuild().getIdLong()))).first();
+			Document modlogCase = QueryShapes.MODLOG_CASE.find(database.getModLogs(), caseNumber, event.getGuild().getIdLong()).first();
 			if (modlogCase == null) {
 				event.reply("I could not find that modlog case :no_entry:").queue();
 				return;
@@ -3101,9 +3112,8 @@ public class ModModule {
 				return;
 			}
 			
-			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("mute.users", "templates"));
-			List<Document> users = data.getEmbedded(List.of("mute", "users"), Collections.emptyList());
-			database.updateGuildById(ModUtils.getMuteUpdate(event.getGuild().getIdLong(), member.getUser().getIdLong(), users, muteLength), (result, exception) -> {
+			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("templates"));
+			ModUtils.updateMute(event.getGuild().getIdLong(), member.getUser().getIdLong(), muteLength, (result, exception) -> {
 				if (exception != null) {
 					exception.printStackTrace();
 					event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -3121,8 +3131,7 @@ public class ModModule {
 						
 						ModUtils.createModLogAndOffence(event.getGuild(), event.getAuthor(), member.getUser(), "Mute (" + muteString + ")", reason);
 						
-						ScheduledFuture<?> executor = MuteEvents.scheduledExectuor.schedule(() -> MuteEvents.removeUserMute(event.getGuild().getIdLong(), member.getIdLong(), role.getIdLong()), muteLength, TimeUnit.SECONDS);
-						MuteEvents.putExecutor(event.getGuild().getIdLong(), member.getUser().getIdLong(), executor);
+						MuteEvents.scheduleExecutor(event.getGuild().getIdLong(), member.getUser().getIdLong(), role.getIdLong(), muteLength);
 					});
 				}	
 			});
@@ -3161,7 +3170,7 @@ public class ModModule {
 			return;
 		}
 		
-		database.updateGuildById(event.getGuild().getIdLong(), Updates.pull("mute.users", Filters.eq("id", member.getIdLong())), (result, exception) -> {
+		ModUtils.removeMute(event.getGuild().getIdLong(), member.getIdLong(), (result, exception) -> {
 			if (exception != null) {
 				exception.printStackTrace();
 				event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -3190,7 +3199,7 @@ public class ModModule {
 	public void mutedList(CommandEvent event, @Context Database database) {
 		long timestamp = Clock.systemUTC().instant().getEpochSecond();
 		
-		List<Document> mutedUsers = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("mute.users")).getEmbedded(List.of("mute", "users"), Collections.emptyList());
+		List<Document> mutedUsers = ModUtils.getMutes(event.getGuild().getIdLong());
 		for (Document userData : new ArrayList<>(mutedUsers)) {
 			Member member = event.getGuild().getMemberById(userData.getLong("id"));
 			if (member == null) {
@@ -3653,25 +3662,23 @@ public class ModModule {
 				event.reply(exception.getMessage() + " :no_entry:").queue();
 				return;
 			} else {
-				Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("mute.users", "warn.users", "warn.configuration"));
-				List<Document> mutedUsers = data.getEmbedded(List.of("mute", "users"), Collections.emptyList());
-				List<Document> warnedUsers = data.getEmbedded(List.of("warn", "users"), Collections.emptyList());
-				
-				List<Document> warnConfiguration = data.getEmbedded(List.of("warn", "configuration"), Collections.emptyList());
+				List<Document> warnConfiguration = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.configuration")).getEmbedded(List.of("warn", "configuration"), Collections.emptyList());
 				if (warnConfiguration.isEmpty()) {
 					warnConfiguration = ModUtils.DEFAULT_WARN_CONFIGURATION;
 				}
 				
-				Long duration = warning.getDuration();
+				UserWarning userWarning = WarnUtils.getUserWarning(event.getGuild().getIdLong(), member.getIdLong());
+				Bson update = WarnUtils.getUserUpdate(userWarning, warnConfiguration, reason);
 				
-				List<WriteModel<Document>> bulkData = new ArrayList<>();
-				if (warning.getAction().equals("mute")) {
-					bulkData.add(ModUtils.getMuteUpdate(event.getGuild().getIdLong(), member.getIdLong(), mutedUsers, duration));
-				}
-				
-				bulkData.add(WarnUtils.getUserUpdate(warnedUsers, warnConfiguration, event.getGuild().getIdLong(), member.getIdLong(), reason));
+				Long duration = warning.getDuration();
 				
-				database.bulkWriteGuilds(bulkData, (result, writeException) -> {
+				database.write(() -> {
+					if (warning.getAction().equals("mute")) {
+						database.getMutes().bulkWrite(List.of(ModUtils.getMuteUpdate(event.getGuild().getIdLong(), member.getIdLong(), duration)));
+					}
+					
+					return database.getWarnings().updateById(event.getGuild().getIdLong(), member.getIdLong(), update);
+				}).whenComplete((result, writeException) -> {
 					if (writeException != null) {
 						writeException.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(writeException)).queue();
@@ -3687,7 +3694,7 @@ public class ModModule {
 	@Examples({"warn list"})
 	@BotPermissions({Permission.MESSAGE_EMBED_LINKS})
 	public void warnList(CommandEvent event, @Context Database database) {
-		List<Document> users = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.users")).getEmbedded(List.of("warn", "users"), Collections.emptyList());
+		List<Document> users = database.getWarnings().getListByGuildId(event.getGuild().getIdLong(), Projections.include("id", "warnings"));
 		if (users.isEmpty()) {
 			event.reply("No one has been warned in this server :no_entry:").queue();
 			return;
@@ -3730,13 +3737,12 @@ public class ModModule {
 			}
 		}
 		
-		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.users", "warn.punishments", "warn.configuration")).get("warn", Database.EMPTY_DOCUMENT);
+		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.punishments", "warn.configuration")).get("warn", Database.EMPTY_DOCUMENT);
 		
-		List<Document> users = data.getList("users", Document.class, Collections.emptyList());
 		List<Document> configuration = data.getList("configuration", Document.class, ModUtils.DEFAULT_WARN_CONFIGURATION);
 		boolean punishments = data.getBoolean("punishments", true);
 		
-		UserWarning userWarning = WarnUtils.getUserWarning(users, member.getIdLong());
+		UserWarning userWarning = WarnUtils.getUserWarning(event.getGuild().getIdLong(), member.getIdLong());
 		Warning nextWarning;
 		if (punishments) {
 			nextWarning = WarnUtils.getWarning(configuration, userWarning.getWarning() + 1);
@@ -3776,7 +3782,7 @@ public class ModModule {
 			return;
 		}
 		
-		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.configuration", "warn.users")).get("warn", Database.EMPTY_DOCUMENT);
+		Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.configuration")).get("warn", Database.EMPTY_DOCUMENT);
 		List<Document> configuration = data.getList("configuration", Document.class, ModUtils.DEFAULT_WARN_CONFIGURATION);
 		
 		int maxWarning = WarnUtils.getMaxWarning(configuration);
@@ -3796,24 +3802,7 @@ public class ModModule {
 			return;
 		}
 		
-		Bson update = null;
-		UpdateOptions updateOptions = null;
-		
-		List<Document> users = data.getList("users", Document.class, Collections.emptyList());
-		for (Document user : users) {
-			if (user.getLong("id") == member.getIdLong()) {
-				updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("user.id", member.getIdLong())));
-				update = Updates.set("warn.users.$[user].warnings", warningAmount);
-				
-				break;
-			}
-		}
-		
-		if (update == null) {
-			update = Updates.push("warn.users", new Document("id", member.getIdLong()).append("warnings", warningAmount));
-		}
-		
-		database.updateGuildById(event.getGuild().getIdLong(), null, update, updateOptions, (result, exception) -> {
+		database.getWarnings().updateById(event.getGuild().getIdLong(), member.getIdLong(), Updates.set("warnings", warningAmount), (result, exception) -> {
 			if (exception != null) {
 				exception.printStackTrace();
 				event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
@@ -3838,23 +3827,16 @@ public class ModModule {
 			return;
 		}
 		
-		List<Document> users = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("warn.users")).getEmbedded(List.of("warn", "users"), Collections.emptyList());
-		for (Document user : users) {
-			if (user.getLong("id") == member.getIdLong()) {
-				database.updateGuildById(event.getGuild().getIdLong(), Updates.pull("warn.users", Filters.eq("id", member.getIdLong())), (result, exception) -> {
-					if (exception != null) {
-						exception.printStackTrace();
-						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
-					} else {
-						event.reply("**" + member.getUser().getAsTag() + "** has had their warnings reset <:done:403285928233402378>").queue();
-					}
-				});
-				
-				return;
+		database.getWarnings().deleteById(event.getGuild().getIdLong(), member.getIdLong(), (result, exception) -> {
+			if (exception != null) {
+				exception.printStackTrace();
+				event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
+			} else if (result.getDeletedCount() == 0) {
+				event.reply("That user has no warnings :no_entry:").queue();
+			} else {
+				event.reply("**" + member.getUser().getAsTag() + "** has had their warnings reset <:done:403285928233402378>").queue();
 			}
-		}
-		
-		event.reply("That user has no warnings :no_entry:").queue();
+		});
 	}
 	
 	@Command(value="offences", description="View the offences of a user in the current server")
@@ -21,6 +21,8 @@ import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Command;
 import com.sx4.bot.core.Sx4CommandEventListener;
@@ -105,6 +107,8 @@ public class SelfrolesModule {
 						exception.printStackTrace();
 						event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 					} else {
+						GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.SELFROLES, true);
+						
 						event.reply("Your base reaction role menu has been created in " + channel.getAsMention() + " <:done:403285928233402378>").queue();
 					}
 				});
@@ -276,6 +280,8 @@ public class SelfrolesModule {
 								exception.printStackTrace();
 								event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 							} else {
+								GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.SELFROLES, true);
+								
 								event.reply("The role `" + role.getName() + "` will now be given when reacting to " + unicodeEmote + " <:done:403285928233402378>").queue();
 							}
 						});
@@ -300,6 +306,8 @@ public class SelfrolesModule {
 							exception.printStackTrace();
 							event.reply(Sx4CommandEventListener.getUserErrorMessage(exception)).queue();
 						} else {
+							GuildFeatureCache.INSTANCE.setEnabled(event.getGuild().getIdLong(), Feature.SELFROLES, true);
+							
 							event.reply("The role `" + role.getName() + "` will now be given when reacting to " + emote.getAsMention() + " <:done:403285928233402378>").queue();
 						}
 					});
@@ -15,14 +15,12 @@ public class Starboard {
 	private final boolean enabled;
 	private final Long channelId;
 	private final List<StarboardConfiguration> configuration;
-	private final List<StarboardMessage> messages;
 	private final List<Long> deletedMessages;
 	
 	public Starboard(Document data) {
 		this.enabled = data.getBoolean("enabled", false);
 		this.channelId = data.getLong("channelId");
 		this.configuration = StarboardConfiguration.fromRaw(data.getList("configuration", Document.class, StarboardUtils.DEFAULT_STARBOARD_CONFIGURATION));
-		this.messages = StarboardMessage.fromRaw(data.getList("messages", Document.class, Collections.emptyList()));
 		this.deletedMessages = data.getList("deleted", Long.class, Collections.emptyList());
 	}
 	
@@ -67,30 +65,5 @@ public class Starboard {
 		
 		return index == -1 ? null : this.configuration.get(index);
 	}
-	
-	public List<StarboardMessage> getMessages() {
-		return this.messages;
-	}
-	
-	public StarboardMessage getMessageByOriginalId(long messageId) {
-		for (StarboardMessage message : this.messages) {
-			if (message.getMessageId() == messageId) {
-				return message;
-			}
-		}
-		
-		return null;
-	}
-	
-	public StarboardMessage getMessageById(long messageId) {
-		for (StarboardMessage message : this.messages) {
-			Long starboardId = message.getStarboardId();
-			if (message.getMessageId() == messageId || (starboardId != null && starboardId == messageId)) {
-				return message;
-			}
-		}
-		
-		return null;
-	}
 
 }
@@ -4,17 +4,14 @@ import java.awt.Color;
 import java.time.Month;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import com.google.common.base.Function;
-import com.google.common.base.Predicate;
 import com.jockie.bot.core.category.impl.CategoryImpl;
 import com.jockie.bot.core.command.ICommand;
+import com.sx4.bot.cache.EntityNameCache;
 import com.sx4.bot.categories.Categories;
 import com.sx4.bot.core.Sx4Bot;
 import com.sx4.bot.core.Sx4Command;
@@ -46,17 +43,6 @@ public class ArgumentUtils {
 	public static final Pattern LIST_OF_NUMBERS_REGEX = Pattern.compile("(\\d+)(?: |, |,|)");
 	public static final Pattern RANGE_OF_NUMBERS_REGEX = Pattern.compile("(\\d+)-(\\d+)(?: |,|, |)");
 	
-	private static <T> Predicate<T> distinctByKey(Function<? super T, ?> keyExtractor) {
-		Set<Object> seen = ConcurrentHashMap.newKeySet();
-		return t -> seen.add(keyExtractor.apply(t));
-	}
-	
-	public static List<Member> getAllUniqueMembers() {
-		return ArgumentUtils.getAllMembers().stream()
-			.filter(ArgumentUtils.distinctByKey(member -> member.getUser().getIdLong()))
-			.collect(Collectors.toList());
-	}
-
 	public static List<Member> getAllMembers() {
 		return Sx4Bot.getShardManager().getGuildCache().stream()
 			.map(Guild::getMemberCache)
@@ -148,24 +134,8 @@ public class ArgumentUtils {
 		if (guildId.matches()) {
 			return Sx4Bot.getShardManager().getGuildById(guildId.group(1));
 		} else if (guildName.matches()) {
-			List<Guild> guilds = Sx4Bot.getShardManager().getGuilds();
-			for (Guild guild : guilds) {
-				if (guild.getName().toLowerCase().equals(guildArgument)) {
-					return guild;
-				}
-			}
-			
-			for (Guild guild : guilds) {
-				if (guild.getName().toLowerCase().startsWith(guildArgument)) {
-					return guild;
-				}
-			}
-			
-			for (Guild guild : guilds) {
-				if (guild.getName().toLowerCase().contains(guildArgument)) {
-					return guild;
-				}
-			}
+			/* Exact names are ranked before names starting with the argument which are ranked before names containing it */
+			return EntityNameCache.INSTANCE.getGuilds(guildArgument, 1).stream().findFirst().orElse(null);
 		}
 		
 		return null;
@@ -346,7 +316,7 @@ public class ArgumentUtils {
 		} else if (emoteName.matches()) {
 			emoteObject = guild.getEmotesByName(emote, true).stream().findFirst().orElse(null);
 			if (emoteObject == null) {
-				return Sx4Bot.getShardManager().getEmotesByName(emote, true).stream().findFirst().orElse(null);
+				return EntityNameCache.INSTANCE.getEmotesByName(emote).stream().findFirst().orElse(null);
 			} else {
 				return emoteObject;
 			}
@@ -506,30 +476,9 @@ public class ArgumentUtils {
 			String name = nameTag.group(1);
 			String discriminator = nameTag.group(2);
 			
-			for (User u : Sx4Bot.getShardManager().getUsers()) {
-				if (u.getName().toLowerCase().equals(name.toLowerCase()) && u.getDiscriminator().equals(discriminator)) {
-					return u;
-				}
-			}
+			return EntityNameCache.INSTANCE.getUsersByName(name).stream().filter(it -> it.getDiscriminator().equals(discriminator)).findFirst().orElse(null);
 		} else if (userName.matches()) {
-			List<User> users = Sx4Bot.getShardManager().getUsers();
-			for (User u : users) {
-				if (u.getName().toLowerCase().equals(user.toLowerCase())) {
-					return u;
-				}
-			}
-
-			for (User u : users) {
-				if (u.getName().toLowerCase().startsWith(user.toLowerCase())) {
-					return u;
-				}
-			}
-				
-			for (User u : users) {
-				if (u.getName().toLowerCase().contains(user.toLowerCase())) {
-					return u;
-				}
-			}
+			return EntityNameCache.INSTANCE.getUsers(user, 1).stream().findFirst().orElse(null);
 		}
 		
 		return null;
@@ -557,30 +506,42 @@ public class ArgumentUtils {
 			String name = nameTag.group(1);
 			String discriminator = nameTag.group(2);
 			
-			return guild.getMembersByName(name, true).stream().filter(it -> it.getUser().getDiscriminator().equals(discriminator)).findFirst().orElse(null);
+			return ArgumentUtils.getMemberByTag(guild, name, discriminator);
 		} else if (userName.matches()) {
-			Member memberEffectiveName = guild.getMembersByEffectiveName(user, true).stream().findFirst().orElse(null);
-			if (memberEffectiveName == null) {
-				Member memberName = guild.getMembersByName(user, true).stream().findFirst().orElse(null);
-				if (memberName == null) {	
-					
-					for (Member member : guild.getMembers()) {
-						if (member.getEffectiveName().toLowerCase().startsWith(user)) {
-							return member;
-						}
-					}
-					
-					for (Member member : guild.getMembers()) {
-						if (member.getEffectiveName().toLowerCase().contains(user)) {
-							return member;
-						}
-					}
-					
-				} else {
+			Member member = EntityNameCache.INSTANCE.getMembers(guild, user, 1).stream().findFirst().orElse(null);
+			if (member != null && member.getEffectiveName().equalsIgnoreCase(user)) {
+				return member;
+			}
+			
+			/* An exact user name is still preferred over a nickname which only starts with or contains the argument */
+			for (User nameUser : EntityNameCache.INSTANCE.getUsersByName(user)) {
+				Member memberName = guild.getMember(nameUser);
+				if (memberName != null) {
 					return memberName;
 				}
-			} else {
-				return memberEffectiveName;
+			}
+			
+			return member;
+		}
+		
+		return null;
+	}
+	
+	private static Member getMemberByTag(Guild guild, String name, String discriminator) {
+		for (User user : EntityNameCache.INSTANCE.getUsersByName(name)) {
+			if (user.getDiscriminator().equals(discriminator)) {
+				return guild.getMember(user);
+			}
+		}
+		
+		return null;
+	}
+	
+	private static Member getAnyMember(User user) {
+		for (Guild guild : Sx4Bot.getShardManager().getMutualGuilds(user)) {
+			Member member = guild.getMember(user);
+			if (member != null) {
+				return member;
 			}
 		}
 		
@@ -630,11 +591,11 @@ public class ArgumentUtils {
 			String name = nameTag.group(1);
 			String discriminator = nameTag.group(2);
 			
-			Member m = guild.getMembersByName(name, true).stream().filter(it -> it.getUser().getDiscriminator().equals(discriminator)).findFirst().orElse(null);
+			Member m = ArgumentUtils.getMemberByTag(guild, name, discriminator);
 			if (m == null) {
-				for (Member member : getAllMembers()) {
-					if (member.getUser().getName().toLowerCase().equals(name.toLowerCase()) && member.getUser().getDiscriminator().equals(discriminator)) {
-						return member;
+				for (User nameUser : EntityNameCache.INSTANCE.getUsersByName(name)) {
+					if (nameUser.getDiscriminator().equals(discriminator)) {
+						return ArgumentUtils.getAnyMember(nameUser);
 					}
 				}
 			} else {
@@ -643,17 +604,21 @@ public class ArgumentUtils {
 		} else if (userName.matches()) {
 			if (guild.getMembersByEffectiveName(user, true).stream().findFirst().orElse(null) == null) {
 				
-				if (guild.getMembersByName(user, true).stream().findFirst().orElse(null) == null) {
-					
-					for (Member member : getAllMembers()) {
-						if (member.getUser().getName().toLowerCase().equals(user.toLowerCase())) {
-							return member;
-						}
+				List<User> users = EntityNameCache.INSTANCE.getUsersByName(user);
+				for (User nameUser : users) {
+					Member member = guild.getMember(nameUser);
+					if (member != null) {
+						return member;
+					}
+				}
+				
+				for (User nameUser : users) {
+					Member member = ArgumentUtils.getAnyMember(nameUser);
+					if (member != null) {
+						return member;
 					}
-					
-				} else {
-					return guild.getMembersByName(user, true).get(0);
 				}
+				
 			} else {
 				return guild.getMembersByEffectiveName(user, true).get(0);
 			}
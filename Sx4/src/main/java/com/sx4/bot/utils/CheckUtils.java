@@ -1,7 +1,8 @@
 package com.sx4.bot.utils;
 
 import com.jockie.bot.core.command.impl.CommandEvent;
-import com.mongodb.client.model.Projections;
+import com.sx4.bot.cache.GuildMessageContext;
+import com.sx4.bot.cache.PrefixCache;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.settings.Settings;
 import net.dv8tion.jda.api.OnlineStatus;
@@ -19,13 +20,23 @@ import java.util.List;
 
 public class CheckUtils {
 	
+	public static final String[] BLACKLIST_GUILD_FIELDS = {"blacklist.commands", "blacklist.disabled"};
+	public static final String[] BLACKLIST_USER_FIELDS = {"blacklisted"};
+	
+	public static final String[] PERMISSION_GUILD_FIELDS = {"fakePermissions.users", "fakePermissions.roles"};
+	
+	static {
+		GuildMessageContext.declareGuildFields(CheckUtils.PERMISSION_GUILD_FIELDS);
+		GuildMessageContext.declareGuildFields(CheckUtils.BLACKLIST_GUILD_FIELDS);
+		GuildMessageContext.declareUserFields(CheckUtils.BLACKLIST_USER_FIELDS);
+	}
+	
 	public static boolean canReply(Message message, String prefix) {
 		if (!Settings.CANARY) {
 			String botId = message.getJDA().getSelfUser().getId();
 			boolean mentionPrefix = prefix.equals("<@" + botId + ">") || prefix.equals("<@!" + botId + ">");
 			
-			List<String> canaryPrefixes = ModUtils.getPrefixes(message.getGuild(), message.getAuthor(), false);
-			if (canaryPrefixes.contains(prefix)) {
+			if (PrefixCache.INSTANCE.getPrefixes(message.getGuild(), message.getAuthor(), false).contains(prefix)) {
 				Member canaryBot = message.getGuild().getMemberById(Settings.CANARY_BOT_ID);
 				if (canaryBot != null && !mentionPrefix && message.getTextChannel().canTalk(canaryBot) && !canaryBot.getOnlineStatus().equals(OnlineStatus.OFFLINE)) {
 					return false;
@@ -37,12 +48,11 @@ public class CheckUtils {
 	}
 
 	public static boolean checkPermissions(CommandEvent event, EnumSet<Permission> permissions, boolean reply) {
-		Database database = Database.get();
 		if (event.isAuthorDeveloper()) {
 			return true;
 		} else {
 			long rolePerms = 0, userPerms = 0;
-			Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("fakePermissions.users", "fakePermissions.roles")).get("fakePermissions", Database.EMPTY_DOCUMENT);
+			Document data = GuildMessageContext.get(event.getMessage()).getGuildData(CheckUtils.PERMISSION_GUILD_FIELDS).get("fakePermissions", Database.EMPTY_DOCUMENT);
 			
 			List<Document> users = data.getList("users", Document.class, Collections.emptyList());
 			for (Document userData : users) {
@@ -107,15 +117,15 @@ public class CheckUtils {
 	
 	public static boolean checkBlacklist(CommandEvent event) {
 		if (true/*!event.isAuthorDeveloper()*/) {
-			Database database = Database.get();
+			GuildMessageContext context = GuildMessageContext.get(event.getMessage());
 			
-			List<String> blacklistedCommands = database.getUserById(event.getAuthor().getIdLong(), null, Projections.include("blacklisted")).getList("blacklisted", String.class, Collections.emptyList());
+			List<String> blacklistedCommands = context.getUserData(CheckUtils.BLACKLIST_USER_FIELDS).getList("blacklisted", String.class, Collections.emptyList());
 			if (blacklistedCommands.contains(event.getCommand().getCommandTrigger()) && !event.getCommand().getCommandTrigger().equals("support")) {
 				event.reply("You are blacklisted from using that command on the bot, to appeal make sure to join the bots support server which can be found in `" + event.getPrefix() + "support`").queue();
 				return false;
 			} else {
 				if (!CheckUtils.checkPermissions(event, EnumSet.of(Permission.ADMINISTRATOR), false)) {
-					Document data = database.getGuildById(event.getGuild().getIdLong(), null, Projections.include("blacklist.commands", "blacklist.disabled")).get("blacklist", Database.EMPTY_DOCUMENT);
+					Document data = context.getGuildData(CheckUtils.BLACKLIST_GUILD_FIELDS).get("blacklist", Database.EMPTY_DOCUMENT);
 					
 					List<Document> commands = data.getList("commands", Document.class, Collections.emptyList());					
 					for (Document command : commands) {
@@ -5,22 +5,20 @@ import java.time.Clock;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.Collections;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.function.BiConsumer;
 
 import org.bson.Document;
-import org.bson.conversions.Bson;
 
-import com.mongodb.client.MongoCollection;
-import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
 import com.mongodb.client.model.UpdateOneModel;
-import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
-import com.sx4.bot.core.Sx4Bot;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.sx4.bot.cache.PrefixCache;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.DatabaseCallback;
 import com.sx4.bot.events.MuteEvents;
 import com.sx4.bot.utils.WarnUtils.Warning;
 
@@ -200,21 +198,31 @@ public class ModUtils {
 		return embed.build();
 	}
 	
-	public static UpdateOneModel<Document> getMuteUpdate(long guildId, long memberId, List<Document> users, Long muteLength) {
+	/**
+	 * @return the update for the mute of the member in the mutes collection, the mute is created if the member is not muted
+	 */
+	public static UpdateOneModel<Document> getMuteUpdate(long guildId, long memberId, Long muteLength) {
 		long timestamp = Clock.systemUTC().instant().getEpochSecond();
-		for (Document userData : users) {
-			if (userData.getLong("id") == memberId) {
-				Bson update = Updates.combine(Updates.set("mute.users.$[user].timestamp", timestamp), Updates.set("mute.users.$[user].duration", muteLength));
-				UpdateOptions updateOptions = new UpdateOptions().arrayFilters(List.of(Filters.eq("user.id", memberId)));
-				return new UpdateOneModel<>(Filters.eq("_id", guildId), update, updateOptions);
-			}
-		}
 		
-		Document userData = new Document("id", memberId)
-				.append("duration", muteLength)
-				.append("timestamp", timestamp);
-
-		return new UpdateOneModel<>(Filters.eq("_id", guildId), Updates.push("mute.users", userData), new UpdateOptions().upsert(true));
+		return Database.get().getMutes().getUpdateModel(guildId, memberId, Updates.combine(Updates.set("timestamp", timestamp), Updates.set("duration", muteLength)));
+	}
+	
+	public static void updateMute(long guildId, long memberId, Long muteLength, DatabaseCallback<UpdateResult> callback) {
+		UpdateOneModel<Document> model = ModUtils.getMuteUpdate(guildId, memberId, muteLength);
+		
+		Database.get().getMutes().updateById(guildId, memberId, model.getUpdate(), callback);
+	}
+	
+	public static Document getMute(long guildId, long memberId) {
+		return Database.get().getMutes().getById(guildId, memberId, Projections.include("duration", "timestamp"));
+	}
+	
+	public static List<Document> getMutes(long guildId) {
+		return Database.get().getMutes().getListByGuildId(guildId, Projections.include("id", "duration", "timestamp"));
+	}
+	
+	public static void removeMute(long guildId, long memberId, DatabaseCallback<DeleteResult> callback) {
+		Database.get().getMutes().deleteById(guildId, memberId, callback);
 	}
 	
 	public static void createModLog(Guild guild, User moderator, User user, String action, String reason) {
@@ -306,29 +314,7 @@ public class ModUtils {
 	}
 	
 	public static List<String> getPrefixes(Guild guild, User user, boolean current) {
-		Database database = Database.get();
-		
-		MongoCollection<Document> currentUserCollection = current ? database.getUsers() : database.getOtherUsers();
-		MongoCollection<Document> currentGuildCollection = current ? database.getGuilds() : database.getOtherGuilds();
-		
-		Bson projection = Projections.include("prefixes");
-		
-		Document userPrefixesData = currentUserCollection.find(Filters.eq("_id", user.getIdLong())).projection(projection).first();
-		Document serverPrefixesData = null;
-		if (guild != null) {
-			serverPrefixesData = currentGuildCollection.find(Filters.eq("_id", guild.getIdLong())).projection(projection).first();
-		}
-		
-		List<String> userPrefixes = userPrefixesData == null ? Collections.emptyList() : userPrefixesData.getList("prefixes", String.class, Collections.emptyList());
-		List<String> serverPrefixes = serverPrefixesData == null ? Collections.emptyList() : serverPrefixesData.getList("prefixes", String.class, Collections.emptyList());
-		
-		if (!userPrefixes.isEmpty()) {
-			return userPrefixes;
-		} else if (!serverPrefixes.isEmpty()) {
-			return serverPrefixes;
-		} else {
-			return Sx4Bot.getCommandListener().getDefaultPrefixes();
-		}
+		return PrefixCache.INSTANCE.getPrefixes(guild, user, current).getPrefixes();
 	}
 
 }
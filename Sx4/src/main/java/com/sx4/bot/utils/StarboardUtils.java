@@ -5,7 +5,15 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.bson.Document;
+import org.bson.conversions.Bson;
 
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.result.DeleteResult;
+import com.mongodb.client.result.UpdateResult;
+import com.sx4.bot.database.Database;
+import com.sx4.bot.database.DatabaseCallback;
 import com.sx4.bot.starboard.StarboardConfiguration;
 import com.sx4.bot.starboard.StarboardMessage;
 
@@ -30,6 +38,64 @@ public class StarboardUtils {
 	
 	public static final Color STARBOARD_COLOUR = new Color(255, 172, 51);
 	
+	/* Star updates to messages which have been deleted from the starboard should not bring them back */
+	private static final UpdateOptions NO_UPSERT = new UpdateOptions();
+	
+	/**
+	 * @param messageId the id of the original message or the id of its message on the starboard
+	 */
+	public static StarboardMessage getMessageById(long guildId, long messageId) {
+		Document data = Database.get().getStarboardMessages().getOneByGuildId(guildId, Filters.or(Filters.eq("id", messageId), Filters.eq("starboardId", messageId)), null);
+		
+		return data == null ? null : new StarboardMessage(data);
+	}
+	
+	public static StarboardMessage getMessageByOriginalId(long guildId, long messageId) {
+		Document data = Database.get().getStarboardMessages().getById(guildId, messageId);
+		
+		return data.isEmpty() ? null : new StarboardMessage(data);
+	}
+	
+	/**
+	 * Stars the message, the message is created with the first star so it has to be the original message 
+	 * 
+	 * @param starboardId the id of the message on the starboard, null if it has not been sent or has not changed
+	 */
+	public static void addStar(Message message, String image, long userId, Long starboardId, DatabaseCallback<UpdateResult> callback) {
+		Document data = new Document("channelId", message.getChannel().getIdLong())
+				.append("authorId", message.getAuthor().getIdLong())
+				.append("content", message.getContentRaw())
+				.append("image", image);
+		
+		Bson update = Updates.combine(Updates.setOnInsert(data), Updates.addToSet("stars", userId));
+		if (starboardId != null) {
+			update = Updates.combine(update, Updates.set("starboardId", starboardId));
+		}
+		
+		Database.get().getStarboardMessages().updateById(message.getGuild().getIdLong(), message.getIdLong(), update, callback);
+	}
+	
+	public static void addStar(long guildId, long messageId, long userId, Long starboardId, DatabaseCallback<UpdateResult> callback) {
+		Bson update = Updates.addToSet("stars", userId);
+		if (starboardId != null) {
+			update = Updates.combine(update, Updates.set("starboardId", starboardId));
+		}
+		
+		Database.get().getStarboardMessages().updateById(guildId, messageId, update, NO_UPSERT, callback);
+	}
+	
+	public static void removeStar(long guildId, long messageId, long userId, DatabaseCallback<UpdateResult> callback) {
+		Database.get().getStarboardMessages().updateById(guildId, messageId, Updates.pull("stars", userId), NO_UPSERT, callback);
+	}
+	
+	public static void updateContent(long guildId, long messageId, String content, DatabaseCallback<UpdateResult> callback) {
+		Database.get().getStarboardMessages().updateById(guildId, messageId, Updates.set("content", content), NO_UPSERT, callback);
+	}
+	
+	public static void deleteMessage(long guildId, long messageId, DatabaseCallback<DeleteResult> callback) {
+		Database.get().getStarboardMessages().deleteById(guildId, messageId, callback);
+	}
+	
 	public static String formatMessage(User user, TextChannel channel, long messageId, List<StarboardConfiguration> configuration, int stars, String message) {
 		int index = -1;
 		while ((index = message.indexOf('{', index + 1)) != -1) {
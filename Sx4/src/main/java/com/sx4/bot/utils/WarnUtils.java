@@ -3,18 +3,13 @@ package com.sx4.bot.utils;
 import java.time.temporal.ChronoUnit;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 
 import org.bson.Document;
 import org.bson.conversions.Bson;
 
-import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.Projections;
-import com.mongodb.client.model.UpdateOneModel;
-import com.mongodb.client.model.UpdateOptions;
 import com.mongodb.client.model.Updates;
 import com.sx4.bot.database.Database;
 import com.sx4.bot.events.MuteEvents;
@@ -96,7 +91,6 @@ public class WarnUtils {
 	public static void handleWarning(Document data, Guild guild, Member user, Member moderator, String reason, BiConsumer<Warning, Throwable> warning) {
 		Document warnData = data.get("warn", Database.EMPTY_DOCUMENT);
 		
-		List<Document> users = warnData.getList("users", Document.class, Collections.emptyList());
 		List<Document> configuration = warnData.getList("configuration", Document.class, Collections.emptyList());
 		if (configuration.isEmpty()) {
 			configuration = ModUtils.DEFAULT_WARN_CONFIGURATION;
@@ -104,7 +98,7 @@ public class WarnUtils {
 		
 		boolean punishments = warnData.getBoolean("punishments", true);
 		
-		UserWarning userNextWarning = WarnUtils.getUserWarning(users, user.getIdLong());
+		UserWarning userNextWarning = WarnUtils.getUserWarning(guild.getIdLong(), user.getIdLong());
 		
 		Warning nextWarning;
 		if (punishments) {
@@ -123,7 +117,7 @@ public class WarnUtils {
 	}
 	
 	public static void handleWarning(Guild guild, Member user, Member moderator, String reason, BiConsumer<Warning, Throwable> warning) {
-		Document data = Database.get().getGuildById(guild.getIdLong(), null, Projections.include("warn.configuration", "warn.users", "warn.punishments"));
+		Document data = Database.get().getGuildById(guild.getIdLong(), null, Projections.include("warn.configuration", "warn.punishments"));
 		
 		WarnUtils.handleWarning(data, guild, user, moderator, reason, warning);
 	}
@@ -190,8 +184,7 @@ public class WarnUtils {
 							guild.addRoleToMember(target, muteRole).queue(mute -> {
 								Long duration = warning.getDuration();
 								if (duration != null) {
-									ScheduledFuture<?> executor = MuteEvents.scheduledExectuor.schedule(() -> MuteEvents.removeUserMute(guild.getIdLong(), target.getIdLong(), muteRole.getIdLong()), warning.getDuration(), TimeUnit.SECONDS);
-									MuteEvents.putExecutor(guild.getIdLong(), target.getIdLong(), executor);
+									MuteEvents.scheduleExecutor(guild.getIdLong(), target.getIdLong(), muteRole.getIdLong(), warning.getDuration());
 								}
 								
 								ModUtils.createModLogAndOffence(guild, moderator.getUser(), target.getUser(), GeneralUtils.title(warning.getAction()) + (duration == null ? " Infinite" : " " + TimeUtils.toTimeString(duration, ChronoUnit.SECONDS)) + " (" + GeneralUtils.getNumberSuffix(warning.getWarning()) + " warning)", reason);
@@ -222,35 +215,23 @@ public class WarnUtils {
 		}
 	}
 	
-	public static UserWarning getUserWarning(List<Document> users, long userId) {
-		for (Document userData : users) {
-			if (userData.getLong("id") == userId) {
-				return new UserWarning(userData);
-			}
-		}
+	public static UserWarning getUserWarning(long guildId, long userId) {
+		Document data = Database.get().getWarnings().getById(guildId, userId, Projections.include("warnings", "reasons"));
 		
-		return new UserWarning(0, Collections.emptyList());
+		return data.isEmpty() ? new UserWarning(0, Collections.emptyList()) : new UserWarning(data);
 	}
 	
-	public static UpdateOneModel<Document> getUserUpdate(List<Document> users, List<Document> configuration, long guildId, long userId, String reason) {
-		int maxWarning = WarnUtils.getMaxWarning(configuration);
-		for (Document userData : users) {
-			if (userData.getLong("id") == userId) {
-				Bson update = maxWarning <= userData.getInteger("warnings") ? Updates.set("warn.users.$[user].warnings", 1) : Updates.inc("warn.users.$[user].warnings", 1);
-				if (reason != null) {
-					update = Updates.combine(update, Updates.push("warn.users.$[user].reasons", reason));
-				}
-				
-				return new UpdateOneModel<>(Filters.eq("_id", guildId), update, new UpdateOptions().arrayFilters(List.of(Filters.eq("user.id", userId))));
-			}
-		}
-		
-		Document userData = new Document("id", userId).append("warnings", 1);
+	/**
+	 * @param userWarning the current warning of the user, the warnings go back to 1 once they have reached the last configured warning
+	 * @return the update for the user in the warnings collection
+	 */
+	public static Bson getUserUpdate(UserWarning userWarning, List<Document> configuration, String reason) {
+		Bson update = WarnUtils.getMaxWarning(configuration) <= userWarning.getWarning() ? Updates.set("warnings", 1) : Updates.inc("warnings", 1);
 		if (reason != null) {
-			userData.append("reasons", List.of(reason));
+			update = Updates.combine(update, Updates.push("reasons", reason));
 		}
 		
-		return new UpdateOneModel<>(Filters.eq("_id", guildId), Updates.push("warn.users", userData), new UpdateOptions().upsert(true));
+		return update;
 	}
 
 	public static Warning getWarning(List<Document> warnConfiguration, int warning) {
@@ -1,23 +1,17 @@
 package com.sx4.bot.youtube;
 
-import java.time.Clock;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
-import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ScheduledFuture;
-import java.util.concurrent.TimeUnit;
 
 import org.bson.Document;
 
-import com.mongodb.client.model.DeleteOneModel;
-import com.mongodb.client.model.Filters;
 import com.mongodb.client.model.WriteModel;
-import com.sx4.bot.core.Sx4Bot;
+import com.sx4.bot.core.JobScheduler;
 import com.sx4.bot.database.Database;
+import com.sx4.bot.database.QueryShapes;
 import com.sx4.bot.interfaces.Sx4Callback;
 import com.sx4.bot.modules.ImageModule;
 import com.sx4.bot.settings.Settings;
@@ -29,27 +23,30 @@ import okhttp3.RequestBody;
 
 public class YouTubeManager {
 
-	private final Map<String, ScheduledFuture<?>> resubscriptions;
-	
+	public static final String JOB_TYPE = "youtube";
+
 	private final Set<YouTubeListener> listeners;
 	
 	public YouTubeManager() {
 		this.listeners = new HashSet<>();
-		this.resubscriptions = new HashMap<>();
 	}
 	
-	public boolean hasResubscription(String channelId) {
-		return this.resubscriptions.containsKey(channelId);
+	public static String getJobId(String channelId) {
+		return JobScheduler.getId(YouTubeManager.JOB_TYPE, channelId);
 	}
 	
-	public YouTubeManager putResubscription(String channelId, ScheduledFuture<?> resubscription) {
-		this.resubscriptions.put(channelId, resubscription);
-		
-		return this;
+	/**
+	 * Reads the jobs collection so it should not be called from an event thread
+	 */
+	public boolean hasResubscription(String channelId) {
+		return JobScheduler.INSTANCE.isScheduled(YouTubeManager.getJobId(channelId));
 	}
 	
-	public YouTubeManager removeResubscription(String channelId) {
-		this.resubscriptions.remove(channelId);
+	/**
+	 * Schedules the channel to be subscribed to again before the subscription runs out, a pending one is replaced
+	 */
+	public YouTubeManager scheduleResubscription(String channelId, long seconds) {
+		JobScheduler.INSTANCE.schedule(YouTubeManager.getJobId(channelId), YouTubeManager.JOB_TYPE, seconds, new Document("channelId", channelId));
 		
 		return this;
 	}
@@ -90,10 +87,10 @@ public class YouTubeManager {
 		}
 	}
 	
-	public DeleteOneModel<Document> resubscribeAndGet(String channelId) {
-		long amount = Database.get().getGuilds().countDocuments(Filters.elemMatch("youtubeNotifications", Filters.eq("uploaderId", channelId)));
+	public void resubscribe(String channelId) {
+		long amount = QueryShapes.YOUTUBE_UPLOADER_COUNT.count(Database.get().getGuilds(), channelId);
 		
-		DeleteOneModel<Document> model = null;
+		/* Channels no guild is notified for any more are left to expire */
 		if (amount != 0) {
 			RequestBody body = new MultipartBody.Builder()
 					.addFormDataPart("hub.mode", "subscribe")
@@ -116,52 +113,27 @@ public class YouTubeManager {
 				
 				response.close();
 			});
-		} else {
-			model = new DeleteOneModel<>(Filters.eq("_id", channelId));
 		}
-		
-		this.removeResubscription(channelId);
-		
-		return model;
 	}
 	
-	public void resubscribe(String channelId) {
-		DeleteOneModel<Document> model = this.resubscribeAndGet(channelId);
-		if (model != null) {
-			Database.get().deleteResubscription(model.getFilter(), (result, exception) -> {
-				if (exception != null) {
-					exception.printStackTrace();
-				}
-			});
-		}
+	public void executeJob(Document data) {
+		this.resubscribe(data.getString("channelId"));
 	}
 	
-	public void ensureResubscriptions() {
-		List<Document> resubscriptions = Database.get().getResubscriptions().find().into(new ArrayList<>());
-		
-		List<WriteModel<Document>> bulkData = new ArrayList<>();
-		for (Document data : resubscriptions) {
-			String channelId = data.getString("_id");
-			
-			long timeTill = data.getLong("resubscribeAt") - Clock.systemUTC().instant().getEpochSecond();
-			if (timeTill <= 0) { 
-				DeleteOneModel<Document> model = this.resubscribeAndGet(channelId);
-				if (model != null) {
-					bulkData.add(model);
-				}
-			} else {
-				ScheduledFuture<?> resubscription = Sx4Bot.scheduledExectuor.schedule(() -> this.resubscribe(channelId), timeTill, TimeUnit.SECONDS);
-				this.putResubscription(channelId, resubscription);
+	/**
+	 * Moves the resubscriptions into the jobs collection the first time the bot is started with it
+	 */
+	public int migrateJobs() {
+		return JobScheduler.INSTANCE.migrate(YouTubeManager.JOB_TYPE, () -> {
+			List<WriteModel<Document>> bulkData = new ArrayList<>();
+			for (Document data : Database.get().getResubscriptions(null)) {
+				String channelId = data.getString("_id");
+				
+				bulkData.add(JobScheduler.getJobModel(YouTubeManager.getJobId(channelId), YouTubeManager.JOB_TYPE, data.getLong("resubscribeAt"), new Document("channelId", channelId), true));
 			}
-		}
-		
-		if (!bulkData.isEmpty()) {
-			Database.get().bulkWriteResubscriptions(bulkData, (result, exception) -> {
-				if (exception != null) {
-					exception.printStackTrace();
-				}
-			});
-		}
+			
+			return bulkData;
+		});
 	}
 	
 }
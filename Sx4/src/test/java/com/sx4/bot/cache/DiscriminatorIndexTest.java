@@ -0,0 +1,46 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+public class DiscriminatorIndexTest {
+
+	@Test
+	public void testPutMovesTheId() {
+		DiscriminatorIndex index = new DiscriminatorIndex();
+
+		index.put(2L, 1);
+		index.put(1L, 1);
+		index.put(1L, 1);
+
+		assertArrayEquals(new long[] {1L, 2L}, index.get(1));
+		assertEquals(2, index.size());
+
+		index.put(1L, 42);
+
+		assertArrayEquals(new long[] {2L}, index.get(1));
+		assertArrayEquals(new long[] {1L}, index.get(42));
+		assertEquals(42, index.getDiscriminator(1L));
+		assertEquals(2, index.size());
+	}
+
+	@Test
+	public void testRemoveUsesTheIndexedDiscriminator() {
+		DiscriminatorIndex index = new DiscriminatorIndex();
+
+		index.put(1L, 1);
+		index.put(1L, 42);
+
+		/* Removed from 42 even though the user was first put in 1 */
+		index.remove(1L);
+		index.remove(1L);
+
+		assertArrayEquals(new long[0], index.get(1));
+		assertArrayEquals(new long[0], index.get(42));
+		assertEquals(-1, index.getDiscriminator(1L));
+		assertEquals(0, index.size());
+	}
+
+}
@@ -0,0 +1,125 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.database.Database;
+
+/**
+ * Loads guilds from the memory storage, a load can be held after it has read the guild so a change can be made
+ * while it is in flight
+ */
+public class GuildFeatureCacheTest {
+
+	private static class HeldLoader {
+
+		private final AtomicInteger loads = new AtomicInteger();
+
+		private volatile CountDownLatch read = new CountDownLatch(0), release = new CountDownLatch(0);
+
+		private Document load(long guildId) {
+			Document data = Database.get().getGuildById(guildId, null, null);
+
+			this.loads.incrementAndGet();
+			this.read.countDown();
+
+			try {
+				this.release.await();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+
+			return data;
+		}
+
+		/**
+		 * @return a future of the features of the guild, it completes once {@link #release} is counted down
+		 */
+		private CompletableFuture<Boolean> hold(GuildFeatureCache cache, long guildId, Feature feature) throws InterruptedException {
+			this.read = new CountDownLatch(1);
+			this.release = new CountDownLatch(1);
+
+			CompletableFuture<Boolean> future = CompletableFuture.supplyAsync(() -> cache.isEnabled(guildId, feature));
+
+			assertTrue(this.read.await(10, TimeUnit.SECONDS));
+
+			return future;
+		}
+
+	}
+
+	@Test
+	public void testGuildIsLoadedOnce() {
+		long guildId = 910000000000000001L;
+		Database.get().updateGuildById(guildId, Updates.set("antilink.enabled", true));
+
+		HeldLoader loader = new HeldLoader();
+		GuildFeatureCache cache = new GuildFeatureCache(loader::load);
+
+		assertTrue(cache.isEnabled(guildId, Feature.ANTI_LINK));
+		assertFalse(cache.isEnabled(guildId, Feature.ANTI_INVITE));
+
+		cache.setEnabled(guildId, Feature.ANTI_INVITE, true);
+
+		assertTrue(cache.isEnabled(guildId, Feature.ANTI_INVITE));
+		assertEquals(1, loader.loads.get());
+
+		cache.invalidate(guildId);
+
+		assertTrue(cache.isEnabled(guildId, Feature.ANTI_LINK));
+		assertEquals(2, loader.loads.get());
+	}
+
+	@Test
+	public void testChangeDuringLoadIsNotOverwritten() throws Exception {
+		long guildId = 910000000000000002L;
+
+		HeldLoader loader = new HeldLoader();
+		GuildFeatureCache cache = new GuildFeatureCache(loader::load);
+
+		/* The load reads the guild before the starboard is enabled and is only cached after */
+		CompletableFuture<Boolean> enabled = loader.hold(cache, guildId, Feature.STARBOARD);
+
+		Database.get().updateGuildById(guildId, Updates.set("starboard.enabled", true));
+		cache.setEnabled(guildId, Feature.STARBOARD, true);
+
+		loader.release.countDown();
+		assertFalse(enabled.get(10, TimeUnit.SECONDS));
+
+		assertTrue(cache.isEnabled(guildId, Feature.STARBOARD));
+		assertEquals(2, loader.loads.get());
+	}
+
+	@Test
+	public void testChangeInOtherGuildKeepsLoad() throws Exception {
+		long guildId = 910000000000000003L, otherGuildId = 910000000000000004L;
+		Database.get().updateGuildById(guildId, Updates.set("antiinvite.enabled", true));
+
+		HeldLoader loader = new HeldLoader();
+		GuildFeatureCache cache = new GuildFeatureCache(loader::load);
+
+		CompletableFuture<Boolean> enabled = loader.hold(cache, guildId, Feature.ANTI_INVITE);
+
+		cache.setEnabled(otherGuildId, Feature.ANTI_INVITE, true);
+		cache.invalidate(otherGuildId);
+
+		loader.release.countDown();
+		assertTrue(enabled.get(10, TimeUnit.SECONDS));
+
+		/* The change was in another guild so the load was cached */
+		assertTrue(cache.isEnabled(guildId, Feature.ANTI_INVITE));
+		assertEquals(1, loader.loads.get());
+	}
+
+}
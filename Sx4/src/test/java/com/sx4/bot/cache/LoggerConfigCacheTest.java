@@ -0,0 +1,212 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.model.Updates;
+import com.sx4.bot.cache.GuildFeatureCache.Feature;
+import com.sx4.bot.database.Database;
+import com.sx4.bot.logger.LoggerConfig;
+
+/**
+ * Every load is held until the test completes it so changes can be made while it is in flight
+ */
+public class LoggerConfigCacheTest {
+
+	private static class HeldLoader {
+
+		private final List<CompletableFuture<Document>> loads = new ArrayList<>();
+
+		private synchronized CompletableFuture<Document> load(long guildId) {
+			CompletableFuture<Document> future = new CompletableFuture<>();
+			this.loads.add(future);
+
+			return future;
+		}
+
+		private synchronized int getLoads() {
+			return this.loads.size();
+		}
+
+		private synchronized void complete(int load, Document data) {
+			this.loads.get(load).complete(data);
+		}
+
+		private synchronized void fail(int load) {
+			this.loads.get(load).completeExceptionally(new IllegalStateException("Failed"));
+		}
+
+	}
+
+	private static Document getData(long channelId) {
+		return new Document("enabled", true).append("channelId", channelId);
+	}
+
+	@Test
+	public void testLookupsShareOneLoad() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> first = cache.getAsync(1L), second = cache.getAsync(1L);
+		CompletableFuture<LoggerConfig> other = cache.getAsync(2L);
+
+		assertFalse(first.isDone());
+		assertEquals(2, loader.getLoads());
+
+		loader.complete(0, LoggerConfigCacheTest.getData(10L));
+
+		assertSame(first.get(), second.get());
+		assertEquals(10L, first.get().getChannelId().longValue());
+		assertFalse(other.isDone());
+
+		/* Cached once the load has completed */
+		assertSame(first.get(), cache.getAsync(1L).get());
+		assertEquals(2, loader.getLoads());
+	}
+
+	@Test
+	public void testInvalidateDuringLoadIsNotOverwritten() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> stale = cache.getAsync(1L);
+
+		/* The settings change after the load read the guild */
+		cache.invalidate(1L);
+
+		CompletableFuture<LoggerConfig> fresh = cache.getAsync(1L);
+		assertEquals(2, loader.getLoads());
+
+		loader.complete(0, LoggerConfigCacheTest.getData(10L));
+		assertEquals(10L, stale.get().getChannelId().longValue());
+		assertFalse(fresh.isDone());
+
+		loader.complete(1, LoggerConfigCacheTest.getData(20L));
+		assertEquals(20L, fresh.get().getChannelId().longValue());
+
+		assertEquals(20L, cache.getAsync(1L).get().getChannelId().longValue());
+		assertEquals(2, loader.getLoads());
+	}
+
+	@Test
+	public void testWebhookDuringLoadIsNotOverwritten() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> stale = cache.getAsync(1L);
+
+		cache.setWebhook(1L, 100L, "token");
+
+		loader.complete(0, LoggerConfigCacheTest.getData(10L));
+		assertNull(stale.get().getWebhookId());
+
+		/* The load read the guild before the webhook was written so it was not cached */
+		CompletableFuture<LoggerConfig> fresh = cache.getAsync(1L);
+		assertEquals(2, loader.getLoads());
+
+		loader.complete(1, LoggerConfigCacheTest.getData(10L).append("webhookId", 100L).append("webhookToken", "token"));
+		assertEquals(100L, fresh.get().getWebhookId().longValue());
+	}
+
+	@Test
+	public void testWebhookIsSwappedIntoCachedConfig() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> config = cache.getAsync(1L);
+		loader.complete(0, LoggerConfigCacheTest.getData(10L));
+		config.get();
+
+		cache.setWebhook(1L, 100L, "token");
+		assertEquals(100L, cache.getAsync(1L).get().getWebhookId().longValue());
+
+		/* Only the webhook which failed is removed, it may have been replaced since */
+		cache.removeWebhook(1L, 200L);
+		assertEquals(100L, cache.getAsync(1L).get().getWebhookId().longValue());
+
+		cache.removeWebhook(1L, 100L);
+		assertFalse(cache.getAsync(1L).get().hasWebhook());
+
+		assertEquals(10L, cache.getAsync(1L).get().getChannelId().longValue());
+		assertEquals(1, loader.getLoads());
+	}
+
+	@Test
+	public void testChangeInOtherGuildKeepsLoad() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> config = cache.getAsync(1L);
+
+		cache.invalidate(2L);
+		cache.setWebhook(2L, 100L, "token");
+		cache.removeWebhook(2L, 100L);
+
+		loader.complete(0, LoggerConfigCacheTest.getData(10L));
+
+		assertSame(config.get(), cache.getAsync(1L).get());
+		assertEquals(1, loader.getLoads());
+	}
+
+	@Test
+	public void testFailedLoadIsNotCached() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> failed = cache.getAsync(1L);
+		loader.fail(0);
+
+		assertThrows(ExecutionException.class, failed::get);
+
+		CompletableFuture<LoggerConfig> config = cache.getAsync(1L);
+		assertEquals(2, loader.getLoads());
+
+		loader.complete(1, LoggerConfigCacheTest.getData(10L));
+		assertEquals(10L, config.get().getChannelId().longValue());
+	}
+
+	@Test
+	public void testLeftGuildIsRemoved() throws Exception {
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		CompletableFuture<LoggerConfig> config = cache.getAsync(1L);
+		loader.complete(0, LoggerConfigCacheTest.getData(10L));
+		config.get();
+
+		assertTrue(cache.getStatistics().startsWith("Logger configs: 1 guilds cached"));
+
+		cache.invalidate(1L);
+
+		assertTrue(cache.getStatistics().startsWith("Logger configs: 0 guilds cached"));
+	}
+
+	@Test
+	public void testDisabledGuildIsNotLoaded() throws Exception {
+		long guildId = 920000000000000001L;
+		Database.get().updateGuildById(guildId, Updates.set("logger.enabled", false));
+
+		HeldLoader loader = new HeldLoader();
+		LoggerConfigCache cache = new LoggerConfigCache(loader::load);
+
+		assertSame(LoggerConfig.EMPTY, cache.get(guildId));
+
+		/* The guild's features are loaded now so the lookup which does not block knows it is disabled */
+		assertTrue(GuildFeatureCache.INSTANCE.isKnownDisabled(guildId, Feature.LOGGER));
+		assertSame(LoggerConfig.EMPTY, cache.getAsync(guildId).get());
+		assertEquals(0, loader.getLoads());
+	}
+
+}
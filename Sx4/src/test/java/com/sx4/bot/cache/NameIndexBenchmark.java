@@ -0,0 +1,120 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Resolves names against a million random names with a {@link NameIndex} and with the exact, starts with and contains
+ * scans arguments were resolved with before the index.
+ */
+@Tag("benchmark")
+public class NameIndexBenchmark {
+
+	private static final int NAMES = 1000000, QUERIES = 300, ROUNDS = 3;
+
+	private static String[] createNames(Random random) {
+		String[] names = new String[NAMES];
+		for (int i = 0; i < NAMES; i++) {
+			char[] name = new char[4 + random.nextInt(13)];
+			for (int j = 0; j < name.length; j++) {
+				char character = (char) ('a' + random.nextInt(26));
+				name[j] = random.nextInt(4) == 0 ? Character.toUpperCase(character) : character;
+			}
+
+			names[i] = new String(name);
+		}
+
+		return names;
+	}
+
+	/**
+	 * @return the queries, a third are whole names, a third are the start of a name and a third are the middle of one
+	 */
+	private static String[] createQueries(Random random, String[] names) {
+		String[] queries = new String[QUERIES];
+		for (int i = 0; i < QUERIES; i++) {
+			String name = names[random.nextInt(NAMES)];
+
+			queries[i] = i % 3 == 0 ? name : i % 3 == 1 ? name.substring(0, 3) : name.substring(1, 4);
+		}
+
+		return queries;
+	}
+
+	private static int scan(String[] names, String query) {
+		String lowerQuery = query.toLowerCase();
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].toLowerCase().equals(lowerQuery)) {
+				return i;
+			}
+		}
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].toLowerCase().startsWith(lowerQuery)) {
+				return i;
+			}
+		}
+
+		for (int i = 0; i < names.length; i++) {
+			if (names[i].toLowerCase().contains(lowerQuery)) {
+				return i;
+			}
+		}
+
+		return -1;
+	}
+
+	@Test
+	public void benchmarkSearch() {
+		Random random = new Random(0);
+
+		String[] names = NameIndexBenchmark.createNames(random);
+		String[] queries = NameIndexBenchmark.createQueries(random, names);
+
+		long start = System.nanoTime();
+
+		NameIndex index = new NameIndex();
+		for (int i = 0; i < NAMES; i++) {
+			index.put(i, names[i]);
+		}
+
+		long buildNanos = System.nanoTime() - start;
+
+		long indexBest = Long.MAX_VALUE, scanBest = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			int indexFound = 0;
+
+			start = System.nanoTime();
+			for (String query : queries) {
+				indexFound += index.search(query, 1).length;
+			}
+
+			indexBest = Math.min(indexBest, System.nanoTime() - start);
+
+			int scanFound = 0;
+
+			start = System.nanoTime();
+			for (String query : queries) {
+				scanFound += NameIndexBenchmark.scan(names, query) == -1 ? 0 : 1;
+			}
+
+			scanBest = Math.min(scanBest, System.nanoTime() - start);
+
+			/* Every query was taken from a name so both have to find something for all of them */
+			assertEquals(QUERIES, indexFound);
+			assertEquals(QUERIES, scanFound);
+		}
+
+		System.out.printf("Build: %,dms for %,d names, %,d trigrams%n", TimeUnit.NANOSECONDS.toMillis(buildNanos), index.size(), index.getTrigramCount());
+		System.out.printf("Index: %,dns/op%n", indexBest / QUERIES);
+		System.out.printf("Scan: %,dns/op%n", scanBest / QUERIES);
+		System.out.printf("Speed up: %,.1fx%n", scanBest / (double) indexBest);
+	}
+
+}
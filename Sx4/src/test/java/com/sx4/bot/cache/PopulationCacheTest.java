@@ -0,0 +1,153 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.sx4.bot.cache.PopulationCache.Status;
+
+public class PopulationCacheTest {
+
+	@Test
+	public void testUserIsCountedUntilTheyLeaveEveryGuild() {
+		PopulationCache cache = new PopulationCache();
+
+		/* Two guilds on the first shard and one on the second */
+		cache.addMember(0, 1L, Status.ONLINE);
+		cache.addMember(0, 1L, Status.ONLINE);
+		cache.addMember(1, 1L, Status.ONLINE);
+		cache.addMember(1, 2L, Status.OFFLINE);
+
+		assertEquals(2, cache.getUsers());
+		assertEquals(1, cache.getUsers(0));
+		assertEquals(2, cache.getUsers(1));
+		assertEquals(1L, cache.getUsers(Status.ONLINE));
+
+		cache.removeMember(1, 1L);
+
+		assertEquals(2, cache.getUsers());
+		assertEquals(1, cache.getUsers(1));
+
+		cache.removeMember(0, 1L);
+
+		assertEquals(2, cache.getUsers());
+		assertEquals(1, cache.getUsers(0));
+
+		cache.removeMember(0, 1L);
+
+		assertEquals(1, cache.getUsers());
+		assertEquals(0, cache.getUsers(0));
+		assertEquals(0L, cache.getUsers(Status.ONLINE));
+
+		/* A user who is not counted can not go below 0 */
+		cache.removeMember(0, 1L);
+
+		assertEquals(1, cache.getUsers());
+		assertEquals(0L, cache.getUsers(Status.ONLINE));
+		assertEquals(1L, cache.getUsers(Status.OFFLINE));
+	}
+
+	@Test
+	public void testStatusChanges() {
+		PopulationCache cache = new PopulationCache();
+
+		cache.addMember(0, 1L, Status.ONLINE);
+		cache.addMember(0, 2L, Status.OFFLINE);
+
+		assertEquals(1L, cache.getOnlineUsers());
+
+		/* The presence is sent once for every guild the user is in */
+		cache.updateStatus(1L, Status.IDLE);
+		cache.updateStatus(1L, Status.IDLE);
+
+		assertEquals(0L, cache.getUsers(Status.ONLINE));
+		assertEquals(1L, cache.getUsers(Status.IDLE));
+
+		cache.updateStatus(2L, Status.DO_NOT_DISTURB);
+
+		assertEquals(2L, cache.getOnlineUsers());
+		assertEquals(0L, cache.getUsers(Status.OFFLINE));
+
+		/* Users who are not counted are ignored */
+		cache.updateStatus(3L, Status.ONLINE);
+
+		assertEquals(2, cache.getUsers());
+		assertEquals(0L, cache.getUsers(Status.ONLINE));
+
+		/* The status is kept when the user is counted in another guild and after they leave one */
+		cache.addMember(1, 1L, Status.OFFLINE);
+		cache.removeMember(0, 1L);
+
+		assertEquals(1L, cache.getUsers(Status.IDLE));
+
+		cache.removeMember(1, 1L);
+
+		assertEquals(0L, cache.getUsers(Status.IDLE));
+		assertEquals(1, cache.getUsers());
+	}
+
+	@Test
+	public void testConcurrentUpdatesKeepTheCounts() throws Exception {
+		PopulationCache cache = new PopulationCache();
+
+		int threads = 16, usersPerThread = 10000;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				long firstUserId = (long) thread * usersPerThread;
+
+				/* Every user ends up with the status of its id, users in the last quarter leave their only guild */
+				futures.add(executor.submit(() -> {
+					for (long userId = firstUserId; userId < firstUserId + usersPerThread; userId++) {
+						cache.addMember(0, userId, Status.OFFLINE);
+						cache.addMember(1, userId, Status.OFFLINE);
+					}
+
+					for (Status status : Status.values()) {
+						for (long userId = firstUserId; userId < firstUserId + usersPerThread; userId++) {
+							if (status.ordinal() <= userId % 4) {
+								cache.updateStatus(userId, status);
+							}
+						}
+					}
+
+					for (long userId = firstUserId; userId < firstUserId + usersPerThread; userId++) {
+						cache.removeMember(1, userId);
+						if (userId % 4 == 3) {
+							cache.removeMember(0, userId);
+						}
+					}
+				}));
+			}
+
+			for (Future<?> future : futures) {
+				future.get(30, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdown();
+			assertTrue(executor.awaitTermination(10, TimeUnit.SECONDS));
+		}
+
+		int users = threads * usersPerThread;
+
+		assertEquals(users / 4 * 3, cache.getUsers());
+		assertEquals(users / 4 * 3, cache.getUsers(0));
+		assertEquals(0, cache.getUsers(1));
+
+		assertEquals((long) users / 4, cache.getUsers(Status.ONLINE));
+		assertEquals((long) users / 4, cache.getUsers(Status.IDLE));
+		assertEquals((long) users / 4, cache.getUsers(Status.DO_NOT_DISTURB));
+		assertEquals(0L, cache.getUsers(Status.OFFLINE));
+	}
+
+}
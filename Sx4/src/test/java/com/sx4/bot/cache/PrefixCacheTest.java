@@ -0,0 +1,121 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+public class PrefixCacheTest {
+
+	@Test
+	public void testLoadIsCached() {
+		AtomicInteger loads = new AtomicInteger();
+
+		PrefixCache.Store store = new PrefixCache.Store(0, id -> {
+			loads.incrementAndGet();
+
+			return new Document("prefixes", List.of("!", "sx4 "));
+		});
+
+		assertEquals(List.of("!", "sx4 "), store.get(1L).getPrefixes());
+		assertEquals(List.of("!", "sx4 "), store.get(1L).getPrefixes());
+		assertEquals(1, loads.get());
+
+		store.invalidate(1L);
+
+		store.get(1L);
+		assertEquals(2, loads.get());
+	}
+
+	@Test
+	public void testInvalidateDuringLoadIsNotCached() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1), invalidated = new CountDownLatch(1);
+
+		AtomicReference<List<String>> prefixes = new AtomicReference<>(List.of("!"));
+		AtomicInteger loads = new AtomicInteger();
+
+		PrefixCache.Store store = new PrefixCache.Store(0, id -> {
+			Document data = new Document("prefixes", prefixes.get());
+
+			/* The first load reads the old prefixes and is held until the prefix command has written and invalidated */
+			if (loads.getAndIncrement() == 0) {
+				loading.countDown();
+
+				try {
+					invalidated.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			return data;
+		});
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<PrefixTrie> stale = executor.submit(() -> store.get(1L));
+
+			loading.await();
+
+			prefixes.set(List.of("?"));
+			store.invalidate(1L);
+
+			invalidated.countDown();
+
+			assertEquals(List.of("!"), stale.get().getPrefixes());
+			assertEquals(List.of("?"), store.get(1L).getPrefixes());
+			assertEquals(List.of("?"), store.get(1L).getPrefixes());
+			assertEquals(2, loads.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testInvalidateOtherIdDuringLoadIsCached() throws Exception {
+		CountDownLatch loading = new CountDownLatch(1), invalidated = new CountDownLatch(1);
+
+		AtomicInteger loads = new AtomicInteger();
+
+		PrefixCache.Store store = new PrefixCache.Store(0, id -> {
+			if (loads.getAndIncrement() == 0) {
+				loading.countDown();
+
+				try {
+					invalidated.await();
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+
+			return new Document("prefixes", List.of("!"));
+		});
+
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		try {
+			Future<PrefixTrie> load = executor.submit(() -> store.get(1L));
+
+			loading.await();
+
+			store.invalidate(2L);
+
+			invalidated.countDown();
+
+			load.get();
+			store.get(1L);
+
+			assertEquals(1, loads.get());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+}
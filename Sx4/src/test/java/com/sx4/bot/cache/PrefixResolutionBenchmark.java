@@ -0,0 +1,163 @@
+package com.sx4.bot.cache;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Measures what resolving the prefix of a message costs once its author and guild are cached, against matching the same
+ * prefixes one at a time with startsWith like the command listener did. Before the cache every message also cost two to
+ * four finds, which this does not try to measure.
+ */
+@Tag("benchmark")
+public class PrefixResolutionBenchmark {
+
+	private static final int USERS = 10000, GUILDS = 1000, MESSAGES = 100000, ROUNDS = 20;
+
+	private static final List<String> DEFAULT_PREFIXES = List.of("s?", "sx4 ", "S?");
+
+	private static final String[] WORDS = {"hello", "s", "sx", "what", "?", "lol", "the", "sx4", "is", "anyone", "here", "!"};
+
+	private static List<String> getPrefixes(Random random) {
+		List<String> prefixes = new ArrayList<>();
+		for (int i = random.nextInt(4) - 1; i > 0; i--) {
+			prefixes.add(random.nextBoolean() ? "!" + i : "sx" + i + " ");
+		}
+
+		return prefixes;
+	}
+
+	private static String startsWith(String content, List<String> prefixes) {
+		String matched = null;
+		for (String prefix : prefixes) {
+			if (content.startsWith(prefix) && (matched == null || prefix.length() > matched.length())) {
+				matched = prefix;
+			}
+		}
+
+		return matched;
+	}
+
+	@Test
+	public void benchmarkNonCommandMessage() {
+		Random random = new Random(0);
+
+		List<List<String>> userPrefixes = new ArrayList<>(), guildPrefixes = new ArrayList<>();
+		for (int i = 0; i < USERS; i++) {
+			userPrefixes.add(PrefixResolutionBenchmark.getPrefixes(random));
+		}
+
+		for (int i = 0; i < GUILDS; i++) {
+			guildPrefixes.add(PrefixResolutionBenchmark.getPrefixes(random));
+		}
+
+		PrefixCache.Store users = new PrefixCache.Store(0, id -> new Document("prefixes", userPrefixes.get((int) id)));
+		PrefixCache.Store guilds = new PrefixCache.Store(0, id -> new Document("prefixes", guildPrefixes.get((int) id)));
+
+		PrefixTrie defaultPrefixes = new PrefixTrie(DEFAULT_PREFIXES);
+
+		long[] userIds = new long[MESSAGES], guildIds = new long[MESSAGES];
+		String[] contents = new String[MESSAGES];
+		for (int i = 0; i < MESSAGES; i++) {
+			userIds[i] = random.nextInt(USERS);
+			guildIds[i] = random.nextInt(GUILDS);
+
+			StringBuilder content = new StringBuilder();
+			for (int j = random.nextInt(8) + 1; j > 0; j--) {
+				content.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+			}
+
+			contents[i] = content.toString();
+		}
+
+		/* Both have to agree on every message before their timings mean anything */
+		PrefixTrie[] tries = new PrefixTrie[MESSAGES];
+		List<List<String>> lists = new ArrayList<>(MESSAGES);
+
+		int commands = 0;
+		for (int i = 0; i < MESSAGES; i++) {
+			List<String> prefixes = userPrefixes.get((int) userIds[i]);
+			if (prefixes.isEmpty()) {
+				prefixes = guildPrefixes.get((int) guildIds[i]);
+				if (prefixes.isEmpty()) {
+					prefixes = DEFAULT_PREFIXES;
+				}
+			}
+
+			lists.add(prefixes);
+			tries[i] = this.resolve(users, guilds, defaultPrefixes, userIds[i], guildIds[i]);
+
+			String expected = PrefixResolutionBenchmark.startsWith(contents[i], prefixes);
+			assertEquals(expected, tries[i].match(contents[i]), contents[i]);
+
+			if (expected != null) {
+				commands++;
+			}
+		}
+
+		long[] resolveTimes = new long[ROUNDS], trieTimes = new long[ROUNDS], startsWithTimes = new long[ROUNDS];
+		int sink = 0;
+		for (int round = 0; round < ROUNDS; round++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				if (this.resolve(users, guilds, defaultPrefixes, userIds[i], guildIds[i]).match(contents[i]) != null) {
+					sink++;
+				}
+			}
+
+			resolveTimes[round] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				if (tries[i].match(contents[i]) != null) {
+					sink++;
+				}
+			}
+
+			trieTimes[round] = System.nanoTime() - start;
+
+			start = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				if (PrefixResolutionBenchmark.startsWith(contents[i], lists.get(i)) != null) {
+					sink++;
+				}
+			}
+
+			startsWithTimes[round] = System.nanoTime() - start;
+		}
+
+		long resolve = PrefixResolutionBenchmark.best(resolveTimes), trie = PrefixResolutionBenchmark.best(trieTimes), startsWith = PrefixResolutionBenchmark.best(startsWithTimes);
+
+		System.out.println(String.format("Prefix resolution: %,d messages (%,d commands), %.1fns per message from the cache including the match, matching alone %.1fns with the trie and %.1fns with startsWith (%d)",
+			MESSAGES, commands, (double) resolve / MESSAGES, (double) trie / MESSAGES, (double) startsWith / MESSAGES, sink));
+	}
+
+	private PrefixTrie resolve(PrefixCache.Store users, PrefixCache.Store guilds, PrefixTrie defaultPrefixes, long userId, long guildId) {
+		PrefixTrie prefixes = users.get(userId);
+		if (prefixes.isEmpty()) {
+			prefixes = guilds.get(guildId);
+			if (prefixes.isEmpty()) {
+				prefixes = defaultPrefixes;
+			}
+		}
+
+		return prefixes;
+	}
+
+	/* The first half of the rounds is warm up */
+	private static long best(long[] times) {
+		long best = Long.MAX_VALUE;
+		for (int i = times.length / 2; i < times.length; i++) {
+			best = Math.min(best, times[i]);
+		}
+
+		return best;
+	}
+
+}
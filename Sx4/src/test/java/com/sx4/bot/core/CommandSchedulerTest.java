@@ -0,0 +1,270 @@
+package com.sx4.bot.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import com.jockie.bot.core.command.impl.CommandEvent;
+import com.sx4.bot.interfaces.Heavy;
+
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.entities.Message;
+import net.dv8tion.jda.api.entities.MessageChannel;
+
+/**
+ * Lanes of a scheduler without workers are filled and emptied directly so the order commands are taken in can be checked
+ */
+public class CommandSchedulerTest {
+
+	public static class CheapCommand extends Sx4Command {
+
+		public CheapCommand() {
+			super("cheap");
+		}
+
+		public void onCommand(CommandEvent event) {}
+
+	}
+
+	@Heavy
+	public static class HeavyCommand extends Sx4Command {
+
+		public HeavyCommand() {
+			super("heavy");
+		}
+
+		public void onCommand(CommandEvent event) {}
+
+	}
+
+	private static <Type> Type createProxy(Class<Type> type, String method, Object value) {
+		return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[] {type}, (proxy, invoked, args) -> {
+			if (invoked.getName().equals(method)) {
+				return value;
+			}
+
+			throw new UnsupportedOperationException(invoked.getName());
+		}));
+	}
+
+	private static Message createMessage(Guild guild, MessageChannel channel) {
+		return (Message) Proxy.newProxyInstance(Message.class.getClassLoader(), new Class<?>[] {Message.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "isFromGuild":
+					return guild != null;
+				case "getGuild":
+					return guild;
+				case "getChannel":
+					return channel;
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	private static CommandScheduler.Task createTask(long guildId, long userId) {
+		return new CommandScheduler.Task(() -> {}, "test", guildId, userId);
+	}
+
+	/**
+	 * @return the guild and author of every queued task in the order the lane hands them out
+	 */
+	private static List<String> takeAll(CommandScheduler.Lane lane) throws InterruptedException {
+		List<String> order = new ArrayList<>();
+		while (lane.getQueued() > 0) {
+			CommandScheduler.Task task = lane.take();
+
+			order.add(task.getGuildId() + ":" + task.getUserId());
+		}
+
+		return order;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Test
+	public void testTasksWithoutEventAreNotLimitedPerAuthor() throws Exception {
+		CommandScheduler scheduler = new CommandScheduler(1, 1, 1, 10);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			int tasks = CommandScheduler.MAX_QUEUED_PER_USER * 3;
+
+			CountDownLatch ran = new CountDownLatch(tasks);
+			for (int i = 0; i < tasks; i++) {
+				scheduler.execute(() -> {
+					CommandSchedulerTest.await(release);
+
+					ran.countDown();
+				});
+			}
+
+			release.countDown();
+
+			assertTrue(ran.await(10, TimeUnit.SECONDS));
+			assertEquals(0, scheduler.getOtherLane().getRejected());
+			assertEquals(0, scheduler.getCheapLane().getExecuted());
+		} finally {
+			release.countDown();
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testFullOtherLaneRejects() {
+		CommandScheduler scheduler = new CommandScheduler(1, 1, 1, 2);
+		CountDownLatch started = new CountDownLatch(1), release = new CountDownLatch(1);
+
+		try {
+			scheduler.execute(() -> {
+				started.countDown();
+
+				CommandSchedulerTest.await(release);
+			});
+
+			/* The only worker is busy so these fill the queue */
+			CommandSchedulerTest.await(started);
+			scheduler.execute(() -> {});
+			scheduler.execute(() -> {});
+
+			assertThrows(RejectedExecutionException.class, () -> scheduler.execute(() -> {}));
+			assertEquals(1, scheduler.getOtherLane().getRejected());
+		} finally {
+			release.countDown();
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testGuildsAndAuthorsAreServedRoundRobin() throws InterruptedException {
+		CommandScheduler scheduler = new CommandScheduler(0, 0, 0, 100);
+		CommandScheduler.Lane lane = scheduler.getCheapLane();
+
+		try {
+			/* Guild 1 sends a burst from one author and a command from another before guilds 2 and 3 send anything */
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 10L)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 10L)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 10L)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 11L)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(2L, 20L)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(3L, 30L)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(3L, 30L)));
+
+			assertEquals(List.of("1:10", "2:20", "3:30", "1:11", "3:30", "1:10", "1:10"), CommandSchedulerTest.takeAll(lane));
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testAuthorLimit() throws InterruptedException {
+		CommandScheduler scheduler = new CommandScheduler(0, 0, 0, 100);
+		CommandScheduler.Lane lane = scheduler.getCheapLane();
+
+		try {
+			for (int i = 0; i < CommandScheduler.MAX_QUEUED_PER_USER; i++) {
+				assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 10L)));
+			}
+
+			assertFalse(lane.offer(CommandSchedulerTest.createTask(1L, 10L)));
+
+			/* Other authors in the guild are not affected and the author can queue again once one has been taken */
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 11L)));
+
+			lane.take();
+
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, 10L)));
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testGuildLimit() {
+		CommandScheduler scheduler = new CommandScheduler(0, 0, 0, 100);
+		CommandScheduler.Lane lane = scheduler.getHeavyLane();
+
+		try {
+			for (long userId = 0; userId < CommandScheduler.MAX_QUEUED_PER_GUILD; userId++) {
+				assertTrue(lane.offer(CommandSchedulerTest.createTask(1L, userId)));
+			}
+
+			assertFalse(lane.offer(CommandSchedulerTest.createTask(1L, CommandScheduler.MAX_QUEUED_PER_GUILD)));
+			assertTrue(lane.offer(CommandSchedulerTest.createTask(2L, 0L)));
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testLaneLimit() {
+		CommandScheduler scheduler = new CommandScheduler(0, 0, 0, 5);
+
+		try {
+			for (long guildId = 0; guildId < 5; guildId++) {
+				assertTrue(scheduler.getCheapLane().offer(CommandSchedulerTest.createTask(guildId, 0L)));
+			}
+
+			assertFalse(scheduler.getCheapLane().offer(CommandSchedulerTest.createTask(5L, 0L)));
+
+			/* Every lane has its own limit */
+			assertTrue(scheduler.getHeavyLane().offer(CommandSchedulerTest.createTask(5L, 0L)));
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testDirectMessagesAreLimitedPerChannel() {
+		CommandScheduler scheduler = new CommandScheduler(0, 0, 0, 100);
+		CommandScheduler.Lane lane = scheduler.getCheapLane();
+
+		try {
+			Guild guild = CommandSchedulerTest.createProxy(Guild.class, "getIdLong", 1L);
+			assertEquals(1L, CommandScheduler.getGuildKey(CommandSchedulerTest.createMessage(guild, null)));
+
+			/* More direct messages than one guild can queue, each from its own channel */
+			for (long channelId = 100; channelId < 100 + CommandScheduler.MAX_QUEUED_PER_GUILD * 2; channelId++) {
+				MessageChannel channel = CommandSchedulerTest.createProxy(MessageChannel.class, "getIdLong", channelId);
+
+				long key = CommandScheduler.getGuildKey(CommandSchedulerTest.createMessage(null, channel));
+				assertEquals(channelId, key);
+
+				assertTrue(lane.offer(CommandSchedulerTest.createTask(key, channelId)));
+			}
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+	@Test
+	public void testHeavyCommandsUseTheHeavyLane() {
+		CommandScheduler scheduler = new CommandScheduler(0, 0, 0, 100);
+
+		try {
+			assertSame(scheduler.getHeavyLane(), scheduler.getLane(new HeavyCommand()));
+			assertSame(scheduler.getCheapLane(), scheduler.getLane(new CheapCommand()));
+			assertSame(scheduler.getHeavyLane(), scheduler.getLane(new CheapCommand().setHeavyCommand(true)));
+		} finally {
+			scheduler.shutdownNow();
+		}
+	}
+
+}
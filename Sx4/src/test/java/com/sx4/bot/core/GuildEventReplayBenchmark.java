@@ -0,0 +1,173 @@
+package com.sx4.bot.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import net.dv8tion.jda.api.JDA;
+import net.dv8tion.jda.api.entities.Guild;
+import net.dv8tion.jda.api.events.GenericEvent;
+import net.dv8tion.jda.api.events.guild.GenericGuildEvent;
+import net.dv8tion.jda.api.hooks.EventListener;
+import net.dv8tion.jda.api.hooks.IEventManager;
+import net.dv8tion.jda.api.hooks.InterfacedEventManager;
+
+/**
+ * Replays the same recorded stream of guild events through one shared {@link InterfacedEventManager} called on
+ * each shard's event thread, which is how events were handled before, and through a {@link GuildEventManager}.
+ * A small share of guilds have listeners which block like a MongoDB round trip, every other event is cheap.
+ */
+@Tag("benchmark")
+public class GuildEventReplayBenchmark {
+
+	private static final int SHARDS = 4, GUILDS = 2000, EVENTS = 20000, ROUNDS = 5;
+
+	private static final int LANES = 16, LANE_CAPACITY = 1000;
+
+	/* One in this many guilds blocks for BLOCKING_MILLIS on every event, the busiest guilds are not among them */
+	private static final int BLOCKING_GUILDS = 50;
+	private static final long BLOCKING_MILLIS = 2;
+
+	private static class ReplayListener implements EventListener {
+
+		private final CountDownLatch handled;
+
+		/* The sequence number of the last event handled for every guild, events of a guild have to arrive in order */
+		private final Map<Long, Long> lastSequence = new ConcurrentHashMap<>();
+		private final AtomicLong outOfOrder = new AtomicLong();
+
+		private ReplayListener(int events) {
+			this.handled = new CountDownLatch(events);
+		}
+
+		public void onEvent(GenericEvent event) {
+			long guildId = ((GenericGuildEvent) event).getGuild().getIdLong(), sequence = event.getResponseNumber();
+
+			Long last = this.lastSequence.put(guildId, sequence);
+			if (last != null && last > sequence) {
+				this.outOfOrder.incrementAndGet();
+			}
+
+			if (guildId % BLOCKING_GUILDS == BLOCKING_GUILDS - 1) {
+				try {
+					Thread.sleep(BLOCKING_MILLIS);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+
+			this.handled.countDown();
+		}
+
+	}
+
+	private static Guild createGuild(long id) {
+		return (Guild) Proxy.newProxyInstance(Guild.class.getClassLoader(), new Class<?>[] {Guild.class}, (proxy, method, args) -> {
+			switch (method.getName()) {
+				case "getIdLong":
+					return id;
+				case "hashCode":
+					return Long.hashCode(id);
+				case "equals":
+					return proxy == args[0];
+				case "toString":
+					return "Guild(" + id + ")";
+				default:
+					throw new UnsupportedOperationException(method.getName());
+			}
+		});
+	}
+
+	/**
+	 * @return the events each shard received in the order it received them
+	 */
+	private static List<List<GenericEvent>> createTrace() {
+		JDA jda = (JDA) Proxy.newProxyInstance(JDA.class.getClassLoader(), new Class<?>[] {JDA.class}, (proxy, method, args) -> {
+			throw new UnsupportedOperationException(method.getName());
+		});
+
+		Guild[] guilds = new Guild[GUILDS];
+		for (int i = 0; i < GUILDS; i++) {
+			guilds[i] = GuildEventReplayBenchmark.createGuild(i);
+		}
+
+		List<List<GenericEvent>> shards = new ArrayList<>();
+		for (int i = 0; i < SHARDS; i++) {
+			shards.add(new ArrayList<>());
+		}
+
+		/* Activity is skewed so a few guilds send most of the events like on the real bot */
+		Random random = new Random(0);
+		for (int sequence = 0; sequence < EVENTS; sequence++) {
+			int guild = (int) (GUILDS * Math.pow(random.nextDouble(), 3));
+
+			shards.get(guild % SHARDS).add(new GenericGuildEvent(jda, sequence, guilds[guild]));
+		}
+
+		return shards;
+	}
+
+	/**
+	 * @return the nanoseconds it took until every event had been handled
+	 */
+	private static long replay(List<List<GenericEvent>> trace, IEventManager manager, ReplayListener listener) throws InterruptedException {
+		manager.register(listener);
+
+		List<Thread> shards = new ArrayList<>();
+		for (List<GenericEvent> events : trace) {
+			shards.add(new Thread(() -> events.forEach(manager::handle)));
+		}
+
+		long start = System.nanoTime();
+		shards.forEach(Thread::start);
+
+		assertTrue(listener.handled.await(1, TimeUnit.MINUTES), "Not every event was handled");
+
+		long nanos = System.nanoTime() - start;
+
+		for (Thread shard : shards) {
+			shard.join();
+		}
+
+		manager.unregister(listener);
+
+		return nanos;
+	}
+
+	@Test
+	public void benchmarkReplay() throws InterruptedException {
+		List<List<GenericEvent>> trace = GuildEventReplayBenchmark.createTrace();
+
+		/* Lane threads are never stopped so one manager is used for every round */
+		GuildEventManager guildEventManager = new GuildEventManager(LANES, LANE_CAPACITY);
+
+		long interfacedBest = Long.MAX_VALUE, laneBest = Long.MAX_VALUE;
+		for (int round = 0; round < ROUNDS; round++) {
+			ReplayListener interfacedListener = new ReplayListener(EVENTS);
+			interfacedBest = Math.min(interfacedBest, GuildEventReplayBenchmark.replay(trace, new InterfacedEventManager(), interfacedListener));
+
+			ReplayListener laneListener = new ReplayListener(EVENTS);
+			laneBest = Math.min(laneBest, GuildEventReplayBenchmark.replay(trace, guildEventManager, laneListener));
+
+			assertEquals(0, laneListener.outOfOrder.get(), "Events of a guild were handled out of order");
+		}
+
+		System.out.printf("Replay of %,d events over %,d guilds and %d shards, 1 in %d guilds blocking %dms per event%n", EVENTS, GUILDS, SHARDS, BLOCKING_GUILDS, BLOCKING_MILLIS);
+		System.out.printf("InterfacedEventManager on shard threads: %,dms (%,.0f events/s)%n", TimeUnit.NANOSECONDS.toMillis(interfacedBest), EVENTS / (interfacedBest / 1_000_000_000D));
+		System.out.printf("GuildEventManager with %d lanes: %,dms (%,.0f events/s)%n", LANES, TimeUnit.NANOSECONDS.toMillis(laneBest), EVENTS / (laneBest / 1_000_000_000D));
+		System.out.println(guildEventManager.getStatistics());
+	}
+
+}
@@ -0,0 +1,180 @@
+package com.sx4.bot.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.sx4.bot.database.MemoryStorageCollection;
+
+/**
+ * Runs jobs stored in a memory storage collection of their own, jobs are due well after the test so they are only run
+ * when the test runs them
+ */
+public class JobSchedulerTest {
+
+	private static final String OWNER = "test";
+	private static final String TYPE = "test";
+
+	private final MemoryStorageCollection collection = new MemoryStorageCollection("jobs");
+
+	private final JobScheduler scheduler = new JobScheduler(JobSchedulerTest.OWNER, () -> this.collection);
+
+	private final List<Document> handled = new ArrayList<>();
+
+	private void insert(String id, long dueAt) {
+		this.collection.bulkWrite(List.of(JobScheduler.getJobModel(id, JobSchedulerTest.TYPE, dueAt, new Document("id", id), true)), null);
+	}
+
+	private Document getJob(String id) {
+		return this.collection.findOne(Filters.eq("_id", id), null, null);
+	}
+
+	private void run(String id) throws Exception {
+		this.scheduler.runNow(id).get(10, TimeUnit.SECONDS);
+	}
+
+	@Test
+	public void testLeasedJobIsRunAndDeleted() throws Exception {
+		this.scheduler.registerHandler(JobSchedulerTest.TYPE, this.handled::add);
+
+		this.insert("test:1", JobScheduler.getTimestamp() + 100);
+		this.scheduler.poll(false);
+
+		assertEquals(JobSchedulerTest.OWNER, this.getJob("test:1").getString("owner"));
+		assertEquals(1, this.scheduler.getLoaded());
+
+		this.run("test:1");
+
+		assertEquals(List.of(new Document("id", "test:1")), this.handled);
+		assertNull(this.getJob("test:1"));
+		assertEquals(0, this.scheduler.getLoaded());
+	}
+
+	@Test
+	public void testLostLeaseIsNotRun() throws Exception {
+		this.scheduler.registerHandler(JobSchedulerTest.TYPE, this.handled::add);
+
+		long dueAt = JobScheduler.getTimestamp() + 100;
+
+		this.insert("test:1", dueAt);
+		this.insert("test:2", dueAt);
+		this.scheduler.poll(false);
+
+		/* One job is taken by another process and the other is rescheduled after they were loaded */
+		this.collection.updateOne(Filters.eq("_id", "test:1"), Updates.set("owner", "other"), null);
+		this.collection.updateOne(Filters.eq("_id", "test:2"), Updates.set("dueAt", dueAt + 50), null);
+
+		this.run("test:1");
+		this.run("test:2");
+
+		assertEquals(List.of(), this.handled);
+		assertEquals("other", this.getJob("test:1").getString("owner"));
+		assertEquals(dueAt + 50, this.getJob("test:2").get("dueAt"));
+	}
+
+	@Test
+	public void testJobScheduledByItsHandlerIsKept() throws Exception {
+		this.scheduler.registerHandler(JobSchedulerTest.TYPE, data -> this.scheduler.schedule(data.getString("id"), JobSchedulerTest.TYPE, 1000, data));
+
+		this.insert("test:1", JobScheduler.getTimestamp() + 100);
+		this.scheduler.poll(false);
+
+		long before = JobScheduler.getTimestamp();
+		this.run("test:1");
+
+		/* The delete only matches the due time the job was run with */
+		Document job = this.getJob("test:1");
+		assertTrue(job.getLong("dueAt") >= before + 1000);
+		assertNull(job.get("owner"));
+	}
+
+	@Test
+	public void testFailedJobIsRetriedWithBackoff() throws Exception {
+		AtomicInteger attempts = new AtomicInteger();
+		this.scheduler.registerHandler(JobSchedulerTest.TYPE, data -> {
+			attempts.incrementAndGet();
+
+			throw new IllegalStateException("Failed");
+		});
+
+		this.insert("test:1", JobScheduler.getTimestamp() + 100);
+
+		for (int attempt = 1; attempt <= 2; attempt++) {
+			this.scheduler.poll(false);
+
+			long before = JobScheduler.getTimestamp();
+			this.run("test:1");
+			long after = JobScheduler.getTimestamp();
+
+			/* The lease is given up so any process can run it again */
+			Document job = this.getJob("test:1");
+			assertEquals(attempt, job.get("attempts"));
+			assertNull(job.get("owner"));
+			assertEquals(0L, job.get("leaseUntil"));
+
+			long delay = JobScheduler.RETRY_DELAY << (attempt - 1);
+			assertTrue(job.getLong("dueAt") >= before + delay && job.getLong("dueAt") <= after + delay);
+		}
+
+		assertEquals(2, attempts.get());
+
+		/* The delay stops doubling once it reaches the max */
+		this.collection.updateOne(Filters.eq("_id", "test:1"), Updates.combine(Updates.set("attempts", 20), Updates.set("dueAt", JobScheduler.getTimestamp() + 100)), null);
+		this.scheduler.poll(false);
+
+		long before = JobScheduler.getTimestamp();
+		this.run("test:1");
+		long after = JobScheduler.getTimestamp();
+
+		Document job = this.getJob("test:1");
+		assertEquals(21, job.get("attempts"));
+		assertTrue(job.getLong("dueAt") >= before + JobScheduler.MAX_RETRY_DELAY && job.getLong("dueAt") <= after + JobScheduler.MAX_RETRY_DELAY);
+	}
+
+	@Test
+	public void testMigrationRunsOnce() {
+		long dueAt = JobScheduler.getTimestamp() + 100;
+		this.insert("test:1", dueAt);
+
+		AtomicInteger built = new AtomicInteger();
+		List<WriteModel<Document>> bulkData = List.of(
+			JobScheduler.getJobModel("test:1", JobSchedulerTest.TYPE, dueAt + 50, new Document(), true),
+			JobScheduler.getJobModel("test:2", JobSchedulerTest.TYPE, dueAt, new Document(), true)
+		);
+
+		assertEquals(2, this.scheduler.migrate(JobSchedulerTest.TYPE, () -> {
+			built.incrementAndGet();
+
+			return bulkData;
+		}));
+
+		/* A job which already existed is kept as it is */
+		assertEquals(dueAt, this.getJob("test:1").get("dueAt"));
+		assertEquals(dueAt, this.getJob("test:2").get("dueAt"));
+
+		assertEquals(0, this.scheduler.migrate(JobSchedulerTest.TYPE, () -> {
+			built.incrementAndGet();
+
+			return bulkData;
+		}));
+
+		assertEquals(1, built.get());
+		assertEquals(3, this.collection.countDocuments(null));
+
+		/* The marker is never polled */
+		this.scheduler.poll(false);
+		assertEquals(2, this.scheduler.getLoaded());
+	}
+
+}
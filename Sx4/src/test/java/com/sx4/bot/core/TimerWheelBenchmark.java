@@ -0,0 +1,50 @@
+package com.sx4.bot.core;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Schedules and cancels a million timers on a wheel with the production tick and size, the cost of both should not
+ * depend on how many timers are pending.
+ */
+@Tag("benchmark")
+public class TimerWheelBenchmark {
+
+	private static final int TIMERS = 1000000, ROUNDS = 5;
+
+	@Test
+	public void benchmarkScheduleAndCancel() {
+		TimerWheel timer = new TimerWheel("Timer benchmark", TimerWheel.TICK_DURATION, TimeUnit.MILLISECONDS, TimerWheel.WHEEL_SIZE, 1);
+
+		try {
+			long bestSchedule = Long.MAX_VALUE, bestCancel = Long.MAX_VALUE;
+			for (int round = 0; round < ROUNDS; round++) {
+				TimerWheel.Timeout[] timeouts = new TimerWheel.Timeout[TIMERS];
+
+				long start = System.nanoTime();
+				for (int i = 0; i < TIMERS; i++) {
+					/* Spread over a day so most timers are several rounds away like real mutes and reminders */
+					timeouts[i] = timer.schedule(() -> {}, i % 86400, TimeUnit.SECONDS);
+				}
+
+				bestSchedule = Math.min(bestSchedule, System.nanoTime() - start);
+
+				start = System.nanoTime();
+				for (int i = 0; i < TIMERS; i++) {
+					timeouts[i].cancel();
+				}
+
+				bestCancel = Math.min(bestCancel, System.nanoTime() - start);
+			}
+
+			System.out.printf("Schedule: %,dns/op%n", bestSchedule / TIMERS);
+			System.out.printf("Cancel: %,dns/op%n", bestCancel / TIMERS);
+			System.out.println(timer.getStatistics());
+		} finally {
+			timer.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,68 @@
+package com.sx4.bot.core;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+public class TimerWheelTest {
+
+	@Test
+	public void testTimersExpireInOrderOfDeadline() throws Exception {
+		TimerWheel timer = new TimerWheel("Timer test", 10, TimeUnit.MILLISECONDS, 8, 1);
+
+		try {
+			CountDownLatch expired = new CountDownLatch(2);
+			AtomicInteger order = new AtomicInteger();
+
+			/* Longer than a full rotation of the wheel so it has to wait out a round */
+			TimerWheel.Timeout later = timer.schedule(() -> {
+				assertEquals(1, order.getAndIncrement());
+				expired.countDown();
+			}, 200, TimeUnit.MILLISECONDS);
+
+			TimerWheel.Timeout sooner = timer.schedule(() -> {
+				assertEquals(0, order.getAndIncrement());
+				expired.countDown();
+			}, 20, TimeUnit.MILLISECONDS);
+
+			assertTrue(expired.await(10, TimeUnit.SECONDS));
+			assertEquals(2, order.get());
+
+			assertTrue(sooner.isExpired());
+			assertTrue(later.isExpired());
+			assertFalse(later.cancel());
+			assertEquals(0, timer.getPending());
+		} finally {
+			timer.shutdown();
+		}
+	}
+
+	@Test
+	public void testCancelledTimerIsNotRun() throws Exception {
+		TimerWheel timer = new TimerWheel("Timer test", 10, TimeUnit.MILLISECONDS, 8, 1);
+
+		try {
+			AtomicInteger runs = new AtomicInteger();
+
+			TimerWheel.Timeout cancelled = timer.schedule(runs::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+			assertTrue(cancelled.cancel());
+			assertFalse(cancelled.cancel());
+
+			CountDownLatch expired = new CountDownLatch(1);
+			timer.schedule(expired::countDown, 100, TimeUnit.MILLISECONDS);
+
+			assertTrue(expired.await(10, TimeUnit.SECONDS));
+			assertEquals(0, runs.get());
+			assertTrue(cancelled.isCancelled());
+		} finally {
+			timer.shutdown();
+		}
+	}
+
+}
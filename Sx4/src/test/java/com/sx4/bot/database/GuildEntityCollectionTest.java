@@ -0,0 +1,148 @@
+package com.sx4.bot.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+
+/**
+ * Migrates legacy arrays of guilds in the memory storage, every test uses its own legacy field and guild ids so the
+ * migrations the database runs on start up never see them
+ */
+public class GuildEntityCollectionTest {
+
+	private static final int ENTITIES = 5;
+
+	private static List<Document> createLegacy(String reason) {
+		List<Document> legacy = new ArrayList<>();
+		for (long id = 0; id < ENTITIES; id++) {
+			legacy.add(new Document("id", id).append("reason", reason));
+		}
+
+		return legacy;
+	}
+
+	private static MemoryStorageCollection createCollection(String name) {
+		MemoryStorageCollection collection = new MemoryStorageCollection(name);
+		collection.createIndexes(List.of(GuildEntityCollection.getKeyIndex()));
+
+		return collection;
+	}
+
+	private static Object getLegacy(long guildId, String legacyField) {
+		return Database.get().getGuildById(guildId, null, Projections.include(legacyField)).getEmbedded(List.of(legacyField.split("\\.")), Object.class);
+	}
+
+	private static List<Long> getIds(MemoryStorageCollection collection, long guildId) {
+		List<Long> ids = new ArrayList<>();
+		for (Document entity : collection.find(Filters.eq("guildId", guildId), null, null)) {
+			ids.add(entity.getLong("id"));
+		}
+
+		ids.sort(null);
+
+		return ids;
+	}
+
+	@Test
+	public void testSecondRunDoesNothing() {
+		Database database = Database.get();
+
+		String legacyField = "entityTest.secondRun";
+		long guildId = 900000000000000001L;
+
+		database.updateGuildById(guildId, Updates.set(legacyField, GuildEntityCollectionTest.createLegacy("legacy")));
+
+		MemoryStorageCollection collection = GuildEntityCollectionTest.createCollection("secondRun");
+
+		GuildEntityCollection entities = new GuildEntityCollection("Test", database, collection, legacyField);
+		entities.migrateAll();
+
+		assertTrue(entities.isMigrated());
+		assertNull(GuildEntityCollectionTest.getLegacy(guildId, legacyField));
+		assertEquals(ENTITIES, collection.countDocuments(Filters.eq("guildId", guildId)));
+
+		entities.updateById(guildId, 0L, Updates.set("reason", "edited"));
+
+		/* A restart migrates again, there is no array left so nothing is written */
+		GuildEntityCollection restarted = new GuildEntityCollection("Test", database, collection, legacyField);
+		restarted.migrateAll();
+		restarted.migrate(guildId);
+
+		assertTrue(restarted.isMigrated());
+		assertEquals(ENTITIES, collection.countDocuments(Filters.eq("guildId", guildId)));
+		assertEquals("edited", restarted.getById(guildId, 0L).getString("reason"));
+		assertTrue(restarted.getStatistics().startsWith("Test collection: 0 guilds migrated, 0 entities back-filled"));
+	}
+
+	@Test
+	public void testInterruptedRunIsResumed() {
+		Database database = Database.get();
+
+		String legacyField = "entityTest.interrupted";
+		long failingGuildId = 900000000000000002L, writtenGuildId = 900000000000000003L;
+
+		database.updateGuildById(failingGuildId, Updates.set(legacyField, GuildEntityCollectionTest.createLegacy("legacy")));
+		database.updateGuildById(writtenGuildId, Updates.set(legacyField, GuildEntityCollectionTest.createLegacy("legacy")));
+
+		/* The bulk write of one guild fails once as if the process had died during it */
+		AtomicBoolean fail = new AtomicBoolean(true);
+		MemoryStorageCollection collection = new MemoryStorageCollection("interrupted") {
+			public BulkWriteResult bulkWrite(List<? extends WriteModel<Document>> bulkData, BulkWriteOptions bulkWriteOptions) {
+				Bson filter = ((UpdateOneModel<Document>) bulkData.get(0)).getFilter();
+				if (FilterMatcher.matches(new Document("guildId", failingGuildId).append("id", 0L), filter) && fail.getAndSet(false)) {
+					throw new IllegalStateException("Interrupted");
+				}
+
+				return super.bulkWrite(bulkData, bulkWriteOptions);
+			}
+		};
+
+		collection.createIndexes(List.of(GuildEntityCollection.getKeyIndex()));
+
+		/* The other guild's entities were written before the process died but its array was never unset, one has changed since */
+		for (Document entity : GuildEntityCollectionTest.createLegacy("legacy")) {
+			collection.insertOne(entity.append("guildId", writtenGuildId));
+		}
+
+		collection.updateOne(GuildEntityCollection.getFilter(writtenGuildId, 0L), Updates.set("reason", "edited"), null);
+
+		GuildEntityCollection entities = new GuildEntityCollection("Test", database, collection, legacyField);
+		entities.migrateAll();
+
+		assertFalse(entities.isMigrated());
+		assertEquals(List.of(), GuildEntityCollectionTest.getIds(collection, failingGuildId));
+		assertTrue(GuildEntityCollectionTest.getLegacy(failingGuildId, legacyField) instanceof List);
+
+		/* Entities which were already written are kept as they are rather than duplicated or overwritten */
+		assertNull(GuildEntityCollectionTest.getLegacy(writtenGuildId, legacyField));
+		assertEquals(List.of(0L, 1L, 2L, 3L, 4L), GuildEntityCollectionTest.getIds(collection, writtenGuildId));
+		assertEquals("edited", entities.getById(writtenGuildId, 0L).getString("reason"));
+
+		/* The next start resumes with the guild which failed */
+		GuildEntityCollection restarted = new GuildEntityCollection("Test", database, collection, legacyField);
+		restarted.migrateAll();
+
+		assertTrue(restarted.isMigrated());
+		assertNull(GuildEntityCollectionTest.getLegacy(failingGuildId, legacyField));
+		assertEquals(List.of(0L, 1L, 2L, 3L, 4L), GuildEntityCollectionTest.getIds(collection, failingGuildId));
+		assertEquals(List.of(0L, 1L, 2L, 3L, 4L), GuildEntityCollectionTest.getIds(collection, writtenGuildId));
+	}
+
+}
@@ -0,0 +1,191 @@
+package com.sx4.bot.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.MongoCommandException;
+import com.mongodb.MongoWriteException;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.IndexModel;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.InsertOneModel;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import com.mongodb.client.result.UpdateResult;
+
+public class MemoryStorageCollectionTest {
+
+	private static MemoryStorageCollection createCollection() {
+		MemoryStorageCollection collection = new MemoryStorageCollection("test");
+		for (long id = 0; id < 10; id++) {
+			collection.insertOne(new Document("_id", id).append("guildId", id % 2).append("amount", (int) (10 - id)));
+		}
+
+		return collection;
+	}
+
+	private static List<Long> getIds(Iterable<Document> documents) {
+		List<Long> ids = new ArrayList<>();
+		for (Document document : documents) {
+			ids.add(document.getLong("_id"));
+		}
+
+		return ids;
+	}
+
+	@Test
+	public void testFind() {
+		MemoryStorageCollection collection = MemoryStorageCollectionTest.createCollection();
+
+		List<Document> documents = collection.find(Filters.and(Filters.eq("guildId", 1L), Filters.gte("amount", 3)), Projections.include("amount"), Sorts.ascending("amount"));
+
+		assertEquals(List.of(7L, 5L, 3L, 1L), MemoryStorageCollectionTest.getIds(documents));
+		assertEquals(new Document("_id", 7L).append("amount", 3), documents.get(0));
+
+		assertEquals(4L, collection.findOne(Filters.eq("_id", 4L), null, null).get("_id"));
+		assertNull(collection.findOne(Filters.eq("_id", 10L), null, null));
+		assertEquals(5, collection.countDocuments(Filters.eq("guildId", 0L)));
+	}
+
+	@Test
+	public void testStoredDocumentsAreCopied() {
+		MemoryStorageCollection collection = MemoryStorageCollectionTest.createCollection();
+
+		collection.findOne(Filters.eq("_id", 0L), null, null).put("amount", 100);
+
+		assertEquals(10, collection.findOne(Filters.eq("_id", 0L), null, null).get("amount"));
+	}
+
+	@Test
+	public void testUpdate() {
+		MemoryStorageCollection collection = MemoryStorageCollectionTest.createCollection();
+
+		UpdateResult result = collection.updateMany(Filters.eq("guildId", 0L), Updates.inc("amount", 5));
+		assertEquals(5, result.getMatchedCount());
+		assertEquals(5, result.getModifiedCount());
+		assertEquals(15, collection.findOne(Filters.eq("_id", 0L), null, null).get("amount"));
+
+		/* Setting a value to what it already is matches without modifying */
+		result = collection.updateOne(Filters.eq("_id", 1L), Updates.set("amount", 9), null);
+		assertEquals(1, result.getMatchedCount());
+		assertEquals(0, result.getModifiedCount());
+
+		Document before = collection.findOneAndUpdate(Filters.eq("_id", 1L), Updates.unset("amount"), new FindOneAndUpdateOptions().returnDocument(ReturnDocument.BEFORE));
+		assertEquals(9, before.get("amount"));
+		assertNull(collection.findOne(Filters.eq("_id", 1L), null, null).get("amount"));
+
+		assertThrows(MongoWriteException.class, () -> collection.updateOne(Filters.eq("_id", 2L), Updates.set("_id", 20L), null));
+	}
+
+	@Test
+	public void testUpsert() {
+		MemoryStorageCollection collection = MemoryStorageCollectionTest.createCollection();
+
+		UpdateResult result = collection.updateOne(Filters.and(Filters.eq("_id", 20L), Filters.eq("guildId", 3L)), Updates.combine(Updates.inc("amount", 2), Updates.setOnInsert("created", true)), new UpdateOptions().upsert(true));
+		assertEquals(0, result.getMatchedCount());
+		assertEquals(20L, result.getUpsertedId().asInt64().getValue());
+
+		/* The equalities of the filter and $setOnInsert are only applied to the inserted document */
+		assertEquals(new Document("_id", 20L).append("guildId", 3L).append("amount", 2).append("created", true), collection.findOne(Filters.eq("_id", 20L), null, null));
+
+		result = collection.updateOne(Filters.eq("_id", 20L), Updates.combine(Updates.inc("amount", 2), Updates.setOnInsert("created", false)), new UpdateOptions().upsert(true));
+		assertNull(result.getUpsertedId());
+		assertEquals(4, collection.findOne(Filters.eq("_id", 20L), null, null).get("amount"));
+		assertEquals(true, collection.findOne(Filters.eq("_id", 20L), null, null).get("created"));
+	}
+
+	@Test
+	public void testArrayFilters() {
+		MemoryStorageCollection collection = new MemoryStorageCollection("test");
+
+		List<Document> channels = new ArrayList<>();
+		for (long id = 0; id < 3; id++) {
+			channels.add(new Document("id", id).append("count", 0));
+		}
+
+		collection.insertOne(new Document("_id", 1L).append("channels", channels));
+
+		collection.updateOne(Filters.eq("_id", 1L), Updates.inc("channels.$[channel].count", 1), new UpdateOptions().arrayFilters(List.of(Filters.gte("channel.id", 1L))));
+
+		List<Document> updated = collection.findOne(Filters.eq("_id", 1L), null, null).getList("channels", Document.class);
+		assertEquals(0, updated.get(0).get("count"));
+		assertEquals(1, updated.get(1).get("count"));
+		assertEquals(1, updated.get(2).get("count"));
+	}
+
+	@Test
+	public void testUniqueIndex() {
+		MemoryStorageCollection collection = new MemoryStorageCollection("test");
+		collection.createIndexes(List.of(GuildEntityCollection.getKeyIndex()));
+
+		collection.insertOne(new Document("guildId", 1L).append("id", 1));
+		collection.insertOne(new Document("guildId", 1L).append("id", 2));
+		collection.insertOne(new Document("guildId", 2L).append("id", 1));
+
+		/* Numbers are the same key whatever their type like they are in MongoDB */
+		assertThrows(MongoWriteException.class, () -> collection.insertOne(new Document("guildId", 1).append("id", 1L)));
+		assertThrows(MongoWriteException.class, () -> collection.updateOne(Filters.and(Filters.eq("guildId", 1L), Filters.eq("id", 2)), Updates.set("id", 1), null));
+		assertThrows(MongoWriteException.class, () -> collection.updateOne(Filters.and(Filters.eq("guildId", 2L), Filters.eq("id", 1), Filters.eq("missing", true)), Updates.set("other", true), new UpdateOptions().upsert(true)));
+
+		/* A failed write leaves the collection as it was */
+		assertEquals(3, collection.countDocuments(null));
+		assertEquals(1, collection.countDocuments(Filters.eq("id", 2)));
+
+		/* A key is free again once the document holding it moves away from it */
+		collection.updateOne(Filters.and(Filters.eq("guildId", 1L), Filters.eq("id", 2)), Updates.set("id", 3), null);
+		collection.insertOne(new Document("guildId", 1L).append("id", 2));
+
+		collection.deleteOne(Filters.and(Filters.eq("guildId", 2L), Filters.eq("id", 1)));
+		collection.insertOne(new Document("guildId", 2L).append("id", 1));
+
+		List<WriteModel<Document>> bulkData = List.of(
+			new InsertOneModel<>(new Document("guildId", 3L).append("id", 1)),
+			new InsertOneModel<>(new Document("guildId", 3L).append("id", 1)),
+			new InsertOneModel<>(new Document("guildId", 3L).append("id", 2))
+		);
+
+		MongoBulkWriteException exception = assertThrows(MongoBulkWriteException.class, () -> collection.bulkWrite(bulkData, new BulkWriteOptions().ordered(false)));
+		assertEquals(1, exception.getWriteErrors().size());
+		assertEquals(1, exception.getWriteErrors().get(0).getIndex());
+		assertEquals(2, collection.countDocuments(Filters.eq("guildId", 3L)));
+	}
+
+	@Test
+	public void testUniqueIndexOnDuplicates() {
+		MemoryStorageCollection collection = MemoryStorageCollectionTest.createCollection();
+
+		assertThrows(MongoCommandException.class, () -> collection.createIndexes(List.of(new IndexModel(Indexes.ascending("guildId"), new IndexOptions().unique(true)))));
+
+		/* The index was not created so the duplicates can still be written */
+		collection.insertOne(new Document("_id", 10L).append("guildId", 0L));
+	}
+
+	@Test
+	public void testUnsupportedUniqueIndex() {
+		MemoryStorageCollection collection = new MemoryStorageCollection("test");
+
+		assertThrows(UnsupportedOperationException.class, () -> collection.createIndexes(List.of(new IndexModel(Indexes.ascending("guildId"), new IndexOptions().unique(true).sparse(true)))));
+		assertThrows(UnsupportedOperationException.class, () -> collection.createIndexes(List.of(new IndexModel(Indexes.hashed("guildId"), new IndexOptions().unique(true)))));
+
+		/* Indexes which are not unique change nothing in memory */
+		collection.createIndexes(List.of(new IndexModel(Indexes.ascending("guildId"))));
+		collection.insertOne(new Document("guildId", 1L));
+		collection.insertOne(new Document("guildId", 1L));
+	}
+
+}
@@ -0,0 +1,152 @@
+package com.sx4.bot.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+public class QueryExecutorTest {
+
+	private static Throwable getCause(CompletableFuture<?> future) throws InterruptedException {
+		try {
+			future.get(10, TimeUnit.SECONDS);
+		} catch (ExecutionException e) {
+			return e.getCause();
+		} catch (TimeoutException e) {
+			throw new AssertionError("The future was never completed", e);
+		}
+
+		return null;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await();
+		} catch (InterruptedException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Test
+	public void testReadTimesOutWhileRunning() throws Exception {
+		QueryExecutor executor = new QueryExecutor(1, 10);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			CompletableFuture<String> future = executor.submit(() -> {
+				QueryExecutorTest.await(release);
+
+				return "read";
+			}, 50, TimeUnit.MILLISECONDS);
+
+			assertTrue(QueryExecutorTest.getCause(future) instanceof TimeoutException);
+			assertEquals(1, executor.getTimedOut());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testStartedWriteIsNotTimedOut() throws Exception {
+		QueryExecutor executor = new QueryExecutor(1, 10);
+
+		try {
+			CompletableFuture<String> future = executor.submitWrite(() -> {
+				try {
+					Thread.sleep(300);
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+
+				return "written";
+			}, 50, TimeUnit.MILLISECONDS);
+
+			assertEquals("written", future.get(10, TimeUnit.SECONDS));
+			assertEquals(0, executor.getTimedOut());
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testQueuedWriteTimesOutWithoutRunning() throws Exception {
+		QueryExecutor executor = new QueryExecutor(1, 10);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			executor.submitWrite(() -> {
+				QueryExecutorTest.await(release);
+
+				return null;
+			}, 0, TimeUnit.MILLISECONDS);
+
+			AtomicBoolean ran = new AtomicBoolean(false);
+			CompletableFuture<Object> queued = executor.submitWrite(() -> {
+				ran.set(true);
+
+				return null;
+			}, 50, TimeUnit.MILLISECONDS);
+
+			assertTrue(QueryExecutorTest.getCause(queued) instanceof TimeoutException);
+
+			release.countDown();
+
+			/* A query submitted after it has to run after it as well */
+			executor.submitWrite(() -> null, 0, TimeUnit.MILLISECONDS).get(10, TimeUnit.SECONDS);
+			assertFalse(ran.get());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void testTimeoutIsCompletedWhileThePoolIsBusy() throws Exception {
+		QueryExecutor executor = new QueryExecutor(1, 1);
+		CountDownLatch release = new CountDownLatch(1);
+
+		try {
+			CompletableFuture<Object> timedOut = executor.submit(() -> {
+				QueryExecutorTest.await(release);
+
+				return null;
+			}, 500, TimeUnit.MILLISECONDS);
+
+			/* Attached well before the deadline so it runs on whichever thread fails the future */
+			AtomicReference<String> timedOutThread = new AtomicReference<>();
+			CompletableFuture<Void> timedOutCallback = timedOut.handle((result, exception) -> {
+				timedOutThread.set(Thread.currentThread().getName());
+
+				return null;
+			});
+
+			/* Waiting on the query itself would let this thread run the callback */
+			timedOutCallback.get(10, TimeUnit.SECONDS);
+			assertTrue(timedOut.isCompletedExceptionally());
+
+			/* The only query thread is still busy with the first query */
+			assertTrue(timedOutThread.get().startsWith("database-query-callback"), timedOutThread.get());
+
+			/* One query fills the queue so the next is rejected */
+			executor.submit(() -> null, 0, TimeUnit.MILLISECONDS);
+
+			assertTrue(QueryExecutorTest.getCause(executor.submit(() -> null, 0, TimeUnit.MILLISECONDS)) instanceof RejectedExecutionException);
+			assertEquals(1, executor.getRejected());
+		} finally {
+			release.countDown();
+			executor.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,113 @@
+package com.sx4.bot.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.BsonArray;
+import org.bson.BsonDocument;
+import org.bson.BsonInt32;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.RawBsonDocument;
+import org.bson.codecs.BsonDocumentCodec;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.ServerAddress;
+import com.mongodb.connection.ClusterId;
+import com.mongodb.connection.ConnectionDescription;
+import com.mongodb.connection.ServerId;
+import com.mongodb.event.CommandStartedEvent;
+import com.mongodb.event.CommandSucceededEvent;
+
+public class QueryMetricsTest {
+
+	private static final ConnectionDescription CONNECTION = new ConnectionDescription(new ServerId(new ClusterId(), new ServerAddress()));
+
+	private int requestId = 0;
+
+	private static BsonDocument getCursor(long cursorId, String batch, int documents) {
+		BsonArray array = new BsonArray();
+		for (int i = 0; i < documents; i++) {
+			array.add(new BsonDocument("_id", new BsonInt32(i)));
+		}
+
+		return new BsonDocument("cursor", new BsonDocument("id", new BsonInt64(cursorId)).append(batch, array));
+	}
+
+	private static QueryMetrics.Shape getShape(QueryMetrics metrics, String shape) {
+		return metrics.getShapes().stream().filter(s -> s.getShape().equals(shape)).findFirst().orElseThrow();
+	}
+
+	private void run(QueryMetrics metrics, String operation, BsonDocument command, BsonDocument response) {
+		int requestId = this.requestId++;
+
+		metrics.commandStarted(new CommandStartedEvent(requestId, CONNECTION, "sx4", operation, command));
+		metrics.commandSucceeded(new CommandSucceededEvent(requestId, CONNECTION, operation, response, TimeUnit.MILLISECONDS.toNanos(1)));
+	}
+
+	@Test
+	public void testGetMoreIsCreditedToFind() {
+		QueryMetrics metrics = new QueryMetrics();
+
+		BsonDocument find = new BsonDocument("find", new BsonString("guilds")).append("filter", new BsonDocument("prefixes", new BsonString("!")));
+		BsonDocument getMore = new BsonDocument("getMore", new BsonInt64(5L)).append("collection", new BsonString("guilds"));
+
+		this.run(metrics, "find", find, QueryMetricsTest.getCursor(5L, "firstBatch", 101));
+		this.run(metrics, "getMore", getMore, QueryMetricsTest.getCursor(5L, "nextBatch", 100));
+		this.run(metrics, "getMore", getMore, QueryMetricsTest.getCursor(0L, "nextBatch", 10));
+
+		List<QueryMetrics.Shape> shapes = metrics.getShapes();
+		assertEquals(1, shapes.size());
+
+		QueryMetrics.Shape shape = shapes.get(0);
+		assertEquals("find", shape.getOperation());
+		assertEquals(1, shape.getCount());
+		assertEquals(2, shape.getGetMores());
+		assertEquals(211, shape.getDocuments());
+		assertEquals(TimeUnit.MILLISECONDS.toNanos(3), shape.getTotalNanos());
+
+		/* The cursor was exhausted so a getMore reusing its id is not credited to the find */
+		this.run(metrics, "getMore", getMore, QueryMetricsTest.getCursor(0L, "nextBatch", 1));
+
+		assertEquals(2, metrics.getShapes().size());
+		assertEquals(2, shape.getGetMores());
+	}
+
+	@Test
+	public void testTrackedShapesAreRecordedPastTheCap() {
+		QueryMetrics metrics = new QueryMetrics();
+
+		BsonDocument tracked = new BsonDocument("find", new BsonString("guilds")).append("filter", new BsonDocument("_id", new BsonInt64(1L)));
+		this.run(metrics, "find", tracked, QueryMetricsTest.getCursor(0L, "firstBatch", 1));
+
+		for (int i = 1; i < QueryMetrics.MAX_SHAPES; i++) {
+			this.run(metrics, "find", new BsonDocument("find", new BsonString("guilds")).append("filter", new BsonDocument("field" + i, new BsonInt32(i))), QueryMetricsTest.getCursor(0L, "firstBatch", 0));
+		}
+
+		assertEquals(QueryMetrics.MAX_SHAPES, metrics.getShapes().size());
+
+		/* A new shape past the cap is grouped, the shape which was already tracked keeps its own numbers */
+		this.run(metrics, "find", new BsonDocument("find", new BsonString("guilds")).append("filter", new BsonDocument("new", new BsonInt32(0))), QueryMetricsTest.getCursor(0L, "firstBatch", 0));
+		this.run(metrics, "find", tracked, QueryMetricsTest.getCursor(0L, "firstBatch", 1));
+
+		assertEquals(QueryMetrics.MAX_SHAPES + 1, metrics.getShapes().size());
+
+		assertEquals(2, QueryMetricsTest.getShape(metrics, "filter={_id: ?}").getCount());
+		assertEquals(1, QueryMetricsTest.getShape(metrics, "(other)").getCount());
+	}
+
+	@Test
+	public void testBytesAreTheReplySize() {
+		QueryMetrics metrics = new QueryMetrics();
+
+		BsonDocument find = new BsonDocument("find", new BsonString("users")).append("filter", new BsonDocument("_id", new BsonInt64(1L)));
+		RawBsonDocument response = new RawBsonDocument(QueryMetricsTest.getCursor(0L, "firstBatch", 3), new BsonDocumentCodec());
+
+		this.run(metrics, "find", find, response);
+
+		assertEquals(response.getByteBuffer().remaining(), metrics.getShapes().get(0).getBytes());
+	}
+
+}
@@ -0,0 +1,172 @@
+package com.sx4.bot.database;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.Sorts;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+
+public class WriteBufferTest {
+
+	private static final int DOCUMENTS = 20;
+
+	/* Documents with an id below this have a channels array so array filter updates can be applied to them */
+	private static final int CHANNEL_DOCUMENTS = 10;
+
+	private static class BufferedUpdate {
+
+		private final long id;
+		private final Bson update;
+		private final UpdateOptions updateOptions;
+
+		private BufferedUpdate(long id, Bson update, UpdateOptions updateOptions) {
+			this.id = id;
+			this.update = update;
+			this.updateOptions = updateOptions;
+		}
+
+	}
+
+	private static WriteBuffer createBuffer(MemoryStorageCollection collection) {
+		DocumentCache cache = new DocumentCache(collection.getName(), 100, id -> collection.findOne(Filters.eq("_id", id), null, null));
+
+		/* Only flushed explicitly so every update in a round is buffered together */
+		return new WriteBuffer(collection.getName(), collection, cache, 1, TimeUnit.HOURS, Integer.MAX_VALUE);
+	}
+
+	private static void seed(MemoryStorageCollection collection) {
+		for (long id = 0; id < CHANNEL_DOCUMENTS; id++) {
+			List<Document> channels = new ArrayList<>();
+			for (long channelId = 0; channelId < 3; channelId++) {
+				channels.add(new Document("id", channelId).append("count", 0).append("users", new ArrayList<>()));
+			}
+
+			collection.insertOne(new Document("_id", id).append("channels", channels));
+		}
+
+		/* Every other document without channels starts missing so upserts and plain updates behave differently */
+		for (long id = CHANNEL_DOCUMENTS; id < DOCUMENTS; id += 2) {
+			collection.insertOne(new Document("_id", id).append("counter", 5));
+		}
+	}
+
+	private static BufferedUpdate randomUpdate(Random random) {
+		long id = random.nextInt(DOCUMENTS);
+		boolean upsert = random.nextBoolean();
+
+		UpdateOptions updateOptions = new UpdateOptions().upsert(upsert);
+
+		Bson update;
+		switch (random.nextInt(id < CHANNEL_DOCUMENTS ? 8 : 6)) {
+			case 0:
+				update = Updates.inc("counter", random.nextInt(10));
+				break;
+			case 1:
+				update = Updates.combine(Updates.inc("counter", 1), Updates.set("name", "name" + random.nextInt(5)));
+				break;
+			case 2:
+				update = Updates.set("nested.value", random.nextInt(5));
+				break;
+			case 3:
+				/* Overlaps every nested.value update so it has to be written in its own segment */
+				update = Updates.set("nested", new Document("value", -1).append("other", random.nextInt(5)));
+				break;
+			case 4:
+				update = Updates.push("list", random.nextInt(5));
+				break;
+			case 5:
+				update = Updates.addToSet("set", random.nextInt(5));
+				break;
+			case 6:
+				update = Updates.inc("channels.$[channel].count", 1);
+				updateOptions.arrayFilters(List.of(Filters.eq("channel.id", (long) random.nextInt(3))));
+				break;
+			default:
+				update = Updates.push("channels.$[channel].users", new Document("id", random.nextInt(100)));
+				updateOptions.arrayFilters(List.of(Filters.eq("channel.id", (long) random.nextInt(3))));
+				break;
+		}
+
+		return new BufferedUpdate(id, update, updateOptions);
+	}
+
+	private static List<Document> getDocuments(MemoryStorageCollection collection) {
+		return collection.find(new Document(), null, Sorts.ascending("_id"));
+	}
+
+	@Test
+	public void testMergedUpdatesMatchSequentialUpdates() throws Exception {
+		MemoryStorageCollection sequential = new MemoryStorageCollection("guilds");
+		MemoryStorageCollection buffered = new MemoryStorageCollection("guilds");
+
+		WriteBufferTest.seed(sequential);
+		WriteBufferTest.seed(buffered);
+
+		WriteBuffer buffer = WriteBufferTest.createBuffer(buffered);
+		Random random = new Random(4);
+
+		try {
+			for (int round = 0; round < 50; round++) {
+				List<CompletableFuture<Void>> futures = new ArrayList<>();
+				for (int i = 0; i < 100; i++) {
+					BufferedUpdate update = WriteBufferTest.randomUpdate(random);
+
+					sequential.updateOne(Filters.eq("_id", update.id), update.update, update.updateOptions);
+					futures.add(buffer.update(update.id, update.update, update.updateOptions));
+				}
+
+				buffer.flush();
+
+				CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+				assertEquals(WriteBufferTest.getDocuments(sequential), WriteBufferTest.getDocuments(buffered), "Documents differ after round " + round);
+			}
+		} finally {
+			buffer.shutdown();
+		}
+	}
+
+	@Test
+	public void testPlainUpdateDoesNotCreateDocument() throws Exception {
+		MemoryStorageCollection collection = new MemoryStorageCollection("guilds");
+		WriteBuffer buffer = WriteBufferTest.createBuffer(collection);
+
+		try {
+			CompletableFuture<Void> plain = buffer.update(1L, Updates.push("list", 1), new UpdateOptions());
+			CompletableFuture<Void> upsert = buffer.update(2L, Updates.push("list", 1), new UpdateOptions().upsert(true));
+
+			/* Only merged into the update before it if it upserts the same way */
+			CompletableFuture<Void> mixed = buffer.update(1L, Updates.push("list", 2), new UpdateOptions().upsert(true));
+
+			buffer.flush();
+
+			CompletableFuture.allOf(plain, upsert, mixed).get(10, TimeUnit.SECONDS);
+
+			assertNotNull(collection.findOne(Filters.eq("_id", 2L), null, null));
+			assertEquals(List.of(2), collection.findOne(Filters.eq("_id", 1L), null, null).getList("list", Integer.class));
+
+			CompletableFuture<Void> missing = buffer.update(3L, Updates.inc("counter", 1), new UpdateOptions());
+			buffer.flush();
+
+			missing.get(10, TimeUnit.SECONDS);
+
+			assertNull(collection.findOne(Filters.eq("_id", 3L), null, null));
+		} finally {
+			buffer.shutdown();
+		}
+	}
+
+}
@@ -0,0 +1,170 @@
+package com.sx4.bot.logger.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.reflect.Proxy;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sx4.bot.logger.LoggerConfig;
+
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import net.dv8tion.jda.api.JDA;
+
+/**
+ * Spills logs to a journal through a dispatcher which never sends, reads the journal back as if the process had
+ * crashed and replays it to a {@link WebhookStandIn}.
+ */
+public class LogJournalTest {
+
+	private static final int SEGMENT_SIZE = 64 * 1024, LOGS = 600;
+
+	private static final JDA BOT = (JDA) Proxy.newProxyInstance(JDA.class.getClassLoader(), new Class<?>[] {JDA.class}, (proxy, method, args) -> {
+		throw new UnsupportedOperationException(method.getName());
+	});
+
+	private static final LoggerConfig CONFIG = new LoggerConfig(new Document("webhookId", 1L));
+
+	@TempDir
+	File directory;
+
+	/**
+	 * @return the amount of logs which were spilled to the journal, the journal is left as it is like the process died
+	 */
+	private int crash() throws IOException {
+		LogJournal journal = new LogJournal(this.directory, SEGMENT_SIZE);
+
+		/* A dispatcher whose messages never complete stands in for one which was sending when the process went down */
+		LogDispatcher crashed = new LogDispatcher((request, embeds, requests) -> new CompletableFuture<>(), null, journal);
+		try {
+			for(int i = 0; i < LOGS; i++) {
+				WebhookEmbed embed = new WebhookEmbedBuilder().setDescription("Journal test #" + i).build();
+
+				crashed.offer(new EventHandler.Request(BOT, 0L, CONFIG, 0L, List.of(embed)));
+			}
+
+			return journal.getPending();
+		} finally {
+			crashed.getExecutor().shutdownNow();
+		}
+	}
+
+	/**
+	 * @return the numbers of the logs which were sent in the order they were sent, every one of them has been
+	 * acknowledged by the time this returns
+	 */
+	private List<Integer> replay(LogJournal journal, int expected) throws IOException, InterruptedException {
+		List<Integer> delivered = Collections.synchronizedList(new ArrayList<>());
+		CountDownLatch received = new CountDownLatch(expected);
+
+		/* The stand-in never rate limits the replay so nothing is waiting on a clock */
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try(WebhookStandIn standIn = new WebhookStandIn(Integer.MAX_VALUE, 1, TimeUnit.SECONDS)) {
+			LogDispatcher dispatcher = new LogDispatcher((request, embeds, requests) -> {
+				for(WebhookEmbed embed : embeds) {
+					delivered.add(Integer.parseInt(embed.getDescription().substring(embed.getDescription().indexOf('#') + 1)));
+				}
+
+				return standIn.send(1L, embeds, null, executor).thenRun(() -> {
+					for(int i = 0; i < embeds.size(); i++) {
+						received.countDown();
+					}
+				});
+			}, null, journal);
+
+			try {
+				assertEquals(expected, dispatcher.recover(guildId -> BOT, guildId -> CONFIG));
+
+				assertTrue(received.await(30, TimeUnit.SECONDS), "Not every recovered log was sent");
+			} finally {
+				/* A message is acknowledged by the task which completed it on one of the executors, once both have finished every acknowledgement has been made */
+				dispatcher.getExecutor().shutdown();
+				executor.shutdown();
+
+				assertTrue(dispatcher.getExecutor().awaitTermination(30, TimeUnit.SECONDS));
+				assertTrue(executor.awaitTermination(30, TimeUnit.SECONDS));
+			}
+
+			assertEquals(0, dispatcher.getQueued());
+			assertEquals(0, dispatcher.getInFlight());
+			assertEquals(expected, standIn.getEmbeds());
+			assertEquals(0, standIn.getRateLimited());
+		}
+
+		return delivered;
+	}
+
+	private static List<Integer> getRange(int start, int end) {
+		List<Integer> range = new ArrayList<>();
+		for(int i = start; i < end; i++) {
+			range.add(i);
+		}
+
+		return range;
+	}
+
+	@Test
+	public void testCrashRecovery() throws Exception {
+		int spilled = this.crash();
+		assertTrue(spilled > 0, "Nothing was spilled to the journal");
+
+		LogJournal journal = new LogJournal(this.directory, SEGMENT_SIZE);
+		assertEquals(spilled, journal.getRecovered());
+
+		/* The logs kept in memory were lost with the process, the spilled ones are the newest and are sent in order */
+		assertEquals(LogJournalTest.getRange(LOGS - spilled, LOGS), this.replay(journal, spilled));
+		journal.close();
+
+		/* Every replayed log was acknowledged so a second restart has nothing to recover */
+		LogJournal restarted = new LogJournal(this.directory, SEGMENT_SIZE);
+		assertEquals(0, restarted.getRecovered());
+		restarted.close();
+	}
+
+	@Test
+	public void testTornRecordIsDropped() throws Exception {
+		int spilled = this.crash();
+
+		String[] names = this.directory.list();
+		Arrays.sort(names);
+
+		/* Flips a byte in the body of the last record as if the process died while it was being written */
+		File segment = new File(this.directory, names[names.length - 1]);
+		try(RandomAccessFile file = new RandomAccessFile(segment, "rw"); FileChannel channel = file.getChannel()) {
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segment.length());
+
+			int position = 0, last = 0;
+			while(buffer.getInt(position) != 0) {
+				last = position;
+				position += 8 + buffer.getInt(position);
+			}
+
+			buffer.put(last + 8 + 20, (byte) (buffer.get(last + 8 + 20) ^ 0x55));
+		}
+
+		LogJournal journal = new LogJournal(this.directory, SEGMENT_SIZE);
+		assertEquals(spilled - 1, journal.getRecovered());
+
+		assertEquals(LogJournalTest.getRange(LOGS - spilled, LOGS - 1), this.replay(journal, spilled - 1));
+		journal.close();
+	}
+
+}
@@ -0,0 +1,93 @@
+package com.sx4.bot.logger.handler;
+
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.sx4.bot.logger.LoggerConfig;
+
+import club.minnced.discord.webhook.send.WebhookEmbed;
+import club.minnced.discord.webhook.send.WebhookEmbedBuilder;
+import net.dv8tion.jda.api.JDA;
+
+/**
+ * Sends the same logs through a dispatcher without and with the planner to a {@link WebhookStandIn} which rate limits
+ * the webhook like Discord does, how many messages were rate limited depends on timing so it is printed rather than asserted.
+ */
+@Tag("benchmark")
+public class WebhookPlannerBenchmark {
+
+	private static final int LOGS = 150;
+
+	private static final JDA BOT = (JDA) Proxy.newProxyInstance(JDA.class.getClassLoader(), new Class<?>[] {JDA.class}, (proxy, method, args) -> {
+		throw new UnsupportedOperationException(method.getName());
+	});
+
+	private static void send(String name, WebhookPlanner planner) throws IOException, InterruptedException {
+		WebhookEmbed embed = new WebhookEmbedBuilder().setDescription("Rate limit benchmark").build();
+		LoggerConfig config = new LoggerConfig(new Document("webhookId", 1L));
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+		try(WebhookStandIn standIn = new WebhookStandIn(5, 1, TimeUnit.SECONDS)) {
+			List<List<WebhookEmbed>> logs = new ArrayList<>();
+
+			int embeds = 0;
+			for(int i = 0; i < LOGS; i++) {
+				/* Every seventh log has a few embeds like a bulk delete or a role change */
+				List<WebhookEmbed> requestEmbeds = new ArrayList<>();
+				for(int j = i % 7 == 0 ? 3 : 1; j > 0; j--) {
+					requestEmbeds.add(embed);
+				}
+
+				embeds += requestEmbeds.size();
+				logs.add(requestEmbeds);
+			}
+
+			CountDownLatch received = new CountDownLatch(embeds);
+
+			LogDispatcher dispatcher = new LogDispatcher((request, requestEmbeds, requests) -> {
+				return standIn.send(1L, requestEmbeds, planner, executor).thenRun(() -> {
+					for(int i = 0; i < requestEmbeds.size(); i++) {
+						received.countDown();
+					}
+				});
+			}, planner);
+
+			long start = System.nanoTime();
+			try {
+				for(int i = 0; i < LOGS; i++) {
+					dispatcher.offer(new EventHandler.Request(BOT, 0L, config, 0L, logs.get(i)));
+
+					/* A trickle of logs with a burst of 20 every 60 logs */
+					if(i % 60 < 40) {
+						Thread.sleep(50);
+					}
+				}
+
+				boolean complete = received.await(2, TimeUnit.MINUTES);
+
+				System.out.printf("%s: %,dms, %s%s%n", name, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start), standIn.getStatistics(), complete ? "" : ", not every embed was received");
+			} finally {
+				dispatcher.getExecutor().shutdown();
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	public void benchmarkPlanner() throws Exception {
+		WebhookPlannerBenchmark.send("Without the planner", null);
+		WebhookPlannerBenchmark.send("With the planner", new WebhookPlanner());
+	}
+
+}
@@ -0,0 +1,96 @@
+package com.sx4.bot.logger.handler;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Feeds the planner the rate limit headers of responses at set times, the clock only moves when the test moves it
+ */
+public class WebhookPlannerTest {
+
+	private final AtomicLong now = new AtomicLong(1000000);
+
+	private final WebhookPlanner planner = new WebhookPlanner(this.now::get);
+
+	@Test
+	public void testUnknownWebhookIsNotHeld() {
+		assertEquals(0, this.planner.getDelay(null, false));
+		assertEquals(0, this.planner.getDelay(1L, false));
+
+		/* Responses without the headers do not make a bucket */
+		this.planner.update(1L, 204, null, null, null);
+		assertEquals(0, this.planner.getDelay(1L, false));
+	}
+
+	@Test
+	public void testLastUseIsSavedForFullBatch() {
+		this.planner.update(1L, 204, "2", "0.5", null);
+		assertEquals(0, this.planner.getDelay(1L, false));
+
+		this.planner.update(1L, 204, "1", "0.5", null);
+		assertEquals(500, this.planner.getDelay(1L, false));
+		assertEquals(0, this.planner.getDelay(1L, true));
+
+		this.planner.update(1L, 204, "0", "0.5", null);
+		assertEquals(500, this.planner.getDelay(1L, true));
+
+		/* Other webhooks have their own bucket */
+		assertEquals(0, this.planner.getDelay(2L, false));
+	}
+
+	@Test
+	public void testDelayEndsWhenBucketResets() {
+		this.planner.update(1L, 204, "0", "1.0", null);
+
+		this.now.addAndGet(400);
+		assertEquals(600, this.planner.getDelay(1L, false));
+
+		this.now.addAndGet(600);
+		assertEquals(0, this.planner.getDelay(1L, false));
+
+		/* The bucket is dropped once it has reset so nothing is held until a new response is seen */
+		assertTrue(this.planner.getStatistics().startsWith("Planner: 0 webhooks tracked"));
+	}
+
+	@Test
+	public void testResetIsRoundedUp() {
+		this.planner.update(1L, 204, "0", "0.0015", null);
+		assertEquals(2, this.planner.getDelay(1L, false));
+	}
+
+	@Test
+	public void testRateLimitedResponseEmptiesBucket() {
+		this.planner.update(1L, 204, "3", "1.0", null);
+		this.planner.update(1L, 429, "0", "1.0", "2");
+
+		assertEquals(2000, this.planner.getDelay(1L, true));
+		assertEquals(1, this.planner.getRateLimited());
+
+		/* A rate limit without a retry after is only counted */
+		this.planner.update(2L, 429, null, null, null);
+
+		assertEquals(0, this.planner.getDelay(2L, false));
+		assertEquals(2, this.planner.getRateLimited());
+	}
+
+	@Test
+	public void testMalformedHeaderForgetsBucket() {
+		this.planner.update(1L, 204, "0", "1.0", null);
+		this.planner.update(1L, 204, "none", "1.0", null);
+
+		assertEquals(0, this.planner.getDelay(1L, false));
+	}
+
+	@Test
+	public void testRemovedWebhookIsNotHeld() {
+		this.planner.update(1L, 204, "0", "1.0", null);
+		this.planner.remove(1L);
+
+		assertEquals(0, this.planner.getDelay(1L, false));
+	}
+
+}
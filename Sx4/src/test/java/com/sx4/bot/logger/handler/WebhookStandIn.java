@@ -0,0 +1,190 @@
+package com.sx4.bot.logger.handler;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import com.sun.net.httpserver.Headers;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import club.minnced.discord.webhook.send.WebhookEmbed;
+
+/**
+ * A local http server which answers webhook executions the way Discord does, every webhook shares one bucket which
+ * sends the rate limit headers with each response and answers with a 429 and a retry after once it is empty.
+ *
+ * Used by the tests to see how the dispatcher behaves against the rate limit without sending anything to Discord,
+ * {@link #send(long, List, WebhookPlanner, ScheduledExecutorService)} posts messages to it over plain http like a webhook client would.
+ */
+public class WebhookStandIn implements AutoCloseable {
+
+	private static final String STATISTICS_MESSAGE = "Stand-in: %,d requests, %,d rate limited, %,d embeds received";
+
+	private final HttpServer server;
+
+	private final int limit;
+	private final long resetAfter;
+
+	private int remaining = 0;
+	private long resetAt = 0;
+
+	private final AtomicLong requests = new AtomicLong(0);
+	private final AtomicLong rateLimited = new AtomicLong(0);
+	private final AtomicLong embeds = new AtomicLong(0);
+
+	public WebhookStandIn(int limit, long resetAfter, TimeUnit unit) throws IOException {
+		this.limit = limit;
+		this.resetAfter = unit.toMillis(resetAfter);
+
+		this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+		this.server.createContext("/", this::handle);
+		this.server.start();
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		try {
+			byte[] body = exchange.getRequestBody().readAllBytes();
+
+			this.requests.incrementAndGet();
+
+			long now = System.currentTimeMillis(), resetAfter;
+			int remaining;
+			boolean limited;
+			synchronized(this) {
+				if(now >= this.resetAt) {
+					this.remaining = this.limit;
+					this.resetAt = now + this.resetAfter;
+				}
+
+				limited = this.remaining == 0;
+				if(!limited) {
+					this.remaining--;
+				}
+
+				remaining = this.remaining;
+				resetAfter = this.resetAt - now;
+			}
+
+			Headers headers = exchange.getResponseHeaders();
+			headers.set("X-RateLimit-Limit", String.valueOf(this.limit));
+			headers.set("X-RateLimit-Remaining", String.valueOf(remaining));
+			headers.set("X-RateLimit-Reset-After", String.format(Locale.ROOT, "%.3f", resetAfter / 1000D));
+
+			if(limited) {
+				this.rateLimited.incrementAndGet();
+
+				byte[] response = new JSONObject()
+					.put("message", "You are being rate limited.")
+					.put("retry_after", resetAfter / 1000D)
+					.put("global", false)
+					.toString()
+					.getBytes(StandardCharsets.UTF_8);
+
+				/* Whole seconds like Discord, the webhook client reads it as a long */
+				headers.set("Retry-After", String.valueOf((long) Math.ceil(resetAfter / 1000D)));
+				headers.set("Content-Type", "application/json");
+
+				exchange.sendResponseHeaders(429, response.length);
+				try(OutputStream stream = exchange.getResponseBody()) {
+					stream.write(response);
+				}
+
+				return;
+			}
+
+			JSONArray embeds = new JSONObject(new String(body, StandardCharsets.UTF_8)).optJSONArray("embeds");
+			this.embeds.addAndGet(embeds == null ? 0 : embeds.length());
+
+			exchange.sendResponseHeaders(204, -1);
+		} finally {
+			exchange.close();
+		}
+	}
+
+	/**
+	 * Posts the embeds here on the executor like a webhook client would, a rate limited message is posted again once
+	 * its retry after has passed
+	 *
+	 * @param planner sees the headers of every response, null for none
+	 * @return a future which is completed once the message has been received
+	 */
+	public CompletableFuture<Void> send(long webhookId, List<WebhookEmbed> embeds, WebhookPlanner planner, ScheduledExecutorService executor) {
+		CompletableFuture<Void> future = new CompletableFuture<>();
+		executor.execute(() -> this.post(webhookId, new JSONObject().put("embeds", embeds).toString().getBytes(StandardCharsets.UTF_8), planner, executor, future));
+
+		return future;
+	}
+
+	private void post(long webhookId, byte[] body, WebhookPlanner planner, ScheduledExecutorService executor, CompletableFuture<Void> future) {
+		try {
+			InetSocketAddress address = this.server.getAddress();
+
+			HttpURLConnection connection = (HttpURLConnection) new URL("http", address.getHostString(), address.getPort(), "/api/webhooks/" + webhookId + "/stand-in").openConnection();
+			connection.setRequestMethod("POST");
+			connection.setRequestProperty("Content-Type", "application/json");
+			connection.setDoOutput(true);
+
+			try(OutputStream stream = connection.getOutputStream()) {
+				stream.write(body);
+			}
+
+			int code = connection.getResponseCode();
+			if(planner != null) {
+				planner.update(webhookId, code, connection.getHeaderField("X-RateLimit-Remaining"), connection.getHeaderField("X-RateLimit-Reset-After"), connection.getHeaderField("Retry-After"));
+			}
+
+			/* Read to the end so the connection can be reused */
+			try(InputStream stream = code >= 400 ? connection.getErrorStream() : connection.getInputStream()) {
+				if(stream != null) {
+					stream.readAllBytes();
+				}
+			}
+
+			if(code == 429) {
+				executor.schedule(() -> this.post(webhookId, body, planner, executor, future), Long.parseLong(connection.getHeaderField("Retry-After")), TimeUnit.SECONDS);
+			} else if(code >= 400) {
+				future.completeExceptionally(new IOException("The stand-in answered with " + code));
+			} else {
+				future.complete(null);
+			}
+		} catch(Throwable e) {
+			future.completeExceptionally(e);
+		}
+	}
+
+	public long getRequests() {
+		return this.requests.get();
+	}
+
+	public long getRateLimited() {
+		return this.rateLimited.get();
+	}
+
+	public long getEmbeds() {
+		return this.embeds.get();
+	}
+
+	public String getStatistics() {
+		return String.format(STATISTICS_MESSAGE, this.requests.get(), this.rateLimited.get(), this.embeds.get());
+	}
+
+	public void close() {
+		this.server.stop(0);
+	}
+
+}